@@ -0,0 +1,66 @@
+package eu.dirk.haase.type;
+
+import java.util.Arrays;
+
+/**
+ * Dirty bitmap of the members of an outermost {@link Struct} (one bit per
+ * member, members sorted by offset).
+ *
+ * @see Struct#trackChanges()
+ */
+final class ChangeTracker {
+
+    private final long[] bits;
+    private final Struct.AbstractMember[] members;
+
+    ChangeTracker(final Struct.AbstractMember[] members) {
+        this.members = members;
+        this.bits = new long[(members.length + 63) >>> 6];
+    }
+
+    void clear() {
+        Arrays.fill(this.bits, 0L);
+    }
+
+    boolean isChanged() {
+        for (final long word : this.bits) {
+            if (word != 0L) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isChanged(final int index) {
+        return (this.bits[index >>> 6] & (1L << index)) != 0L;
+    }
+
+    void mark(final int index) {
+        this.bits[index >>> 6] |= (1L << index);
+    }
+
+    /**
+     * Marks all members overlapping the specified byte range.
+     *
+     * @param offset the offset of the range relative to the struct.
+     * @param length the length of the range.
+     */
+    void markRange(final int offset, final int length) {
+        final int end = offset + length;
+        for (int i = 0; this.members.length > i; ++i) {
+            final Struct.AbstractMember member = this.members[i];
+            if ((member.offset() < end) && ((member.offset() + member.length()) > offset)) {
+                mark(i);
+            }
+        }
+    }
+
+    Struct.AbstractMember member(final int index) {
+        return this.members[index];
+    }
+
+    int size() {
+        return this.members.length;
+    }
+
+}
@@ -0,0 +1,238 @@
+package eu.dirk.haase.type;
+
+import java.lang.reflect.Array;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p> A generic {@link Struct} view whose layout is driven by a
+ * {@link StructSchema} instead of a compiled struct class. This allows
+ * processes to attach to memory mapped data described by a schema written
+ * by another process.</p>
+ * <p>
+ * <p> The members are created once from the schema and are resolved by
+ * name; handles should be resolved once and then reused:
+ * {@code
+ * DynamicStruct view = new DynamicStruct(StructSchema.parse(text));
+ * Struct.Signed64 count = view.member("count");
+ * Struct.Float32[] grades = view.member("grades");
+ * view.initByteBuffer(mappedByteBuffer, position);
+ * long c = count.get();}</p>
+ * <p>
+ * <p> Enumeration members are represented by signed integer members of the
+ * same size (holding the ordinal or wire code), bit enumerations by
+ * {@link UnsignedBits} of the same bit length.</p>
+ *
+ * @see StructSchema
+ */
+public final class DynamicStruct extends Struct {
+
+    private static final long serialVersionUID = 0L;
+
+    private final Map<String, Object> members;
+    private final StructSchema schema;
+
+    /**
+     * Creates a view of the specified schema.
+     *
+     * @param schema the schema of the struct.
+     */
+    public DynamicStruct(final StructSchema schema) {
+        this(schema, 0);
+    }
+
+    DynamicStruct(final StructSchema schema, final int structOffset) {
+        super(schema.byteOrder(), Layout.PACKED, structOffset);
+        this.schema = schema;
+        this.structResetIndex = false; // Offsets are given by the schema.
+        final Map<String, Object> map = new LinkedHashMap<>();
+        for (final StructSchema.Member member : schema.members()) {
+            map.put(member.name(), createMember(member, member.dims(), 0, member.offset()));
+        }
+        setMinimumSize(schema.size());
+        this.members = Collections.unmodifiableMap(map);
+    }
+
+    private Object createMember(final StructSchema.Member member, final int[] dims, final int dim, final int offset) {
+        if (dim < dims.length) {
+            final int elementSize = member.length() * product(dims, dim + 1);
+            final Object array = Array.newInstance(componentType(member, dims.length - dim - 1), dims[dim]);
+            for (int i = 0; dims[dim] > i; ++i) {
+                Array.set(array, i, createMember(member, dims, dim + 1, offset + (i * elementSize)));
+            }
+            return array;
+        }
+        setMemberIndex(offset);
+        switch (member.type()) {
+            case STRUCT:
+                return inner(new DynamicStruct(member.inner(), structOffset() + offset));
+            case VAR_GROUP:
+                return new VarGroup<>(new DynamicStruct(member.inner()));
+            case BIT:
+            case UNSIGNED_BITS:
+            case ENUM_BITS:
+                final BitMember bits = (member.type() == StructSchema.MemberType.BIT ? new Bit()
+                        : new UnsignedBits(member.bitLength()));
+                placeBits(bits, offset, member.length(), member.bitOffset());
+                return bits;
+            default:
+                return createScalarMember(member);
+        }
+    }
+
+    private AbstractMember createScalarMember(final StructSchema.Member member) {
+        switch (member.type()) {
+            case BOOL8:
+                return new Bool8();
+            case BOOL16:
+                return new Bool16();
+            case BOOL32:
+                return new Bool32();
+            case BOOL64:
+                return new Bool64();
+            case ENUM8:
+            case SIGNED8:
+                return new Signed8();
+            case ENUM16:
+            case SIGNED16:
+                return new Signed16();
+            case ENUM32:
+            case SIGNED32:
+                return new Signed32();
+            case ENUM64:
+            case SIGNED64:
+                return new Signed64();
+            case FLOAT32:
+                return new Float32();
+            case FLOAT64:
+                return new Float64();
+            case UNSIGNED8:
+                return new Unsigned8();
+            case UNSIGNED16:
+                return new Unsigned16();
+            case UNSIGNED32:
+                return new Unsigned32();
+            case UTF_CHAR8:
+                return new UtfChar8();
+            case UTF_CHAR16:
+                return new UtfChar16();
+            case UTF8_STRING:
+                return new Utf8String(member.length() - 1);
+            case BIT_FIELD:
+                return new BitField(member.length() * 8);
+            case VAR_BYTES:
+                return new VarBytes();
+            case VAR_UTF8_STRING:
+                return new VarUtf8String();
+            default:
+                throw new IllegalArgumentException("Unsupported member type: " + member.type());
+        }
+    }
+
+    private static Class<?> componentType(final StructSchema.Member member, final int remainingDims) {
+        Class<?> type = memberClass(member.type());
+        for (int i = 0; remainingDims > i; ++i) {
+            type = Array.newInstance(type, 0).getClass();
+        }
+        return type;
+    }
+
+    private static Class<?> memberClass(final StructSchema.MemberType type) {
+        switch (type) {
+            case BOOL8:
+                return Bool8.class;
+            case BOOL16:
+                return Bool16.class;
+            case BOOL32:
+                return Bool32.class;
+            case BOOL64:
+                return Bool64.class;
+            case ENUM8:
+            case SIGNED8:
+                return Signed8.class;
+            case ENUM16:
+            case SIGNED16:
+                return Signed16.class;
+            case ENUM32:
+            case SIGNED32:
+                return Signed32.class;
+            case ENUM64:
+            case SIGNED64:
+                return Signed64.class;
+            case FLOAT32:
+                return Float32.class;
+            case FLOAT64:
+                return Float64.class;
+            case UNSIGNED8:
+                return Unsigned8.class;
+            case UNSIGNED16:
+                return Unsigned16.class;
+            case UNSIGNED32:
+                return Unsigned32.class;
+            case UTF_CHAR8:
+                return UtfChar8.class;
+            case UTF_CHAR16:
+                return UtfChar16.class;
+            case UTF8_STRING:
+                return Utf8String.class;
+            case BIT_FIELD:
+                return BitField.class;
+            case BIT:
+                return Bit.class;
+            case UNSIGNED_BITS:
+            case ENUM_BITS:
+                return UnsignedBits.class;
+            case VAR_BYTES:
+                return VarBytes.class;
+            case VAR_UTF8_STRING:
+                return VarUtf8String.class;
+            case VAR_GROUP:
+                return VarGroup.class;
+            default:
+                return DynamicStruct.class;
+        }
+    }
+
+    /**
+     * Returns the member, member array or inner struct with the specified
+     * name.
+     *
+     * @param <T>  the expected type (e.g. <code>Struct.Signed32</code>,
+     *             <code>Struct.Float32[]</code> or <code>DynamicStruct</code>).
+     * @param name the member name.
+     * @return the member.
+     * @throws IllegalArgumentException if there is no such member.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T member(final String name) {
+        final Object member = this.members.get(name);
+        if (member == null) {
+            throw new IllegalArgumentException("Unknown member: " + name);
+        }
+        return (T) member;
+    }
+
+    /**
+     * Returns the members of this view by name (in layout order).
+     *
+     * @return the members.
+     */
+    public Map<String, Object> members() {
+        return this.members;
+    }
+
+    private static int product(final int[] dims, final int from) {
+        int product = 1;
+        for (int i = from; dims.length > i; ++i) {
+            product *= dims[i];
+        }
+        return product;
+    }
+
+    @Override
+    public StructSchema schema() {
+        return this.schema;
+    }
+
+}
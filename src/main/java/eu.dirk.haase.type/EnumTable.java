@@ -0,0 +1,229 @@
+package eu.dirk.haase.type;
+
+import java.io.Serializable;
+import java.lang.reflect.Array;
+
+/**
+ * <p> Precomputed code-to-constant table of an enumeration (one per enum
+ * class, shared by all enum members).</p>
+ * <p>
+ * <p> The codes are the ordinals or the {@link WireCode wire codes} of the
+ * constants. Dense codes are decoded by a direct array lookup; sparse codes
+ * by a multiplicative hash table for which a collision free (perfect)
+ * multiplier is searched at construction.</p>
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+final class EnumTable<T extends Enum<T>> implements Serializable {
+
+    private static final ClassValue<EnumTable<?>> TABLES = new ClassValue<EnumTable<?>>() {
+        @Override
+        protected EnumTable<?> computeValue(final Class<?> type) {
+            return new EnumTable(type.asSubclass(Enum.class));
+        }
+    };
+    private static final int MAX_ATTEMPTS = 64;
+    private static final long serialVersionUID = 0L;
+
+    private final int[] codes;
+    private final T[] constants;
+    private final int denseBase;
+    private final T[] slots;
+    private final int[] slotCodes;
+    private final int multiplier;
+    private final int shift;
+    private final Class<T> type;
+
+    private EnumTable(final Class<T> type) {
+        this.type = type;
+        this.constants = type.getEnumConstants();
+        this.codes = new int[this.constants.length];
+        final boolean wireCoded = WireCode.class.isAssignableFrom(type);
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (final T constant : this.constants) {
+            final int code = (wireCoded ? ((WireCode) constant).wireCode() : constant.ordinal());
+            this.codes[constant.ordinal()] = code;
+            min = Math.min(min, code);
+            max = Math.max(max, code);
+        }
+        final int n = this.constants.length;
+        if ((n == 0) || ((max - min) < ((2L * n) + 64))) {
+            // Dense: direct lookup.
+            this.denseBase = (n == 0 ? 0 : (int) min);
+            this.slots = newArray(type, (n == 0 ? 0 : (int) (max - min + 1)));
+            this.slotCodes = null;
+            this.multiplier = 0;
+            this.shift = 0;
+            for (final T constant : this.constants) {
+                final int index = this.codes[constant.ordinal()] - this.denseBase;
+                if (this.slots[index] != null) {
+                    throw duplicate(type, this.codes[constant.ordinal()]);
+                }
+                this.slots[index] = constant;
+            }
+        } else {
+            // Sparse: open addressing, perfect if a multiplier is found.
+            int bits = 32 - Integer.numberOfLeadingZeros((2 * n) - 1);
+            int best = 0;
+            int bestCollisions = Integer.MAX_VALUE;
+            int bestBits = bits;
+            for (int attempt = 0; (bestCollisions > 0) && (MAX_ATTEMPTS > attempt); ++attempt) {
+                if ((attempt > 0) && ((attempt % 16) == 0)) {
+                    ++bits;
+                }
+                final int candidate = (0x9E3779B9 + (attempt * 0x632BE5AB)) | 1;
+                final int collisions = collisions(candidate, bits);
+                if (collisions < bestCollisions) {
+                    best = candidate;
+                    bestCollisions = collisions;
+                    bestBits = bits;
+                }
+            }
+            this.denseBase = 0;
+            this.multiplier = best;
+            this.shift = 32 - bestBits;
+            this.slots = newArray(type, 1 << bestBits);
+            this.slotCodes = new int[1 << bestBits];
+            final int mask = (1 << bestBits) - 1;
+            for (final T constant : this.constants) {
+                final int code = this.codes[constant.ordinal()];
+                int index = hash(code);
+                while (this.slots[index] != null) {
+                    if (this.slotCodes[index] == code) {
+                        throw duplicate(type, code);
+                    }
+                    index = (index + 1) & mask;
+                }
+                this.slots[index] = constant;
+                this.slotCodes[index] = code;
+            }
+        }
+    }
+
+    private static IllegalArgumentException duplicate(final Class<?> type, final int code) {
+        return new IllegalArgumentException("Duplicate wire code " + code + " in " + type.getName());
+    }
+
+    private static <T> T[] newArray(final Class<T> type, final int length) {
+        return (T[]) Array.newInstance(type, length);
+    }
+
+    /**
+     * Returns the table of the specified enumeration.
+     *
+     * @param type the enumeration class.
+     * @param <T>  the enumeration type.
+     * @return the shared table.
+     * @throws IllegalArgumentException if wire codes are not unique.
+     */
+    static <T extends Enum<T>> EnumTable<T> of(final Class<T> type) {
+        return (EnumTable<T>) TABLES.get(type);
+    }
+
+    /**
+     * Returns the table of the enumeration of the specified constants.
+     *
+     * @param values the constants (e.g. <code>Gender.values()</code>).
+     * @param <T>    the enumeration type.
+     * @return the shared table.
+     */
+    static <T extends Enum<T>> EnumTable<T> of(final T[] values) {
+        return of((Class<T>) values.getClass().getComponentType());
+    }
+
+    /**
+     * Returns the code of the specified constant.
+     *
+     * @param constant the constant.
+     * @return the ordinal or the wire code.
+     */
+    int code(final T constant) {
+        return this.codes[constant.ordinal()];
+    }
+
+    private int collisions(final int candidate, final int bits) {
+        final boolean[] used = new boolean[1 << bits];
+        int collisions = 0;
+        for (final int code : this.codes) {
+            final int index = (code * candidate) >>> (32 - bits);
+            if (used[index]) {
+                ++collisions;
+            }
+            used[index] = true;
+        }
+        return collisions;
+    }
+
+    /**
+     * Returns the constant of the specified code.
+     *
+     * @param code the stored code.
+     * @return the constant or <code>null</code> if the code is unknown.
+     */
+    T decode(final long code) {
+        if (this.slotCodes == null) {
+            final long index = code - this.denseBase;
+            return ((index >= 0) && (index < this.slots.length) ? this.slots[(int) index] : null);
+        }
+        if ((code < Integer.MIN_VALUE) || (code > Integer.MAX_VALUE)) {
+            return null;
+        }
+        final int mask = this.slots.length - 1;
+        for (int index = hash((int) code); ; index = (index + 1) & mask) {
+            final T constant = this.slots[index];
+            if ((constant == null) || (this.slotCodes[index] == code)) {
+                return constant;
+            }
+        }
+    }
+
+    /**
+     * Indicates if all codes are in the range of an unsigned integer of the
+     * specified number of bits.
+     *
+     * @param nbrOfBits the number of bits.
+     * @return <code>true</code> if all codes fit.
+     */
+    boolean fits(final int nbrOfBits) {
+        for (final int code : this.codes) {
+            if ((code < 0) || ((((long) code) >>> nbrOfBits) != 0L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks that all codes fit into the specified number of bits (see
+     * {@link #fits(int)}).
+     *
+     * @param nbrOfBits the number of bits.
+     * @return this table.
+     * @throws IllegalArgumentException if a code does not fit.
+     */
+    EnumTable<T> requireFits(final int nbrOfBits) {
+        if (!fits(nbrOfBits)) {
+            throw new IllegalArgumentException("Codes of " + this.type.getName()
+                    + " do not fit into " + nbrOfBits + " bits.");
+        }
+        return this;
+    }
+
+    private Object readResolve() {
+        return of(this.type);
+    }
+
+    private int hash(final int code) {
+        return (code * this.multiplier) >>> this.shift;
+    }
+
+    /**
+     * Returns the constants indexed by ordinal.
+     *
+     * @return the constants (not a copy).
+     */
+    T[] values() {
+        return this.constants;
+    }
+
+}
@@ -0,0 +1,69 @@
+package eu.dirk.haase.type;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * <p> Memory fences for plain <code>ByteBuffer</code> accesses (Java 8 has
+ * no <code>VarHandle</code> fences).</p>
+ * <p>
+ * <p> The fences are looked up once as method handles: the
+ * <code>VarHandle</code> fences on Java 9 and later, the
+ * <code>sun.misc.Unsafe</code> fences on Java 8. If neither is available
+ * the class fails to initialize; there is no weaker fallback, since a
+ * volatile access does not order the plain loads before it with later
+ * loads.</p>
+ */
+final class Fences {
+
+    private static final MethodHandle LOAD_FENCE = fence("acquireFence", "loadFence");
+    private static final MethodHandle STORE_FENCE = fence("releaseFence", "storeFence");
+
+    private Fences() {
+    }
+
+    private static MethodHandle fence(final String varHandleName, final String unsafeName) {
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        final MethodType type = MethodType.methodType(void.class);
+        try {
+            return lookup.findStatic(Class.forName("java.lang.invoke.VarHandle"), varHandleName, type);
+        } catch (ReflectiveOperationException e) {
+            // Java 8
+        }
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return lookup.findVirtual(unsafeClass, unsafeName, type).bindTo(field.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new IllegalStateException("No " + unsafeName + " available: " + e);
+        }
+    }
+
+    /**
+     * Ensures that loads before the fence are not reordered with loads and
+     * stores after the fence.
+     */
+    static void loadFence() {
+        try {
+            LOAD_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    /**
+     * Ensures that loads and stores before the fence are not reordered with
+     * stores after the fence.
+     */
+    static void storeFence() {
+        try {
+            STORE_FENCE.invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+}
@@ -1,43 +1,35 @@
 package eu.dirk.haase.type;
 
-import java.lang.reflect.Field;
-
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Prints the member layout of a struct to <code>System.out</code>.
+ *
+ * @deprecated use a {@link StructFormatter} with
+ * {@link StructFormatter.Format#LAYOUT} (or any other format) instead.
+ */
+@Deprecated
 public class PrintStruct {
 
+    private static final StructFormatter LAYOUT = new StructFormatter(StructFormatter.Format.LAYOUT);
 
-    private static String indentSpace(int indent) {
-        String indentStr = "";
-        for (int i = 0; indent > i; ++i) {
-            indentStr += "   ";
+    public static synchronized void members(int indent, Struct struct) throws IllegalAccessException {
+        try {
+            LAYOUT.writeMembers(indent, struct, System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return indentStr;
     }
 
-    public static void members(int indent, Struct struct) throws IllegalAccessException {
-        int offset = struct.absolutePosition();
-        String indentStr = indentSpace(indent);
-        for (Field f : struct.getClass().getDeclaredFields()) {
-            f.setAccessible(true);
-            Object value = f.get(struct);
-            if (Struct.class.isAssignableFrom(f.getType())) {
-                print(indent, (Struct) value);
-            } else if (f.getType().isArray()) {
-                Object[] array = (Object[]) value;
-                Struct.AbstractMember member = (Struct.AbstractMember) array[0];
-                System.out.println(indentStr + f.getName() + "[" + array.length + "]: " + (offset + member.memberOffset));
-            } else {
-                Struct.AbstractMember member = (Struct.AbstractMember) value;
-                System.out.println(indentStr + f.getName() + ": " + (offset + member.memberOffset));
-            }
+    public static synchronized void print(int indent, Struct struct) throws IllegalAccessException {
+        try {
+            LAYOUT.writeStruct(indent, struct, System.out);
+            System.out.println();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
-    public static void print(int indent, Struct struct) throws IllegalAccessException {
-        String indentStr = indentSpace(indent);
-        System.out.println(indentStr + struct.getClass().getSimpleName() + " { " + struct.absolutePosition());
-        members(++indent, struct);
-        System.out.println(indentStr + "} ");
-    }
-
 
 }
@@ -8,12 +8,22 @@
  */
 package eu.dirk.haase.type;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * <p> Equivalent to a  <code>C/C++ struct</code>; this class confers
@@ -25,8 +35,9 @@ import java.util.Objects;
  * This approach allows for dynamic loading and binding; but also makes
  * interfacing with <code>C/C++</code> code difficult. Hence, this class for
  * which the memory layout is defined by the initialization order of the
- * {@link Struct}'s {@link AbstractMember members} and follows the same wordSize
- * rules as <code>C/C++ structs</code>.</p>
+ * {@link Struct}'s {@link AbstractMember members}. By default the members
+ * are {@link Layout#PACKED packed}; with {@link Layout#ALIGNED} they follow
+ * the same alignment rules as <code>C/C++ structs</code>.</p>
  * <p>
  * <p> This class (as well as the {@link Union} sub-class) facilitates:</p>
  * <ul>
@@ -137,6 +148,38 @@ import java.util.Objects;
  * from the leftmost to the rightmost bit (same as <code>BIG_ENDIAN</code>).
  * </p>
  * <p>
+ * <p> Flags and small numbers can be packed with the {@link Bit},
+ * {@link UnsignedBits} and {@link EnumBits} members: consecutive bit
+ * members share storage units of up to 64 bits (see {@link BitMember}).
+ * {@code
+ * public final Bit              active = new Bit();
+ * public final EnumBits<Gender> gender = new EnumBits<Gender>(3, Gender.values());
+ * public final UnsignedBits     count  = new UnsignedBits(12); // 2 bytes in total}</p>
+ * <p>
+ * <p> Numeric arrays can also be declared as primitive array members
+ * (e.g. {@link Signed32Array}), which have no per-element member objects
+ * and offer bulk access, buffer views and reductions:
+ * {@code
+ * public final Float64Array samples = new Float64Array(1024);
+ * ...
+ * double mean = samples.sum() / samples.count();}</p>
+ * <p>
+ * <p> Variable-length data is supported by {@link VarUtf8String},
+ * {@link VarBytes} and {@link VarGroup} members. In the fixed part of the
+ * struct these members only hold an (offset, length) slot; the payload is
+ * appended to a heap area following the fixed part (see
+ * {@link #variableSize()}). Scalar members keep their fixed offsets.</p>
+ * <p>
+ * <p> Changes can optionally be tracked ({@link #trackChanges()}): the
+ * setters then maintain a dirty bitmap with one bit per member, which
+ * allows to ship only the changed bytes to a replica
+ * ({@link #writeChanges(ByteBuffer)}, {@link #applyChanges(ByteBuffer)}).</p>
+ * <p>
+ * <p> A struct with a {@link SeqLock} member can be shared by a single
+ * writer and any number of lock-free readers (also across processes when
+ * the buffer is memory mapped): {@link #write(Consumer)} and
+ * {@link #read(Consumer)} implement the sequence lock protocol.</p>
+ * <p>
  * <p> Finally, it is possible to change the {@link #initByteBuffer ByteBuffer}
  * and/or the Struct {@link #initByteBuffer(ByteBuffer, int)} in its
  * <code>ByteBuffer</code> to allow for a single {@link Struct} object to
@@ -175,8 +218,14 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     private static final long serialVersionUID = 0L;
     private final List<PositionUpdatable> memberList;
     private final ByteOrder structByteOrder;
+    private final boolean structAligned;
     private final List<StructMember> structMember;
-    private final int structOffset;
+    private int structOffset;
+    private final List<VariableMember> variableMember;
+    /**
+     * Holds the largest alignment of the members (<code>1</code> if packed).
+     */
+    private int structAlignment = 1;
     /**
      * Indicates if the index has to be reset for each new field (
      * <code>true</code> only for Union subclasses).
@@ -187,11 +236,28 @@ public abstract class Struct implements PositionUpdatable, Serializable {
      * This is the index a the first unused byte available.
      */
     private transient int currStructIndex;
+    /**
+     * Holds the outer struct if this struct is an inner struct.
+     */
+    private Struct structOuter;
     private transient int structAbsolutePosition = INITIAL_ABSOLUTE_POSITION;
     /**
      * Holds the byte buffer backing the struct (top struct).
      */
     private transient ByteBuffer structByteBuffer;
+    /**
+     * Holds the dirty bitmap (outermost struct only, <code>null</code> if
+     * changes are not tracked).
+     */
+    private transient ChangeTracker structChanges;
+    /**
+     * Holds the sequence lock member (<code>null</code> if none).
+     */
+    private SeqLock structSeqLock;
+    /**
+     * Holds the storage unit of the last bit member (construction only).
+     */
+    private transient BitUnit structBitUnit;
     /**
      * Holds this struct's length.
      */
@@ -201,7 +267,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
      * Default constructor.
      */
     protected Struct() {
-        this(ByteOrder.nativeOrder(), null);
+        this(ByteOrder.nativeOrder(), Layout.PACKED, null);
     }
 
     /**
@@ -215,18 +281,48 @@ public abstract class Struct implements PositionUpdatable, Serializable {
      * Default constructor.
      */
     protected Struct(final ByteOrder byteOrder) {
-        this(byteOrder, null);
+        this(byteOrder, Layout.PACKED, null);
     }
 
     /**
      * Default constructor.
      */
     protected Struct(final ByteOrder byteOrder, final AbstractMember afterMember) {
-        this.structOffset = (afterMember == null ? 0 : afterMember.memberOffset + afterMember.memberLength);
+        this(byteOrder, Layout.PACKED, afterMember);
+    }
+
+    /**
+     * Constructor with the specified member layout.
+     */
+    protected Struct(final Layout layout) {
+        this(ByteOrder.nativeOrder(), layout, null);
+    }
+
+    /**
+     * Constructor with the specified member layout.
+     */
+    protected Struct(final ByteOrder byteOrder, final Layout layout) {
+        this(byteOrder, layout, null);
+    }
+
+    /**
+     * Constructor with the specified member layout.
+     */
+    protected Struct(final ByteOrder byteOrder, final Layout layout, final AbstractMember afterMember) {
+        this(byteOrder, layout, (afterMember == null ? 0 : afterMember.memberOffset + afterMember.memberLength));
+    }
+
+    /**
+     * Constructor with an explicit offset within the outer struct.
+     */
+    Struct(final ByteOrder byteOrder, final Layout layout, final int structOffset) {
+        this.structOffset = structOffset;
         this.structResetIndex = isUnion();
+        this.structAligned = (layout == Layout.ALIGNED);
         this.structByteOrder = byteOrder;
         this.memberList = new LinkedList<>();
         this.structMember = new LinkedList<>();
+        this.variableMember = new LinkedList<>();
         registerMember(this);
     }
 
@@ -235,6 +331,21 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         return this.structAbsolutePosition;
     }
 
+    private static int align(final int index, final int alignment) {
+        return ((index + alignment - 1) / alignment) * alignment;
+    }
+
+    /**
+     * Returns the alignment in bytes of this struct, which is the largest
+     * alignment of its members for {@link Layout#ALIGNED} structs and
+     * <code>1</code> for {@link Layout#PACKED} structs.
+     *
+     * @return the C/C++ <code>alignof(this)</code>.
+     */
+    public final int alignment() {
+        return this.structAlignment;
+    }
+
     /**
      * Defines the specified array of structs as inner structs.
      * The array is populated if necessary using the struct component
@@ -499,6 +610,16 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         }
     }
 
+    /**
+     * Returns the byte buffer backing this struct (a view of the buffer set
+     * if that buffer has another byte order than this struct).
+     *
+     * @return the current byte buffer or <code>null</code> if not set.
+     */
+    public final ByteBuffer getByteBuffer() {
+        return this.structByteBuffer;
+    }
+
     /**
      * Returns the absolute byte position of this struct within its associated
      * {@link #structByteBuffer byte buffer}.
@@ -534,9 +655,8 @@ public abstract class Struct implements PositionUpdatable, Serializable {
      * @param byteBuffer       the new byte buffer.
      * @param absolutePosition the position of this struct in the specified byte buffer.
      * @return <code>this</code>
-     * @throws IllegalArgumentException      if the specified byteBuffer has a
-     *                                       different byte order than this struct.
      * @throws UnsupportedOperationException if this struct is an inner struct.
+     * @see #setByteBuffer(ByteBuffer)
      * @see #structByteOrder
      */
     public final void initByteBuffer(final ByteBuffer byteBuffer, final int absolutePosition) {
@@ -555,9 +675,70 @@ public abstract class Struct implements PositionUpdatable, Serializable {
      */
     protected final <S extends Struct> S inner(final S innerStruct) {
         this.structMember.add(new StructMember(this, innerStruct));
+        final Struct struct = innerStruct;
+        this.variableMember.addAll(struct.variableMember);
+        struct.structOuter = this;
+        return innerStruct;
+    }
+
+    /**
+     * Defines the specified struct as inner of this struct placed at the
+     * specified index, overlaying the other inner structs placed there (as
+     * the members of a {@link Union}). The length of this struct covers the
+     * largest of them.
+     *
+     * @param innerStruct the inner struct.
+     * @param index       the index relative to the start of this struct.
+     * @return the specified struct.
+     * @see TaggedUnion
+     */
+    final <S extends Struct> S innerAt(final S innerStruct, final int index) {
+        final int end = this.currStructIndex;
+        this.currStructIndex = index;
+        final Struct struct = innerStruct;
+        final StructMember sm = new StructMember(this, struct);
+        if (sm.memberOffset != struct.structOffset) {
+            struct.shiftOffset(sm.memberOffset - struct.structOffset);
+        }
+        this.structMember.add(sm);
+        this.variableMember.addAll(struct.variableMember);
+        struct.structOuter = this;
+        this.currStructIndex = Math.max(end, this.currStructIndex);
         return innerStruct;
     }
 
+    /**
+     * Moves the specified inner struct placed by {@link #innerAt} by the
+     * specified number of bytes (during construction). The length of this
+     * struct covers its new end.
+     *
+     * @param innerStruct the inner struct.
+     * @param delta       the number of bytes to move by.
+     * @see TaggedUnion
+     */
+    final void moveInner(final Struct innerStruct, final int delta) {
+        for (final StructMember sm : this.structMember) {
+            if (sm.innerStruct == innerStruct) {
+                sm.memberOffset += delta;
+                innerStruct.shiftOffset(delta);
+                this.currStructIndex = Math.max(this.currStructIndex,
+                        sm.memberOffset - this.structOffset + sm.memberLength);
+                this.structLength = align(Math.max(this.structLength, this.currStructIndex), this.structAlignment);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Not an inner struct of " + getClass().getName());
+    }
+
+    /**
+     * Returns the index of the first unused byte (during construction).
+     *
+     * @return the index relative to the start of this struct.
+     */
+    final int nextIndex() {
+        return this.currStructIndex;
+    }
+
     /**
      * Indicates if this struct's members are mapped to the same location
      * in memory (default <code>false</code>). This method is useful for
@@ -583,26 +764,155 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         return (this instanceof Union);
     }
 
+    /**
+     * Returns the layout used to place the members of this struct.
+     *
+     * @return the member layout.
+     */
+    public final Layout layout() {
+        return (this.structAligned ? Layout.ALIGNED : Layout.PACKED);
+    }
+
+    /**
+     * Places the specified bit member into the current storage unit (grown
+     * if necessary) or into a new unit if the current one is full, closed
+     * by another member or cannot grow in place.
+     */
+    private void allocateBits(final BitMember member) {
+        final int nbrOfBits = member.bitLength();
+        final BitUnit current = this.structBitUnit;
+        if ((current != null) && !this.structResetIndex
+                && ((current.index + current.size) == this.currStructIndex)
+                && ((current.bitsUsed + nbrOfBits) <= 64)) {
+            final int size = BitUnit.size(current.bitsUsed + nbrOfBits);
+            if (!this.structAligned || ((current.index % size) == 0)) {
+                this.currStructIndex += size - current.size;
+                current.size = size;
+                current.add(member, nbrOfBits);
+                updateBitUnit(current);
+                return;
+            }
+        }
+        final int size = BitUnit.size(nbrOfBits);
+        final BitUnit unit = new BitUnit(this.structAligned ? align(this.currStructIndex, size) : this.currStructIndex);
+        unit.size = size;
+        unit.add(member, nbrOfBits);
+        this.currStructIndex = unit.index + size;
+        this.structBitUnit = unit;
+        updateBitUnit(unit);
+    }
+
+    /**
+     * Moves the specified bit member to the given storage unit and bit
+     * offset; used by descriptor driven structs to place bit members as
+     * described.
+     *
+     * @param member    the bit member (of this struct).
+     * @param index     the index of the storage unit (relative to this struct).
+     * @param size      the size of the storage unit in bytes.
+     * @param bitOffset the bit offset within the unit (in allocation order).
+     */
+    final void placeBits(final BitMember member, final int index, final int size, final int bitOffset) {
+        final BitUnit unit = new BitUnit(index);
+        unit.size = size;
+        unit.bitsUsed = bitOffset;
+        unit.add(member, member.bitLength());
+        this.structBitUnit = null;
+        updateBitUnit(unit);
+    }
+
+    private void updateBitUnit(final BitUnit unit) {
+        if (this.structAligned) {
+            this.structAlignment = Math.max(this.structAlignment, unit.size);
+        }
+        this.structLength = align(Math.max(this.structLength, this.currStructIndex), this.structAlignment);
+        final boolean bigEndian = (this.structByteOrder == ByteOrder.BIG_ENDIAN);
+        for (final BitMember member : unit.members) {
+            member.memberOffset = unit.index + this.structOffset;
+            member.memberLength = unit.size;
+            member.memberShift = (bigEndian ? (unit.size * 8) - member.memberBitOffset - member.bitLength()
+                    : member.memberBitOffset);
+        }
+    }
+
+    private static int naturalAlignment(final int byteSize) {
+        switch (byteSize) {
+            case 2:
+            case 4:
+            case 8:
+                return byteSize;
+            default:
+                return 1;
+        }
+    }
+
     private void registerMember(final PositionUpdatable positionUpdatable) {
         this.memberList.add(positionUpdatable);
     }
 
+    /**
+     * Sets the current byte buffer for this struct and its inner structs.
+     * The byte buffer may have any byte order: if it differs from the
+     * {@link #byteOrder() byte order} of a struct, that struct accesses the
+     * bytes through a view in its own order (created once here), hence
+     * inner structs of different byte orders can parse mixed-endian data in
+     * place.
+     *
+     * @param byteBuffer the new byte buffer.
+     * @see #getByteBuffer()
+     */
     public final void setByteBuffer(final ByteBuffer byteBuffer) {
+        // A view in the struct order shares the bytes; the buffer swaps them (intrinsic reverseBytes).
+        final ByteBuffer view = (byteBuffer.order() == this.structByteOrder ? byteBuffer
+                : byteBuffer.duplicate().order(this.structByteOrder));
         for (StructMember sm : this.structMember) {
-            sm.innerStruct.setByteBuffer(byteBuffer);
+            sm.innerStruct.setByteBuffer(view);
+        }
+        this.structByteBuffer = view;
+    }
+
+    /**
+     * Sets the index (relative to this struct) of the next member; used by
+     * descriptor driven structs to place members at given offsets.
+     *
+     * @param index the index of the next member.
+     */
+    final void setMemberIndex(final int index) {
+        this.currStructIndex = index;
+    }
+
+    /**
+     * Ensures that the size of this struct is at least the specified size.
+     *
+     * @param size the minimum size in bytes.
+     */
+    final void setMinimumSize(final int size) {
+        this.structLength = Math.max(this.structLength, size);
+    }
+
+    // Moves this struct (and its members) by delta bytes within the outer struct.
+    private void shiftOffset(final int delta) {
+        for (final PositionUpdatable pu : this.memberList) {
+            if (pu instanceof AbstractMember) {
+                ((AbstractMember) pu).memberOffset += delta;
+            }
         }
-        if (byteBuffer.order() != this.structByteOrder) {
-            throw new IllegalArgumentException(
-                    "The byte order of the specified byte buffer"
-                            + " is different from this struct byte order");
+        shiftStructOffset(delta);
+    }
+
+    private void shiftStructOffset(final int delta) {
+        this.structOffset += delta;
+        for (final StructMember sm : this.structMember) {
+            sm.memberOffset += delta;
+            sm.innerStruct.shiftStructOffset(delta);
         }
-        this.structByteBuffer = byteBuffer;
     }
 
     /**
-     * Returns the size in bytes of this struct. The size includes
-     * tail padding to satisfy the struct word size requirement
-     * (defined by the largest word size of its {@link AbstractMember members}).
+     * Returns the size in bytes of this struct. For {@link Layout#ALIGNED}
+     * structs the size includes tail padding to satisfy the struct alignment
+     * requirement (defined by the largest alignment of its
+     * {@link AbstractMember members}).
      *
      * @return the C/C++ <code>sizeof(this)</code>.
      */
@@ -610,6 +920,298 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         return structLength;
     }
 
+    /**
+     * Returns the offset of this struct within its outermost struct.
+     *
+     * @return the C/C++ <code>offsetof</code> of this (inner) struct.
+     */
+    final int structOffset() {
+        return this.structOffset;
+    }
+
+    /**
+     * Returns the schema descriptor of this struct's layout.
+     *
+     * @return the schema of this struct.
+     * @see StructSchema
+     */
+    public StructSchema schema() {
+        return StructSchema.of(this);
+    }
+
+    /**
+     * Returns the struct containing all others (this struct if it is not
+     * an inner struct).
+     *
+     * @return the outermost struct.
+     */
+    final Struct topStruct() {
+        Struct top = this;
+        while (top.structOuter != null) {
+            top = top.structOuter;
+        }
+        return top;
+    }
+
+    /**
+     * Returns the size in bytes of this struct including the payload of its
+     * variable-length members.
+     *
+     * @return <code>size() + variableSize()</code>.
+     */
+    public final int totalSize() {
+        return size() + variableSize();
+    }
+
+    /**
+     * Returns the number of bytes used by the payload of the variable-length
+     * members in the heap area following the fixed part of this struct.
+     *
+     * @return the size of the heap area in bytes.
+     */
+    public final int variableSize() {
+        int heapEnd = size();
+        for (final VariableMember vm : this.variableMember) {
+            final int heapOffset = vm.heapOffset();
+            if (heapOffset != 0) {
+                heapEnd = Math.max(heapEnd, heapOffset + vm.byteLength());
+            }
+        }
+        return heapEnd - size();
+    }
+
+    /**
+     * Clears all variable-length members of this struct, so that the heap
+     * area is empty.
+     */
+    public final void clearVariableMembers() {
+        for (final VariableMember vm : this.variableMember) {
+            vm.clear();
+        }
+    }
+
+    /**
+     * Applies the changes read from the specified buffer (as written by
+     * {@link #writeChanges(ByteBuffer)}) to the current data of this struct.
+     * The position of the specified buffer is advanced past the changes.
+     * If changes are tracked, the affected members are marked as changed.
+     *
+     * @param changes the buffer holding the changes at its position.
+     * @throws IllegalArgumentException if a change is out of the bounds of
+     *                                  this struct byte buffer.
+     */
+    public final void applyChanges(final ByteBuffer changes) {
+        final int base = this.structAbsolutePosition;
+        final int runs = changes.getInt();
+        for (int r = 0; runs > r; ++r) {
+            final int offset = changes.getInt();
+            final int length = changes.getInt();
+            if ((offset < 0) || (length < 0) || ((base + offset + length) > this.structByteBuffer.limit())) {
+                throw new IllegalArgumentException("Change out of bounds: offset=" + offset + ", length=" + length);
+            }
+            for (int i = 0; length > i; ++i) {
+                this.structByteBuffer.put(base + offset + i, changes.get());
+            }
+            if (this.structChanges != null) {
+                this.structChanges.markRange(offset, length);
+            }
+        }
+    }
+
+    /**
+     * Clears the dirty bitmap (e.g. after the changes have been written or
+     * before this struct is moved to another record).
+     */
+    public final void clearChanges() {
+        if (this.structChanges != null) {
+            this.structChanges.clear();
+        }
+    }
+
+    // The member list already holds the members of the inner structs (see StructMember).
+    private static void collectMembers(final Struct struct, final List<AbstractMember> members) {
+        for (final PositionUpdatable pu : struct.memberList) {
+            if ((pu instanceof AbstractMember) && !(pu instanceof StructMember)) {
+                members.add((AbstractMember) pu);
+            }
+        }
+    }
+
+    /**
+     * Indicates if any member has been changed since the last
+     * {@link #clearChanges()}.
+     *
+     * @return <code>true</code> if changes are tracked and a member has
+     * been changed.
+     */
+    public final boolean isChanged() {
+        return (this.structChanges != null) && this.structChanges.isChanged();
+    }
+
+    /**
+     * Enables change tracking for this (outermost) struct and all its inner
+     * structs. From now on all setters maintain a dirty bitmap with one bit
+     * per member; changes of variable group elements mark the group.
+     * The bitmap is not related to the struct position: it has to be
+     * {@link #clearChanges() cleared} when this struct is moved to another
+     * record.
+     *
+     * @throws UnsupportedOperationException if this struct is an inner struct.
+     */
+    public final void trackChanges() {
+        if (this.structOuter != null) {
+            throw new UnsupportedOperationException("Changes are tracked by the outermost struct");
+        }
+        final List<AbstractMember> members = new ArrayList<>();
+        collectMembers(this, members);
+        members.sort(Comparator.comparingInt(AbstractMember::offset));
+        final ChangeTracker tracker = new ChangeTracker(members.toArray(new AbstractMember[members.size()]));
+        for (int i = 0; members.size() > i; ++i) {
+            final AbstractMember member = members.get(i);
+            member.memberChanges = tracker;
+            member.memberChangeIndex = i;
+            if (member instanceof VarGroup) {
+                // Element changes mark the group itself.
+                final List<AbstractMember> elementMembers = new ArrayList<>();
+                collectMembers(((VarGroup<?>) member).element(), elementMembers);
+                for (final AbstractMember elementMember : elementMembers) {
+                    elementMember.memberChanges = tracker;
+                    elementMember.memberChangeIndex = i;
+                }
+            }
+        }
+        this.structChanges = tracker;
+    }
+
+    /**
+     * Writes the changed members (since the last {@link #clearChanges()})
+     * to the specified buffer at its position. Adjacent changed members are
+     * merged into one run; the payload of changed variable-length members
+     * is included. Format (in the byte order of the specified buffer):
+     * <code>int runCount</code> followed by <code>runCount</code> times
+     * (<code>int offset, int length, byte[length]</code>), with offsets
+     * relative to the start of this struct.
+     *
+     * @param changes the destination buffer.
+     * @return the number of bytes written.
+     * @throws IllegalStateException    if changes are not tracked.
+     * @throws BufferOverflowException if the destination is too small.
+     */
+    public final int writeChanges(final ByteBuffer changes) {
+        final ChangeTracker tracker = this.structChanges;
+        if (tracker == null) {
+            throw new IllegalStateException("Changes are not tracked");
+        }
+        final int start = changes.position();
+        changes.putInt(0);
+        int runs = 0;
+        int runStart = -1;
+        int runEnd = -1;
+        for (int i = 0; tracker.size() > i; ++i) {
+            if (!tracker.isChanged(i)) {
+                continue;
+            }
+            final AbstractMember member = tracker.member(i);
+            final int offset = member.offset();
+            final int end = offset + member.length();
+            if ((runStart >= 0) && (offset <= runEnd)) {
+                runEnd = Math.max(runEnd, end);
+                continue;
+            }
+            if (runStart >= 0) {
+                writeRun(changes, runStart, runEnd - runStart);
+                ++runs;
+            }
+            runStart = offset;
+            runEnd = end;
+        }
+        if (runStart >= 0) {
+            writeRun(changes, runStart, runEnd - runStart);
+            ++runs;
+        }
+        for (int i = 0; tracker.size() > i; ++i) {
+            final AbstractMember member = tracker.member(i);
+            if (tracker.isChanged(i) && (member instanceof VariableMember)) {
+                final VariableMember vm = (VariableMember) member;
+                if ((vm.heapOffset() != 0) && (vm.byteLength() > 0)) {
+                    writeRun(changes, vm.heapOffset(), vm.byteLength());
+                    ++runs;
+                }
+            }
+        }
+        changes.putInt(start, runs);
+        return changes.position() - start;
+    }
+
+    private void writeRun(final ByteBuffer changes, final int offset, final int length) {
+        changes.putInt(offset);
+        changes.putInt(length);
+        final int position = this.structAbsolutePosition + offset;
+        for (int i = 0; length > i; ++i) {
+            changes.put(this.structByteBuffer.get(position + i));
+        }
+    }
+
+    private SeqLock seqLock() {
+        if (this.structSeqLock == null) {
+            throw new IllegalStateException("Struct has no SeqLock member: " + getClass().getName());
+        }
+        return this.structSeqLock;
+    }
+
+    /**
+     * Reads this struct consistently with respect to a concurrent
+     * {@link #write(Consumer) writer}: the reader is retried until it has
+     * seen the data of a single completed write. Since the reader may see
+     * partially written data before it is retried, it must only collect
+     * values (no side effects outside of the reader); exceptions are
+     * rethrown only if the data read was consistent.
+     * {@code
+     * record.read((Quote q) -> { bid = q.bid.get(); ask = q.ask.get(); });}
+     *
+     * @param reader the reader of this struct.
+     * @param <S>    the type of this struct.
+     * @throws IllegalStateException if this struct has no {@link SeqLock} member.
+     */
+    public final <S extends Struct> void read(final Consumer<S> reader) {
+        final SeqLock lock = seqLock();
+        for (; ; ) {
+            final long version = lock.beginRead();
+            try {
+                reader.accept((S) this);
+            } catch (RuntimeException e) {
+                if (lock.validate(version)) {
+                    throw e;
+                }
+                continue;
+            }
+            if (lock.validate(version)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes this struct under the sequence lock: concurrent
+     * {@link #read(Consumer) readers} are retried while the writer is
+     * running. There must be only one writer at a time.
+     * {@code
+     * record.write((Quote q) -> { q.bid.set(bid); q.ask.set(ask); });}
+     *
+     * @param writer the writer of this struct.
+     * @param <S>    the type of this struct.
+     * @throws IllegalStateException if this struct has no {@link SeqLock} member.
+     */
+    public final <S extends Struct> void write(final Consumer<S> writer) {
+        final SeqLock lock = seqLock();
+        lock.beginWrite();
+        try {
+            writer.accept((S) this);
+        } finally {
+            lock.endWrite();
+        }
+    }
+
     /**
      * Returns the <code>String</code> representation of this struct
      * in the form of its constituing bytes (hexadecimal). For example:[code]
@@ -677,16 +1279,24 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         private static final long serialVersionUID = 0L;
 
         /**
-         * Holds the byte length of this member.
+         * Holds the byte length of this member (bit members: of their
+         * storage unit, which grows during construction).
          */
-        final int memberLength;
+        int memberLength;
         /**
          * Holds the relative offset (in bytes) of this member within its struct.
          */
-        final int memberOffset;
+        int memberOffset;
 
         transient int memberAbsolutePosition = Struct.INITIAL_ABSOLUTE_POSITION;
 
+        /**
+         * Holds the dirty bitmap of the outermost struct (<code>null</code>
+         * if changes are not tracked) and the bit index of this member.
+         */
+        transient ChangeTracker memberChanges;
+        transient int memberChangeIndex;
+
         /**
          * Base constructor for custom member types.
          * <p>
@@ -698,6 +1308,18 @@ public abstract class Struct implements PositionUpdatable, Serializable {
          *                 at the bit level.
          */
         protected AbstractMember(final int byteSize) {
+            this(byteSize, naturalAlignment(byteSize));
+        }
+
+        /**
+         * Base constructor for custom member types with an explicit alignment
+         * (only relevant for {@link Layout#ALIGNED} structs).
+         *
+         * @param byteSize  the size in bytes used when accessing
+         *                  this member data.
+         * @param alignment the alignment in bytes of this member.
+         */
+        protected AbstractMember(final int byteSize, final int alignment) {
             registerMember();
 
             this.memberLength = byteSize;
@@ -707,12 +1329,19 @@ public abstract class Struct implements PositionUpdatable, Serializable {
                 Struct.this.currStructIndex = 0;
             }
 
+            // Inserts padding if aligned.
+            if (Struct.this.structAligned) {
+                Struct.this.currStructIndex = align(Struct.this.currStructIndex, alignment);
+                Struct.this.structAlignment = Math.max(Struct.this.structAlignment, alignment);
+            }
+
             // Sets member indices.
             memberOffset = Struct.this.currStructIndex + Struct.this.structOffset;
 
-            // Update struct indices.
+            // Update struct indices (with tail padding if aligned).
             Struct.this.currStructIndex += byteSize;
-            Struct.this.structLength = Math.max(Struct.this.structLength, Struct.this.currStructIndex);
+            Struct.this.structLength = align(Math.max(Struct.this.structLength, Struct.this.currStructIndex),
+                    Struct.this.structAlignment);
             // size and index may differ because of {@link Union}
         }
 
@@ -735,6 +1364,31 @@ public abstract class Struct implements PositionUpdatable, Serializable {
             return memberOffset;
         }
 
+        /**
+         * Indicates if this member has been changed since the last
+         * {@link Struct#clearChanges()}.
+         *
+         * @return <code>true</code> if changes are tracked and this member
+         * has been changed.
+         */
+        public final boolean isChanged() {
+            final ChangeTracker changes = this.memberChanges;
+            return (changes != null) && changes.isChanged(this.memberChangeIndex);
+        }
+
+        /**
+         * Marks this member as changed if changes are tracked (called by
+         * all setters; custom members call it after writing).
+         *
+         * @see Struct#trackChanges()
+         */
+        protected final void markChanged() {
+            final ChangeTracker changes = this.memberChanges;
+            if (changes != null) {
+                changes.mark(this.memberChangeIndex);
+            }
+        }
+
         protected void registerMember() {
             Struct.this.registerMember(this);
         }
@@ -747,35 +1401,234 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents an arbitrary size (unsigned) bit field with
-     * no word size constraint (they can straddle words boundaries).
+     * The rules used to place the members of a struct.
      */
-    public final class BitField extends NonScalarMember {
+    public enum Layout {
+        /**
+         * Members follow each other without padding (default).
+         */
+        PACKED,
+        /**
+         * Members are placed at their natural alignment (as C/C++ compilers
+         * do) and the struct size is padded to a multiple of the largest
+         * member alignment.
+         */
+        ALIGNED
+    }
+
+    /**
+     * <p> Base class of the primitive array members: <code>count</code>
+     * contiguous elements without per-element member objects (same layout
+     * as <code>array(new Signed32[count])</code>), with bulk copies, fills,
+     * reductions and typed buffer views.</p>
+     * <p>
+     * <p> Buffer views (e.g. {@link Signed32Array#asIntBuffer()}) are bound
+     * to the current struct position and byte order; writes through a view
+     * are not {@link Struct#trackChanges() tracked}.</p>
+     */
+    public abstract class ArrayMember extends NonScalarMember {
         private static final long serialVersionUID = 0L;
 
-        private final int memberBitLength;
+        private final int memberCount;
+        private final int memberElementSize;
 
-        public BitField(final int nbrOfBits) {
-            super(nbrOfBits / 8);
-            this.memberBitLength = nbrOfBits;
-            if ((nbrOfBits % 8) != 0) {
-                throw new IllegalArgumentException("Number of bits (" +
-                        nbrOfBits + ") must an integer multiple of 8.");
+        /**
+         * Base constructor of the primitive array members.
+         *
+         * @param elementSize the size of an element in bytes.
+         * @param count       the number of elements.
+         * @throws IllegalArgumentException if the number of elements is not positive.
+         */
+        protected ArrayMember(final int elementSize, final int count) {
+            super(elementSize * count, elementSize);
+            if (count <= 0) {
+                throw new IllegalArgumentException("Number of elements (" + count + ") must be positive.");
             }
+            this.memberCount = count;
+            this.memberElementSize = elementSize;
         }
 
-        public final byte[] get() {
-            final byte[] bitFieldBytes = new byte[memberBitLength / 8];
-            for (int i = 0; bitFieldBytes.length > i; ++i) {
-                bitFieldBytes[i] = structByteBuffer.get(this.memberAbsolutePosition + i);
-            }
-            return bitFieldBytes;
-        }
+        /**
+         * Returns the number of elements.
+         *
+         * @return the element count.
+         */
+        public final int count() {
+            return this.memberCount;
+        }
+
+        /**
+         * Returns the size of an element.
+         *
+         * @return the element size in bytes.
+         */
+        public final int elementSize() {
+            return this.memberElementSize;
+        }
+
+        /**
+         * Returns the absolute position of the specified element.
+         *
+         * @param index the element index.
+         * @return the absolute position in the byte buffer.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        final int position(final int index) {
+            if ((index < 0) || (index >= this.memberCount)) {
+                throw new IndexOutOfBoundsException("Index " + index + " out of range 0.." + (this.memberCount - 1));
+            }
+            return this.memberAbsolutePosition + (index * this.memberElementSize);
+        }
+
+        /**
+         * Returns a byte buffer view of the elements (position zero, limit
+         * the member length).
+         */
+        final ByteBuffer slice() {
+            final ByteBuffer bb = Struct.this.structByteBuffer.duplicate();
+            bb.limit(this.memberAbsolutePosition + this.memberLength).position(this.memberAbsolutePosition);
+            return bb.slice().order(Struct.this.structByteOrder);
+        }
+
+        final ByteBuffer structByteBuffer() {
+            return Struct.this.structByteBuffer;
+        }
+
+        /**
+         * Returns the bits of the element at the specified absolute position
+         * (integers sign or zero extended, floating point numbers as raw
+         * bits).
+         */
+        abstract long bitsAt(int position);
+
+        /**
+         * Sets all elements to the specified bits (see {@link #bitsAt}).
+         */
+        final void fillBits(final long bits) {
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            for (int p = this.memberAbsolutePosition; end > p; p += this.memberElementSize) {
+                putBitsAt(p, bits);
+            }
+            markChanged();
+        }
+
+        abstract double getAsDouble(int index);
+
+        abstract long getAsLong(int index);
+
+        abstract boolean isFloating();
+
+        /**
+         * Returns the largest element of an integer array.
+         */
+        final long maxLong() {
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            long max = Long.MIN_VALUE;
+            for (int p = this.memberAbsolutePosition; end > p; p += this.memberElementSize) {
+                max = Math.max(max, bitsAt(p));
+            }
+            return max;
+        }
+
+        abstract long maxValue();
+
+        /**
+         * Returns the smallest element of an integer array.
+         */
+        final long minLong() {
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            long min = Long.MAX_VALUE;
+            for (int p = this.memberAbsolutePosition; end > p; p += this.memberElementSize) {
+                min = Math.min(min, bitsAt(p));
+            }
+            return min;
+        }
+
+        abstract long minValue();
+
+        /**
+         * Writes the low order bits of the specified bits as the element at
+         * the specified absolute position (see {@link #bitsAt}).
+         */
+        abstract void putBitsAt(int position, long bits);
+
+        abstract void setAsDouble(int index, double value);
+
+        abstract void setAsLong(int index, long value);
+
+        /**
+         * Returns the sum of the elements of an integer array.
+         */
+        final long sumLong() {
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            long sum = 0;
+            for (int p = this.memberAbsolutePosition; end > p; p += this.memberElementSize) {
+                sum += bitsAt(p);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * This class represents a single bit boolean (packed, see
+     * {@link BitMember}).
+     */
+    public final class Bit extends BitMember {
+        private static final long serialVersionUID = 0L;
+
+        public Bit() {
+            super(1);
+        }
+
+        public final boolean get() {
+            return getBits() != 0L;
+        }
+
+        public void negate() {
+            setBits(getBits() ^ 1L);
+        }
+
+        public final void set(final boolean value) {
+            setBits(value ? 1L : 0L);
+        }
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents an arbitrary size (unsigned) bit field with
+     * no word size constraint (they can straddle words boundaries).
+     */
+    public final class BitField extends NonScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        private final int memberBitLength;
+
+        public BitField(final int nbrOfBits) {
+            super(nbrOfBits / 8);
+            this.memberBitLength = nbrOfBits;
+            if ((nbrOfBits % 8) != 0) {
+                throw new IllegalArgumentException("Number of bits (" +
+                        nbrOfBits + ") must an integer multiple of 8.");
+            }
+        }
+
+        public final byte[] get() {
+            final byte[] bitFieldBytes = new byte[memberBitLength / 8];
+            for (int i = 0; bitFieldBytes.length > i; ++i) {
+                bitFieldBytes[i] = structByteBuffer.get(this.memberAbsolutePosition + i);
+            }
+            return bitFieldBytes;
+        }
 
         public final void set(final byte[] value) {
             for (int i = 0; value.length > i; ++i) {
                 structByteBuffer.put(this.memberAbsolutePosition + i, value[i]);
             }
+            markChanged();
         }
 
         public final String toBinaryString() {
@@ -806,6 +1659,137 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         }
     }
 
+    /**
+     * <p> Base class of the packed bit members of 1 to 63 bits.</p>
+     * <p>
+     * <p> Consecutive bit members share a storage unit of 1, 2, 4 or 8
+     * bytes (grown while members are added), which is accessed with a
+     * single read and shift/mask; a member never straddles units. Bits are
+     * allocated from the most significant bit if <code>BIG_ENDIAN</code>
+     * and from the least significant bit if <code>LITTLE_ENDIAN</code>.
+     * Any other member closes the current unit (in a {@link Union} every
+     * bit member has its own unit). {@link #offset()} and {@link #length()}
+     * describe the storage unit.</p>
+     * <p>
+     * <p> Setters are read-modify-write operations of the whole unit:
+     * members sharing a unit must not be written concurrently.</p>
+     */
+    public abstract class BitMember extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        private final int memberBitLength;
+        private final long memberMask;
+        int memberBitOffset;
+        int memberShift;
+
+        /**
+         * Base constructor for custom bit members.
+         *
+         * @param nbrOfBits the number of bits (1..63).
+         * @throws IllegalArgumentException if the number of bits is out of range.
+         */
+        protected BitMember(final int nbrOfBits) {
+            super(0);
+            if ((nbrOfBits < 1) || (nbrOfBits > 63)) {
+                throw new IllegalArgumentException("Number of bits (" + nbrOfBits + ") must be in the range 1..63.");
+            }
+            this.memberBitLength = nbrOfBits;
+            this.memberMask = (1L << nbrOfBits) - 1L;
+            Struct.this.allocateBits(this);
+        }
+
+        /**
+         * Returns the number of bits of this member.
+         *
+         * @return the bit length.
+         */
+        public final int bitLength() {
+            return this.memberBitLength;
+        }
+
+        /**
+         * Returns the bit offset of this member within its storage unit (in
+         * allocation order).
+         *
+         * @return the bit offset.
+         */
+        public final int bitOffset() {
+            return this.memberBitOffset;
+        }
+
+        /**
+         * Returns the unsigned value of the bits of this member.
+         *
+         * @return the bits.
+         */
+        protected final long getBits() {
+            return (readUnit() >>> this.memberShift) & this.memberMask;
+        }
+
+        /**
+         * Sets the bits of this member (other bits of the value are
+         * ignored); the other members of the storage unit are preserved.
+         *
+         * @param value the bits.
+         */
+        protected final void setBits(final long value) {
+            final long unit = (readUnit() & ~(this.memberMask << this.memberShift))
+                    | ((value & this.memberMask) << this.memberShift);
+            switch (this.memberLength) {
+                case 1:
+                    setByte((byte) unit);
+                    break;
+                case 2:
+                    setShort((short) unit);
+                    break;
+                case 4:
+                    setInt((int) unit);
+                    break;
+                default:
+                    setLong(unit);
+            }
+        }
+
+        private long readUnit() {
+            switch (this.memberLength) {
+                case 1:
+                    return getByte() & 0xFFL;
+                case 2:
+                    return getShort() & 0xFFFFL;
+                case 4:
+                    return getInt() & 0xFFFFFFFFL;
+                default:
+                    return getLong();
+            }
+        }
+    }
+
+    /**
+     * Storage unit shared by consecutive {@link BitMember}s (construction
+     * only).
+     */
+    private static final class BitUnit {
+        final int index;
+        final List<BitMember> members = new ArrayList<>(4);
+        int bitsUsed;
+        int size;
+
+        BitUnit(final int index) {
+            this.index = index;
+        }
+
+        static int size(final int nbrOfBits) {
+            final int bytes = (nbrOfBits + 7) >>> 3;
+            return (bytes <= 2 ? bytes : (bytes <= 4 ? 4 : 8));
+        }
+
+        void add(final BitMember member, final int nbrOfBits) {
+            member.memberBitOffset = this.bitsUsed;
+            this.bitsUsed += nbrOfBits;
+            this.members.add(member);
+        }
+    }
+
     /**
      * This class represents a 8 bits boolean with <code>true</code> represented
      * by <code>1</code> and <code>false</code> represented by <code>0</code>.
@@ -824,6 +1808,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void negate() {
             final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (byte) (value != 0 ? 0 : 1));
+            markChanged();
         }
 
         public final void set(final boolean value) {
@@ -859,6 +1844,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void negate() {
             final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (byte) (value != 0 ? 0 : 1));
+            markChanged();
         }
 
         public final void set(final boolean value) {
@@ -894,6 +1880,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void negate() {
             final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (byte) (value != 0 ? 0L : 1L));
+            markChanged();
         }
 
         public final void set(final boolean value) {
@@ -929,6 +1916,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void negate() {
             final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value != 0 ? 0 : 1));
+            markChanged();
         }
 
         public final void set(final byte value) {
@@ -947,28 +1935,82 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 16 bits {@link Enum}.
+     * This class represents a 16 bits {@link Enum} (coded as described for
+     * {@link Enum8}).
      */
     public final class Enum16<T extends Enum<T>> extends ScalarMember {
         private static final long serialVersionUID = 0L;
 
-        private final T[] _values;
+        private final EnumTable<T> _table;
+        private final T _unknown;
 
         public Enum16(final T[] values) {
+            this(values, null);
+        }
+
+        public Enum16(final T[] values, final T unknown) {
+            this(EnumTable.of(values), unknown);
+        }
+
+        public Enum16(final Class<T> type) {
+            this(type, null);
+        }
+
+        public Enum16(final Class<T> type, final T unknown) {
+            this(EnumTable.of(type), unknown);
+        }
+
+        private Enum16(final EnumTable<T> table, final T unknown) {
             super(16);
-            _values = values;
+            _table = table.requireFits(16);
+            _unknown = unknown;
+        }
+
+        /**
+         * Returns the raw stored code (unsigned).
+         *
+         * @return the ordinal or wire code.
+         */
+        public final int code() {
+            return (getShort() & 0xFFFF);
+        }
+
+        /**
+         * Sets the raw code (e.g. to forward unknown codes unchanged).
+         *
+         * @param code the ordinal or wire code.
+         */
+        public final void setCode(final int code) {
+            setShort((short) code);
         }
 
         public final T get() {
-            final short ordinal = getShort();
-            return _values[ordinal];
+            final T e = _table.decode(code());
+            return (e == null ? _unknown : e);
+        }
+
+        /**
+         * Indicates if the stored code is a code of the enumeration.
+         *
+         * @return <code>false</code> if the code is unknown.
+         */
+        public final boolean isKnown() {
+            return _table.decode(code()) != null;
         }
 
         public final void set(final T e) {
-            final int value = e.ordinal();
-            setShort((short) value);
+            setCode(_table.code(e));
         }
 
+        /**
+         * Returns the enumeration constants of this member (indexed by
+         * ordinal).
+         *
+         * @return the enumeration constants (not a copy).
+         */
+        final T[] values() {
+            return _table.values();
+        }
 
         @Override
         public final Object valueObj() {
@@ -977,28 +2019,80 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 32 bits {@link Enum}.
+     * This class represents a 32 bits {@link Enum} (coded as described for
+     * {@link Enum8}).
      */
     public final class Enum32<T extends Enum<T>> extends ScalarMember {
         private static final long serialVersionUID = 0L;
 
-        private final T[] _values;
+        private final EnumTable<T> _table;
+        private final T _unknown;
 
         public Enum32(final T[] values) {
+            this(values, null);
+        }
+
+        public Enum32(final T[] values, final T unknown) {
+            super(32);
+            _table = EnumTable.of(values);
+            _unknown = unknown;
+        }
+
+        public Enum32(final Class<T> type) {
+            this(type, null);
+        }
+
+        public Enum32(final Class<T> type, final T unknown) {
             super(32);
-            _values = values;
+            _table = EnumTable.of(type);
+            _unknown = unknown;
+        }
+
+        /**
+         * Returns the raw stored code.
+         *
+         * @return the ordinal or wire code.
+         */
+        public final int code() {
+            return getInt();
+        }
+
+        /**
+         * Sets the raw code (e.g. to forward unknown codes unchanged).
+         *
+         * @param code the ordinal or wire code.
+         */
+        public final void setCode(final int code) {
+            setInt(code);
         }
 
         public final T get() {
-            final int ordinal = getInt();
-            return _values[ordinal];
+            final T e = _table.decode(code());
+            return (e == null ? _unknown : e);
+        }
+
+        /**
+         * Indicates if the stored code is a code of the enumeration.
+         *
+         * @return <code>false</code> if the code is unknown.
+         */
+        public final boolean isKnown() {
+            return _table.decode(code()) != null;
         }
 
         public final void set(final T e) {
-            final int value = e.ordinal();
-            setInt(value);
+            setCode(_table.code(e));
         }
 
+        /**
+         * Returns the enumeration constants of this member (indexed by
+         * ordinal).
+         *
+         * @return the enumeration constants (not a copy).
+         */
+        final T[] values() {
+            return _table.values();
+        }
 
         @Override
         public final Object valueObj() {
@@ -1007,28 +2101,80 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 64 bits {@link Enum}.
+     * This class represents a 64 bits {@link Enum} (coded as described for
+     * {@link Enum8}).
      */
     public final class Enum64<T extends Enum<T>> extends ScalarMember {
         private static final long serialVersionUID = 0L;
 
-        private final T[] _values;
+        private final EnumTable<T> _table;
+        private final T _unknown;
 
         public Enum64(final T[] values) {
+            this(values, null);
+        }
+
+        public Enum64(final T[] values, final T unknown) {
+            super(64);
+            _table = EnumTable.of(values);
+            _unknown = unknown;
+        }
+
+        public Enum64(final Class<T> type) {
+            this(type, null);
+        }
+
+        public Enum64(final Class<T> type, final T unknown) {
             super(64);
-            _values = values;
+            _table = EnumTable.of(type);
+            _unknown = unknown;
+        }
+
+        /**
+         * Returns the raw stored code.
+         *
+         * @return the ordinal or wire code.
+         */
+        public final long code() {
+            return getLong();
+        }
+
+        /**
+         * Sets the raw code (e.g. to forward unknown codes unchanged).
+         *
+         * @param code the ordinal or wire code.
+         */
+        public final void setCode(final long code) {
+            setLong(code);
         }
 
         public final T get() {
-            final long ordinal = getLong();
-            return _values[(int) ordinal];
+            final T e = _table.decode(code());
+            return (e == null ? _unknown : e);
+        }
+
+        /**
+         * Indicates if the stored code is a code of the enumeration.
+         *
+         * @return <code>false</code> if the code is unknown.
+         */
+        public final boolean isKnown() {
+            return _table.decode(code()) != null;
         }
 
         public final void set(final T e) {
-            final long value = e.ordinal();
-            setLong(value);
+            setCode(_table.code(e));
         }
 
+        /**
+         * Returns the enumeration constants of this member (indexed by
+         * ordinal).
+         *
+         * @return the enumeration constants (not a copy).
+         */
+        final T[] values() {
+            return _table.values();
+        }
 
         @Override
         public final Object valueObj() {
@@ -1037,40 +2183,187 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 8 bits {@link Enum}.
+     * <p> This class represents a 8 bits {@link Enum}.</p>
+     * <p>
+     * <p> The stored code is the ordinal of the constant, or its
+     * {@link WireCode#wireCode() wire code} if the enumeration implements
+     * {@link WireCode}. Codes are decoded by a table shared by all members
+     * of the same enumeration; unknown codes (e.g. written by a newer
+     * version of a foreign writer) decode to the <code>unknown</code>
+     * constant given at construction (<code>null</code> by default).</p>
+     * <p>
+     * <p> The codes must be in the unsigned range of the member (checked at
+     * construction, as for {@link Enum16} and {@link EnumBits}).</p>
      */
     public final class Enum8<T extends Enum<T>> extends ScalarMember {
         private static final long serialVersionUID = 0L;
 
-        private final T[] _values;
+        private final EnumTable<T> _table;
+        private final T _unknown;
 
         public Enum8(final T[] values) {
-            super(8);
-            _values = values;
+            this(values, null);
         }
 
-        public final T get() {
-            final byte ordinal = getByte();
-            return _values[ordinal];
+        public Enum8(final T[] values, final T unknown) {
+            this(EnumTable.of(values), unknown);
         }
 
-        public final void set(final T e) {
-            final int value = e.ordinal();
-            setByte((byte) value);
+        public Enum8(final Class<T> type) {
+            this(type, null);
         }
 
+        public Enum8(final Class<T> type, final T unknown) {
+            this(EnumTable.of(type), unknown);
+        }
 
-        @Override
-        public final Object valueObj() {
-            return get();
+        private Enum8(final EnumTable<T> table, final T unknown) {
+            super(8);
+            _table = table.requireFits(8);
+            _unknown = unknown;
         }
-    }
 
-    /**
-     * This class represents a 32 bits float (C/C++/Java <code>float</code>).
-     */
-    public final class Float32 extends ScalarMember {
-        private static final long serialVersionUID = 0L;
+        /**
+         * Returns the raw stored code (unsigned).
+         *
+         * @return the ordinal or wire code.
+         */
+        public final int code() {
+            return (getByte() & 0xFF);
+        }
+
+        /**
+         * Sets the raw code (e.g. to forward unknown codes unchanged).
+         *
+         * @param code the ordinal or wire code.
+         */
+        public final void setCode(final int code) {
+            setByte((byte) code);
+        }
+
+        public final T get() {
+            final T e = _table.decode(code());
+            return (e == null ? _unknown : e);
+        }
+
+        /**
+         * Indicates if the stored code is a code of the enumeration.
+         *
+         * @return <code>false</code> if the code is unknown.
+         */
+        public final boolean isKnown() {
+            return _table.decode(code()) != null;
+        }
+
+        public final void set(final T e) {
+            setCode(_table.code(e));
+        }
+
+        /**
+         * Returns the enumeration constants of this member (indexed by
+         * ordinal).
+         *
+         * @return the enumeration constants (not a copy).
+         */
+        final T[] values() {
+            return _table.values();
+        }
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents an {@link Enum} packed into 1 to 63 bits (see
+     * {@link BitMember}); codes are handled as described for {@link Enum8}.
+     */
+    public final class EnumBits<T extends Enum<T>> extends BitMember {
+        private static final long serialVersionUID = 0L;
+
+        private final EnumTable<T> _table;
+        private final T _unknown;
+
+        public EnumBits(final int nbrOfBits, final T[] values) {
+            this(nbrOfBits, values, null);
+        }
+
+        public EnumBits(final int nbrOfBits, final T[] values, final T unknown) {
+            this(nbrOfBits, EnumTable.of(values), unknown);
+        }
+
+        public EnumBits(final int nbrOfBits, final Class<T> type) {
+            this(nbrOfBits, type, null);
+        }
+
+        public EnumBits(final int nbrOfBits, final Class<T> type, final T unknown) {
+            this(nbrOfBits, EnumTable.of(type), unknown);
+        }
+
+        private EnumBits(final int nbrOfBits, final EnumTable<T> table, final T unknown) {
+            super(nbrOfBits);
+            _table = table.requireFits(nbrOfBits);
+            _unknown = unknown;
+        }
+
+        /**
+         * Returns the raw stored code (unsigned).
+         *
+         * @return the ordinal or wire code.
+         */
+        public final int code() {
+            return (int) getBits();
+        }
+
+        /**
+         * Sets the raw code (truncated to the bit length).
+         *
+         * @param code the ordinal or wire code.
+         */
+        public final void setCode(final int code) {
+            setBits(code);
+        }
+
+        public final T get() {
+            final T e = _table.decode(code());
+            return (e == null ? _unknown : e);
+        }
+
+        /**
+         * Indicates if the stored code is a code of the enumeration.
+         *
+         * @return <code>false</code> if the code is unknown.
+         */
+        public final boolean isKnown() {
+            return _table.decode(code()) != null;
+        }
+
+        public final void set(final T e) {
+            setCode(_table.code(e));
+        }
+
+        /**
+         * Returns the enumeration constants of this member (indexed by
+         * ordinal).
+         *
+         * @return the enumeration constants (not a copy).
+         */
+        final T[] values() {
+            return _table.values();
+        }
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents a 32 bits float (C/C++/Java <code>float</code>).
+     */
+    public final class Float32 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
 
         public Float32() {
             super(32);
@@ -1079,11 +2372,13 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void add(float delta) {
             final float value = Struct.this.structByteBuffer.getFloat(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putFloat(this.memberAbsolutePosition, (value + delta));
+            markChanged();
         }
 
         public void decrement() {
             final float value = Struct.this.structByteBuffer.getFloat(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putFloat(this.memberAbsolutePosition, (value - 1f));
+            markChanged();
         }
 
         public final float get() {
@@ -1093,10 +2388,12 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void increment() {
             final float value = Struct.this.structByteBuffer.getFloat(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putFloat(this.memberAbsolutePosition, (value + 1f));
+            markChanged();
         }
 
         public final void set(final float value) {
             structByteBuffer.putFloat(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         @Override
@@ -1105,6 +2402,151 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         }
     }
 
+    /**
+     * This class represents an array of 32 bits floats (see {@link ArrayMember}).
+     */
+    public final class Float32Array extends ArrayMember {
+        private static final long serialVersionUID = 0L;
+
+        public Float32Array(final int count) {
+            super(4, count);
+        }
+
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public FloatBuffer asFloatBuffer() {
+            return slice().asFloatBuffer();
+        }
+
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.getInt(position);
+        }
+
+        public void fill(final float value) {
+            fillBits(Float.floatToRawIntBits(value));
+        }
+
+        public final float get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.getFloat(p);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final float[] dst) {
+            slice().asFloatBuffer().get(dst, 0, count());
+        }
+
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return (long) get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return true;
+        }
+
+        /**
+         * Returns the largest element (<code>NaN</code> if any element is
+         * <code>NaN</code>).
+         *
+         * @return the maximum.
+         */
+        public float max() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            float max = bb.getFloat(this.memberAbsolutePosition);
+            for (int p = this.memberAbsolutePosition + 4; end > p; p += 4) {
+                max = Math.max(max, bb.getFloat(p));
+            }
+            return max;
+        }
+
+        @Override
+        final long maxValue() {
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * Returns the smallest element (<code>NaN</code> if any element is
+         * <code>NaN</code>).
+         *
+         * @return the minimum.
+         */
+        public float min() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            float min = bb.getFloat(this.memberAbsolutePosition);
+            for (int p = this.memberAbsolutePosition + 4; end > p; p += 4) {
+                min = Math.min(min, bb.getFloat(p));
+            }
+            return min;
+        }
+
+        @Override
+        final long minValue() {
+            return Long.MIN_VALUE;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putInt(position, (int) bits);
+        }
+
+        public final void set(final int index, final float value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putFloat(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final float[] src) {
+            slice().asFloatBuffer().put(src);
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (float) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, value);
+        }
+
+        public double sum() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            double sum = 0;
+            for (int p = this.memberAbsolutePosition; end > p; p += 4) {
+                sum += bb.getFloat(p);
+            }
+            return sum;
+        }
+    }
+
     /**
      * This class represents a 64 bits float (C/C++/Java <code>double</code>).
      */
@@ -1118,11 +2560,13 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void add(double delta) {
             final double value = Struct.this.structByteBuffer.getDouble(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putDouble(this.memberAbsolutePosition, (value + delta));
+            markChanged();
         }
 
         public void decrement() {
             final double value = Struct.this.structByteBuffer.getDouble(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putDouble(this.memberAbsolutePosition, (value - 1d));
+            markChanged();
         }
 
         public final double get() {
@@ -1132,10 +2576,12 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         public void increment() {
             final double value = Struct.this.structByteBuffer.getDouble(this.memberAbsolutePosition);
             Struct.this.structByteBuffer.putDouble(this.memberAbsolutePosition, (value + 1d));
+            markChanged();
         }
 
         public final void set(final double value) {
             structByteBuffer.putDouble(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         @Override
@@ -1148,7 +2594,11 @@ public abstract class Struct implements PositionUpdatable, Serializable {
         private static final long serialVersionUID = 0L;
 
         public NonScalarMember(int wordSize) {
-            super(wordSize);
+            super(wordSize, 1);
+        }
+
+        public NonScalarMember(int wordSize, int alignment) {
+            super(wordSize, alignment);
         }
 
     }
@@ -1187,6 +2637,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
 
         final void setByte(final byte value) {
             Struct.this.structByteBuffer.put(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         final char getChar() {
@@ -1195,6 +2646,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
 
         final void setChar(final char value) {
             Struct.this.structByteBuffer.putChar(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         final int getInt() {
@@ -1203,6 +2655,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
 
         final void setInt(final int value) {
             Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         final long getLong() {
@@ -1211,6 +2664,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
 
         final void setLong(final long value) {
             Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         final short getShort() {
@@ -1219,6 +2673,7 @@ public abstract class Struct implements PositionUpdatable, Serializable {
 
         final void setShort(final short value) {
             Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, value);
+            markChanged();
         }
 
         @Override
@@ -1240,116 +2695,266 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 16 bits signed integer.
+     * This class represents an array of 64 bits floats (see {@link ArrayMember}).
      */
-    public final class Signed16 extends ScalarMember {
+    public final class Float64Array extends ArrayMember {
         private static final long serialVersionUID = 0L;
 
-        public Signed16() {
-            super(16);
+        public Float64Array(final int count) {
+            super(8, count);
         }
 
-        public void add(short delta) {
-            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value + delta));
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public DoubleBuffer asDoubleBuffer() {
+            return slice().asDoubleBuffer();
         }
 
-        public void decrement() {
-            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value - 1));
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.getLong(position);
         }
 
-        public final short get() {
-            return getShort();
+        public void fill(final double value) {
+            fillBits(Double.doubleToRawLongBits(value));
         }
 
-        public void increment() {
-            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value + 1));
+        public final double get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.getDouble(p);
         }
 
-        public final void set(final short value) {
-            setShort(value);
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final double[] dst) {
+            slice().asDoubleBuffer().get(dst, 0, count());
         }
 
         @Override
-        public final Object valueObj() {
-            return get();
+        final double getAsDouble(final int index) {
+            return get(index);
         }
-    }
 
-    /**
-     * This class represents a 32 bits signed integer.
-     */
-    public final class Signed32 extends ScalarMember {
+        @Override
+        final long getAsLong(final int index) {
+            return (long) get(index);
+        }
 
-        private static final long serialVersionUID = 0L;
+        @Override
+        final boolean isFloating() {
+            return true;
+        }
 
-        public Signed32() {
-            super(32);
+        /**
+         * Returns the largest element (<code>NaN</code> if any element is
+         * <code>NaN</code>).
+         *
+         * @return the maximum.
+         */
+        public double max() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            double max = bb.getDouble(this.memberAbsolutePosition);
+            for (int p = this.memberAbsolutePosition + 8; end > p; p += 8) {
+                max = Math.max(max, bb.getDouble(p));
+            }
+            return max;
         }
 
-        public void add(int delta) {
-            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value + delta));
+        @Override
+        final long maxValue() {
+            return Long.MAX_VALUE;
         }
 
-        public void decrement() {
-            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value - 1));
+        /**
+         * Returns the smallest element (<code>NaN</code> if any element is
+         * <code>NaN</code>).
+         *
+         * @return the minimum.
+         */
+        public double min() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            double min = bb.getDouble(this.memberAbsolutePosition);
+            for (int p = this.memberAbsolutePosition + 8; end > p; p += 8) {
+                min = Math.min(min, bb.getDouble(p));
+            }
+            return min;
         }
 
-        public final int get() {
-            return getInt();
+        @Override
+        final long minValue() {
+            return Long.MIN_VALUE;
         }
 
-        public void increment() {
-            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value + 1));
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putLong(position, bits);
         }
 
-        public final void set(final int value) {
-            setInt(value);
+        public final void set(final int index, final double value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putDouble(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final double[] src) {
+            slice().asDoubleBuffer().put(src);
+            markChanged();
         }
 
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, value);
+        }
 
         @Override
-        public final Object valueObj() {
-            return get();
+        final void setAsLong(final int index, final long value) {
+            set(index, value);
+        }
+
+        public double sum() {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int end = this.memberAbsolutePosition + this.memberLength;
+            double sum = 0;
+            for (int p = this.memberAbsolutePosition; end > p; p += 8) {
+                sum += bb.getDouble(p);
+            }
+            return sum;
         }
     }
 
     /**
-     * This class represents a 64 bits signed integer.
+     * <p> This class represents a sequence lock: a 64 bits version counter
+     * stored in the struct, which is odd while a write is in progress.
+     * A struct has at most one sequence lock; it should be the first member
+     * (8 bytes aligned) so that the version is read atomically.</p>
+     * <p>
+     * <p> Besides {@link Struct#read(Consumer)} and
+     * {@link Struct#write(Consumer)} the protocol can be used directly
+     * (e.g. to avoid capturing lambdas):
+     * {@code
+     * long version;
+     * do {
+     *     version = quote.lock.beginRead();
+     *     bid = quote.bid.get();
+     *     ask = quote.ask.get();
+     * } while (!quote.lock.validate(version));}</p>
      */
-    public class Signed64 extends ScalarMember {
+    public final class SeqLock extends Signed64 {
         private static final long serialVersionUID = 0L;
 
-        public Signed64() {
-            super(64);
+        /**
+         * @throws IllegalStateException if the struct already has a sequence lock.
+         */
+        public SeqLock() {
+            if (Struct.this.structSeqLock != null) {
+                throw new IllegalStateException("Struct has already a SeqLock member");
+            }
+            Struct.this.structSeqLock = this;
         }
 
-        public void add(long delta) {
-            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value + delta));
+        /**
+         * Starts reading: waits until no write is in progress.
+         *
+         * @return the version to pass to {@link #validate(long)}.
+         */
+        public long beginRead() {
+            for (int spins = 0; ; ++spins) {
+                final long version = getLong();
+                // The version is read before the data.
+                Fences.loadFence();
+                if ((version & 1L) == 0L) {
+                    return version;
+                }
+                if (spins > 100) {
+                    Thread.yield();
+                }
+            }
         }
 
-        public void decrement() {
-            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value - 1L));
+        /**
+         * Starts writing (single writer): makes the version odd.
+         */
+        public void beginWrite() {
+            setLong(getLong() + 1L);
+            // The odd version is visible before the data.
+            Fences.storeFence();
         }
 
-        public final long get() {
-            return getLong();
+        /**
+         * Ends writing: makes the version even again.
+         */
+        public void endWrite() {
+            // The data is visible before the even version.
+            Fences.storeFence();
+            setLong(getLong() + 1L);
+        }
+
+        /**
+         * Indicates if the data read since {@link #beginRead()} is
+         * consistent.
+         *
+         * @param version the version returned by <code>beginRead</code>.
+         * @return <code>true</code> if no write happened meanwhile;
+         * <code>false</code> if the data has to be read again.
+         */
+        public boolean validate(final long version) {
+            // The data is read before the version.
+            Fences.loadFence();
+            return getLong() == version;
+        }
+    }
+
+    /**
+     * This class represents a 16 bits signed integer.
+     */
+    public final class Signed16 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        public Signed16() {
+            super(16);
+        }
+
+        public void add(short delta) {
+            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value + delta));
+            markChanged();
+        }
+
+        public void decrement() {
+            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value - 1));
+            markChanged();
+        }
+
+        public final short get() {
+            return getShort();
         }
 
         public void increment() {
-            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value + 1L));
+            final short value = Struct.this.structByteBuffer.getShort(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putShort(this.memberAbsolutePosition, (short) (value + 1));
+            markChanged();
         }
 
-        public final void set(final long value) {
-            setLong(value);
+        public final void set(final short value) {
+            setShort(value);
         }
 
         @Override
@@ -1359,84 +2964,155 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 8 bits signed integer.
+     * This class represents an array of 16 bits signed integers (see {@link ArrayMember}).
      */
-    public final class Signed8 extends ScalarMember {
+    public final class Signed16Array extends ArrayMember {
         private static final long serialVersionUID = 0L;
 
-        public Signed8() {
-            super(8);
+        public Signed16Array(final int count) {
+            super(2, count);
         }
 
-        public void add(byte delta) {
-            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value + delta));
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public ShortBuffer asShortBuffer() {
+            return slice().asShortBuffer();
         }
 
-        public void decrement() {
-            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value - 1));
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.getShort(position);
         }
 
-        public final byte get() {
-            return getByte();
+        public void fill(final short value) {
+            fillBits(value);
         }
 
-        public void increment() {
-            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
-            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value + 1));
+        public final short get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.getShort(p);
         }
 
-        public final void set(final byte value) {
-            setByte(value);
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final short[] dst) {
+            slice().asShortBuffer().get(dst, 0, count());
         }
 
         @Override
-        public final Object valueObj() {
-            return get();
+        final double getAsDouble(final int index) {
+            return get(index);
         }
-    }
 
-    public final class StructMember extends AbstractMember {
-        private static final long serialVersionUID = 0L;
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
 
-        final Struct innerStruct;
-        final Struct outerStruct;
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
 
-        StructMember(final Struct outerStruct, final Struct innerStruct) {
-            super(innerStruct.size());
-            this.outerStruct = outerStruct;
-            this.innerStruct = innerStruct;
-            registerInnerMember();
+        public short max() {
+            return (short) maxLong();
         }
 
-        private void registerInnerMember() {
-            for (final PositionUpdatable pu : innerStruct.memberList) {
-                outerStruct.registerMember(pu);
-            }
+        @Override
+        final long maxValue() {
+            return Short.MAX_VALUE;
+        }
+
+        public short min() {
+            return (short) minLong();
         }
 
         @Override
-        protected void registerMember() {
+        final long minValue() {
+            return Short.MIN_VALUE;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putShort(position, (short) bits);
+        }
+
+        public final void set(final int index, final short value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putShort(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final short[] src) {
+            slice().asShortBuffer().put(src);
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (short) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, (short) value);
+        }
+
+        public long sum() {
+            return sumLong();
         }
     }
 
     /**
-     * This class represents a 16 bits unsigned integer.
+     * This class represents a 32 bits signed integer.
      */
-    public final class Unsigned16 extends ScalarMember {
+    public final class Signed32 extends ScalarMember {
+
         private static final long serialVersionUID = 0L;
 
-        public Unsigned16() {
-            super(16);
+        public Signed32() {
+            super(32);
+        }
+
+        public void add(int delta) {
+            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value + delta));
+            markChanged();
+        }
+
+        public void decrement() {
+            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value - 1));
+            markChanged();
         }
 
         public final int get() {
-            return 0xFFFF & getShort();
+            return getInt();
+        }
+
+        public void increment() {
+            final int value = Struct.this.structByteBuffer.getInt(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putInt(this.memberAbsolutePosition, (value + 1));
+            markChanged();
         }
 
         public final void set(final int value) {
-            setShort((short) value);
+            setInt(value);
         }
 
 
@@ -1447,48 +3123,155 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a 32 bits unsigned integer.
+     * This class represents an array of 32 bits signed integers (see {@link ArrayMember}).
      */
-    public final class Unsigned32 extends ScalarMember {
+    public final class Signed32Array extends ArrayMember {
         private static final long serialVersionUID = 0L;
 
-        public Unsigned32() {
-            super(32);
+        public Signed32Array(final int count) {
+            super(4, count);
         }
 
-        public final long get() {
-            return 0xFFFFFFFFL & getInt();
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public IntBuffer asIntBuffer() {
+            return slice().asIntBuffer();
         }
 
-        public final void set(final long value) {
-            setInt((int) value);
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.getInt(position);
+        }
+
+        public void fill(final int value) {
+            fillBits(value);
+        }
+
+        public final int get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.getInt(p);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final int[] dst) {
+            slice().asIntBuffer().get(dst, 0, count());
         }
 
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
 
         @Override
-        public final Object valueObj() {
-            return get();
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public int max() {
+            return (int) maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return Integer.MAX_VALUE;
+        }
+
+        public int min() {
+            return (int) minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return Integer.MIN_VALUE;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putInt(position, (int) bits);
+        }
+
+        public final void set(final int index, final int value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putInt(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final int[] src) {
+            slice().asIntBuffer().put(src);
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (int) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, (int) value);
+        }
+
+        public long sum() {
+            return sumLong();
         }
     }
 
     /**
-     * This class represents a 8 bits unsigned integer.
+     * This class represents a 64 bits signed integer.
      */
-    public final class Unsigned8 extends ScalarMember {
+    public class Signed64 extends ScalarMember {
         private static final long serialVersionUID = 0L;
 
-        public Unsigned8() {
-            super(8);
+        public Signed64() {
+            super(64);
         }
 
-        public final short get() {
-            return (short) (0xFF & getByte());
+        public void add(long delta) {
+            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value + delta));
+            markChanged();
         }
 
-        public final void set(final short value) {
-            setByte((byte) value);
+        public void decrement() {
+            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value - 1L));
+            markChanged();
+        }
+
+        public final long get() {
+            return getLong();
+        }
+
+        public void increment() {
+            final long value = Struct.this.structByteBuffer.getLong(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.putLong(this.memberAbsolutePosition, (value + 1L));
+            markChanged();
         }
 
+        public final void set(final long value) {
+            setLong(value);
+        }
 
         @Override
         public final Object valueObj() {
@@ -1497,45 +3280,1298 @@ public abstract class Struct implements PositionUpdatable, Serializable {
     }
 
     /**
-     * This class represents a UTF-8 character string, null terminated
-     * (for C/C++ compatibility)
+     * This class represents an array of 64 bits signed integers (see {@link ArrayMember}).
      */
-    public final class Utf8String extends NonScalarMember {
-
+    public final class Signed64Array extends ArrayMember {
         private static final long serialVersionUID = 0L;
 
-        public Utf8String(final int length) {
-            super(length + 1);
+        public Signed64Array(final int count) {
+            super(8, count);
         }
 
-        public final CharSequence get() {
-            final StringBuilder sb = new StringBuilder(memberLength);
-            final int maxIndex = this.memberAbsolutePosition + memberLength;
-            for (int i = this.memberAbsolutePosition; maxIndex > i; ++i) {
-                final byte charByte = structByteBuffer.get(i);
-                if (charByte > 0) {
-                    sb.append((char) charByte);
-                } else {
-                    break;
-                }
-            }
-            return sb;
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public LongBuffer asLongBuffer() {
+            return slice().asLongBuffer();
         }
 
-        public final void set(final CharSequence string) {
-            final int minLength = Math.min(this.memberLength - 1, string.length());
-            for (int i = 0; minLength > i; ++i) {
-                structByteBuffer.put(this.memberAbsolutePosition + i, (byte) string.charAt(i));
-            }
-            structByteBuffer.put(minLength + 1, (byte) 0);
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.getLong(position);
+        }
+
+        public void fill(final long value) {
+            fillBits(value);
+        }
+
+        public final long get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.getLong(p);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final long[] dst) {
+            slice().asLongBuffer().get(dst, 0, count());
         }
 
         @Override
-        public final String toString() {
-            if ((memberAbsolutePosition == Struct.INITIAL_ABSOLUTE_POSITION) || (Struct.this.structByteBuffer == null)) {
-                return "";
-            }
-            return this.get().toString();
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public long max() {
+            return maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return Long.MAX_VALUE;
+        }
+
+        public long min() {
+            return minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return Long.MIN_VALUE;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putLong(position, bits);
+        }
+
+        public final void set(final int index, final long value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putLong(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final long[] src) {
+            slice().asLongBuffer().put(src);
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (long) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, value);
+        }
+
+        public long sum() {
+            return sumLong();
+        }
+    }
+
+    /**
+     * This class represents a 8 bits signed integer.
+     */
+    public final class Signed8 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        public Signed8() {
+            super(8);
+        }
+
+        public void add(byte delta) {
+            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value + delta));
+            markChanged();
+        }
+
+        public void decrement() {
+            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value - 1));
+            markChanged();
+        }
+
+        public final byte get() {
+            return getByte();
+        }
+
+        public void increment() {
+            final byte value = Struct.this.structByteBuffer.get(this.memberAbsolutePosition);
+            Struct.this.structByteBuffer.put(this.memberAbsolutePosition, (byte) (value + 1));
+            markChanged();
+        }
+
+        public final void set(final byte value) {
+            setByte(value);
+        }
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    public final class StructMember extends AbstractMember {
+        private static final long serialVersionUID = 0L;
+
+        final Struct innerStruct;
+        final Struct outerStruct;
+
+        StructMember(final Struct outerStruct, final Struct innerStruct) {
+            super(innerStruct.size(), innerStruct.alignment());
+            this.outerStruct = outerStruct;
+            this.innerStruct = innerStruct;
+            if (outerStruct.structAligned && (this.memberOffset != innerStruct.structOffset)) {
+                innerStruct.shiftOffset(this.memberOffset - innerStruct.structOffset);
+            }
+            registerInnerMember();
+        }
+
+        private void registerInnerMember() {
+            for (final PositionUpdatable pu : innerStruct.memberList) {
+                outerStruct.registerMember(pu);
+            }
+        }
+
+        @Override
+        protected void registerMember() {
+        }
+    }
+
+    /**
+     * This class represents an array of 8 bits signed integers (see {@link ArrayMember}).
+     */
+    public final class Signed8Array extends ArrayMember {
+        private static final long serialVersionUID = 0L;
+
+        public Signed8Array(final int count) {
+            super(1, count);
+        }
+
+        /**
+         * Returns a view of the elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public ByteBuffer asByteBuffer() {
+            return slice();
+        }
+
+        @Override
+        final long bitsAt(final int position) {
+            return Struct.this.structByteBuffer.get(position);
+        }
+
+        public void fill(final byte value) {
+            fillBits(value);
+        }
+
+        public final byte get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return bb.get(p);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final byte[] dst) {
+            slice().get(dst, 0, count());
+        }
+
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public byte max() {
+            return (byte) maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return Byte.MAX_VALUE;
+        }
+
+        public byte min() {
+            return (byte) minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return Byte.MIN_VALUE;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.put(position, (byte) bits);
+        }
+
+        public final void set(final int index, final byte value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.put(p, value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws BufferOverflowException if the source is longer than this array.
+         */
+        public void setAll(final byte[] src) {
+            slice().put(src);
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (byte) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, (byte) value);
+        }
+
+        public long sum() {
+            return sumLong();
+        }
+    }
+
+    /**
+     * This class represents a 16 bits unsigned integer.
+     */
+    public final class Unsigned16 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned16() {
+            super(16);
+        }
+
+        public final int get() {
+            return 0xFFFF & getShort();
+        }
+
+        public final void set(final int value) {
+            setShort((short) value);
+        }
+
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents an array of 16 bits unsigned integers (see {@link ArrayMember}).
+     */
+    public final class Unsigned16Array extends ArrayMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned16Array(final int count) {
+            super(2, count);
+        }
+
+        /**
+         * Returns a view of the raw (signed) elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public ShortBuffer asShortBuffer() {
+            return slice().asShortBuffer();
+        }
+
+        @Override
+        final long bitsAt(final int position) {
+            return (Struct.this.structByteBuffer.getShort(position) & 0xFFFF);
+        }
+
+        public void fill(final int value) {
+            fillBits(value);
+        }
+
+        public final int get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return (bb.getShort(p) & 0xFFFF);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final int[] dst) {
+            if (dst.length < count()) {
+                throw new IndexOutOfBoundsException("Destination too short: " + dst.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            for (int i = 0, p = this.memberAbsolutePosition; count() > i; ++i, p += 2) {
+                dst[i] = (bb.getShort(p) & 0xFFFF);
+            }
+        }
+
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public int max() {
+            return (int) maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return 0xFFFF;
+        }
+
+        public int min() {
+            return (int) minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return 0;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putShort(position, (short) bits);
+        }
+
+        public final void set(final int index, final int value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putShort(p, (short) value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws IndexOutOfBoundsException if the source is longer than this array.
+         */
+        public void setAll(final int[] src) {
+            if (src.length > count()) {
+                throw new IndexOutOfBoundsException("Source too long: " + src.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            int p = this.memberAbsolutePosition;
+            for (final int value : src) {
+                bb.putShort(p, (short) value);
+                p += 2;
+            }
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (int) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, (int) value);
+        }
+
+        public long sum() {
+            return sumLong();
+        }
+    }
+
+    /**
+     * This class represents a 32 bits unsigned integer.
+     */
+    public final class Unsigned32 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned32() {
+            super(32);
+        }
+
+        public final long get() {
+            return 0xFFFFFFFFL & getInt();
+        }
+
+        public final void set(final long value) {
+            setInt((int) value);
+        }
+
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents an array of 32 bits unsigned integers (see {@link ArrayMember}).
+     */
+    public final class Unsigned32Array extends ArrayMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned32Array(final int count) {
+            super(4, count);
+        }
+
+        /**
+         * Returns a view of the raw (signed) elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public IntBuffer asIntBuffer() {
+            return slice().asIntBuffer();
+        }
+
+        @Override
+        final long bitsAt(final int position) {
+            return (Struct.this.structByteBuffer.getInt(position) & 0xFFFFFFFFL);
+        }
+
+        public void fill(final long value) {
+            fillBits(value);
+        }
+
+        public final long get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return (bb.getInt(p) & 0xFFFFFFFFL);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final long[] dst) {
+            if (dst.length < count()) {
+                throw new IndexOutOfBoundsException("Destination too short: " + dst.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            for (int i = 0, p = this.memberAbsolutePosition; count() > i; ++i, p += 4) {
+                dst[i] = (bb.getInt(p) & 0xFFFFFFFFL);
+            }
+        }
+
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public long max() {
+            return maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return 0xFFFFFFFFL;
+        }
+
+        public long min() {
+            return minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return 0;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.putInt(position, (int) bits);
+        }
+
+        public final void set(final int index, final long value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.putInt(p, (int) value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws IndexOutOfBoundsException if the source is longer than this array.
+         */
+        public void setAll(final long[] src) {
+            if (src.length > count()) {
+                throw new IndexOutOfBoundsException("Source too long: " + src.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            int p = this.memberAbsolutePosition;
+            for (final long value : src) {
+                bb.putInt(p, (int) value);
+                p += 4;
+            }
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (long) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, value);
+        }
+
+        public long sum() {
+            return sumLong();
+        }
+    }
+
+    /**
+     * This class represents a 8 bits unsigned integer.
+     */
+    public final class Unsigned8 extends ScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned8() {
+            super(8);
+        }
+
+        public final short get() {
+            return (short) (0xFF & getByte());
+        }
+
+        public final void set(final short value) {
+            setByte((byte) value);
+        }
+
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents an array of 8 bits unsigned integers (see {@link ArrayMember}).
+     */
+    public final class Unsigned8Array extends ArrayMember {
+        private static final long serialVersionUID = 0L;
+
+        public Unsigned8Array(final int count) {
+            super(1, count);
+        }
+
+        /**
+         * Returns a view of the raw (signed) elements bound to the current struct position.
+         *
+         * @return the buffer view (position zero, capacity <code>count()</code>).
+         */
+        public ByteBuffer asByteBuffer() {
+            return slice();
+        }
+
+        @Override
+        final long bitsAt(final int position) {
+            return (Struct.this.structByteBuffer.get(position) & 0xFF);
+        }
+
+        public void fill(final short value) {
+            fillBits(value);
+        }
+
+        public final short get(final int index) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            return (short) (bb.get(p) & 0xFF);
+        }
+
+        /**
+         * Copies all elements into the specified array.
+         *
+         * @param dst the destination (at least <code>count()</code> long).
+         * @throws IndexOutOfBoundsException if the destination is too short.
+         */
+        public void getAll(final short[] dst) {
+            if (dst.length < count()) {
+                throw new IndexOutOfBoundsException("Destination too short: " + dst.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            for (int i = 0, p = this.memberAbsolutePosition; count() > i; ++i, ++p) {
+                dst[i] = (short) (bb.get(p) & 0xFF);
+            }
+        }
+
+        @Override
+        final double getAsDouble(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final long getAsLong(final int index) {
+            return get(index);
+        }
+
+        @Override
+        final boolean isFloating() {
+            return false;
+        }
+
+        public short max() {
+            return (short) maxLong();
+        }
+
+        @Override
+        final long maxValue() {
+            return 0xFF;
+        }
+
+        public short min() {
+            return (short) minLong();
+        }
+
+        @Override
+        final long minValue() {
+            return 0;
+        }
+
+        @Override
+        final void putBitsAt(final int position, final long bits) {
+            Struct.this.structByteBuffer.put(position, (byte) bits);
+        }
+
+        public final void set(final int index, final short value) {
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            final int p = position(index);
+            bb.put(p, (byte) value);
+            markChanged();
+        }
+
+        /**
+         * Sets the first <code>src.length</code> elements.
+         *
+         * @param src the source values.
+         * @throws IndexOutOfBoundsException if the source is longer than this array.
+         */
+        public void setAll(final short[] src) {
+            if (src.length > count()) {
+                throw new IndexOutOfBoundsException("Source too long: " + src.length);
+            }
+            final ByteBuffer bb = Struct.this.structByteBuffer;
+            int p = this.memberAbsolutePosition;
+            for (final short value : src) {
+                bb.put(p, (byte) value);
+                ++p;
+            }
+            markChanged();
+        }
+
+        @Override
+        final void setAsDouble(final int index, final double value) {
+            set(index, (short) value);
+        }
+
+        @Override
+        final void setAsLong(final int index, final long value) {
+            set(index, (short) value);
+        }
+
+        public long sum() {
+            return sumLong();
+        }
+    }
+
+    /**
+     * This class represents an unsigned integer of 1 to 63 bits (packed, see
+     * {@link BitMember}). Values are truncated to the bit length and the
+     * arithmetic wraps around (as C/C++ bit-fields).
+     */
+    public final class UnsignedBits extends BitMember {
+        private static final long serialVersionUID = 0L;
+
+        public UnsignedBits(final int nbrOfBits) {
+            super(nbrOfBits);
+        }
+
+        public void add(final long delta) {
+            setBits(getBits() + delta);
+        }
+
+        public void decrement() {
+            setBits(getBits() - 1L);
+        }
+
+        public final long get() {
+            return getBits();
+        }
+
+        public void increment() {
+            setBits(getBits() + 1L);
+        }
+
+        /**
+         * Returns the largest value of this member.
+         *
+         * @return <code>2^bitLength - 1</code>.
+         */
+        public final long max() {
+            return (1L << bitLength()) - 1L;
+        }
+
+        public final void set(final long value) {
+            setBits(value);
+        }
+
+        @Override
+        public final Object valueObj() {
+            return get();
+        }
+    }
+
+    /**
+     * This class represents a UTF-8 character string, null terminated
+     * (for C/C++ compatibility)
+     * <p>
+     * Besides {@link #get()} the string can be decoded into a caller
+     * supplied destination and compared or hashed directly on its bytes,
+     * so that the hot read path does not need to materialize a
+     * <code>String</code>.
+     * <p>
+     * Malformed bytes never fail decoding: the lead byte of an invalid or
+     * incomplete sequence decodes to the character of the same value
+     * (ISO-8859-1) and decoding resumes with the next byte. All decoding
+     * entry points ({@link #get()}, {@link #hash()},
+     * {@link #compareTo(CharSequence)}, {@link UTF8CharSequence}) follow
+     * this policy, hence <code>hash()</code> is always equal to
+     * <code>toString().hashCode()</code>.
+     */
+    public final class Utf8String extends NonScalarMember {
+
+        private static final long serialVersionUID = 0L;
+
+        public Utf8String(final int length) {
+            super(length + 1);
+        }
+
+        /**
+         * Returns the number of bytes of the UTF-8 encoded string (excluding
+         * the null terminator).
+         *
+         * @return the C/C++ <code>strlen(this)</code>.
+         */
+        public final int byteLength() {
+            final int maxIndex = this.memberAbsolutePosition + memberLength;
+            for (int i = this.memberAbsolutePosition; maxIndex > i; ++i) {
+                if (structByteBuffer.get(i) == 0) {
+                    return i - this.memberAbsolutePosition;
+                }
+            }
+            return memberLength;
+        }
+
+        /**
+         * Compares the bytes of this string with the bytes of the specified
+         * string (unsigned lexicographic order, which is the Unicode code point
+         * order).
+         *
+         * @param that the string to compare with.
+         * @return a negative integer, zero, or a positive integer as this string
+         * is less than, equal to, or greater than the specified string.
+         */
+        public final int compareTo(final Utf8String that) {
+            final ByteBuffer thatByteBuffer = that.structByteBuffer();
+            final int thisLength = byteLength();
+            final int thatLength = that.byteLength();
+            final int minLength = Math.min(thisLength, thatLength);
+            for (int i = 0; minLength > i; ++i) {
+                final int thisByte = structByteBuffer.get(this.memberAbsolutePosition + i) & 0xFF;
+                final int thatByte = thatByteBuffer.get(that.memberAbsolutePosition + i) & 0xFF;
+                if (thisByte != thatByte) {
+                    return thisByte - thatByte;
+                }
+            }
+            return thisLength - thatLength;
+        }
+
+        /**
+         * Compares this string with the specified character sequence using
+         * the same (UTF-16) order as {@link String#compareTo(String)}.
+         *
+         * @param csq the character sequence to compare with.
+         * @return a negative integer, zero, or a positive integer as this string
+         * is less than, equal to, or greater than the specified sequence.
+         */
+        public final int compareTo(final CharSequence csq) {
+            final int limit = this.memberAbsolutePosition + byteLength();
+            final int csqLength = csq.length();
+            int j = 0;
+            for (int i = this.memberAbsolutePosition; limit > i; ) {
+                final int packed = decodeAt(i, limit);
+                final int code = packed >>> 3;
+                i += packed & 0x7;
+                if (code < 0x10000) {
+                    if (j >= csqLength) {
+                        return 1;
+                    }
+                    final int diff = code - csq.charAt(j++);
+                    if (diff != 0) {
+                        return diff;
+                    }
+                } else {
+                    for (int k = 0; 2 > k; ++k) {
+                        if (j >= csqLength) {
+                            return 1;
+                        }
+                        final char c = (k == 0 ? Character.highSurrogate(code) : Character.lowSurrogate(code));
+                        final int diff = c - csq.charAt(j++);
+                        if (diff != 0) {
+                            return diff;
+                        }
+                    }
+                }
+            }
+            return (j < csqLength ? -1 : 0);
+        }
+
+        /**
+         * Indicates if this string has the same bytes as the specified string.
+         *
+         * @param that the string to compare with.
+         * @return <code>true</code> if both strings are equal.
+         */
+        public final boolean contentEquals(final Utf8String that) {
+            final int thisLength = byteLength();
+            if (thisLength != that.byteLength()) {
+                return false;
+            }
+            final ByteBuffer thatByteBuffer = that.structByteBuffer();
+            for (int i = 0; thisLength > i; ++i) {
+                if (structByteBuffer.get(this.memberAbsolutePosition + i)
+                        != thatByteBuffer.get(that.memberAbsolutePosition + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Indicates if this string represents the same sequence of characters
+         * as the specified character sequence.
+         *
+         * @param csq the character sequence to compare with.
+         * @return <code>true</code> if both are equal.
+         */
+        public final boolean contentEquals(final CharSequence csq) {
+            return compareTo(csq) == 0;
+        }
+
+        private int decodeAt(final int index, final int limit) {
+            final byte b = structByteBuffer.get(index);
+            if (b >= 0) {
+                return (b << 3) | 1;
+            }
+            return UTF8ByteBufferReader.decodeLenientAt(structByteBuffer, index, limit);
+        }
+
+        public final CharSequence get() {
+            return get(new StringBuilder(memberLength));
+        }
+
+        /**
+         * Decodes this string into the specified (reusable) string builder.
+         * The builder is cleared before.
+         *
+         * @param dest the destination string builder.
+         * @return the specified string builder.
+         */
+        public final StringBuilder get(final StringBuilder dest) {
+            dest.setLength(0);
+            try {
+                get((Appendable) dest);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.toString());
+            }
+            return dest;
+        }
+
+        /**
+         * Decodes this string and appends its characters to the specified
+         * appendable.
+         *
+         * @param dest the destination.
+         * @return the number of <code>char</code> appended.
+         * @throws IOException if the destination throws.
+         */
+        public final int get(final Appendable dest) throws IOException {
+            return UTF8ByteBufferReader.decode(structByteBuffer, this.memberAbsolutePosition,
+                    this.memberAbsolutePosition + byteLength(), dest);
+        }
+
+        /**
+         * Decodes this string into the specified <code>char</code> array.
+         * Decoding stops when the array is full.
+         *
+         * @param dest the destination buffer.
+         * @param off  the offset at which to start storing characters.
+         * @return the number of <code>char</code> stored.
+         */
+        public final int get(final char[] dest, final int off) {
+            return UTF8ByteBufferReader.decode(structByteBuffer, this.memberAbsolutePosition,
+                    this.memberAbsolutePosition + byteLength(), dest, off, dest.length - off);
+        }
+
+        /**
+         * Returns the hash code of this string computed on its bytes; this is
+         * the same value as <code>toString().hashCode()</code>.
+         *
+         * @return the hash code of the decoded string.
+         */
+        public final int hash() {
+            final int limit = this.memberAbsolutePosition + byteLength();
+            int h = 0;
+            for (int i = this.memberAbsolutePosition; limit > i; ) {
+                final int packed = decodeAt(i, limit);
+                final int code = packed >>> 3;
+                i += packed & 0x7;
+                if (code < 0x10000) {
+                    h = 31 * h + code;
+                } else {
+                    h = 31 * h + Character.highSurrogate(code);
+                    h = 31 * h + Character.lowSurrogate(code);
+                }
+            }
+            return h;
+        }
+
+        /**
+         * Encodes the specified character sequence as UTF-8 followed by the
+         * null terminator. The string is truncated on a character boundary if
+         * it does not fit.
+         *
+         * @param string the character sequence.
+         */
+        public final void set(final CharSequence string) {
+            final int byteCount = UTF8ByteBufferWriter.encode(string, structByteBuffer,
+                    this.memberAbsolutePosition, this.memberLength - 1);
+            structByteBuffer.put(this.memberAbsolutePosition + byteCount, (byte) 0);
+            markChanged();
+        }
+
+        ByteBuffer structByteBuffer() {
+            return Struct.this.structByteBuffer;
+        }
+
+        @Override
+        public final String toString() {
+            if ((memberAbsolutePosition == Struct.INITIAL_ABSOLUTE_POSITION) || (Struct.this.structByteBuffer == null)) {
+                return "";
+            }
+            return this.get().toString();
+        }
+    }
+
+    /**
+     * This class represents a byte blob of variable length.
+     */
+    public final class VarBytes extends VariableMember {
+        private static final long serialVersionUID = 0L;
+
+        public VarBytes() {
+            super();
+        }
+
+        public final byte[] get() {
+            final byte[] value = new byte[byteLength()];
+            get(value);
+            return value;
+        }
+
+        /**
+         * Copies the bytes of this blob into the specified array.
+         *
+         * @param dest the destination array.
+         * @return the number of bytes copied.
+         */
+        public final int get(final byte[] dest) {
+            final int count = Math.min(dest.length, byteLength());
+            final int position = payloadPosition();
+            for (int i = 0; count > i; ++i) {
+                dest[i] = structByteBuffer.get(position + i);
+            }
+            return count;
+        }
+
+        public final void set(final byte[] value) {
+            set(value, 0, value.length);
+        }
+
+        public final void set(final byte[] value, final int off, final int len) {
+            final int position = allocate(len);
+            for (int i = 0; len > i; ++i) {
+                structByteBuffer.put(position + i, value[off + i]);
+            }
+        }
+    }
+
+    /**
+     * This class represents a repeated group of fixed-size structs of
+     * variable count. The elements are accessed through the specified
+     * element struct which is used as a reusable flyweight (it must not be
+     * an inner struct and must have the same byte order).
+     *
+     * @param <S> Type of the element Struct
+     */
+    public final class VarGroup<S extends Struct> extends VariableMember {
+        private static final long serialVersionUID = 0L;
+
+        private final S element;
+
+        public VarGroup(final S element) {
+            super();
+            this.element = element;
+        }
+
+        public final int count() {
+            return byteLength() / element.size();
+        }
+
+        final S element() {
+            return element;
+        }
+
+        /**
+         * Returns the element flyweight positioned on the specified element.
+         *
+         * @param index the element index.
+         * @return the element struct.
+         * @throws IndexOutOfBoundsException if the index is out of range.
+         */
+        public final S get(final int index) {
+            if ((index < 0) || (index >= count())) {
+                throw new IndexOutOfBoundsException("index: " + index + ", count: " + count());
+            }
+            element.initByteBuffer(Struct.this.structByteBuffer, payloadPosition() + (index * element.size()));
+            return element;
+        }
+
+        /**
+         * Sets the number of elements. Existing elements are preserved,
+         * new elements are zeroed.
+         *
+         * @param count the new number of elements.
+         */
+        public final void setCount(final int count) {
+            final int oldPosition = payloadPosition();
+            final int oldLength = byteLength();
+            final int newLength = count * element.size();
+            final int newPosition = allocate(newLength);
+            final int preserved = Math.min(oldLength, newLength);
+            if (newPosition != oldPosition) {
+                for (int i = 0; preserved > i; ++i) {
+                    structByteBuffer.put(newPosition + i, structByteBuffer.get(oldPosition + i));
+                }
+            }
+            for (int i = preserved; newLength > i; ++i) {
+                structByteBuffer.put(newPosition + i, (byte) 0);
+            }
+        }
+    }
+
+    /**
+     * This class represents a length-prefixed UTF-8 character string of
+     * variable length (not null terminated).
+     */
+    public final class VarUtf8String extends VariableMember {
+        private static final long serialVersionUID = 0L;
+
+        public VarUtf8String() {
+            super();
+        }
+
+        public final CharSequence get() {
+            return get(new StringBuilder(byteLength()));
+        }
+
+        /**
+         * Decodes this string into the specified (reusable) string builder.
+         * The builder is cleared before.
+         *
+         * @param dest the destination string builder.
+         * @return the specified string builder.
+         */
+        public final StringBuilder get(final StringBuilder dest) {
+            dest.setLength(0);
+            try {
+                get((Appendable) dest);
+            } catch (IOException e) {
+                throw new IllegalStateException(e.toString());
+            }
+            return dest;
+        }
+
+        /**
+         * Decodes this string and appends its characters to the specified
+         * appendable.
+         *
+         * @param dest the destination.
+         * @return the number of <code>char</code> appended.
+         * @throws IOException if the destination throws.
+         */
+        public final int get(final Appendable dest) throws IOException {
+            final int position = payloadPosition();
+            return UTF8ByteBufferReader.decode(structByteBuffer, position, position + byteLength(), dest);
+        }
+
+        public final void set(final CharSequence string) {
+            final int byteCount = UTF8ByteBufferWriter.encodedLength(string);
+            UTF8ByteBufferWriter.encode(string, structByteBuffer, allocate(byteCount), byteCount);
+        }
+
+        @Override
+        public final String toString() {
+            if ((memberAbsolutePosition == Struct.INITIAL_ABSOLUTE_POSITION) || (Struct.this.structByteBuffer == null)) {
+                return "";
+            }
+            return this.get().toString();
+        }
+    }
+
+    /**
+     * This class represents the base class for variable-length members.
+     * In the fixed part of the struct the member occupies an (offset, length)
+     * slot of two 32 bits integers; the offset is relative to the struct start
+     * and <code>0</code> if the member is empty. The payload is appended to
+     * the heap area of the outermost struct.
+     */
+    public abstract class VariableMember extends NonScalarMember {
+        private static final long serialVersionUID = 0L;
+
+        protected VariableMember() {
+            super(8, 4);
+            Struct.this.variableMember.add(this);
+        }
+
+        /**
+         * Reserves <code>byteCount</code> bytes of payload for this member.
+         * The current payload location is reused if the new payload fits or
+         * if it is the last one in the heap area, otherwise the payload is
+         * appended (the old bytes are left unused until
+         * {@link Struct#clearVariableMembers()}).
+         *
+         * @param byteCount the payload size in bytes.
+         * @return the absolute position of the payload.
+         * @throws BufferOverflowException if the byte buffer is too small.
+         */
+        protected final int allocate(final int byteCount) {
+            final int heapOffset = heapOffset();
+            final int byteLength = byteLength();
+            final Struct top = Struct.this.topStruct();
+            final int heapEnd = top.size() + top.variableSize();
+            final int newOffset;
+            if ((heapOffset != 0) && ((byteCount <= byteLength) || ((heapOffset + byteLength) == heapEnd))) {
+                newOffset = heapOffset;
+            } else {
+                newOffset = heapEnd;
+            }
+            final int position = Struct.this.structAbsolutePosition + newOffset;
+            if ((position + byteCount) > structByteBuffer.limit()) {
+                throw new BufferOverflowException();
+            }
+            structByteBuffer.putInt(this.memberAbsolutePosition, newOffset);
+            structByteBuffer.putInt(this.memberAbsolutePosition + 4, byteCount);
+            markChanged();
+            return position;
+        }
+
+        /**
+         * Returns the payload length in bytes.
+         *
+         * @return the number of bytes of the payload.
+         */
+        public final int byteLength() {
+            return structByteBuffer.getInt(this.memberAbsolutePosition + 4);
+        }
+
+        public final void clear() {
+            structByteBuffer.putInt(this.memberAbsolutePosition, 0);
+            structByteBuffer.putInt(this.memberAbsolutePosition + 4, 0);
+            markChanged();
+        }
+
+        final int heapOffset() {
+            return structByteBuffer.getInt(this.memberAbsolutePosition);
+        }
+
+        /**
+         * Returns the absolute position of the payload in the byte buffer.
+         *
+         * @return the payload position.
+         */
+        public final int payloadPosition() {
+            return Struct.this.structAbsolutePosition + heapOffset();
+        }
+
+        ByteBuffer structByteBuffer() {
+            return Struct.this.structByteBuffer;
         }
     }
 
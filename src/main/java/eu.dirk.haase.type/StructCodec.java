@@ -0,0 +1,892 @@
+package eu.dirk.haase.type;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.BufferOverflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> Streaming JSON lines and CSV codec for a {@link Struct} view.</p>
+ * <p>
+ * <p> A codec is bound to one struct view; the member tree (arrays, inner
+ * structs, variable-length members) is resolved once at construction.
+ * Records are exported and imported by repositioning the view and calling
+ * the codec, without any intermediate objects:
+ * {@code
+ * StructCodec codec = new StructCodec(student);
+ * UTF8StreamWriter writer = new UTF8StreamWriter(outputStream);
+ * for (int i = 0; count > i; ++i) {
+ *     student.setStructAbsolutePosition(i * student.size());
+ *     codec.writeJson(writer);
+ * }
+ * writer.flush();
+ * ...
+ * UTF8StreamReader reader = new UTF8StreamReader(inputStream);
+ * for (int i = 0; ; ++i) {
+ *     student.setStructAbsolutePosition(i * student.size());
+ *     if (!codec.readJson(reader)) break;
+ * }}</p>
+ * <p>
+ * <p> JSON records are single line objects as written by
+ * {@link StructFormatter.Format#JSON}; unknown names are skipped and
+ * missing names leave the member unchanged. CSV records hold one field per
+ * scalar in layout order (see {@link #columns()}), quoted as specified by
+ * RFC 4180. Enumerations are written by name (unknown codes by number)
+ * and read by name or code. Variable-length groups are supported by JSON only.</p>
+ * <p>
+ * <p> Note: Instances of this class are unsynchronized.</p>
+ */
+public final class StructCodec {
+
+    private static final int NONE = -2;
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+    private final List<String> columns;
+    private final StructFormatter csv = new StructFormatter(StructFormatter.Format.CSV);
+    private final StructFormatter json = new StructFormatter(StructFormatter.Format.JSON);
+    private final Node[] leaves;
+    private final Node root;
+    private final Struct struct;
+    private final StringBuilder token = new StringBuilder(64);
+    private byte[] bytes = new byte[16];
+    private int next = NONE;
+    private boolean quoted;
+    private long record;
+
+    /**
+     * Creates a codec for the specified struct view.
+     *
+     * @param struct the struct view to write from and read into.
+     */
+    public StructCodec(final Struct struct) {
+        this.struct = struct;
+        final List<Node> leaves = new ArrayList<>();
+        this.root = structNode(struct, "", leaves);
+        this.leaves = leaves.toArray(new Node[leaves.size()]);
+        final String[] columns = new String[this.leaves.length];
+        for (int i = 0; columns.length > i; ++i) {
+            columns[i] = this.leaves[i].path;
+        }
+        this.columns = Collections.unmodifiableList(Arrays.asList(columns));
+    }
+
+    private static Node nodeOf(final String name, final String path, final Object value,
+                               final StructSchema.MemberType type, final List<Node> leaves) {
+        if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            final Node[] elements = new Node[array.length];
+            for (int i = 0; array.length > i; ++i) {
+                elements[i] = nodeOf(name, path + '[' + i + ']', array[i], type, leaves);
+            }
+            return new Node(Kind.ARRAY, name, path, null, null, elements);
+        } else if (value instanceof Struct) {
+            final Node node = structNode((Struct) value, path + '.', leaves);
+            return new Node(Kind.STRUCT, name, path, null, null, node.children);
+        }
+        final Struct.AbstractMember member = (Struct.AbstractMember) value;
+        final StructSchema.MemberType memberType = (type != null ? type : StructSchema.MemberType.of(member.getClass()));
+        if (memberType == null) {
+            throw new IllegalArgumentException("Unsupported member: " + member.getClass().getName());
+        }
+        if (member instanceof Struct.ArrayMember) {
+            final Node[] elements = new Node[((Struct.ArrayMember) member).count()];
+            for (int i = 0; elements.length > i; ++i) {
+                elements[i] = new Node(Kind.LEAF, name, path + '[' + i + ']', member, memberType, null, i);
+                leaves.add(elements[i]);
+            }
+            return new Node(Kind.ARRAY, name, path, null, null, elements);
+        }
+        final Node node;
+        if (memberType == StructSchema.MemberType.VAR_GROUP) {
+            // Group elements are not part of the CSV columns.
+            final Node element = structNode(((Struct.VarGroup<?>) member).element(), path + '.', new ArrayList<Node>());
+            node = new Node(Kind.GROUP, name, path, member, memberType, new Node[]{element});
+        } else {
+            node = new Node(Kind.LEAF, name, path, member, memberType, null);
+        }
+        leaves.add(node);
+        return node;
+    }
+
+    private static Node structNode(final Struct struct, final String prefix, final List<Node> leaves) {
+        final List<Node> children = new ArrayList<>();
+        if (struct instanceof DynamicStruct) {
+            for (final Map.Entry<String, Object> member : ((DynamicStruct) struct).members().entrySet()) {
+                children.add(nodeOf(member.getKey(), prefix + member.getKey(), member.getValue(), null, leaves));
+            }
+        } else {
+            for (final StructFormatter.StructField field : StructFormatter.fields(struct.getClass())) {
+                final Object value = field.get(struct);
+                if (value != null) {
+                    children.add(nodeOf(field.name, prefix + field.name, value, field.type, leaves));
+                }
+            }
+        }
+        return new Node(Kind.STRUCT, null, prefix, null, null, children.toArray(new Node[children.size()]));
+    }
+
+    private void assign(final Node node, final boolean json) throws IOException {
+        final Struct.AbstractMember member = node.member;
+        if (node.index >= 0) {
+            assignElement(node, json);
+            return;
+        }
+        if (json && !this.quoted && "null".contentEquals(this.token)) {
+            if (node.type == StructSchema.MemberType.FLOAT32) {
+                ((Struct.Float32) member).set(Float.NaN);
+            } else if (node.type == StructSchema.MemberType.FLOAT64) {
+                ((Struct.Float64) member).set(Double.NaN);
+            }
+            return;
+        }
+        switch (node.type) {
+            case BOOL8:
+                ((Struct.Bool8) member).set(parseBoolean());
+                break;
+            case BOOL16:
+                ((Struct.Bool16) member).set(parseBoolean());
+                break;
+            case BOOL32:
+                ((Struct.Bool32) member).set(parseBoolean());
+                break;
+            case BOOL64:
+                ((Struct.Bool64) member).set(parseBoolean());
+                break;
+            case ENUM8:
+                setEnum((Struct.Enum8<?>) member);
+                break;
+            case ENUM16:
+                setEnum((Struct.Enum16<?>) member);
+                break;
+            case ENUM32:
+                setEnum((Struct.Enum32<?>) member);
+                break;
+            case ENUM64:
+                setEnum((Struct.Enum64<?>) member);
+                break;
+            case FLOAT32:
+                ((Struct.Float32) member).set((float) parseDouble());
+                break;
+            case FLOAT64:
+                ((Struct.Float64) member).set(parseDouble());
+                break;
+            case SIGNED8:
+                ((Struct.Signed8) member).set((byte) parseLong(Byte.MIN_VALUE, Byte.MAX_VALUE));
+                break;
+            case SIGNED16:
+                ((Struct.Signed16) member).set((short) parseLong(Short.MIN_VALUE, Short.MAX_VALUE));
+                break;
+            case SIGNED32:
+                ((Struct.Signed32) member).set((int) parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE));
+                break;
+            case SIGNED64:
+                ((Struct.Signed64) member).set(parseLong(Long.MIN_VALUE, Long.MAX_VALUE));
+                break;
+            case UNSIGNED8:
+                ((Struct.Unsigned8) member).set((short) parseLong(0, 0xff));
+                break;
+            case UNSIGNED16:
+                ((Struct.Unsigned16) member).set((int) parseLong(0, 0xffff));
+                break;
+            case UNSIGNED32:
+                ((Struct.Unsigned32) member).set(parseLong(0, 0xffffffffL));
+                break;
+            case UTF_CHAR8:
+                ((Struct.UtfChar8) member).set(this.token.length() == 0 ? '\0' : this.token.charAt(0));
+                break;
+            case UTF_CHAR16:
+                ((Struct.UtfChar16) member).set(this.token.length() == 0 ? '\0' : this.token.charAt(0));
+                break;
+            case UTF8_STRING:
+                ((Struct.Utf8String) member).set(this.token);
+                break;
+            case VAR_UTF8_STRING:
+                ((Struct.VarUtf8String) member).set(this.token);
+                break;
+            case BIT_FIELD:
+                ((Struct.BitField) member).set(parseBits(member.length()));
+                break;
+            case BIT:
+                ((Struct.Bit) member).set(parseBoolean());
+                break;
+            case UNSIGNED_BITS:
+                ((Struct.UnsignedBits) member).set(parseLong(0, ((Struct.UnsignedBits) member).max()));
+                break;
+            case ENUM_BITS:
+                setEnum((Struct.EnumBits<?>) member);
+                break;
+            case VAR_BYTES:
+                ((Struct.VarBytes) member).set(this.bytes, 0, parseHex());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported member type: " + node.type);
+        }
+    }
+
+    private void assignElement(final Node node, final boolean json) throws IOException {
+        final Struct.ArrayMember array = (Struct.ArrayMember) node.member;
+        if (array.isFloating()) {
+            final boolean isNull = json && !this.quoted && "null".contentEquals(this.token);
+            array.setAsDouble(node.index, (isNull ? Double.NaN : parseDouble()));
+        } else {
+            array.setAsLong(node.index, parseLong(array.minValue(), array.maxValue()));
+        }
+    }
+
+    private void checkCsv() {
+        for (final Node leaf : this.leaves) {
+            if (leaf.kind == Kind.GROUP) {
+                throw new IllegalArgumentException("Variable groups cannot be read as CSV: " + leaf.path);
+            }
+        }
+    }
+
+    private static Node child(final Node node, final CharSequence name) {
+        for (final Node child : node.children) {
+            if (child.name.contentEquals(name)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the CSV column names of the bound struct in layout order
+     * (e.g. <code>birth.year</code>, <code>grades[2]</code>).
+     *
+     * @return the column names.
+     */
+    public List<String> columns() {
+        return this.columns;
+    }
+
+    private IOException error(final String message) {
+        return new IOException(message + " (record " + this.record + ")");
+    }
+
+    private void expect(final char expected, final int c) throws IOException {
+        if (c != expected) {
+            throw unexpected(c);
+        }
+    }
+
+    private static int grow(final Struct.VarGroup<?> group, final int count) {
+        final int capacity = Math.max(4, count * 2);
+        try {
+            group.setCount(capacity);
+            return capacity;
+        } catch (BufferOverflowException e) {
+            // No room for the spare elements.
+            group.setCount(count + 1);
+            return count + 1;
+        }
+    }
+
+    private static int hexDigit(final char c) {
+        if ((c >= '0') && (c <= '9')) {
+            return c - '0';
+        } else if ((c >= 'a') && (c <= 'f')) {
+            return c - 'a' + 10;
+        } else if ((c >= 'A') && (c <= 'F')) {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static boolean isDelimiter(final int c) {
+        return (c < 0) || (c == ',') || (c == '}') || (c == ']') || isWhitespace(c);
+    }
+
+    // ASCII only (Character.isDigit accepts other scripts).
+    private static boolean isDigit(final char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private boolean isNumeric() {
+        final StringBuilder t = this.token;
+        return (t.length() > 0) && (isDigit(t.charAt(0)) || (t.charAt(0) == '-'));
+    }
+
+    private static boolean isWhitespace(final int c) {
+        return (c == ' ') || (c == '\t') || (c == '\r') || (c == '\n');
+    }
+
+    private boolean parseBoolean() throws IOException {
+        if ("true".contentEquals(this.token) || "1".contentEquals(this.token)) {
+            return true;
+        } else if ("false".contentEquals(this.token) || "0".contentEquals(this.token)) {
+            return false;
+        }
+        throw error("Invalid boolean: " + this.token);
+    }
+
+    private byte[] parseBits(final int byteCount) throws IOException {
+        final byte[] bits = new byte[byteCount];
+        int bit = 0;
+        for (int i = 0; this.token.length() > i; ++i) {
+            final char c = this.token.charAt(i);
+            if (c == '-') {
+                continue;
+            }
+            if (((c != '0') && (c != '1')) || (bit >= (byteCount * 8))) {
+                throw error("Invalid bit field: " + this.token);
+            }
+            if (c == '1') {
+                bits[bit / 8] |= (1 << (bit % 8));
+            }
+            ++bit;
+        }
+        return bits;
+    }
+
+    private double parseDouble() throws IOException {
+        final StringBuilder t = this.token;
+        final int length = t.length();
+        int i = 0;
+        final boolean negative = (length > 0) && (t.charAt(0) == '-');
+        if ((length > 0) && ((t.charAt(0) == '-') || (t.charAt(0) == '+'))) {
+            ++i;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        for (; (length > i) && isDigit(t.charAt(i)); ++i, any = true) {
+            mantissa = (mantissa * 10) + (t.charAt(i) - '0');
+            if ((mantissa != 0) && (++digits > 15)) {
+                return parseDoubleSlow();
+            }
+        }
+        if ((length > i) && (t.charAt(i) == '.')) {
+            for (++i; (length > i) && isDigit(t.charAt(i)); ++i, any = true) {
+                mantissa = (mantissa * 10) + (t.charAt(i) - '0');
+                --exponent;
+                if ((mantissa != 0) && (++digits > 15)) {
+                    return parseDoubleSlow();
+                }
+            }
+        }
+        if (any && (length > i) && ((t.charAt(i) == 'e') || (t.charAt(i) == 'E'))) {
+            ++i;
+            final boolean negativeExponent = (length > i) && (t.charAt(i) == '-');
+            if ((length > i) && ((t.charAt(i) == '-') || (t.charAt(i) == '+'))) {
+                ++i;
+            }
+            int e = 0;
+            boolean anyExponent = false;
+            for (; (length > i) && isDigit(t.charAt(i)) && (e < 1000); ++i, anyExponent = true) {
+                e = (e * 10) + (t.charAt(i) - '0');
+            }
+            if (!anyExponent) {
+                return parseDoubleSlow();
+            }
+            exponent += (negativeExponent ? -e : e);
+        }
+        if (!any || (i != length) || (exponent > 22) || (exponent < -22)) {
+            return parseDoubleSlow();
+        }
+        // Exact: mantissa < 2^53 and 10^|exponent| are exact doubles.
+        final double value = (exponent >= 0 ? mantissa * POW10[exponent] : mantissa / POW10[-exponent]);
+        return (negative ? -value : value);
+    }
+
+    private double parseDoubleSlow() throws IOException {
+        try {
+            return Double.parseDouble(this.token.toString());
+        } catch (NumberFormatException e) {
+            throw error("Invalid number: " + this.token);
+        }
+    }
+
+    private <T extends Enum<T>> T parseEnum(final T[] values) throws IOException {
+        for (final T value : values) {
+            if (value.name().contentEquals(this.token)) {
+                return value;
+            }
+        }
+        throw error("Invalid enumeration constant: " + this.token);
+    }
+
+    private int parseHex() throws IOException {
+        final int length = this.token.length();
+        if ((length % 2) != 0) {
+            throw error("Invalid hex bytes: " + this.token);
+        }
+        final int byteCount = length / 2;
+        if (this.bytes.length < byteCount) {
+            this.bytes = new byte[Math.max(byteCount, this.bytes.length * 2)];
+        }
+        for (int i = 0; byteCount > i; ++i) {
+            final int high = hexDigit(this.token.charAt(2 * i));
+            final int low = hexDigit(this.token.charAt((2 * i) + 1));
+            if ((high < 0) || (low < 0)) {
+                throw error("Invalid hex bytes: " + this.token);
+            }
+            this.bytes[i] = (byte) ((high << 4) | low);
+        }
+        return byteCount;
+    }
+
+    private long parseLong(final long min, final long max) throws IOException {
+        final StringBuilder t = this.token;
+        final int length = t.length();
+        int i = 0;
+        final boolean negative = (length > 0) && (t.charAt(0) == '-');
+        if ((length > 0) && ((t.charAt(0) == '-') || (t.charAt(0) == '+'))) {
+            ++i;
+        }
+        if (i >= length) {
+            throw error("Invalid number: " + t);
+        }
+        // Accumulates negatively to cover Long.MIN_VALUE.
+        long value = 0;
+        for (; length > i; ++i) {
+            final int digit = t.charAt(i) - '0';
+            if ((digit < 0) || (digit > 9)) {
+                throw error("Invalid number: " + t);
+            }
+            if (value < ((Long.MIN_VALUE + digit) / 10)) {
+                throw error("Number out of range: " + t);
+            }
+            value = (value * 10) - digit;
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                throw error("Number out of range: " + t);
+            }
+            value = -value;
+        }
+        if ((value < min) || (value > max)) {
+            throw error("Number out of range: " + t);
+        }
+        return value;
+    }
+
+    private int read(final Reader in) throws IOException {
+        if (this.next != NONE) {
+            final int c = this.next;
+            this.next = NONE;
+            return c;
+        }
+        return in.read();
+    }
+
+    private void readArray(final Reader in, final Node node) throws IOException {
+        int c = skipWhitespace(in);
+        if (c == ']') {
+            return;
+        }
+        for (int i = 0; ; ++i) {
+            this.next = c;
+            readValue(in, (node.children.length > i ? node.children[i] : null));
+            c = skipWhitespace(in);
+            if (c == ']') {
+                return;
+            }
+            expect(',', c);
+            c = skipWhitespace(in);
+        }
+    }
+
+    private void readBare(final Reader in, final int first) throws IOException {
+        this.token.setLength(0);
+        this.quoted = false;
+        this.token.append((char) first);
+        int c = read(in);
+        while (!isDelimiter(c)) {
+            this.token.append((char) c);
+            c = read(in);
+        }
+        this.next = c;
+    }
+
+    private boolean readCsv(final Reader in, final boolean header) throws IOException {
+        checkCsv();
+        this.next = NONE;
+        int c = read(in);
+        if (c < 0) {
+            return false;
+        }
+        ++this.record;
+        for (int i = 0; this.leaves.length > i; ++i) {
+            c = readCsvField(in, c);
+            if (!header) {
+                assign(this.leaves[i], false);
+            } else if (!this.leaves[i].path.contentEquals(this.token)) {
+                throw error("Unexpected column: " + this.token + " (expected " + this.leaves[i].path + ")");
+            }
+            if ((i + 1) < this.leaves.length) {
+                expect(',', c);
+                c = read(in);
+            }
+        }
+        if (c == '\r') {
+            c = read(in);
+        }
+        if ((c >= 0) && (c != '\n')) {
+            throw unexpected(c);
+        }
+        return true;
+    }
+
+    /**
+     * Reads the next CSV record (as written by {@link #writeCsv(Appendable)})
+     * into the bound struct view.
+     *
+     * @param in the source (e.g. a {@link UTF8StreamReader}).
+     * @return <code>false</code> if the end of the stream has been reached.
+     * @throws IOException              if an I/O error occurs or the record is malformed.
+     * @throws IllegalArgumentException if the struct holds variable-length groups.
+     */
+    public boolean readCsv(final Reader in) throws IOException {
+        return readCsv(in, false);
+    }
+
+    private int readCsvField(final Reader in, int c) throws IOException {
+        this.token.setLength(0);
+        this.quoted = (c == '"');
+        if (this.quoted) {
+            for (; ; ) {
+                c = read(in);
+                if (c < 0) {
+                    throw error("Unterminated quoted field");
+                } else if (c == '"') {
+                    c = read(in);
+                    if (c != '"') {
+                        return c;
+                    }
+                }
+                this.token.append((char) c);
+            }
+        }
+        while ((c >= 0) && (c != ',') && (c != '\n') && (c != '\r')) {
+            this.token.append((char) c);
+            c = read(in);
+        }
+        return c;
+    }
+
+    /**
+     * Reads a CSV header line (as written by
+     * {@link #writeCsvHeader(Appendable)}) and verifies that its columns
+     * match the bound struct.
+     *
+     * @param in the source (e.g. a {@link UTF8StreamReader}).
+     * @return <code>false</code> if the end of the stream has been reached.
+     * @throws IOException if an I/O error occurs or the columns differ.
+     */
+    public boolean readCsvHeader(final Reader in) throws IOException {
+        return readCsv(in, true);
+    }
+
+    private void readGroup(final Reader in, final Node node) throws IOException {
+        final Struct.VarGroup<?> group = (Struct.VarGroup<?>) node.member;
+        int c = skipWhitespace(in);
+        int count = 0;
+        if (c != ']') {
+            // Grows geometrically (and trims at the end) since the group may move on every growth.
+            int capacity = 0;
+            for (; ; ) {
+                if (count == capacity) {
+                    capacity = grow(group, count);
+                }
+                group.get(count++);
+                expect('{', c);
+                readObject(in, node.children[0]);
+                c = skipWhitespace(in);
+                if (c == ']') {
+                    break;
+                }
+                expect(',', c);
+                c = skipWhitespace(in);
+            }
+        }
+        group.setCount(count);
+    }
+
+    /**
+     * Reads the next JSON line (as written by {@link #writeJson(Appendable)})
+     * into the bound struct view. Blank lines are skipped.
+     *
+     * @param in the source (e.g. a {@link UTF8StreamReader}).
+     * @return <code>false</code> if the end of the stream has been reached.
+     * @throws IOException if an I/O error occurs or the record is malformed.
+     */
+    public boolean readJson(final Reader in) throws IOException {
+        this.next = NONE;
+        int c = skipWhitespace(in);
+        if (c < 0) {
+            return false;
+        }
+        ++this.record;
+        expect('{', c);
+        readObject(in, this.root);
+        do {
+            c = read(in);
+        } while ((c == ' ') || (c == '\t') || (c == '\r'));
+        if ((c >= 0) && (c != '\n')) {
+            throw unexpected(c);
+        }
+        return true;
+    }
+
+    private void readObject(final Reader in, final Node node) throws IOException {
+        int c = skipWhitespace(in);
+        if (c == '}') {
+            return;
+        }
+        for (; ; ) {
+            expect('"', c);
+            readQuoted(in);
+            final Node child = child(node, this.token);
+            expect(':', skipWhitespace(in));
+            readValue(in, child);
+            c = skipWhitespace(in);
+            if (c == '}') {
+                return;
+            }
+            expect(',', c);
+            c = skipWhitespace(in);
+        }
+    }
+
+    private void readQuoted(final Reader in) throws IOException {
+        this.token.setLength(0);
+        this.quoted = true;
+        for (; ; ) {
+            int c = read(in);
+            if (c < 0) {
+                throw error("Unterminated string");
+            } else if (c == '"') {
+                return;
+            } else if (c == '\\') {
+                c = read(in);
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = 0;
+                        for (int i = 0; 4 > i; ++i) {
+                            final int digit = hexDigit((char) read(in));
+                            if (digit < 0) {
+                                throw error("Invalid unicode escape");
+                            }
+                            c = (c << 4) | digit;
+                        }
+                        break;
+                    case '"':
+                    case '\\':
+                    case '/':
+                        break;
+                    default:
+                        throw unexpected(c);
+                }
+            }
+            this.token.append((char) c);
+        }
+    }
+
+    private void readValue(final Reader in, final Node node) throws IOException {
+        final int c = skipWhitespace(in);
+        if (node == null) {
+            skipValue(in, c);
+            return;
+        }
+        switch (node.kind) {
+            case STRUCT:
+                expect('{', c);
+                readObject(in, node);
+                break;
+            case ARRAY:
+                expect('[', c);
+                readArray(in, node);
+                break;
+            case GROUP:
+                expect('[', c);
+                readGroup(in, node);
+                break;
+            default:
+                if (c == '"') {
+                    readQuoted(in);
+                } else if (isDelimiter(c)) {
+                    throw unexpected(c);
+                } else {
+                    readBare(in, c);
+                }
+                assign(node, true);
+        }
+    }
+
+    private int skipWhitespace(final Reader in) throws IOException {
+        int c;
+        do {
+            c = read(in);
+        } while (isWhitespace(c));
+        return c;
+    }
+
+    private void skipValue(final Reader in, final int c) throws IOException {
+        if (c == '"') {
+            readQuoted(in);
+        } else if ((c == '{') || (c == '[')) {
+            int depth = 1;
+            while (depth > 0) {
+                final int d = read(in);
+                if (d < 0) {
+                    throw error("Unterminated value");
+                } else if (d == '"') {
+                    readQuoted(in);
+                } else if ((d == '{') || (d == '[')) {
+                    ++depth;
+                } else if ((d == '}') || (d == ']')) {
+                    --depth;
+                }
+            }
+        } else if (isDelimiter(c)) {
+            throw unexpected(c);
+        } else {
+            readBare(in, c);
+        }
+    }
+
+    private <T extends Enum<T>> void setEnum(final Struct.Enum8<T> member) throws IOException {
+        if (isNumeric()) {
+            member.setCode((int) parseLong(0, 0xFF));
+        } else {
+            member.set(parseEnum(member.values()));
+        }
+    }
+
+    private <T extends Enum<T>> void setEnum(final Struct.Enum16<T> member) throws IOException {
+        if (isNumeric()) {
+            member.setCode((int) parseLong(0, 0xFFFF));
+        } else {
+            member.set(parseEnum(member.values()));
+        }
+    }
+
+    private <T extends Enum<T>> void setEnum(final Struct.Enum32<T> member) throws IOException {
+        if (isNumeric()) {
+            member.setCode((int) parseLong(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        } else {
+            member.set(parseEnum(member.values()));
+        }
+    }
+
+    private <T extends Enum<T>> void setEnum(final Struct.Enum64<T> member) throws IOException {
+        if (isNumeric()) {
+            member.setCode(parseLong(Long.MIN_VALUE, Long.MAX_VALUE));
+        } else {
+            member.set(parseEnum(member.values()));
+        }
+    }
+
+    private <T extends Enum<T>> void setEnum(final Struct.EnumBits<T> member) throws IOException {
+        if (isNumeric()) {
+            member.setCode((int) parseLong(0, (1L << Math.min(member.bitLength(), 31)) - 1L));
+        } else {
+            member.set(parseEnum(member.values()));
+        }
+    }
+
+    /**
+     * Returns the struct view bound to this codec.
+     *
+     * @return the struct view.
+     */
+    public Struct struct() {
+        return this.struct;
+    }
+
+    private IOException unexpected(final int c) {
+        return error(c < 0 ? "Unexpected end of stream" : "Unexpected character '" + (char) c + "'");
+    }
+
+    /**
+     * Writes the current content of the bound struct view as one CSV
+     * record (terminated by a line feed).
+     *
+     * @param out the destination (e.g. a {@link UTF8StreamWriter}).
+     * @throws IOException              if an I/O error occurs.
+     * @throws IllegalArgumentException if the struct holds variable-length groups.
+     */
+    public void writeCsv(final Appendable out) throws IOException {
+        this.csv.format(this.struct, out);
+        out.append('\n');
+    }
+
+    /**
+     * Writes the CSV header line holding the {@link #columns() column names}.
+     *
+     * @param out the destination (e.g. a {@link UTF8StreamWriter}).
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeCsvHeader(final Appendable out) throws IOException {
+        for (int i = 0; this.leaves.length > i; ++i) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(this.leaves[i].path);
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Writes the current content of the bound struct view as one JSON line.
+     *
+     * @param out the destination (e.g. a {@link UTF8StreamWriter}).
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeJson(final Appendable out) throws IOException {
+        this.json.format(this.struct, out);
+        out.append('\n');
+    }
+
+    private enum Kind {STRUCT, ARRAY, GROUP, LEAF}
+
+    private static final class Node {
+        final Node[] children;
+        final int index;
+        final Kind kind;
+        final Struct.AbstractMember member;
+        final String name;
+        final String path;
+        final StructSchema.MemberType type;
+
+        Node(final Kind kind, final String name, final String path, final Struct.AbstractMember member,
+             final StructSchema.MemberType type, final Node[] children) {
+            this(kind, name, path, member, type, children, -1);
+        }
+
+        Node(final Kind kind, final String name, final String path, final Struct.AbstractMember member,
+             final StructSchema.MemberType type, final Node[] children, final int index) {
+            this.kind = kind;
+            this.name = name;
+            this.path = path;
+            this.member = member;
+            this.type = type;
+            this.children = children;
+            this.index = index;
+        }
+    }
+
+}
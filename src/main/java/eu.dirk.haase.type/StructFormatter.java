@@ -0,0 +1,553 @@
+package eu.dirk.haase.type;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p> Streams the content (or the layout) of a {@link Struct} as text into
+ * an <code>Appendable</code> (e.g. a <code>StringBuilder</code>, a
+ * {@link UTF8ByteBufferWriter} or a <code>PrintStream</code>).</p>
+ * <p>
+ * <p> The member fields of a struct class are looked up by reflection only
+ * once per class and cached; formatting itself reads the members directly.
+ * Numbers, enumerations and strings are written without allocating
+ * intermediate objects (floating point values are converted into a reused
+ * scratch buffer).</p>
+ * <p>
+ * <p> Arrays (of any dimension), inner structs, variable-length members and
+ * {@link DynamicStruct} views are written completely. Four formats are
+ * supported:
+ * <ul>
+ * <li>{@link Format#TEXT}: indented <code>name=value</code> lines.</li>
+ * <li>{@link Format#JSON}: a single line JSON object (suitable for JSON lines).</li>
+ * <li>{@link Format#CSV}: a single CSV record with one field per scalar
+ * (array elements and inner struct members are flattened).</li>
+ * <li>{@link Format#LAYOUT}: indented <code>name: position</code> lines
+ * holding the absolute buffer position of every member.</li>
+ * </ul>
+ * {@code
+ * StructFormatter json = new StructFormatter(StructFormatter.Format.JSON);
+ * json.format(student, utf8ByteBufferWriter);}</p>
+ * <p>
+ * <p> Note: Instances of this class are unsynchronized (they hold scratch
+ * buffers); the per class metadata is shared.</p>
+ */
+public final class StructFormatter {
+
+    private static final ClassValue<StructField[]> FIELDS = new ClassValue<StructField[]>() {
+        @Override
+        protected StructField[] computeValue(final Class<?> type) {
+            return fieldsOf(type);
+        }
+    };
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final String INDENT = "   ";
+
+    private final char[] digits = new char[20];
+    private final Format format;
+    private final StringBuilder scratch = new StringBuilder(24);
+    private final UTF8CharSequence utf8 = new UTF8CharSequence();
+
+    /**
+     * Creates a formatter for the specified format.
+     *
+     * @param format the output format.
+     */
+    public StructFormatter(final Format format) {
+        this.format = format;
+    }
+
+    private static Class<?> componentType(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type;
+    }
+
+    private static StructField[] fieldsOf(final Class<?> structClass) {
+        final List<StructField> fields = new ArrayList<>();
+        for (Class<?> c = structClass; (c != null) && (c != Struct.class) && (c != Union.class); c = c.getSuperclass()) {
+            final List<StructField> declared = new ArrayList<>();
+            for (final Field f : c.getDeclaredFields()) {
+                final Class<?> type = componentType(f.getType());
+                if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic()
+                        || !(Struct.class.isAssignableFrom(type) || Struct.AbstractMember.class.isAssignableFrom(type))) {
+                    continue;
+                }
+                f.setAccessible(true);
+                declared.add(new StructField(f, StructSchema.MemberType.of(type)));
+            }
+            // Fields of super classes are laid out first.
+            fields.addAll(0, declared);
+        }
+        return fields.toArray(new StructField[fields.size()]);
+    }
+
+    private void appendDouble(final double value, final Appendable out) throws IOException {
+        if ((this.format == Format.JSON) && (Double.isNaN(value) || Double.isInfinite(value))) {
+            out.append("null");
+        } else if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            this.scratch.setLength(0);
+            appendScratch(this.scratch.append(value), out);
+        }
+    }
+
+    private void appendEnum(final Enum<?> constant, final long code, final Appendable out) throws IOException {
+        if (constant == null) {
+            // Unknown codes are written unchanged.
+            appendLong(code, out);
+        } else {
+            appendString(constant.name(), out);
+        }
+    }
+
+    private void appendFloat(final float value, final Appendable out) throws IOException {
+        if ((this.format == Format.JSON) && (Float.isNaN(value) || Float.isInfinite(value))) {
+            out.append("null");
+        } else if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+        } else {
+            this.scratch.setLength(0);
+            appendScratch(this.scratch.append(value), out);
+        }
+    }
+
+    private void appendLong(final long value, final Appendable out) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            out.append("-9223372036854775808");
+            return;
+        }
+        long v = Math.abs(value);
+        int i = this.digits.length;
+        do {
+            this.digits[--i] = (char) ('0' + (v % 10));
+            v /= 10;
+        } while (v != 0);
+        if (value < 0) {
+            out.append('-');
+        }
+        for (; this.digits.length > i; ++i) {
+            out.append(this.digits[i]);
+        }
+    }
+
+    private void appendQuoted(final CharSequence csq, final Appendable out) throws IOException {
+        out.append('"');
+        final int length = csq.length();
+        for (int i = 0; length > i; ++i) {
+            appendQuotedChar(csq.charAt(i), out);
+        }
+        out.append('"');
+    }
+
+    private void appendQuotedChar(final char c, final Appendable out) throws IOException {
+        if ((c == '"') || (c == '\\')) {
+            out.append('\\').append(c);
+        } else if (c == '\n') {
+            out.append("\\n");
+        } else if (c == '\r') {
+            out.append("\\r");
+        } else if (c == '\t') {
+            out.append("\\t");
+        } else if (c < 0x20) {
+            out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xf]);
+        } else {
+            out.append(c);
+        }
+    }
+
+    private void appendCsvQuoted(final CharSequence csq, final Appendable out) throws IOException {
+        out.append('"');
+        final int length = csq.length();
+        for (int i = 0; length > i; ++i) {
+            final char c = csq.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+
+    // Appends char by char (Appendable.append(CharSequence) may convert to a String).
+    private static void appendScratch(final StringBuilder scratch, final Appendable out) throws IOException {
+        for (int i = 0; scratch.length() > i; ++i) {
+            out.append(scratch.charAt(i));
+        }
+    }
+
+    private void appendString(final CharSequence csq, final Appendable out) throws IOException {
+        if (this.format == Format.JSON) {
+            appendQuoted(csq, out);
+        } else if ((this.format == Format.CSV) && needsCsvQuotes(csq)) {
+            appendCsvQuoted(csq, out);
+        } else {
+            out.append(csq);
+        }
+    }
+
+    static StructField[] fields(final Class<?> structClass) {
+        return FIELDS.get(structClass);
+    }
+
+    /**
+     * Writes the specified struct to the specified destination.
+     *
+     * @param struct the struct to write.
+     * @param out    the destination.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void format(final Struct struct, final Appendable out) throws IOException {
+        writeStruct(0, struct, out);
+    }
+
+    /**
+     * Returns the specified struct formatted as string.
+     *
+     * @param struct the struct to write.
+     * @return the formatted struct.
+     */
+    public String format(final Struct struct) {
+        final StringBuilder sb = new StringBuilder(128);
+        try {
+            format(struct, sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.toString()); // Cannot happen with StringBuilder.
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the format of this formatter.
+     *
+     * @return the output format.
+     */
+    public Format getFormat() {
+        return this.format;
+    }
+
+    private void indent(final int indent, final Appendable out) throws IOException {
+        for (int i = 0; indent > i; ++i) {
+            out.append(INDENT);
+        }
+    }
+
+    private static boolean needsCsvQuotes(final CharSequence csq) {
+        final int length = csq.length();
+        for (int i = 0; length > i; ++i) {
+            final char c = csq.charAt(i);
+            if ((c == ',') || (c == '"') || (c == '\n') || (c == '\r')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String separator() {
+        return ((this.format == Format.JSON) || (this.format == Format.CSV) ? "," : ", ");
+    }
+
+    private void writeArray(final int indent, final Object[] array, final StructSchema.MemberType type,
+                            final Appendable out) throws IOException {
+        final boolean brackets = (this.format != Format.CSV);
+        if (brackets) {
+            out.append('[');
+        }
+        for (int i = 0; array.length > i; ++i) {
+            if (i > 0) {
+                out.append(separator());
+            }
+            writeValue(indent, array[i], type, out);
+        }
+        if (brackets) {
+            out.append(']');
+        }
+    }
+
+    private void writeArrayMember(final Struct.ArrayMember array, final Appendable out) throws IOException {
+        final boolean brackets = (this.format != Format.CSV);
+        if (brackets) {
+            out.append('[');
+        }
+        for (int i = 0; array.count() > i; ++i) {
+            if (i > 0) {
+                out.append(separator());
+            }
+            if (array instanceof Struct.Float32Array) {
+                appendFloat(((Struct.Float32Array) array).get(i), out);
+            } else if (array.isFloating()) {
+                appendDouble(array.getAsDouble(i), out);
+            } else {
+                appendLong(array.getAsLong(i), out);
+            }
+        }
+        if (brackets) {
+            out.append(']');
+        }
+    }
+
+    private void writeBytes(final Struct.VarBytes member, final Appendable out) throws IOException {
+        final ByteBuffer bb = member.structByteBuffer();
+        final int position = member.payloadPosition();
+        final int length = member.byteLength();
+        if (this.format == Format.JSON) {
+            out.append('"');
+        }
+        for (int i = 0; length > i; ++i) {
+            final int b = bb.get(position + i);
+            out.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+        }
+        if (this.format == Format.JSON) {
+            out.append('"');
+        }
+    }
+
+    private void writeChar(final char c, final Appendable out) throws IOException {
+        if (this.format == Format.JSON) {
+            out.append('"');
+            appendQuotedChar(c, out);
+            out.append('"');
+        } else if ((this.format == Format.CSV) && ((c == ',') || (c == '"') || (c == '\n') || (c == '\r'))) {
+            out.append('"').append(c);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append('"');
+        } else {
+            out.append(c);
+        }
+    }
+
+    private void writeGroup(final int indent, final Struct.VarGroup<?> group, final Appendable out) throws IOException {
+        if (this.format == Format.CSV) {
+            throw new IllegalArgumentException("Variable groups cannot be written as CSV");
+        }
+        out.append('[');
+        final int count = group.count();
+        for (int i = 0; count > i; ++i) {
+            if (i > 0) {
+                out.append(separator());
+            }
+            writeStruct(indent, group.get(i), out);
+        }
+        out.append(']');
+    }
+
+    private void writeMember(final int indent, final String name, final Object value, final StructSchema.MemberType type,
+                     final boolean first, final Appendable out) throws IOException {
+        if (this.format == Format.JSON) {
+            if (!first) {
+                out.append(',');
+            }
+            appendQuoted(name, out);
+            out.append(':');
+            writeValue(indent, value, type, out);
+        } else if (this.format == Format.CSV) {
+            if (!first) {
+                out.append(',');
+            }
+            writeValue(indent, value, type, out);
+        } else {
+            indent(indent, out);
+            out.append(name).append(this.format == Format.LAYOUT ? ": " : "=");
+            writeValue(indent, value, type, out);
+            out.append('\n');
+        }
+    }
+
+    void writeMembers(final int indent, final Struct struct, final Appendable out) throws IOException {
+        boolean first = true;
+        if (struct instanceof DynamicStruct) {
+            for (final Map.Entry<String, Object> member : ((DynamicStruct) struct).members().entrySet()) {
+                writeMember(indent, member.getKey(), member.getValue(), null, first, out);
+                first = false;
+            }
+            return;
+        }
+        for (final StructField field : FIELDS.get(struct.getClass())) {
+            writeMember(indent, field.name, field.get(struct), field.type, first, out);
+            first = false;
+        }
+    }
+
+    private void writeScalar(final int indent, final Struct.AbstractMember member, final StructSchema.MemberType type,
+                             final Appendable out) throws IOException {
+        switch (type) {
+            case BOOL8:
+                out.append(((Struct.Bool8) member).get() ? "true" : "false");
+                break;
+            case BOOL16:
+                out.append(((Struct.Bool16) member).get() ? "true" : "false");
+                break;
+            case BOOL32:
+                out.append(((Struct.Bool32) member).get() ? "true" : "false");
+                break;
+            case BOOL64:
+                out.append(((Struct.Bool64) member).get() ? "true" : "false");
+                break;
+            case ENUM8:
+                appendEnum(((Struct.Enum8<?>) member).get(), ((Struct.Enum8<?>) member).code(), out);
+                break;
+            case ENUM16:
+                appendEnum(((Struct.Enum16<?>) member).get(), ((Struct.Enum16<?>) member).code(), out);
+                break;
+            case ENUM32:
+                appendEnum(((Struct.Enum32<?>) member).get(), ((Struct.Enum32<?>) member).code(), out);
+                break;
+            case ENUM64:
+                appendEnum(((Struct.Enum64<?>) member).get(), ((Struct.Enum64<?>) member).code(), out);
+                break;
+            case FLOAT32:
+                appendFloat(((Struct.Float32) member).get(), out);
+                break;
+            case FLOAT64:
+                appendDouble(((Struct.Float64) member).get(), out);
+                break;
+            case SIGNED8:
+                appendLong(((Struct.Signed8) member).get(), out);
+                break;
+            case SIGNED16:
+                appendLong(((Struct.Signed16) member).get(), out);
+                break;
+            case SIGNED32:
+                appendLong(((Struct.Signed32) member).get(), out);
+                break;
+            case SIGNED64:
+                appendLong(((Struct.Signed64) member).get(), out);
+                break;
+            case UNSIGNED8:
+                appendLong(((Struct.Unsigned8) member).get(), out);
+                break;
+            case UNSIGNED16:
+                appendLong(((Struct.Unsigned16) member).get(), out);
+                break;
+            case UNSIGNED32:
+                appendLong(((Struct.Unsigned32) member).get(), out);
+                break;
+            case UTF_CHAR8:
+                writeChar(((Struct.UtfChar8) member).get(), out);
+                break;
+            case UTF_CHAR16:
+                writeChar(((Struct.UtfChar16) member).get(), out);
+                break;
+            case UTF8_STRING:
+                appendString(this.utf8.wrap((Struct.Utf8String) member), out);
+                break;
+            case BIT_FIELD:
+                appendString(((Struct.BitField) member).toBinaryString(), out);
+                break;
+            case BIT:
+                out.append(((Struct.Bit) member).get() ? "true" : "false");
+                break;
+            case UNSIGNED_BITS:
+                appendLong(((Struct.UnsignedBits) member).get(), out);
+                break;
+            case ENUM_BITS:
+                appendEnum(((Struct.EnumBits<?>) member).get(), ((Struct.EnumBits<?>) member).code(), out);
+                break;
+            case VAR_BYTES:
+                writeBytes((Struct.VarBytes) member, out);
+                break;
+            case VAR_UTF8_STRING:
+                appendString(this.utf8.wrap((Struct.VarUtf8String) member), out);
+                break;
+            case VAR_GROUP:
+                writeGroup(indent, (Struct.VarGroup<?>) member, out);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported member type: " + type);
+        }
+    }
+
+    void writeStruct(final int indent, final Struct struct, final Appendable out) throws IOException {
+        if (this.format == Format.JSON) {
+            out.append('{');
+            writeMembers(indent, struct, out);
+            out.append('}');
+        } else if (this.format == Format.CSV) {
+            writeMembers(indent, struct, out);
+        } else {
+            out.append(struct.getClass().getSimpleName()).append(" {");
+            if (this.format == Format.LAYOUT) {
+                out.append(' ');
+                appendLong(struct.absolutePosition() + struct.structOffset(), out);
+            }
+            out.append('\n');
+            writeMembers(indent + 1, struct, out);
+            indent(indent, out);
+            out.append('}');
+        }
+    }
+
+    private void writeValue(final int indent, final Object value, final StructSchema.MemberType type,
+                            final Appendable out) throws IOException {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Object[]) {
+            writeArray(indent, (Object[]) value, type, out);
+        } else if (value instanceof Struct) {
+            writeStruct(indent, (Struct) value, out);
+        } else if ((value instanceof Struct.ArrayMember) && (this.format != Format.LAYOUT)) {
+            writeArrayMember((Struct.ArrayMember) value, out);
+        } else if (this.format == Format.LAYOUT) {
+            appendLong(((Struct.AbstractMember) value).absolutePosition(), out);
+        } else {
+            final Struct.AbstractMember member = (Struct.AbstractMember) value;
+            final StructSchema.MemberType memberType = (type != null ? type : StructSchema.MemberType.of(member.getClass()));
+            if (memberType == null) {
+                throw new IllegalArgumentException("Unsupported member: " + member.getClass().getName());
+            }
+            writeScalar(indent, member, memberType, out);
+        }
+    }
+
+    /**
+     * The output formats.
+     */
+    public enum Format {
+        /**
+         * Indented <code>name=value</code> lines.
+         */
+        TEXT,
+        /**
+         * Single line JSON object.
+         */
+        JSON,
+        /**
+         * Single CSV record (RFC 4180 quoting).
+         */
+        CSV,
+        /**
+         * Indented <code>name: position</code> lines.
+         */
+        LAYOUT
+    }
+
+    static final class StructField {
+        final Field field;
+        final String name;
+        final StructSchema.MemberType type;
+
+        StructField(final Field field, final StructSchema.MemberType type) {
+            this.field = field;
+            this.name = field.getName();
+            this.type = type;
+        }
+
+        Object get(final Struct struct) {
+            try {
+                return this.field.get(struct);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e.toString()); // Fields are accessible.
+            }
+        }
+    }
+
+}
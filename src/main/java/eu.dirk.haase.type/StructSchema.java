@@ -0,0 +1,606 @@
+package eu.dirk.haase.type;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * <p> Serialisable descriptor of a {@link Struct}/{@link Union} layout:
+ * member names, types, offsets, lengths, array dimensions, inner structs,
+ * byte order and member layout.</p>
+ * <p>
+ * <p> A schema can be emitted by any struct ({@link Struct#schema()}),
+ * written in a simple line based text form ({@link #writeTo(Appendable)},
+ * {@link #toString()}) and parsed back ({@link #parse(CharSequence)}), so
+ * that other processes (JVMs or native code) can attach to the same memory
+ * mapped data without a hand written copy of the struct class:
+ * {@code
+ * StructSchema schema = StructSchema.parse(text);
+ * DynamicStruct view = new DynamicStruct(schema);
+ * view.initByteBuffer(mappedByteBuffer, 0);
+ * Struct.Signed32 count = view.member("count");}</p>
+ * <p>
+ * <p> Member offsets are relative to the start of the described struct
+ * (C/C++ <code>offsetof</code>). Array members are described by their first
+ * element and their dimensions. Bit members are described by their storage
+ * unit (offset and length) plus their bit offset (in allocation order) and
+ * bit length within the unit.</p>
+ * <p>
+ * <p> Text form example:
+ * {@code
+ * struct Student size=80 order=LITTLE_ENDIAN layout=PACKED union=false {
+ *   gender type=ENUM32 offset=0 length=4 dims=-
+ *   name type=UTF8_STRING offset=4 length=65 dims=-
+ *   birth type=STRUCT offset=69 length=4 dims=-
+ *   struct Date size=4 order=LITTLE_ENDIAN layout=PACKED union=false {
+ *     ...
+ *   }
+ *   grades type=FLOAT32 offset=73 length=4 dims=10
+ *   active type=BIT offset=113 length=1 dims=- bits=0:1
+ * }}</p>
+ *
+ * @see DynamicStruct
+ */
+public final class StructSchema implements Serializable {
+
+    private static final int[] NO_DIMS = new int[0];
+    private static final long serialVersionUID = 0L;
+
+    private final boolean bigEndian;
+    private final Struct.Layout layout;
+    private final List<Member> members;
+    private final String name;
+    private final int size;
+    private final boolean union;
+
+    public StructSchema(final String name, final int size, final ByteOrder byteOrder,
+                        final Struct.Layout layout, final boolean union, final List<Member> members) {
+        this.name = name;
+        this.size = size;
+        this.bigEndian = (byteOrder == ByteOrder.BIG_ENDIAN);
+        this.layout = layout;
+        this.union = union;
+        this.members = Collections.unmodifiableList(new ArrayList<>(members));
+    }
+
+    private static void collectMembers(final Struct struct, final List<Member> members) throws IllegalAccessException {
+        final List<Member> classMembers = new ArrayList<>();
+        for (Class<?> c = struct.getClass(); (c != null) && (c != Struct.class) && (c != Union.class); c = c.getSuperclass()) {
+            final List<Member> declared = new ArrayList<>();
+            for (final Field f : c.getDeclaredFields()) {
+                if (Modifier.isStatic(f.getModifiers()) || f.isSynthetic()) {
+                    continue;
+                }
+                f.setAccessible(true);
+                final Member member = memberOf(struct, f.getName(), f.get(struct));
+                if (member != null) {
+                    declared.add(member);
+                }
+            }
+            // Fields of super classes are laid out first.
+            classMembers.addAll(0, declared);
+        }
+        classMembers.sort(Comparator.comparingInt(Member::offset));
+        members.addAll(classMembers);
+    }
+
+    private static Member memberOf(final Struct outer, final String name, final Object value) {
+        if (value == null) {
+            return null;
+        }
+        int[] dims = NO_DIMS;
+        Object element = value;
+        while (element.getClass().isArray()) {
+            final int length = java.lang.reflect.Array.getLength(element);
+            if (length == 0) {
+                return null;
+            }
+            dims = Arrays.copyOf(dims, dims.length + 1);
+            dims[dims.length - 1] = length;
+            element = java.lang.reflect.Array.get(element, 0);
+            if (element == null) {
+                return null;
+            }
+        }
+        if (element instanceof Struct) {
+            final Struct inner = (Struct) element;
+            return new Member(name, MemberType.STRUCT, inner.structOffset() - outer.structOffset(),
+                    inner.size(), dims, of(inner));
+        } else if (element instanceof Struct.AbstractMember) {
+            final Struct.AbstractMember member = (Struct.AbstractMember) element;
+            final MemberType type = MemberType.of(member);
+            if (type == null) {
+                return null;
+            } else if (type.isBits()) {
+                if (dims.length > 0) {
+                    throw new IllegalArgumentException("Arrays of bit members are not supported: " + name);
+                }
+                final Struct.BitMember bits = (Struct.BitMember) member;
+                return new Member(name, type, member.offset() - outer.structOffset(), member.length(), dims, null,
+                        bits.bitOffset(), bits.bitLength());
+            }
+            if (member instanceof Struct.ArrayMember) {
+                // Same layout as an array of scalar members.
+                final Struct.ArrayMember array = (Struct.ArrayMember) member;
+                dims = Arrays.copyOf(dims, dims.length + 1);
+                dims[dims.length - 1] = array.count();
+                return new Member(name, type, member.offset() - outer.structOffset(), array.elementSize(), dims, null);
+            }
+            final StructSchema inner = (type == MemberType.VAR_GROUP ? of(((Struct.VarGroup<?>) member).element()) : null);
+            return new Member(name, type, member.offset() - outer.structOffset(), member.length(), dims, inner);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the schema of the specified struct.
+     *
+     * @param struct the struct.
+     * @return the schema describing the struct layout.
+     * @throws IllegalStateException    if the struct fields cannot be accessed.
+     * @throws IllegalArgumentException if the struct has an array of bit
+     *                                  members.
+     */
+    public static StructSchema of(final Struct struct) {
+        final List<Member> members = new ArrayList<>();
+        try {
+            collectMembers(struct, members);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e.toString());
+        }
+        return new StructSchema(struct.getClass().getName(), struct.size(), struct.byteOrder(),
+                struct.layout(), struct.isUnion(), members);
+    }
+
+    /**
+     * Parses the text form of a schema.
+     *
+     * @param text the text form as written by {@link #writeTo(Appendable)}.
+     * @return the parsed schema.
+     * @throws IllegalArgumentException if the text is malformed.
+     */
+    public static StructSchema parse(final CharSequence text) {
+        final String[] tokens = text.toString().trim().split("\\s+");
+        final int[] index = {0};
+        final StructSchema schema = parse(tokens, index);
+        if (index[0] != tokens.length) {
+            throw new IllegalArgumentException("Unexpected token: " + tokens[index[0]]);
+        }
+        return schema;
+    }
+
+    private static StructSchema parse(final String[] tokens, final int[] index) {
+        expect(tokens, index, "struct");
+        final String name = next(tokens, index);
+        final int size = Integer.parseInt(value(tokens, index, "size"));
+        final String order = value(tokens, index, "order");
+        final Struct.Layout layout = Struct.Layout.valueOf(value(tokens, index, "layout"));
+        final boolean union = Boolean.parseBoolean(value(tokens, index, "union"));
+        expect(tokens, index, "{");
+        final List<Member> members = new ArrayList<>();
+        while (!"}".equals(peek(tokens, index))) {
+            final String memberName = next(tokens, index);
+            final MemberType type = MemberType.valueOf(value(tokens, index, "type"));
+            final int offset = Integer.parseInt(value(tokens, index, "offset"));
+            final int length = Integer.parseInt(value(tokens, index, "length"));
+            final int[] dims = parseDims(value(tokens, index, "dims"));
+            if (type.isBits()) {
+                final String[] bits = value(tokens, index, "bits").split(":");
+                members.add(new Member(memberName, type, offset, length, dims, null,
+                        Integer.parseInt(bits[0]), Integer.parseInt(bits[1])));
+            } else {
+                final StructSchema inner = (type.hasInner() ? parse(tokens, index) : null);
+                members.add(new Member(memberName, type, offset, length, dims, inner));
+            }
+        }
+        expect(tokens, index, "}");
+        final ByteOrder byteOrder = ("BIG_ENDIAN".equals(order) ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+        return new StructSchema(name, size, byteOrder, layout, union, members);
+    }
+
+    private static int[] parseDims(final String dims) {
+        if ("-".equals(dims)) {
+            return NO_DIMS;
+        }
+        final String[] parts = dims.split("x");
+        final int[] result = new int[parts.length];
+        for (int i = 0; parts.length > i; ++i) {
+            result[i] = Integer.parseInt(parts[i]);
+        }
+        return result;
+    }
+
+    private static void expect(final String[] tokens, final int[] index, final String expected) {
+        final String token = next(tokens, index);
+        if (!expected.equals(token)) {
+            throw new IllegalArgumentException("Expected '" + expected + "' but was '" + token + "'");
+        }
+    }
+
+    private static String next(final String[] tokens, final int[] index) {
+        final String token = peek(tokens, index);
+        index[0]++;
+        return token;
+    }
+
+    private static String peek(final String[] tokens, final int[] index) {
+        if (index[0] >= tokens.length) {
+            throw new IllegalArgumentException("Unexpected end of schema");
+        }
+        return tokens[index[0]];
+    }
+
+    private static String value(final String[] tokens, final int[] index, final String key) {
+        final String token = next(tokens, index);
+        if (!token.startsWith(key + "=")) {
+            throw new IllegalArgumentException("Expected '" + key + "=' but was '" + token + "'");
+        }
+        return token.substring(key.length() + 1);
+    }
+
+    public ByteOrder byteOrder() {
+        return (bigEndian ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        } else if (o == null || getClass() != o.getClass()) {
+            return false;
+        } else {
+            final StructSchema that = (StructSchema) o;
+            return (size == that.size) && (bigEndian == that.bigEndian) && (union == that.union)
+                    && (layout == that.layout) && name.equals(that.name) && members.equals(that.members);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, size, bigEndian, layout, union, members);
+    }
+
+    public boolean isUnion() {
+        return union;
+    }
+
+    public Struct.Layout layout() {
+        return layout;
+    }
+
+    /**
+     * Returns the member with the specified name.
+     *
+     * @param memberName the member name.
+     * @return the member or <code>null</code> if not found.
+     */
+    public Member member(final String memberName) {
+        for (final Member member : members) {
+            if (member.name.equals(memberName)) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    public List<Member> members() {
+        return members;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(64 * (members.size() + 1));
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new IllegalStateException(e.toString());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the text form of this schema.
+     *
+     * @param out the destination.
+     * @throws IOException if an I/O error occurs.
+     */
+    public void writeTo(final Appendable out) throws IOException {
+        writeTo(out, 0);
+    }
+
+    private void writeTo(final Appendable out, final int indent) throws IOException {
+        indent(out, indent);
+        out.append("struct ").append(name)
+                .append(" size=").append(Integer.toString(size))
+                .append(" order=").append(byteOrder().toString())
+                .append(" layout=").append(layout.name())
+                .append(" union=").append(Boolean.toString(union))
+                .append(" {\n");
+        for (final Member member : members) {
+            indent(out, indent + 1);
+            out.append(member.name)
+                    .append(" type=").append(member.type.name())
+                    .append(" offset=").append(Integer.toString(member.offset))
+                    .append(" length=").append(Integer.toString(member.length))
+                    .append(" dims=");
+            if (member.dims.length == 0) {
+                out.append('-');
+            }
+            for (int i = 0; member.dims.length > i; ++i) {
+                if (i > 0) {
+                    out.append('x');
+                }
+                out.append(Integer.toString(member.dims[i]));
+            }
+            if (member.type.isBits()) {
+                out.append(" bits=").append(Integer.toString(member.bitOffset))
+                        .append(':').append(Integer.toString(member.bitLength));
+            }
+            out.append('\n');
+            if (member.inner != null) {
+                member.inner.writeTo(out, indent + 1);
+            }
+        }
+        indent(out, indent);
+        out.append("}\n");
+    }
+
+    private static void indent(final Appendable out, final int indent) throws IOException {
+        for (int i = 0; indent > i; ++i) {
+            out.append("  ");
+        }
+    }
+
+    /**
+     * The type of a described member.
+     */
+    public enum MemberType {
+        BOOL8, BOOL16, BOOL32, BOOL64,
+        ENUM8, ENUM16, ENUM32, ENUM64,
+        FLOAT32, FLOAT64,
+        SIGNED8, SIGNED16, SIGNED32, SIGNED64,
+        UNSIGNED8, UNSIGNED16, UNSIGNED32,
+        UTF_CHAR8, UTF_CHAR16,
+        UTF8_STRING, BIT_FIELD,
+        BIT, UNSIGNED_BITS, ENUM_BITS,
+        VAR_BYTES, VAR_UTF8_STRING, VAR_GROUP,
+        STRUCT;
+
+        static MemberType of(final Struct.AbstractMember member) {
+            final MemberType type = of(member.getClass());
+            return (type == STRUCT ? null : type);
+        }
+
+        static MemberType of(final Class<?> memberClass) {
+            if (Struct.Bool8.class.isAssignableFrom(memberClass)) {
+                return BOOL8;
+            } else if (Struct.Bool16.class.isAssignableFrom(memberClass)) {
+                return BOOL16;
+            } else if (Struct.Bool32.class.isAssignableFrom(memberClass)) {
+                return BOOL32;
+            } else if (Struct.Bool64.class.isAssignableFrom(memberClass)) {
+                return BOOL64;
+            } else if (Struct.Enum8.class.isAssignableFrom(memberClass)) {
+                return ENUM8;
+            } else if (Struct.Enum16.class.isAssignableFrom(memberClass)) {
+                return ENUM16;
+            } else if (Struct.Enum32.class.isAssignableFrom(memberClass)) {
+                return ENUM32;
+            } else if (Struct.Enum64.class.isAssignableFrom(memberClass)) {
+                return ENUM64;
+            } else if (Struct.Float32.class.isAssignableFrom(memberClass)
+                    || Struct.Float32Array.class.isAssignableFrom(memberClass)) {
+                return FLOAT32;
+            } else if (Struct.Float64.class.isAssignableFrom(memberClass)
+                    || Struct.Float64Array.class.isAssignableFrom(memberClass)) {
+                return FLOAT64;
+            } else if (Struct.Signed8.class.isAssignableFrom(memberClass)
+                    || Struct.Signed8Array.class.isAssignableFrom(memberClass)) {
+                return SIGNED8;
+            } else if (Struct.Signed16.class.isAssignableFrom(memberClass)
+                    || Struct.Signed16Array.class.isAssignableFrom(memberClass)) {
+                return SIGNED16;
+            } else if (Struct.Signed32.class.isAssignableFrom(memberClass)
+                    || Struct.Signed32Array.class.isAssignableFrom(memberClass)) {
+                return SIGNED32;
+            } else if (Struct.Signed64.class.isAssignableFrom(memberClass)
+                    || Struct.Signed64Array.class.isAssignableFrom(memberClass)) {
+                return SIGNED64;
+            } else if (Struct.Unsigned8.class.isAssignableFrom(memberClass)
+                    || Struct.Unsigned8Array.class.isAssignableFrom(memberClass)) {
+                return UNSIGNED8;
+            } else if (Struct.Unsigned16.class.isAssignableFrom(memberClass)
+                    || Struct.Unsigned16Array.class.isAssignableFrom(memberClass)) {
+                return UNSIGNED16;
+            } else if (Struct.Unsigned32.class.isAssignableFrom(memberClass)
+                    || Struct.Unsigned32Array.class.isAssignableFrom(memberClass)) {
+                return UNSIGNED32;
+            } else if (Struct.UtfChar8.class.isAssignableFrom(memberClass)) {
+                return UTF_CHAR8;
+            } else if (Struct.UtfChar16.class.isAssignableFrom(memberClass)) {
+                return UTF_CHAR16;
+            } else if (Struct.Utf8String.class.isAssignableFrom(memberClass)) {
+                return UTF8_STRING;
+            } else if (Struct.BitField.class.isAssignableFrom(memberClass)) {
+                return BIT_FIELD;
+            } else if (Struct.Bit.class.isAssignableFrom(memberClass)) {
+                return BIT;
+            } else if (Struct.UnsignedBits.class.isAssignableFrom(memberClass)) {
+                return UNSIGNED_BITS;
+            } else if (Struct.EnumBits.class.isAssignableFrom(memberClass)) {
+                return ENUM_BITS;
+            } else if (Struct.VarBytes.class.isAssignableFrom(memberClass)) {
+                return VAR_BYTES;
+            } else if (Struct.VarUtf8String.class.isAssignableFrom(memberClass)) {
+                return VAR_UTF8_STRING;
+            } else if (Struct.VarGroup.class.isAssignableFrom(memberClass)) {
+                return VAR_GROUP;
+            } else if (Struct.class.isAssignableFrom(memberClass)) {
+                return STRUCT;
+            } else {
+                return null;
+            }
+        }
+
+        /**
+         * Indicates if members of this type are packed bit members, described
+         * by their storage unit, bit offset and bit length.
+         *
+         * @return <code>true</code> for {@link #BIT}, {@link #UNSIGNED_BITS}
+         * and {@link #ENUM_BITS}.
+         */
+        public boolean isBits() {
+            return (this == BIT) || (this == UNSIGNED_BITS) || (this == ENUM_BITS);
+        }
+
+        /**
+         * Indicates if members of this type are described by an inner schema.
+         *
+         * @return <code>true</code> for {@link #STRUCT} and {@link #VAR_GROUP}.
+         */
+        public boolean hasInner() {
+            return (this == STRUCT) || (this == VAR_GROUP);
+        }
+    }
+
+    /**
+     * The descriptor of a single member (or array member).
+     */
+    public static final class Member implements Serializable {
+        private static final long serialVersionUID = 0L;
+
+        private final int bitLength;
+        private final int bitOffset;
+        private final int[] dims;
+        private final StructSchema inner;
+        private final int length;
+        private final String name;
+        private final int offset;
+        private final MemberType type;
+
+        public Member(final String name, final MemberType type, final int offset, final int length,
+                      final int[] dims, final StructSchema inner) {
+            this(name, type, offset, length, dims, inner, 0, 0);
+        }
+
+        /**
+         * Creates the descriptor of a member; bit members are given their bit
+         * offset and bit length within the storage unit described by offset
+         * and length.
+         */
+        public Member(final String name, final MemberType type, final int offset, final int length,
+                      final int[] dims, final StructSchema inner, final int bitOffset, final int bitLength) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.length = length;
+            this.dims = dims.clone();
+            this.inner = inner;
+            this.bitOffset = bitOffset;
+            this.bitLength = bitLength;
+        }
+
+        /**
+         * Returns the number of bits of a bit member.
+         *
+         * @return the bit length (<code>0</code> if not a bit member).
+         */
+        public int bitLength() {
+            return bitLength;
+        }
+
+        /**
+         * Returns the bit offset of a bit member within its storage unit (in
+         * allocation order, see {@link Struct.BitMember}).
+         *
+         * @return the bit offset (<code>0</code> if not a bit member).
+         */
+        public int bitOffset() {
+            return bitOffset;
+        }
+
+        /**
+         * Returns the array dimensions (empty if not an array).
+         *
+         * @return the array dimensions.
+         */
+        public int[] dims() {
+            return dims.clone();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            } else if (o == null || getClass() != o.getClass()) {
+                return false;
+            } else {
+                final Member that = (Member) o;
+                return (offset == that.offset) && (length == that.length) && (type == that.type)
+                        && (bitOffset == that.bitOffset) && (bitLength == that.bitLength)
+                        && name.equals(that.name) && Arrays.equals(dims, that.dims)
+                        && Objects.equals(inner, that.inner);
+            }
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, type, offset, length, bitOffset, bitLength, Arrays.hashCode(dims), inner);
+        }
+
+        /**
+         * Returns the schema of the inner struct ({@link MemberType#STRUCT})
+         * or of the group element ({@link MemberType#VAR_GROUP}).
+         *
+         * @return the inner schema or <code>null</code>.
+         */
+        public StructSchema inner() {
+            return inner;
+        }
+
+        /**
+         * Returns the length in bytes of a single (element) member.
+         *
+         * @return the member length.
+         */
+        public int length() {
+            return length;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * Returns the offset of the (first element of the) member relative
+         * to the start of the described struct.
+         *
+         * @return the member offset.
+         */
+        public int offset() {
+            return offset;
+        }
+
+        public MemberType type() {
+            return type;
+        }
+
+    }
+
+}
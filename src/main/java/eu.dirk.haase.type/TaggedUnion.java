@@ -0,0 +1,403 @@
+package eu.dirk.haase.type;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * <p> Discriminated {@link Union}: a tag member followed by alternative
+ * struct layouts which are mapped to the same location in memory (as the
+ * members of a union); the tag tells which alternative is live.</p>
+ * <p> Here is an example of C tagged union:
+ * {@code
+ * struct Shape {
+ * uint8_t kind;
+ * union {
+ * struct { float radius; } circle;
+ * struct { float width, height; } rect;
+ * };
+ * };}</p>
+ * <p> And its Java equivalent:
+ * {@code
+ * public class Shape extends TaggedUnion {
+ * final Unsigned8 kind = tag(new Unsigned8());
+ * final Circle circle = variant(1, new Circle());
+ * final Rect rect = variant(2, new Rect());
+ * }}</p>
+ * <p> The alternatives are inner structs (flyweights) created once with
+ * the union and repositioned with it. The tags are resolved through a dense
+ * table (indexed by <code>tag - smallestTag</code>), therefore the tags
+ * should be small and contiguous:
+ * {@code
+ * double area = shape.accept(shape.<Double>cases()
+ *         .on(shape.circle, c -> Math.PI * c.radius.get() * c.radius.get())
+ *         .on(shape.rect, r -> (double) r.width.get() * r.height.get()));}</p>
+ * <p> The header members (including the tag) must be declared before the
+ * first alternative and no member may follow the alternatives. For
+ * {@link Layout#ALIGNED} layouts all alternatives start at the same offset,
+ * aligned on the largest alignment of the alternatives (as the members of a
+ * C union); earlier alternatives are moved when a later one needs a larger
+ * alignment.</p>
+ */
+@SuppressWarnings("unchecked")
+public abstract class TaggedUnion extends Struct {
+
+    private static final int MAX_TAG_SPAN = 1 << 16;
+    private static final long serialVersionUID = 0L;
+
+    private int headerEnd;
+    private int variantAlignment = 1;
+    private int variantBase = -1;
+    private int variantEnd;
+    private Struct[] variants = new Struct[0];
+    private int[] variantTags = new int[0];
+    private int[] tagTable = new int[0];
+    private int tagBase;
+    private AbstractMember tagMember;
+    private StructSchema.MemberType tagType;
+
+    /**
+     * Default constructor.
+     */
+    protected TaggedUnion() {
+        super(ByteOrder.nativeOrder());
+    }
+
+    protected TaggedUnion(final ByteOrder byteOrder) {
+        super(byteOrder);
+    }
+
+    protected TaggedUnion(final Layout layout) {
+        super(ByteOrder.nativeOrder(), layout);
+    }
+
+    protected TaggedUnion(final ByteOrder byteOrder, final Layout layout) {
+        super(byteOrder, layout);
+    }
+
+    /**
+     * Returns the case analysis on the alternatives of this union (to be
+     * created once and reused, see {@link #accept(Cases)}).
+     *
+     * @param <R> the result type.
+     * @return new cases without any handler.
+     */
+    public final <R> Cases<R> cases() {
+        return new Cases<>(this);
+    }
+
+    /**
+     * Applies the handler of the live alternative.
+     *
+     * @param cases the cases of this union.
+     * @param <R>   the result type.
+     * @return the result of the handler.
+     * @throws IllegalArgumentException if the cases belong to another union
+     *                                  type.
+     * @throws IllegalStateException    if the tag is not registered and the
+     *                                  cases have no fallback handler.
+     */
+    public final <R> R accept(final Cases<R> cases) {
+        if (cases.unionType != getClass()) {
+            throw new IllegalArgumentException("Cases of " + cases.unionType.getName()
+                    + " do not apply to " + getClass().getName());
+        }
+        final int tag = tag();
+        final int index = indexOf(tag);
+        if ((index >= 0) && (cases.handlers[index] != null)) {
+            return (R) cases.handlers[index].apply(this.variants[index]);
+        }
+        return cases.otherwise.apply(tag);
+    }
+
+    private int indexOf(final int tag) {
+        final long slot = (long) tag - this.tagBase;
+        return ((slot >= 0) && (slot < this.tagTable.length) ? this.tagTable[(int) slot] : -1);
+    }
+
+    private int indexOf(final Struct alternative) {
+        for (int i = 0; i < this.variants.length; ++i) {
+            if (this.variants[i] == alternative) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Indicates if the specified alternative is live.
+     *
+     * @param alternative an alternative of this union.
+     * @return <code>true</code> if the tag is the tag of the alternative.
+     */
+    public final boolean is(final Struct alternative) {
+        final int index = indexOf(tag());
+        return (index >= 0) && (this.variants[index] == alternative);
+    }
+
+    /**
+     * Makes the specified alternative live by setting its tag (the content
+     * of the alternative is not cleared).
+     *
+     * @param alternative an alternative of this union.
+     * @param <S>         the alternative type.
+     * @return the specified alternative.
+     * @throws IllegalArgumentException if the alternative is not registered.
+     */
+    public final <S extends Struct> S select(final S alternative) {
+        final int index = indexOf(alternative);
+        if (index < 0) {
+            throw new IllegalArgumentException("Not an alternative of " + getClass().getName());
+        }
+        setTag(this.variantTags[index]);
+        return alternative;
+    }
+
+    private void setTag(final int tag) {
+        switch (this.tagType) {
+            case SIGNED8:
+                ((Signed8) this.tagMember).set((byte) tag);
+                break;
+            case SIGNED16:
+                ((Signed16) this.tagMember).set((short) tag);
+                break;
+            case SIGNED32:
+                ((Signed32) this.tagMember).set(tag);
+                break;
+            case UNSIGNED8:
+                ((Unsigned8) this.tagMember).set((short) tag);
+                break;
+            case UNSIGNED16:
+                ((Unsigned16) this.tagMember).set(tag);
+                break;
+            case ENUM8:
+                ((Enum8<?>) this.tagMember).setCode(tag);
+                break;
+            case ENUM16:
+                ((Enum16<?>) this.tagMember).setCode(tag);
+                break;
+            case ENUM32:
+                ((Enum32<?>) this.tagMember).setCode(tag);
+                break;
+            default:
+                ((UnsignedBits) this.tagMember).set(tag);
+                break;
+        }
+    }
+
+    /**
+     * Defines the tag member of this union (its value is the tag of the live
+     * alternative); enum tags are compared by their code.
+     *
+     * @param member a signed (up to 32 bits), unsigned (up to 16 bits),
+     *               enum (up to 32 bits) or unsigned bits member.
+     * @param <M>    the member type.
+     * @return the specified member.
+     * @throws IllegalArgumentException if the member type cannot hold a tag.
+     * @throws IllegalStateException    if a tag is already defined.
+     */
+    protected final <M extends AbstractMember> M tag(final M member) {
+        if (this.tagMember != null) {
+            throw new IllegalStateException("Tag already defined");
+        }
+        final StructSchema.MemberType type = (member instanceof ScalarMember
+                ? StructSchema.MemberType.of(member.getClass()) : null);
+        switch (type == null ? StructSchema.MemberType.STRUCT : type) {
+            case SIGNED8:
+            case SIGNED16:
+            case SIGNED32:
+            case UNSIGNED8:
+            case UNSIGNED16:
+            case ENUM8:
+            case ENUM16:
+            case ENUM32:
+                break;
+            case UNSIGNED_BITS:
+                if (((UnsignedBits) member).bitLength() >= 32) {
+                    throw new IllegalArgumentException("UnsignedBits of " + ((UnsignedBits) member).bitLength()
+                            + " bits cannot hold a tag");
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(member.getClass().getSimpleName() + " cannot hold a tag");
+        }
+        this.tagMember = member;
+        this.tagType = type;
+        return member;
+    }
+
+    /**
+     * Returns the tag of this union (the live alternative).
+     *
+     * @return the current tag value.
+     * @throws IllegalStateException if no tag is defined.
+     */
+    public final int tag() {
+        if (this.tagType == null) {
+            throw new IllegalStateException("No tag defined in " + getClass().getName());
+        }
+        switch (this.tagType) {
+            case SIGNED8:
+                return ((Signed8) this.tagMember).get();
+            case SIGNED16:
+                return ((Signed16) this.tagMember).get();
+            case SIGNED32:
+                return ((Signed32) this.tagMember).get();
+            case UNSIGNED8:
+                return ((Unsigned8) this.tagMember).get();
+            case UNSIGNED16:
+                return ((Unsigned16) this.tagMember).get();
+            case ENUM8:
+                return ((Enum8<?>) this.tagMember).code();
+            case ENUM16:
+                return ((Enum16<?>) this.tagMember).code();
+            case ENUM32:
+                return ((Enum32<?>) this.tagMember).code();
+            default:
+                return (int) ((UnsignedBits) this.tagMember).get();
+        }
+    }
+
+    /**
+     * Returns the live alternative.
+     *
+     * @return the alternative of the current tag or <code>null</code> if the
+     * tag is not registered.
+     */
+    public final Struct variant() {
+        final int index = indexOf(tag());
+        return (index < 0 ? null : this.variants[index]);
+    }
+
+    /**
+     * Defines the specified struct as the alternative of the specified tag;
+     * all alternatives start at the same offset (after the header members).
+     *
+     * @param tag         the tag of the alternative.
+     * @param alternative the alternative layout.
+     * @param <S>         the alternative type.
+     * @return the specified struct (the flyweight of this alternative).
+     * @throws IllegalArgumentException if the tag is already used or the
+     *                                  tags are too sparse.
+     * @throws IllegalStateException    if a member has been declared after
+     *                                  the alternatives.
+     */
+    protected final <S extends Struct> S variant(final int tag, final S alternative) {
+        if (this.variantBase < 0) {
+            this.headerEnd = nextIndex();
+            this.variantBase = this.headerEnd;
+        } else if (nextIndex() != this.variantEnd) {
+            throw new IllegalStateException("Alternatives must be the last members of " + getClass().getName());
+        }
+        final int index = this.variants.length;
+        final int[] tags = Arrays.copyOf(this.variantTags, index + 1);
+        tags[index] = tag;
+        final int[] table = tagTable(tags);
+        if ((layout() == Layout.ALIGNED) && (alternative.alignment() > this.variantAlignment)) {
+            realignVariants(alternative.alignment());
+        }
+        innerAt(alternative, this.variantBase);
+        this.variantEnd = nextIndex();
+        this.variants = Arrays.copyOf(this.variants, index + 1);
+        this.variants[index] = alternative;
+        this.variantTags = tags;
+        this.tagTable = table;
+        return alternative;
+    }
+
+    // Moves the alternatives to the first offset after the header aligned on the specified alignment.
+    private void realignVariants(final int alignment) {
+        this.variantAlignment = alignment;
+        final int base = ((this.headerEnd + alignment - 1) / alignment) * alignment;
+        final int delta = base - this.variantBase;
+        if (delta != 0) {
+            for (final Struct variant : this.variants) {
+                moveInner(variant, delta);
+            }
+            this.variantBase = base;
+        }
+    }
+
+    // Builds the dense tag table (slot -> alternative index, -1 if unused).
+    private int[] tagTable(final int[] tags) {
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (final int tag : tags) {
+            min = Math.min(min, tag);
+            max = Math.max(max, tag);
+        }
+        if (((long) max - min) >= MAX_TAG_SPAN) {
+            throw new IllegalArgumentException("Tags " + min + ".." + max + " are too sparse");
+        }
+        final int[] table = new int[max - min + 1];
+        Arrays.fill(table, -1);
+        for (int i = 0; i < tags.length; ++i) {
+            if (table[tags[i] - min] >= 0) {
+                throw new IllegalArgumentException("Duplicate tag " + tags[i] + " in " + getClass().getName());
+            }
+            table[tags[i] - min] = i;
+        }
+        this.tagBase = min;
+        return table;
+    }
+
+    /**
+     * Case analysis on the alternatives of a tagged union type; the handlers
+     * are indexed like the alternatives, hence the dispatch does not
+     * allocate. Cases may be shared by all unions of the same class.
+     *
+     * @param <R> the result type.
+     */
+    public static final class Cases<R> {
+
+        private final Function<Struct, ? extends R>[] handlers;
+        private final TaggedUnion union;
+        private final Class<?> unionType;
+        private IntFunction<? extends R> otherwise = tag -> {
+            throw new IllegalStateException("Unexpected tag " + tag);
+        };
+
+        Cases(final TaggedUnion union) {
+            this.union = union;
+            this.unionType = union.getClass();
+            final Function<Struct, ? extends R>[] handlers
+                    = (Function<Struct, ? extends R>[]) new Function<?, ?>[union.variants.length];
+            this.handlers = handlers;
+        }
+
+        /**
+         * Sets the handler of the specified alternative.
+         *
+         * @param alternative an alternative of the union these cases were
+         *                    created from.
+         * @param handler     the handler (receives the alternative of the
+         *                    dispatching union).
+         * @param <S>         the alternative type.
+         * @return these cases.
+         * @throws IllegalArgumentException if the alternative is not
+         *                                  registered.
+         */
+        public <S extends Struct> Cases<R> on(final S alternative, final Function<? super S, ? extends R> handler) {
+            final int index = this.union.indexOf(alternative);
+            if (index < 0) {
+                throw new IllegalArgumentException("Not an alternative of " + this.unionType.getName());
+            }
+            this.handlers[index] = (Function<Struct, ? extends R>) handler;
+            return this;
+        }
+
+        /**
+         * Sets the handler of unregistered tags and of alternatives without
+         * handler (by default an {@link IllegalStateException} is thrown).
+         *
+         * @param handler the handler (receives the tag).
+         * @return these cases.
+         */
+        public Cases<R> otherwise(final IntFunction<? extends R> handler) {
+            this.otherwise = handler;
+            return this;
+        }
+    }
+
+}
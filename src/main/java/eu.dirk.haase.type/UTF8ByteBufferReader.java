@@ -180,6 +180,152 @@ public final class UTF8ByteBufferReader extends Reader {
         }
     }
 
+    /**
+     * Decodes the UTF-8 bytes in the range <code>[index, limit)</code> of
+     * the specified byte buffer into the specified appendable (the buffer
+     * position is not changed). Invalid or incomplete sequences are
+     * decoded leniently (see {@link #decodeLenientAt}).
+     *
+     * @param byteBuffer the source byte buffer.
+     * @param index      the absolute index of the first byte to decode.
+     * @param limit      the absolute index after the last byte to decode.
+     * @param dest       the destination.
+     * @return the number of <code>char</code> appended.
+     * @throws IOException if the destination throws.
+     */
+    public static int decode(final ByteBuffer byteBuffer, final int index, final int limit,
+                             final Appendable dest) throws IOException {
+        int charCount = 0;
+        for (int i = index; i < limit; ) {
+            final byte b = byteBuffer.get(i);
+            if (b >= 0) {
+                dest.append((char) b); // Most common case.
+                ++i;
+                ++charCount;
+            } else {
+                final int packed = decodeLenientAt(byteBuffer, i, limit);
+                final int code = packed >>> 3;
+                i += packed & 0x7;
+                if (code < 0x10000) {
+                    dest.append((char) code);
+                    ++charCount;
+                } else { // Surrogates.
+                    dest.append(Character.highSurrogate(code));
+                    dest.append(Character.lowSurrogate(code));
+                    charCount += 2;
+                }
+            }
+        }
+        return charCount;
+    }
+
+    /**
+     * Decodes the UTF-8 bytes in the range <code>[index, limit)</code> of
+     * the specified byte buffer into a portion of a <code>char</code> array
+     * (the buffer position is not changed). Decoding stops when the
+     * destination is full, surrogate pairs are never split. Invalid or
+     * incomplete sequences are decoded leniently (see
+     * {@link #decodeLenientAt}).
+     *
+     * @param byteBuffer the source byte buffer.
+     * @param index      the absolute index of the first byte to decode.
+     * @param limit      the absolute index after the last byte to decode.
+     * @param cbuf       the destination buffer.
+     * @param off        the offset at which to start storing characters.
+     * @param len        the maximum number of characters to store.
+     * @return the number of <code>char</code> stored.
+     */
+    public static int decode(final ByteBuffer byteBuffer, final int index, final int limit,
+                             final char[] cbuf, final int off, final int len) {
+        final int off_plus_len = off + len;
+        int j = off;
+        for (int i = index; (i < limit) && (j < off_plus_len); ) {
+            final byte b = byteBuffer.get(i);
+            if (b >= 0) {
+                cbuf[j++] = (char) b; // Most common case.
+                ++i;
+            } else {
+                final int packed = decodeLenientAt(byteBuffer, i, limit);
+                final int code = packed >>> 3;
+                if (code < 0x10000) {
+                    cbuf[j++] = (char) code;
+                } else if (j < off_plus_len - 1) { // Surrogates.
+                    cbuf[j++] = Character.highSurrogate(code);
+                    cbuf[j++] = Character.lowSurrogate(code);
+                } else { // Not enough space in destination.
+                    break;
+                }
+                i += packed & 0x7;
+            }
+        }
+        return j - off;
+    }
+
+    /**
+     * Decodes the UTF-8 sequence starting at the specified absolute index
+     * without allocating. The result packs the code point and the number of
+     * bytes of the sequence as <code>(code &lt;&lt; 3) | byteCount</code>.
+     *
+     * @param byteBuffer the source byte buffer.
+     * @param index      the absolute index of the lead byte.
+     * @param limit      the absolute index after the last readable byte.
+     * @return the packed code point and byte count or <code>-1</code> if
+     * the sequence is invalid or incomplete.
+     */
+    static int decodeAt(final ByteBuffer byteBuffer, final int index, final int limit) {
+        final int b = byteBuffer.get(index) & 0xff;
+        final int byteCount;
+        int code;
+        if (b < 0x80) {
+            return (b << 3) | 1;
+        } else if ((b & 0xe0) == 0xc0) {
+            // 110xxxxx
+            code = b & 0x1f;
+            byteCount = 2;
+        } else if ((b & 0xf0) == 0xe0) {
+            // 1110xxxx
+            code = b & 0x0f;
+            byteCount = 3;
+        } else if ((b & 0xf8) == 0xf0) {
+            // 11110xxx
+            code = b & 0x07;
+            byteCount = 4;
+        } else {
+            return -1;
+        }
+        if ((index + byteCount) > limit) {
+            return -1;
+        }
+        for (int i = index + 1; i < (index + byteCount); ++i) {
+            final int c = byteBuffer.get(i);
+            if ((c & 0xc0) != 0x80) {
+                // 10xxxxxx (continuation byte) expected
+                return -1;
+            }
+            code = (code << 6) | (c & 0x3f); // Adds 6 bits to code.
+        }
+        return (code > 0x10ffff) ? -1 : ((code << 3) | byteCount);
+    }
+
+    /**
+     * Decodes the UTF-8 sequence starting at the specified absolute index
+     * like {@link #decodeAt}, but never fails: the lead byte of an invalid
+     * or incomplete sequence is decoded on its own as ISO-8859-1 (its value
+     * is the code point) and decoding resumes with the next byte. This is
+     * the policy of all decoding of string members (e.g.
+     * {@link Struct.Utf8String#hash()}, {@link Struct.Utf8String#get()} and
+     * {@link UTF8CharSequence}), so that they agree on malformed bytes.
+     *
+     * @param byteBuffer the source byte buffer.
+     * @param index      the absolute index of the lead byte.
+     * @param limit      the absolute index after the last readable byte.
+     * @return the packed code point and byte count.
+     */
+    static int decodeLenientAt(final ByteBuffer byteBuffer, final int index, final int limit) {
+        final int packed = decodeAt(byteBuffer, index, limit);
+        return (packed < 0) ? (((byteBuffer.get(index) & 0xff) << 3) | 1) : packed;
+    }
+
     // Reads one full character, throws CharConversionException if limit reached.
     private int read2(byte b) throws IOException {
         try {
@@ -207,6 +207,146 @@ public final class UTF8ByteBufferWriter extends Writer {
         }
     }
 
+    /**
+     * Appends the specified character (surrogates are supported, see
+     * {@link #write(char)}).
+     *
+     * @param c the character to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8ByteBufferWriter append(final char c) throws IOException {
+        write(c);
+        return this;
+    }
+
+    /**
+     * Appends the specified character sequence (without converting it to
+     * a <code>String</code> first).
+     *
+     * @param csq the character sequence to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8ByteBufferWriter append(final CharSequence csq) throws IOException {
+        write(csq == null ? "null" : csq);
+        return this;
+    }
+
+    /**
+     * Appends a subsequence of the specified character sequence.
+     *
+     * @param csq   the character sequence.
+     * @param start the index of the first character to append.
+     * @param end   the index after the last character to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8ByteBufferWriter append(final CharSequence csq, final int start, final int end) throws IOException {
+        final CharSequence seq = (csq == null ? "null" : csq);
+        for (int i = start; i < end; ++i) {
+            write(seq.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Encodes the specified character sequence at the specified absolute
+     * index of the byte buffer (the buffer position is not changed).
+     * Encoding stops before the first character whose UTF-8 sequence would
+     * exceed <code>maxBytes</code>, surrogate pairs are never split.
+     *
+     * @param csq        the character sequence.
+     * @param byteBuffer the destination byte buffer.
+     * @param index      the absolute index of the first byte to write.
+     * @param maxBytes   the maximum number of bytes to write.
+     * @return the number of bytes written.
+     */
+    public static int encode(final CharSequence csq, final ByteBuffer byteBuffer, final int index, final int maxBytes) {
+        final int length = csq.length();
+        final int maxIndex = index + maxBytes;
+        int i = index;
+        for (int j = 0; j < length; ) {
+            final char c = csq.charAt(j++);
+            if (c < 0x80) {
+                if (i >= maxIndex) {
+                    break;
+                }
+                byteBuffer.put(i++, (byte) c); // Most common case.
+            } else {
+                int code = c;
+                int charCount = 1;
+                if (Character.isHighSurrogate(c) && (j < length) && Character.isLowSurrogate(csq.charAt(j))) {
+                    code = Character.toCodePoint(c, csq.charAt(j));
+                    charCount = 2;
+                }
+                final int byteCount = encodedLength(code);
+                if ((i + byteCount) > maxIndex) {
+                    break;
+                }
+                i = encode(code, byteCount, byteBuffer, i);
+                j += charCount - 1;
+            }
+        }
+        return i - index;
+    }
+
+    private static int encode(final int code, final int byteCount, final ByteBuffer byteBuffer, int i) {
+        switch (byteCount) {
+            case 2:
+                byteBuffer.put(i++, (byte) (0xc0 | (code >> 6)));
+                break;
+            case 3:
+                byteBuffer.put(i++, (byte) (0xe0 | (code >> 12)));
+                byteBuffer.put(i++, (byte) (0x80 | ((code >> 6) & 0x3f)));
+                break;
+            default:
+                byteBuffer.put(i++, (byte) (0xf0 | (code >> 18)));
+                byteBuffer.put(i++, (byte) (0x80 | ((code >> 12) & 0x3f)));
+                byteBuffer.put(i++, (byte) (0x80 | ((code >> 6) & 0x3f)));
+                break;
+        }
+        byteBuffer.put(i++, (byte) (0x80 | (code & 0x3f)));
+        return i;
+    }
+
+    /**
+     * Returns the number of bytes of the UTF-8 encoding of the specified
+     * character sequence.
+     *
+     * @param csq the character sequence.
+     * @return the encoded length in bytes.
+     */
+    public static int encodedLength(final CharSequence csq) {
+        final int length = csq.length();
+        int byteCount = 0;
+        for (int j = 0; j < length; ) {
+            final char c = csq.charAt(j++);
+            if (c < 0x80) {
+                ++byteCount;
+            } else if (Character.isHighSurrogate(c) && (j < length) && Character.isLowSurrogate(csq.charAt(j))) {
+                byteCount += 4;
+                ++j;
+            } else {
+                byteCount += encodedLength(c);
+            }
+        }
+        return byteCount;
+    }
+
+    private static int encodedLength(final int code) {
+        if ((code & 0xfffff800) == 0) {
+            return 2;
+        } else if ((code & 0xffff0000) == 0) {
+            return 3;
+        } else {
+            return 4;
+        }
+    }
+
     private void write2(int c) throws IOException {
         if ((c & 0xfffff800) == 0) { // 2 bytes.
             _byteBuffer.put((byte) (0xc0 | (c >> 6)));
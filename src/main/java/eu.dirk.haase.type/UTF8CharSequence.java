@@ -0,0 +1,232 @@
+package eu.dirk.haase.type;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p> A reusable (flyweight) <code>CharSequence</code> view over UTF-8 bytes
+ * in a <code>ByteBuffer</code>, e.g. a {@link Struct.Utf8String} member.</p>
+ * <p>
+ * <p> Pure ASCII content is accessed directly in the byte buffer (no copy).
+ * Multibyte content is decoded lazily on first access into an internal
+ * <code>char</code> buffer which is reused for subsequent {@link #wrap wraps}.
+ * The hash code is cached and equal to the <code>String</code> hash code of
+ * the same characters. Malformed UTF-8 bytes are decoded leniently, as by
+ * {@link Struct.Utf8String}.</p>
+ * <p>
+ * <p> {@link #equals(Object)} is restricted to other views (so that it stays
+ * symmetric); {@link #contentEquals(CharSequence)} compares with any
+ * <code>CharSequence</code>. A map keyed by views over immutable bytes can be
+ * looked up without allocating:
+ * {@code
+ * byte[] bytes = "alpha".getBytes(StandardCharsets.UTF_8);
+ * map.put(new UTF8CharSequence().wrap(ByteBuffer.wrap(bytes), 0, bytes.length), value);
+ * UTF8CharSequence key = new UTF8CharSequence();
+ * V value = map.get(key.wrap(message.name));}</p>
+ * <p>
+ * <p> Note: Pure ASCII content is read live from the byte buffer, whereas
+ * decoded multibyte content and the cached hash code are not updated when the
+ * bytes change; the view has to be wrapped again after each change (and a
+ * view used as a map key must never change). Instances are unsynchronized.</p>
+ *
+ * @see UTF8ByteBufferReader
+ */
+public final class UTF8CharSequence implements CharSequence, Comparable<CharSequence> {
+
+    private static final char[] NO_CHARS = new char[0];
+
+    private boolean ascii;
+    private ByteBuffer byteBuffer;
+    private int byteLength;
+    private char[] decoded = NO_CHARS;
+    private int decodedLength = -1;
+    private int hash;
+    private boolean hashValid;
+    private int index;
+
+    /**
+     * Default constructor (empty sequence).
+     */
+    public UTF8CharSequence() {
+    }
+
+    @Override
+    public char charAt(final int i) {
+        if (this.ascii) {
+            if ((i < 0) || (i >= this.byteLength)) {
+                throw new IndexOutOfBoundsException("index: " + i + ", length: " + this.byteLength);
+            }
+            return (char) this.byteBuffer.get(this.index + i);
+        }
+        decode();
+        if ((i < 0) || (i >= this.decodedLength)) {
+            throw new IndexOutOfBoundsException("index: " + i + ", length: " + this.decodedLength);
+        }
+        return this.decoded[i];
+    }
+
+    @Override
+    public int compareTo(final CharSequence that) {
+        final int thisLength = length();
+        final int thatLength = that.length();
+        final int minLength = Math.min(thisLength, thatLength);
+        for (int i = 0; minLength > i; ++i) {
+            final int diff = charAt(i) - that.charAt(i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return thisLength - thatLength;
+    }
+
+    private void decode() {
+        if (this.decodedLength >= 0) {
+            return;
+        }
+        // A UTF-8 sequence of n bytes never decodes to more than n chars.
+        if (this.decoded.length < this.byteLength) {
+            this.decoded = new char[this.byteLength];
+        }
+        this.decodedLength = UTF8ByteBufferReader.decode(this.byteBuffer, this.index,
+                this.index + this.byteLength, this.decoded, 0, this.decoded.length);
+    }
+
+    /**
+     * Indicates if this view has the same characters as the specified
+     * <code>CharSequence</code>.
+     *
+     * @param that the characters to compare with.
+     * @return <code>true</code> if the characters are equal.
+     */
+    public boolean contentEquals(final CharSequence that) {
+        if (this == that) {
+            return true;
+        } else if (that == null) {
+            return false;
+        } else if (((that instanceof String) || (that instanceof UTF8CharSequence))
+                && (hashCode() != that.hashCode())) {
+            // Only these implementations hash their characters like String.
+            return false;
+        }
+        return (length() == that.length()) && (compareTo(that) == 0);
+    }
+
+    /**
+     * Indicates if the specified object is a <code>UTF8CharSequence</code>
+     * with the same characters as this view. Use
+     * {@link #contentEquals(CharSequence)} to compare with other
+     * <code>CharSequence</code> implementations.
+     *
+     * @param obj the object to compare with.
+     * @return <code>true</code> if the characters are equal.
+     */
+    @Override
+    public boolean equals(final Object obj) {
+        return (obj instanceof UTF8CharSequence) && contentEquals((UTF8CharSequence) obj);
+    }
+
+    @Override
+    public int hashCode() {
+        if (!this.hashValid) {
+            int h = 0;
+            final int length = length();
+            for (int i = 0; length > i; ++i) {
+                h = 31 * h + charAt(i);
+            }
+            this.hash = h;
+            this.hashValid = true;
+        }
+        return this.hash;
+    }
+
+    /**
+     * Indicates if all characters of this view are ASCII (directly accessed
+     * in the byte buffer).
+     *
+     * @return <code>true</code> if the view contains only ASCII characters.
+     */
+    public boolean isAscii() {
+        return this.ascii;
+    }
+
+    @Override
+    public int length() {
+        if (this.ascii) {
+            return this.byteLength;
+        }
+        decode();
+        return this.decodedLength;
+    }
+
+    @Override
+    public CharSequence subSequence(final int start, final int end) {
+        if ((start < 0) || (end > length()) || (start > end)) {
+            throw new IndexOutOfBoundsException("start: " + start + ", end: " + end + ", length: " + length());
+        }
+        if (this.ascii) {
+            return new UTF8CharSequence().wrap(this.byteBuffer, this.index + start, end - start);
+        }
+        return new String(this.decoded, start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        if (this.ascii) {
+            final char[] chars = new char[this.byteLength];
+            for (int i = 0; this.byteLength > i; ++i) {
+                chars[i] = (char) this.byteBuffer.get(this.index + i);
+            }
+            return new String(chars);
+        }
+        decode();
+        return new String(this.decoded, 0, this.decodedLength);
+    }
+
+    /**
+     * Sets this view to the UTF-8 bytes in the specified region of the byte
+     * buffer (the buffer position is not changed).
+     *
+     * @param byteBuffer the byte buffer.
+     * @param index      the absolute index of the first byte.
+     * @param byteLength the number of bytes.
+     * @return <code>this</code>
+     */
+    public UTF8CharSequence wrap(final ByteBuffer byteBuffer, final int index, final int byteLength) {
+        this.byteBuffer = byteBuffer;
+        this.index = index;
+        this.byteLength = byteLength;
+        this.decodedLength = -1;
+        this.hashValid = false;
+        boolean isAscii = true;
+        for (int i = index; (index + byteLength) > i; ++i) {
+            if (byteBuffer.get(i) < 0) {
+                isAscii = false;
+                break;
+            }
+        }
+        this.ascii = isAscii;
+        return this;
+    }
+
+    /**
+     * Sets this view to the current (null terminated) content of the
+     * specified string member.
+     *
+     * @param utf8String the string member.
+     * @return <code>this</code>
+     */
+    public UTF8CharSequence wrap(final Struct.Utf8String utf8String) {
+        return wrap(utf8String.structByteBuffer(), utf8String.absolutePosition(), utf8String.byteLength());
+    }
+
+    /**
+     * Sets this view to the current content of the specified variable-length
+     * string member.
+     *
+     * @param varUtf8String the string member.
+     * @return <code>this</code>
+     */
+    public UTF8CharSequence wrap(final Struct.VarUtf8String varUtf8String) {
+        return wrap(varUtf8String.structByteBuffer(), varUtf8String.payloadPosition(), varUtf8String.byteLength());
+    }
+
+}
@@ -271,6 +271,52 @@ public final class UTF8StreamWriter extends Writer {
         }
     }
 
+    /**
+     * Appends the specified character (surrogates are supported, see
+     * {@link #write(char)}).
+     *
+     * @param c the character to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8StreamWriter append(final char c) throws IOException {
+        write(c);
+        return this;
+    }
+
+    /**
+     * Appends the specified character sequence (without converting it to
+     * a <code>String</code> first).
+     *
+     * @param csq the character sequence to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8StreamWriter append(final CharSequence csq) throws IOException {
+        write(csq == null ? "null" : csq);
+        return this;
+    }
+
+    /**
+     * Appends a subsequence of the specified character sequence.
+     *
+     * @param csq   the character sequence.
+     * @param start the index of the first character to append.
+     * @param end   the index after the last character to append.
+     * @return <code>this</code>
+     * @throws IOException if an I/O error occurs.
+     */
+    @Override
+    public UTF8StreamWriter append(final CharSequence csq, final int start, final int end) throws IOException {
+        final CharSequence seq = (csq == null ? "null" : csq);
+        for (int i = start; i < end; ++i) {
+            write(seq.charAt(i));
+        }
+        return this;
+    }
+
     private void write2(int c) throws IOException {
         if ((c & 0xfffff800) == 0) { // 2 bytes.
             _bytes[_index] = (byte) (0xc0 | (c >> 6));
@@ -54,4 +54,12 @@ public abstract class Union extends Struct implements Serializable {
         super(byteOrder);
     }
 
+    protected Union(final Layout layout) {
+        super(ByteOrder.nativeOrder(), layout);
+    }
+
+    protected Union(final ByteOrder byteOrder, final Layout layout) {
+        super(byteOrder, layout);
+    }
+
 }
\ No newline at end of file
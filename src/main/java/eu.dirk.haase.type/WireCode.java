@@ -0,0 +1,28 @@
+package eu.dirk.haase.type;
+
+/**
+ * <p> Implemented by enumerations whose constants are stored with an
+ * explicit code instead of their ordinal (e.g. codes defined by a C/C++
+ * header or a wire protocol):
+ * {@code
+ * enum Side implements WireCode {
+ *     BUY(66), SELL(83);
+ *     private final int code;
+ *     Side(int code) { this.code = code; }
+ *     public int wireCode() { return code; }
+ * }}</p>
+ * <p>
+ * <p> The codes must be unique; they need not be dense.</p>
+ *
+ * @see Struct.Enum8
+ */
+public interface WireCode {
+
+    /**
+     * Returns the code of this constant as stored in a struct.
+     *
+     * @return the wire code.
+     */
+    int wireCode();
+
+}
@@ -13,6 +13,7 @@ public final class Allocator {
     private final ByteBuffer buffer;
     private final int maximumSize;
     private final int startPosition;
+    private SnapshotRegion snapshotRegion;
 
 
     public Allocator(final int maximumSize) {
@@ -82,11 +83,43 @@ public final class Allocator {
         return lastNext;
     }
 
+    private long beginWrite() {
+        return (this.snapshotRegion == null ? 0L : this.snapshotRegion.beginWrite(this.block));
+    }
+
+    /**
+     * Enables copy-on-write snapshots of the allocator buffer; block
+     * headers are then written through the returned region. Data written
+     * to allocated structs has to be bracketed by
+     * {@link SnapshotRegion#beginWrite(eu.dirk.haase.type.Struct)} and
+     * {@link SnapshotRegion#endWrite(long)}.
+     *
+     * @param pageSize the copy-on-write granularity in bytes (a power of two).
+     * @return the snapshot region over the allocator buffer.
+     */
+    public SnapshotRegion enableSnapshots(final int pageSize) {
+        if (this.snapshotRegion == null) {
+            this.snapshotRegion = new SnapshotRegion(this.buffer, pageSize);
+        }
+        return this.snapshotRegion;
+    }
+
+    private void endWrite(final long stamp) {
+        if (this.snapshotRegion != null) {
+            this.snapshotRegion.endWrite(stamp);
+        }
+    }
+
     public boolean free(final int dataPosition) {
         final int headerAbsolutePosition = this.block.headerPosition(dataPosition);
         this.block.setStructAbsolutePosition(headerAbsolutePosition);
         if (this.block.data.get() == dataPosition) {
-            this.block.data.set(EMPTY_DATA_SIZE);
+            final long stamp = beginWrite();
+            try {
+                this.block.data.set(EMPTY_DATA_SIZE);
+            } finally {
+                endWrite(stamp);
+            }
             return true;
         }
         return false;
@@ -100,9 +133,14 @@ public final class Allocator {
         final short dataPosition = (short) this.block.dataPosition();
         final short newNext = (short) this.block.nextHeaderPosition(dataSize);
         if (newNext <= (maximumSize + startPosition)) {
-            block.data.set(dataPosition);
-            if ((newNext < (maximumSize + startPosition)) && (this.buffer.limit() > (newNext + Block.blockSize))) {
-                block.next.set(newNext);
+            final long stamp = beginWrite();
+            try {
+                block.data.set(dataPosition);
+                if ((newNext < (maximumSize + startPosition)) && (this.buffer.limit() > (newNext + Block.blockSize))) {
+                    block.next.set(newNext);
+                }
+            } finally {
+                endWrite(stamp);
             }
         }
         return dataPosition;
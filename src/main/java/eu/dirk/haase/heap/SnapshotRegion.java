@@ -0,0 +1,319 @@
+package eu.dirk.haase.heap;
+
+import eu.dirk.haase.type.Struct;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * <p> Page granular copy-on-write snapshots of a <code>ByteBuffer</code>
+ * region backing {@link Struct}s (e.g. the buffer of an {@link Allocator}).</p>
+ * <p>
+ * <p> A {@link Snapshot} is a consistent point-in-time view of the whole
+ * region. It is cheap to open: pages are only copied when a writer
+ * modifies them for the first time while the snapshot is open. Readers
+ * never block writers for longer than a single page copy, so long scans
+ * see consistent records while writers keep running:
+ * {@code
+ * // writer
+ * long stamp = region.beginWrite(record);
+ * try {
+ *     record.price.set(price);
+ *     record.time.set(time);
+ * } finally {
+ *     region.endWrite(stamp);
+ * }
+ * // reader
+ * try (SnapshotRegion.Snapshot snapshot = region.snapshot()) {
+ *     for (int position : positions) {
+ *         snapshot.copyTo(position, view);
+ *         sum += view.price.get();
+ *     }
+ * }}</p>
+ * <p>
+ * <p> All writes to the region must be bracketed by
+ * {@link #beginWrite(int, int)} and {@link #endWrite(long)} (writers are
+ * serialized). Snapshots may be read by any number of threads.</p>
+ */
+public final class SnapshotRegion {
+
+    private static final Snapshot[] NO_SNAPSHOTS = new Snapshot[0];
+
+    private final ByteBuffer buffer;
+    private final StampedLock lock = new StampedLock();
+    private final int pageCount;
+    private final int pageShift;
+    private final int pageSize;
+    private volatile Snapshot[] snapshots = NO_SNAPSHOTS;
+
+    /**
+     * Creates a snapshot region over the whole capacity of the specified
+     * buffer.
+     *
+     * @param buffer   the buffer holding the data.
+     * @param pageSize the copy-on-write granularity in bytes (a power of two).
+     * @throws IllegalArgumentException if the page size is not a power of two.
+     */
+    public SnapshotRegion(final ByteBuffer buffer, final int pageSize) {
+        if ((pageSize <= 0) || (Integer.bitCount(pageSize) != 1)) {
+            throw new IllegalArgumentException("Page size must be a power of two: " + pageSize);
+        }
+        this.buffer = buffer;
+        this.pageSize = pageSize;
+        this.pageShift = Integer.numberOfTrailingZeros(pageSize);
+        this.pageCount = (buffer.capacity() + pageSize - 1) >>> this.pageShift;
+    }
+
+    /**
+     * Starts writing the specified byte range: the affected pages are
+     * preserved for all open snapshots before they are modified.
+     *
+     * @param position the absolute position of the first byte to write.
+     * @param length   the number of bytes to write.
+     * @return the stamp to pass to {@link #endWrite(long)}.
+     */
+    public long beginWrite(final int position, final int length) {
+        final long stamp = this.lock.writeLock();
+        final Snapshot[] open = this.snapshots;
+        if ((open.length > 0) && (length > 0)) {
+            final int lastPage = (position + length - 1) >>> this.pageShift;
+            for (int page = position >>> this.pageShift; lastPage >= page; ++page) {
+                preserve(page, open);
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Starts writing the specified struct (including the payload of its
+     * variable-length members).
+     *
+     * @param struct the struct to write.
+     * @return the stamp to pass to {@link #endWrite(long)}.
+     * @see #beginWrite(int, int)
+     */
+    public long beginWrite(final Struct struct) {
+        return beginWrite(struct.getStructAbsolutePosition(), struct.totalSize());
+    }
+
+    /**
+     * Returns the buffer holding the live data.
+     *
+     * @return the buffer.
+     */
+    public ByteBuffer buffer() {
+        return this.buffer;
+    }
+
+    private synchronized void close(final Snapshot snapshot) {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Snapshot[] open = this.snapshots;
+            for (int i = 0; open.length > i; ++i) {
+                if (open[i] == snapshot) {
+                    final Snapshot[] remaining = new Snapshot[open.length - 1];
+                    System.arraycopy(open, 0, remaining, 0, i);
+                    System.arraycopy(open, i + 1, remaining, i, open.length - i - 1);
+                    this.snapshots = remaining;
+                    return;
+                }
+            }
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ends writing started by {@link #beginWrite(int, int)}.
+     *
+     * @param stamp the stamp returned by <code>beginWrite</code>.
+     */
+    public void endWrite(final long stamp) {
+        this.lock.unlockWrite(stamp);
+    }
+
+    /**
+     * Returns the number of currently open snapshots.
+     *
+     * @return the number of open snapshots.
+     */
+    public int openSnapshots() {
+        return this.snapshots.length;
+    }
+
+    /**
+     * Returns the copy-on-write granularity.
+     *
+     * @return the page size in bytes.
+     */
+    public int pageSize() {
+        return this.pageSize;
+    }
+
+    private void preserve(final int page, final Snapshot[] open) {
+        byte[] copy = null;
+        for (final Snapshot snapshot : open) {
+            if (snapshot.pages.get(page) == null) {
+                // The page is unmodified since all these snapshots were opened.
+                if (copy == null) {
+                    copy = new byte[this.pageSize];
+                    final int start = page << this.pageShift;
+                    final int end = Math.min(start + this.pageSize, this.buffer.capacity());
+                    for (int i = start; end > i; ++i) {
+                        copy[i - start] = this.buffer.get(i);
+                    }
+                }
+                snapshot.pages.set(page, copy);
+                ++snapshot.copiedPages;
+            }
+        }
+    }
+
+    /**
+     * Opens a new consistent snapshot of the region (waits for a writer
+     * in progress to finish).
+     *
+     * @return the snapshot, which must be closed after use.
+     */
+    public synchronized Snapshot snapshot() {
+        final long stamp = this.lock.writeLock();
+        try {
+            final Snapshot snapshot = new Snapshot();
+            final Snapshot[] open = Arrays.copyOf(this.snapshots, this.snapshots.length + 1);
+            open[open.length - 1] = snapshot;
+            this.snapshots = open;
+            return snapshot;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * A consistent point-in-time view of a {@link SnapshotRegion}.
+     */
+    public final class Snapshot implements AutoCloseable {
+
+        private final AtomicReferenceArray<byte[]> pages = new AtomicReferenceArray<>(SnapshotRegion.this.pageCount);
+        private volatile boolean closed;
+        private volatile int copiedPages;
+
+        private Snapshot() {
+        }
+
+        /**
+         * Closes this snapshot and releases the preserved pages.
+         */
+        @Override
+        public void close() {
+            if (!this.closed) {
+                this.closed = true;
+                SnapshotRegion.this.close(this);
+            }
+        }
+
+        /**
+         * Returns the number of pages copied because writers modified them
+         * while this snapshot is open.
+         *
+         * @return the number of preserved pages.
+         */
+        public int copiedPages() {
+            return this.copiedPages;
+        }
+
+        /**
+         * Copies bytes as of the time of this snapshot.
+         *
+         * @param position  the absolute position in the region.
+         * @param dest      the destination buffer.
+         * @param destIndex the absolute index in the destination buffer.
+         * @param length    the number of bytes to copy.
+         * @throws IllegalStateException if this snapshot is closed.
+         */
+        public void copyTo(int position, final ByteBuffer dest, int destIndex, int length) {
+            if (this.closed) {
+                throw new IllegalStateException("Snapshot closed");
+            }
+            while (length > 0) {
+                final int page = position >>> SnapshotRegion.this.pageShift;
+                final int inPage = position & (SnapshotRegion.this.pageSize - 1);
+                final int count = Math.min(length, SnapshotRegion.this.pageSize - inPage);
+                copyPage(page, inPage, dest, destIndex, count);
+                position += count;
+                destIndex += count;
+                length -= count;
+            }
+        }
+
+        /**
+         * Copies the struct stored at the specified position (as of the time
+         * of this snapshot) into the current buffer position of the specified
+         * struct view, which can then be read.
+         *
+         * @param position the absolute position of the struct in the region.
+         * @param view     the struct view (bound to a private buffer).
+         */
+        public void copyTo(final int position, final Struct view) {
+            copyTo(position, view.getByteBuffer(), view.getStructAbsolutePosition(), view.size());
+        }
+
+        private void copyPage(final int page, final int inPage, final ByteBuffer dest, final int destIndex,
+                              final int count) {
+            final StampedLock lock = SnapshotRegion.this.lock;
+            final ByteBuffer live = SnapshotRegion.this.buffer;
+            final int start = (page << SnapshotRegion.this.pageShift) + inPage;
+            for (; ; ) {
+                // The stamp is taken first: a page preserved by a completed write is then visible.
+                final long stamp = lock.tryOptimisticRead();
+                if (stamp == 0L) {
+                    // A writer is active: wait for it (the page may be preserved meanwhile).
+                    lock.unlockRead(lock.readLock());
+                    continue;
+                }
+                final byte[] saved = this.pages.get(page);
+                if (saved != null) {
+                    for (int i = 0; count > i; ++i) {
+                        dest.put(destIndex + i, saved[inPage + i]);
+                    }
+                    return;
+                }
+                for (int i = 0; count > i; ++i) {
+                    dest.put(destIndex + i, live.get(start + i));
+                }
+                if (lock.validate(stamp)) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Returns a byte as of the time of this snapshot.
+         *
+         * @param position the absolute position in the region.
+         * @return the byte value.
+         */
+        public byte get(final int position) {
+            final int page = position >>> SnapshotRegion.this.pageShift;
+            final int inPage = position & (SnapshotRegion.this.pageSize - 1);
+            final StampedLock lock = SnapshotRegion.this.lock;
+            for (; ; ) {
+                final long stamp = lock.tryOptimisticRead();
+                if (stamp != 0L) {
+                    final byte[] saved = this.pages.get(page);
+                    if (saved != null) {
+                        return saved[inPage];
+                    }
+                    final byte value = SnapshotRegion.this.buffer.get(position);
+                    if (lock.validate(stamp)) {
+                        return value;
+                    }
+                }
+                lock.unlockRead(lock.readLock());
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,225 @@
+package eu.dirk.haase.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control capping the work units in flight by a limit adapted to
+ * the measured {@link Performance} (additive increase, multiplicative
+ * decrease):
+ * <ul>
+ * <li>if the station is not stable, the server utilization exceeds its
+ * maximum or the residence time exceeds its maximum, the limit is
+ * multiplied by the backoff ratio;</li>
+ * <li>otherwise, if the limit has been reached since the last adjustment,
+ * it is increased by one.</li>
+ * </ul>
+ * Hence the in-flight work (and the latency) stays bounded when the
+ * utilization approaches one; excess work units are rejected or wait for a
+ * bounded time:
+ * {@code
+ * if (limiter.tryAcquire()) {
+ *     try (WorkUnitMetric.Scope scope = metric.start()) {
+ *         ...
+ *     } finally {
+ *         limiter.release();
+ *     }
+ * } else {
+ *     ... // reject
+ * }}
+ * The limit is adjusted by a periodic {@link #update()}, which takes the
+ * difference of cumulative snapshots of the metric (the observation periods
+ * of other readers are not affected), or by {@link #adjust(Performance)} if
+ * the snapshots are taken elsewhere.
+ * <p>
+ * The utilization is that of the servers of the limited resource (e.g. the
+ * threads of a pool), i.e. the {@link WorkUnitMetric#serverCount() server
+ * count} of the metric: the in-flight work exceeding them waits, which
+ * raises the residence time.
+ */
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final AtomicInteger inFlight;
+    private volatile int limit;
+    private volatile boolean limitReached;
+    private final ReentrantLock lock;
+    private final int maxLimit;
+    private final long maxResidenceTimeNanos;
+    private final double maxServerUtilization;
+    private final WorkUnitMetric metric;
+    private final int minLimit;
+    private final Performance period;
+    private Performance previous;
+    private final Condition released;
+    private Performance snapshot;
+    private final AtomicInteger waiting;
+
+    /**
+     * @param metric               the metric measuring the limited work
+     *                             (with the server count of the limited
+     *                             resource).
+     * @param minLimit             the smallest limit (and initial limit).
+     * @param maxLimit             the largest limit.
+     * @param maxServerUtilization the server utilization above which the
+     *                             limit is decreased (e.g. <code>0.9</code>).
+     * @param maxResidenceTime     the residence time above which the limit
+     *                             is decreased.
+     * @param unit                 the unit of the residence time.
+     * @throws IllegalArgumentException if the limits are not
+     *                                  <code>0 &lt; min &lt;= max</code>.
+     */
+    public ConcurrencyLimiter(final WorkUnitMetric metric, final int minLimit, final int maxLimit,
+                              final double maxServerUtilization, final long maxResidenceTime, final TimeUnit unit) {
+        if ((minLimit <= 0) || (minLimit > maxLimit)) {
+            throw new IllegalArgumentException("Limits (" + minLimit + ".." + maxLimit + ") must be positive and ordered.");
+        }
+        this.metric = metric;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxServerUtilization = maxServerUtilization;
+        this.maxResidenceTimeNanos = unit.toNanos(maxResidenceTime);
+        this.limit = minLimit;
+        this.inFlight = new AtomicInteger();
+        this.waiting = new AtomicInteger();
+        this.lock = new ReentrantLock();
+        this.released = this.lock.newCondition();
+        this.period = new Performance();
+        this.snapshot = new Performance();
+        this.previous = metric.getSinceStart(new Performance());
+    }
+
+    /**
+     * Adapts the limit to the specified performance (calls must not
+     * overlap).
+     *
+     * @param performance the performance of the last period (with the
+     *                    server count of the limited resource).
+     * @return the new limit.
+     */
+    public int adjust(final Performance performance) {
+        final int current = this.limit;
+        if (performance.departingCount() == 0) {
+            return current;
+        }
+        final double observedResidenceTimeMillis = performance.observedResidenceTimeMillis();
+        final double residenceTimeMillis = (Double.isNaN(observedResidenceTimeMillis)
+                ? performance.averageResidenceTimeMillis() : observedResidenceTimeMillis);
+        final boolean overloaded = !performance.isStable()
+                || (performance.serverUtilization() > this.maxServerUtilization)
+                || (residenceTimeMillis > (this.maxResidenceTimeNanos / 1e6));
+        final int next;
+        if (overloaded) {
+            next = Math.max(this.minLimit, (int) (current * BACKOFF_RATIO));
+        } else if (this.limitReached) {
+            next = Math.min(this.maxLimit, current + 1);
+        } else {
+            next = current;
+        }
+        this.limitReached = false;
+        this.limit = next;
+        if ((next > current) && (this.waiting.get() > 0)) {
+            signal(true);
+        }
+        return next;
+    }
+
+    public int inFlight() {
+        return this.inFlight.get();
+    }
+
+    public int limit() {
+        return this.limit;
+    }
+
+    public void release() {
+        this.inFlight.decrementAndGet();
+        if (this.waiting.get() > 0) {
+            signal(false);
+        }
+    }
+
+    private void signal(final boolean all) {
+        this.lock.lock();
+        try {
+            if (all) {
+                this.released.signalAll();
+            } else {
+                this.released.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Admits a work unit if the limit is not reached.
+     *
+     * @return <code>true</code> if admitted (then {@link #release()} must
+     * be called when done).
+     */
+    public boolean tryAcquire() {
+        for (; ; ) {
+            final int current = this.inFlight.get();
+            if (current >= this.limit) {
+                this.limitReached = true;
+                return false;
+            }
+            if (this.inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Admits a work unit, waiting at most the specified time for the limit
+     * to allow it.
+     *
+     * @param timeout the maximum time to wait.
+     * @param unit    the unit of the timeout.
+     * @return <code>true</code> if admitted (then {@link #release()} must
+     * be called when done).
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public boolean tryAcquire(final long timeout, final TimeUnit unit) throws InterruptedException {
+        if (tryAcquire()) {
+            return true;
+        }
+        long remainingNanos = unit.toNanos(timeout);
+        this.lock.lockInterruptibly();
+        this.waiting.incrementAndGet();
+        try {
+            while (!tryAcquire()) {
+                if (remainingNanos <= 0) {
+                    return false;
+                }
+                remainingNanos = this.released.awaitNanos(remainingNanos);
+            }
+            return true;
+        } finally {
+            this.waiting.decrementAndGet();
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Adapts the limit to the performance of the metric since the last
+     * update (calls must not overlap).
+     *
+     * @return the new limit.
+     */
+    public int update() {
+        final Performance current = this.metric.getSinceStart(this.snapshot);
+        this.period.init(current.arrivalCount() - this.previous.arrivalCount(),
+                current.departingCount() - this.previous.departingCount(),
+                current.aggregateBusyTimeNanos() - this.previous.aggregateBusyTimeNanos(),
+                current.observationTimeNanos() - this.previous.observationTimeNanos(), this.metric.serverCount());
+        this.snapshot = this.previous;
+        this.previous = current;
+        return adjust(this.period);
+    }
+
+}
@@ -0,0 +1,84 @@
+package eu.dirk.haase.metric;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-memory log-linear (HDR style) histogram of non-negative values.
+ * <p>
+ * Values below 128 have their own bucket; above, every power of two is
+ * divided into 64 linear sub-buckets, hence the value of a bucket is
+ * within 1/64 (about 1.6 %) of any value counted in it. Recording is a
+ * single wait-free atomic add.
+ */
+final class LatencyHistogram {
+
+    static final int BUCKET_COUNT;
+    private static final int LINEAR_BITS = 7;
+    private static final int SUB_BUCKET_BITS = LINEAR_BITS - 1;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    static {
+        BUCKET_COUNT = index(Long.MAX_VALUE) + 1;
+    }
+
+    private final AtomicLongArray counts;
+
+    LatencyHistogram() {
+        this.counts = new AtomicLongArray(BUCKET_COUNT);
+    }
+
+    static long highestEquivalentValue(final int index) {
+        if (index < (SUB_BUCKET_COUNT << 1)) {
+            return index;
+        }
+        final int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        final long subBucket = (index & (SUB_BUCKET_COUNT - 1)) + SUB_BUCKET_COUNT;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    static int index(final long value) {
+        if (value < (SUB_BUCKET_COUNT << 1)) {
+            return (value < 0 ? 0 : (int) value);
+        }
+        final int shift = (63 - Long.numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) - SUB_BUCKET_COUNT);
+    }
+
+    /**
+     * Returns the value at the specified percentile of the specified counts
+     * (the highest value equivalent to the bucket reaching the percentile).
+     */
+    static long valueAtPercentile(final long[] counts, final long totalCount, final double percentile) {
+        final double fraction = Math.min(Math.max(percentile, 0d), 100d) / 100d;
+        final long countAtPercentile = Math.max(1L, (long) Math.ceil(fraction * totalCount));
+        long count = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            count += counts[i];
+            if (count >= countAtPercentile) {
+                return highestEquivalentValue(i);
+            }
+        }
+        return 0L;
+    }
+
+    long addInto(final long[] target) {
+        long totalCount = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            final long count = this.counts.get(i);
+            target[i] += count;
+            totalCount += count;
+        }
+        return totalCount;
+    }
+
+    void record(final long value, final long count) {
+        this.counts.getAndAdd(index(value), count);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            this.counts.lazySet(i, 0L);
+        }
+    }
+
+}
@@ -0,0 +1,50 @@
+package eu.dirk.haase.metric;
+
+import eu.dirk.haase.type.Struct;
+
+import java.nio.ByteOrder;
+
+/**
+ * Cumulative counters of a work unit metric as laid out in a
+ * {@link SharedMetricFile} slot (little endian, C aligned):
+ * {@code
+ * struct metric_counters {
+ *     int64_t version;                  // odd while an update is in progress
+ *     int64_t departing_count;
+ *     int64_t aggregate_busy_time_nanos;
+ *     int64_t publish_time_millis;      // epoch millis of the last update
+ *     int32_t server_count;             // set once, before the slot is counted
+ *     char    name[96];                 // null terminated
+ * };}
+ * A reader copies the counters between two reads of an even and unchanged
+ * version (sequence lock). The server utilization of a period between two
+ * updates is the difference of <code>aggregate_busy_time_nanos</code>
+ * divided by the elapsed time times <code>server_count</code>.
+ */
+public class MetricCounters extends Struct {
+
+    static final int NAME_LENGTH = 96;
+
+    public final SeqLock version = new SeqLock();
+    public final Signed64 departingCount = new Signed64();
+    public final Signed64 aggregateBusyTimeNanos = new Signed64();
+    public final Signed64 publishTimeMillis = new Signed64();
+    public final Signed32 serverCount = new Signed32();
+    public final Utf8String name = new Utf8String(NAME_LENGTH - 1);
+
+    public MetricCounters() {
+        super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+    }
+
+    void publish(final long departingCount, final long aggregateBusyTimeNanos) {
+        this.version.beginWrite();
+        try {
+            this.departingCount.set(departingCount);
+            this.aggregateBusyTimeNanos.set(aggregateBusyTimeNanos);
+            this.publishTimeMillis.set(System.currentTimeMillis());
+        } finally {
+            this.version.endWrite();
+        }
+    }
+
+}
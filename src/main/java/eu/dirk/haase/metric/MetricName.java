@@ -0,0 +1,119 @@
+package eu.dirk.haase.metric;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Name of a metric series: a name plus a set of tags (key/value pairs).
+ * The tags are sorted by key, hence the order in which they are given
+ * does not matter; the hash code is computed once.
+ */
+public final class MetricName implements Comparable<MetricName> {
+
+    private final int hashCode;
+    private final String name;
+    private final String[] tagKeys;
+    private final String[] tagValues;
+
+    private MetricName(final String name, final String[] tagKeys, final String[] tagValues) {
+        this.name = name;
+        this.tagKeys = tagKeys;
+        this.tagValues = tagValues;
+        this.hashCode = (31 * ((31 * name.hashCode()) + Arrays.hashCode(tagKeys))) + Arrays.hashCode(tagValues);
+    }
+
+    /**
+     * Returns the metric name with the specified tags.
+     *
+     * @param name          the name.
+     * @param tagKeyValues  alternating tag keys and values.
+     * @return the metric name.
+     * @throws IllegalArgumentException if the tags are not given as pairs
+     *                                  or a key is given twice.
+     */
+    public static MetricName of(final String name, final String... tagKeyValues) {
+        if ((tagKeyValues.length % 2) != 0) {
+            throw new IllegalArgumentException("Tags must be given as key/value pairs: " + Arrays.toString(tagKeyValues));
+        }
+        final TreeMap<String, String> tags = new TreeMap<>();
+        for (int i = 0; i < tagKeyValues.length; i += 2) {
+            if (tags.put(tagKeyValues[i], tagKeyValues[i + 1]) != null) {
+                throw new IllegalArgumentException("Duplicate tag " + tagKeyValues[i] + " of " + name);
+            }
+        }
+        return of(name, tags);
+    }
+
+    /**
+     * Returns the metric name with the specified tags.
+     *
+     * @param name the name.
+     * @param tags the tags.
+     * @return the metric name.
+     */
+    public static MetricName of(final String name, final Map<String, String> tags) {
+        final TreeMap<String, String> sorted = new TreeMap<>(tags);
+        return new MetricName(name,
+                sorted.keySet().toArray(new String[0]),
+                sorted.values().toArray(new String[0]));
+    }
+
+    @Override
+    public int compareTo(final MetricName other) {
+        int result = this.name.compareTo(other.name);
+        for (int i = 0; (result == 0) && (i < Math.min(this.tagKeys.length, other.tagKeys.length)); ++i) {
+            result = this.tagKeys[i].compareTo(other.tagKeys[i]);
+            if (result == 0) {
+                result = this.tagValues[i].compareTo(other.tagValues[i]);
+            }
+        }
+        return (result != 0 ? result : Integer.compare(this.tagKeys.length, other.tagKeys.length));
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) {
+            return true;
+        } else if (!(o instanceof MetricName)) {
+            return false;
+        } else {
+            final MetricName other = (MetricName) o;
+            return (this.hashCode == other.hashCode) && this.name.equals(other.name)
+                    && Arrays.equals(this.tagKeys, other.tagKeys) && Arrays.equals(this.tagValues, other.tagValues);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+
+    public String name() {
+        return this.name;
+    }
+
+    public String tag(final String key) {
+        final int index = Arrays.binarySearch(this.tagKeys, key);
+        return (index < 0 ? null : this.tagValues[index]);
+    }
+
+    public Map<String, String> tags() {
+        final Map<String, String> tags = new TreeMap<>();
+        for (int i = 0; i < this.tagKeys.length; ++i) {
+            tags.put(this.tagKeys[i], this.tagValues[i]);
+        }
+        return Collections.unmodifiableMap(tags);
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(this.name);
+        for (int i = 0; i < this.tagKeys.length; ++i) {
+            sb.append(i == 0 ? '{' : ',').append(this.tagKeys[i]).append('=').append(this.tagValues[i]);
+        }
+        return (this.tagKeys.length == 0 ? sb.toString() : sb.append('}').toString());
+    }
+
+}
@@ -0,0 +1,141 @@
+package eu.dirk.haase.metric;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Registry of metrics keyed by {@link MetricName}. The metrics are created
+ * on first access; callers on the hot path resolve a metric once and keep
+ * it (recording does not involve the registry):
+ * {@code
+ * WorkUnitMetric orders = registry.workUnitMetric(MetricName.of("orders", "region", "eu"));
+ * ...
+ * orders.record(1, durationNanos);}
+ */
+public class MetricRegistry {
+
+    private final ConcurrentHashMap<MetricName, Object> metrics;
+
+    public MetricRegistry() {
+        this.metrics = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Calls the specified action for each registered metric (weakly
+     * consistent with concurrent registrations).
+     *
+     * @param action the action receiving name and metric.
+     */
+    public void forEach(final BiConsumer<? super MetricName, Object> action) {
+        this.metrics.forEach(action);
+    }
+
+    private <M> M getOrCreate(final MetricName name, final Class<M> type, final Supplier<M> factory) {
+        Object metric = this.metrics.get(name);
+        if (metric == null) {
+            metric = this.metrics.computeIfAbsent(name, key -> factory.get());
+        }
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is registered as " + metric.getClass().getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Removes the metric of the specified name (handles resolved before
+     * keep recording into the removed metric).
+     *
+     * @param name the metric name.
+     * @return the removed metric or <code>null</code>.
+     */
+    public Object remove(final MetricName name) {
+        return this.metrics.remove(name);
+    }
+
+    public int size() {
+        return this.metrics.size();
+    }
+
+    /**
+     * Returns the sliding window metric of the specified name (with one
+     * server).
+     *
+     * @param name           the metric name.
+     * @param bucketCount    the number of buckets (if created).
+     * @param bucketDuration the bucket duration (if created).
+     * @param unit           the unit of the bucket duration.
+     * @return the registered or created metric.
+     * @throws IllegalArgumentException if the name denotes a metric of
+     *                                  another type or server count.
+     */
+    public SlidingWindowMetric slidingWindowMetric(final MetricName name, final int bucketCount,
+                                                   final long bucketDuration, final TimeUnit unit) {
+        return slidingWindowMetric(name, bucketCount, bucketDuration, unit, 1);
+    }
+
+    /**
+     * Returns the sliding window metric of the specified name.
+     *
+     * @param name           the metric name.
+     * @param bucketCount    the number of buckets (if created).
+     * @param bucketDuration the bucket duration (if created).
+     * @param unit           the unit of the bucket duration.
+     * @param serverCount    the number of servers of the station.
+     * @return the registered or created metric.
+     * @throws IllegalArgumentException if the name denotes a metric of
+     *                                  another type or server count.
+     */
+    public SlidingWindowMetric slidingWindowMetric(final MetricName name, final int bucketCount,
+                                                   final long bucketDuration, final TimeUnit unit,
+                                                   final int serverCount) {
+        final SlidingWindowMetric metric = getOrCreate(name, SlidingWindowMetric.class,
+                () -> new SlidingWindowMetric(bucketCount, bucketDuration, unit, serverCount));
+        if (metric.serverCount() != serverCount) {
+            throw new IllegalArgumentException(name + " is registered with " + metric.serverCount() + " servers");
+        }
+        return metric;
+    }
+
+    /**
+     * Returns the registered metrics sorted by name (e.g. for export).
+     *
+     * @return a copy of the registry content.
+     */
+    public SortedMap<MetricName, Object> snapshot() {
+        return new TreeMap<>(this.metrics);
+    }
+
+    /**
+     * Returns the work unit metric of the specified name (with one server).
+     *
+     * @param name the metric name.
+     * @return the registered or created metric.
+     * @throws IllegalArgumentException if the name denotes a metric of
+     *                                  another type or server count.
+     */
+    public WorkUnitMetric workUnitMetric(final MetricName name) {
+        return workUnitMetric(name, 1);
+    }
+
+    /**
+     * Returns the work unit metric of the specified name.
+     *
+     * @param name        the metric name.
+     * @param serverCount the number of servers of the station.
+     * @return the registered or created metric.
+     * @throws IllegalArgumentException if the name denotes a metric of
+     *                                  another type or server count.
+     */
+    public WorkUnitMetric workUnitMetric(final MetricName name, final int serverCount) {
+        final WorkUnitMetric metric = getOrCreate(name, WorkUnitMetric.class, () -> new WorkUnitMetric(serverCount));
+        if (metric.serverCount() != serverCount) {
+            throw new IllegalArgumentException(name + " is registered with " + metric.serverCount() + " servers");
+        }
+        return metric;
+    }
+
+}
@@ -1,22 +1,43 @@
 package eu.dirk.haase.metric;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
+/**
+ * Performance of a work unit station over an observation period, modeled
+ * as M/M/c queue (Poisson arrivals, exponential service times, c servers;
+ * c = 1 unless configured).
+ * <p>
+ * Without arrival counts the arrivals are assumed to equal the departures.
+ * The model results are infinite if the station is not
+ * {@link #isStable() stable}.
+ */
 public class Performance {
 
     private final static double ONE_MILLI_TO_NANO_FACTOR = TimeUnit.MILLISECONDS.toNanos(1);
 
     private long aggregateBusyTimeNanos;
+    private long arrivalCount;
     private long departingCount;
+    private long inSystemTimeNanos;
     private long observationTimeNanos;
+    private int serverCount;
+    private long[] serviceTimeCounts;
+    private long serviceTimeTotalCount;
 
     public Performance() {
+        this.serverCount = 1;
+        this.inSystemTimeNanos = -1;
     }
 
     public double aggregateBusyTimeMillis() {
         return aggregateBusyTimeNanos / ONE_MILLI_TO_NANO_FACTOR;
     }
 
+    long aggregateBusyTimeNanos() {
+        return aggregateBusyTimeNanos;
+    }
+
     public long departingCount() {
         return departingCount;
     }
@@ -24,28 +45,220 @@ public class Performance {
     public void init(final long departingCount,
                      final long aggregateBusyTimeNanos,
                      final long observationTimeNanos) {
+        init(departingCount, departingCount, aggregateBusyTimeNanos, observationTimeNanos, 1);
+    }
+
+    /**
+     * Initializes this performance including arrivals and the number of
+     * servers (e.g. the threads of a pool).
+     *
+     * @throws IllegalArgumentException if the server count is not positive.
+     */
+    public void init(final long arrivalCount,
+                     final long departingCount,
+                     final long aggregateBusyTimeNanos,
+                     final long observationTimeNanos,
+                     final int serverCount) {
+        if (serverCount <= 0) {
+            throw new IllegalArgumentException("Server count (" + serverCount + ") must be positive.");
+        }
+        this.arrivalCount = arrivalCount;
         this.departingCount = departingCount;
         this.aggregateBusyTimeNanos = aggregateBusyTimeNanos;
         this.observationTimeNanos = observationTimeNanos;
+        this.serverCount = serverCount;
+        this.inSystemTimeNanos = -1;
+        this.serviceTimeTotalCount = 0;
+    }
+
+    void initInSystemTime(final long inSystemTimeNanos) {
+        this.inSystemTimeNanos = inSystemTimeNanos;
+    }
+
+    long inSystemTimeNanos() {
+        return inSystemTimeNanos;
+    }
+
+    void addServiceTimes(final LatencyHistogram serviceTimes) {
+        this.serviceTimeTotalCount += serviceTimes.addInto(this.serviceTimeCounts);
+    }
+
+    void clearServiceTimes() {
+        if (this.serviceTimeCounts == null) {
+            this.serviceTimeCounts = new long[LatencyHistogram.BUCKET_COUNT];
+        } else {
+            Arrays.fill(this.serviceTimeCounts, 0L);
+        }
+        this.serviceTimeTotalCount = 0;
     }
 
     public double observationTimeMillis() {
         return observationTimeNanos / ONE_MILLI_TO_NANO_FACTOR;
     }
 
+    long observationTimeNanos() {
+        return observationTimeNanos;
+    }
+
+    /**
+     * Returns the service time at the specified percentile (e.g.
+     * <code>99.9</code>), accurate to about 1.6 %.
+     *
+     * @param percentile the percentile in the range 0..100.
+     * @return the service time or <code>NaN</code> if no service times
+     * have been recorded.
+     */
+    public double percentileServiceTimeMillis(final double percentile) {
+        if (this.serviceTimeTotalCount == 0) {
+            return Double.NaN;
+        }
+        return LatencyHistogram.valueAtPercentile(this.serviceTimeCounts, this.serviceTimeTotalCount, percentile)
+                / ONE_MILLI_TO_NANO_FACTOR;
+    }
+
+    public long arrivalCount() {
+        return arrivalCount;
+    }
+
+    public double arrivalRatePerMilli() {
+        return (double) this.arrivalCount / observationTimeMillis();
+    }
+
+    /**
+     * Returns the Erlang C probability that an arrival has to wait (all
+     * servers busy).
+     *
+     * @return the probability of waiting (<code>1</code> if not stable).
+     */
+    public double probabilityOfWaiting() {
+        return (isStable() ? erlangC(this.serverCount, offeredLoad()) : 1d);
+    }
+
+    // Erlang C from the Erlang B recursion (numerically stable for large c).
+    private static double erlangC(final int serverCount, final double offeredLoad) {
+        double erlangB = 1d;
+        for (int k = 1; k <= serverCount; ++k) {
+            erlangB = (offeredLoad * erlangB) / (k + (offeredLoad * erlangB));
+        }
+        return (serverCount * erlangB) / (serverCount - (offeredLoad * (1d - erlangB)));
+    }
+
+    /**
+     * Indicates if the servers can keep up with the arrivals, that is if the
+     * {@link #serverUtilization() server utilization} is less than one.
+     *
+     * @return <code>true</code> if the queue has a steady state.
+     */
+    public boolean isStable() {
+        final double serverUtilization = serverUtilization();
+        return (serverUtilization >= 0) && (serverUtilization < 1);
+    }
+
+    /**
+     * Returns the residence time derived from the measured time in system by
+     * Little's law (<code>W = L / &lambda;</code>); requires arrival
+     * tracking.
+     *
+     * @return the observed residence time or <code>NaN</code> if unknown.
+     */
+    public double observedResidenceTimeMillis() {
+        if ((this.inSystemTimeNanos < 0) || (this.arrivalCount == 0)) {
+            return Double.NaN;
+        }
+        return (this.inSystemTimeNanos / ONE_MILLI_TO_NANO_FACTOR) / (double) this.arrivalCount;
+    }
+
+    /**
+     * Returns the relative deviation of the observed residence time from
+     * the residence time of the model; large deviations tell that the
+     * model does not fit the station (or the period is too short).
+     *
+     * @return <code>observed / model - 1</code> or <code>NaN</code> if
+     * unknown.
+     */
+    public double littlesLawDeviation() {
+        return (observedResidenceTimeMillis() / averageResidenceTimeMillis()) - 1d;
+    }
+
+    /**
+     * Returns the offered load in Erlang (arrival rate times service time,
+     * i.e. the mean number of busy servers needed).
+     *
+     * @return the offered load.
+     */
+    public double offeredLoad() {
+        if (this.arrivalCount == this.departingCount) {
+            return utilization();
+        }
+        return arrivalRatePerMilli() * averageServiceTimeMillis();
+    }
+
     public double queueLength() {
-        final double utilization = utilization();
-        return utilization / (1 - utilization);
+        if (!isStable()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        final double utilization = serverUtilization();
+        if (this.serverCount == 1) {
+            return utilization / (1 - utilization);
+        }
+        return (probabilityOfWaiting() * utilization / (1 - utilization)) + offeredLoad();
+    }
+
+    /**
+     * Returns the smallest number of servers for which an arrival has to
+     * wait with at most the specified probability (capacity planning).
+     *
+     * @param maxProbabilityOfWaiting the probability in the range 0..1
+     *                                (exclusive).
+     * @return the number of servers.
+     * @throws IllegalArgumentException if the probability is out of range.
+     */
+    public int requiredServerCount(final double maxProbabilityOfWaiting) {
+        if (!((maxProbabilityOfWaiting > 0) && (maxProbabilityOfWaiting < 1))) {
+            throw new IllegalArgumentException("Probability (" + maxProbabilityOfWaiting + ") must be in the range 0..1.");
+        }
+        final double offeredLoad = offeredLoad();
+        int serverCount = Math.max(1, (int) Math.floor(offeredLoad) + 1);
+        while (erlangC(serverCount, offeredLoad) > maxProbabilityOfWaiting) {
+            ++serverCount;
+        }
+        return serverCount;
     }
 
     public double averageResidenceTimeMillis() {
-        return averageServiceTimeMillis() / (1 - utilization());
+        if (!isStable()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (this.serverCount == 1) {
+            return averageServiceTimeMillis() / (1 - serverUtilization());
+        }
+        return averageServiceTimeMillis() + averageWaitingTimeMillis();
     }
 
     public double averageServiceTimeMillis() {
         return aggregateBusyTimeMillis() / (double) this.departingCount;
     }
 
+    public double averageWaitingTimeMillis() {
+        if (!isStable()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (probabilityOfWaiting() * averageServiceTimeMillis()) / (this.serverCount * (1 - serverUtilization()));
+    }
+
+    public int serverCount() {
+        return serverCount;
+    }
+
+    /**
+     * Returns the utilization of each server (<code>&rho; = a / c</code>).
+     *
+     * @return the server utilization.
+     */
+    public double serverUtilization() {
+        return offeredLoad() / this.serverCount;
+    }
+
     public double throughputPerMilli() {
         return (double) this.departingCount / observationTimeMillis();
     }
@@ -0,0 +1,394 @@
+package eu.dirk.haase.metric;
+
+import eu.dirk.haase.type.Struct;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Bounded history of performance snapshots kept off heap at several
+ * resolutions, e.g. per second, per minute and per hour:
+ * {@code
+ * PerformanceHistory history = new PerformanceHistory(2048, 1, TimeUnit.SECONDS, 60, 60);
+ * ...
+ * history.append(System.currentTimeMillis(), metric.get(performance)); // every second
+ * ...
+ * Performance lastDay = history.get(now - TimeUnit.DAYS.toMillis(1), now, new Performance());}
+ * Each level sums the appended snapshots per interval (by their end time)
+ * and stores an interval when a later one begins into a ring of fixed size
+ * blocks, evicting the oldest block when the ring is full.
+ * <p>
+ * The intervals are compressed like a Gorilla time series: the end times
+ * as delta of deltas, the counters as deltas, each value written with the
+ * shortest of five bit lengths (one bit if unchanged). The nanosecond
+ * times (observation, busy and in system) jitter by microseconds between
+ * periods and mostly take 36 bits each, hence a steady load takes about
+ * 15 bytes per interval instead of the 56 bytes of the plain values: a
+ * block of 1 KiB holds about a minute of one second intervals, a day of
+ * them takes about 1.3 MiB.
+ * <p>
+ * Service time percentiles are not kept. A history is appended by a single
+ * (scheduled) thread and read occasionally, the methods are synchronized.
+ */
+public class PerformanceHistory {
+
+    private static final int TIME = 0;
+    private static final int OBSERVATION = 1;
+    private static final int ARRIVALS = 2;
+    private static final int DEPARTURES = 3;
+    private static final int BUSY = 4;
+    private static final int IN_SYSTEM = 5;
+    private static final int SERVERS = 6;
+    private static final int VALUE_COUNT = 7;
+    private static final int MAX_RECORD_BITS = VALUE_COUNT * 68;
+    private static final int WORD_COUNT = 128;
+
+    private long lastEndMillis;
+    private final Level[] levels;
+    private final long[] sample;
+    private final long[] total;
+
+    /**
+     * @param blockCount          the number of blocks of each level.
+     * @param resolution          the interval of the finest level.
+     * @param unit                the unit of the interval.
+     * @param downsamplingFactors the number of intervals of the previous
+     *                            level making an interval of each coarser
+     *                            level.
+     * @throws IllegalArgumentException if the block count or resolution is
+     *                                  not positive or a factor is less
+     *                                  than two.
+     */
+    public PerformanceHistory(final int blockCount, final long resolution, final TimeUnit unit,
+                              final int... downsamplingFactors) {
+        long resolutionMillis = unit.toMillis(resolution);
+        if ((blockCount <= 0) || (resolutionMillis <= 0)) {
+            throw new IllegalArgumentException("Block count (" + blockCount + ") and resolution ("
+                    + resolutionMillis + " ms) must be positive.");
+        }
+        this.levels = new Level[downsamplingFactors.length + 1];
+        this.levels[0] = new Level(blockCount, resolutionMillis);
+        for (int i = 0; i < downsamplingFactors.length; ++i) {
+            if (downsamplingFactors[i] < 2) {
+                throw new IllegalArgumentException("Downsampling factor (" + downsamplingFactors[i] + ") must be at least 2.");
+            }
+            resolutionMillis *= downsamplingFactors[i];
+            this.levels[i + 1] = new Level(blockCount, resolutionMillis);
+        }
+        this.sample = new long[VALUE_COUNT];
+        this.total = new long[VALUE_COUNT];
+        this.lastEndMillis = Long.MIN_VALUE;
+    }
+
+    private static boolean fits(final long value, final int bitCount) {
+        final long bound = 1L << (bitCount - 1);
+        return (value >= -bound) && (value < bound);
+    }
+
+    private static void merge(final long[] into, final long[] record) {
+        for (int i = OBSERVATION; i <= BUSY; ++i) {
+            into[i] += record[i];
+        }
+        into[IN_SYSTEM] = ((into[IN_SYSTEM] < 0) || (record[IN_SYSTEM] < 0) ? -1 : into[IN_SYSTEM] + record[IN_SYSTEM]);
+        into[SERVERS] = record[SERVERS];
+    }
+
+    private static Performance toPerformance(final long[] record, final Performance into) {
+        into.init(record[ARRIVALS], record[DEPARTURES], record[BUSY], record[OBSERVATION], (int) record[SERVERS]);
+        if (record[IN_SYSTEM] >= 0) {
+            into.initInSystemTime(record[IN_SYSTEM]);
+        }
+        return into;
+    }
+
+    private static void writeValue(final Block block, final long value) {
+        if (value == 0) {
+            block.writeBits(0, 1);
+        } else if (fits(value, 8)) {
+            block.writeBits((0b10L << 8) | (value & 0xFFL), 10);
+        } else if (fits(value, 16)) {
+            block.writeBits((0b110L << 16) | (value & 0xFFFFL), 19);
+        } else if (fits(value, 32)) {
+            block.writeBits((0b1110L << 32) | (value & 0xFFFFFFFFL), 36);
+        } else {
+            block.writeBits(0b1111L, 4);
+            block.writeBits(value, 64);
+        }
+    }
+
+    /**
+     * Appends the performance of the period ending at the specified time.
+     *
+     * @param endMillis   the end of the period (epoch millis).
+     * @param performance the performance of the period.
+     * @throws IllegalArgumentException if the period ends before the
+     *                                  previous one.
+     */
+    public synchronized void append(final long endMillis, final Performance performance) {
+        if (endMillis < this.lastEndMillis) {
+            throw new IllegalArgumentException("Period end (" + endMillis + ") precedes the previous one ("
+                    + this.lastEndMillis + ").");
+        }
+        this.lastEndMillis = endMillis;
+        this.sample[OBSERVATION] = performance.observationTimeNanos();
+        this.sample[ARRIVALS] = performance.arrivalCount();
+        this.sample[DEPARTURES] = performance.departingCount();
+        this.sample[BUSY] = performance.aggregateBusyTimeNanos();
+        this.sample[IN_SYSTEM] = performance.inSystemTimeNanos();
+        this.sample[SERVERS] = performance.serverCount();
+        for (final Level level : this.levels) {
+            level.add(endMillis, this.sample);
+        }
+    }
+
+    /**
+     * Calls the consumer for each interval of the specified level ending
+     * after <code>fromMillis</code> and not after <code>toMillis</code>,
+     * oldest first, including the current interval (ending with the latest
+     * snapshot).
+     *
+     * @param level      the level (0 is the finest).
+     * @param fromMillis the start of the range (exclusive).
+     * @param toMillis   the end of the range (inclusive).
+     * @param consumer   the consumer receiving the performance (reused for
+     *                   each interval) and the interval end.
+     */
+    public synchronized void forEach(final int level, final long fromMillis, final long toMillis,
+                                     final ObjLongConsumer<Performance> consumer) {
+        final Performance performance = new Performance();
+        this.levels[level].forEach(fromMillis, toMillis,
+                record -> consumer.accept(toPerformance(record, performance), record[TIME]));
+    }
+
+    /**
+     * Returns the performance summed over the intervals of the finest level
+     * still holding the specified start (or the coarsest level).
+     *
+     * @param fromMillis the start of the range (exclusive).
+     * @param toMillis   the end of the range (inclusive).
+     * @param into       the performance to initialize.
+     * @return <code>into</code>.
+     */
+    public synchronized Performance get(final long fromMillis, final long toMillis, final Performance into) {
+        Level level = this.levels[this.levels.length - 1];
+        for (final Level candidate : this.levels) {
+            if (candidate.oldestStartMillis() <= fromMillis) {
+                level = candidate;
+                break;
+            }
+        }
+        Arrays.fill(this.total, 0);
+        this.total[SERVERS] = 1;
+        level.forEach(fromMillis, toMillis, record -> merge(this.total, record));
+        return toPerformance(this.total, into);
+    }
+
+    public int levelCount() {
+        return this.levels.length;
+    }
+
+    public long resolutionMillis(final int level) {
+        return this.levels[level].resolutionMillis;
+    }
+
+    // Compressed size of the stored intervals of a level (the current interval excluded).
+    synchronized long storedBits(final int level) {
+        long bits = 0;
+        for (final Block block : this.levels[level].blocks) {
+            bits += block.bitLength.get();
+        }
+        return bits;
+    }
+
+    synchronized long storedIntervals(final int level) {
+        long count = 0;
+        for (final Block block : this.levels[level].blocks) {
+            count += block.count.get();
+        }
+        return count;
+    }
+
+    /**
+     * Intervals compressed into a bit stream of 64 bit words, most
+     * significant bit first.
+     */
+    static final class Block extends Struct {
+        final Signed64 firstTimeMillis = new Signed64();
+        final Signed64 lastTimeMillis = new Signed64();
+        final Signed32 count = new Signed32();
+        final Signed32 bitLength = new Signed32();
+        final Signed64Array words = new Signed64Array(WORD_COUNT);
+
+        Block() {
+            super(ByteOrder.nativeOrder(), Layout.ALIGNED);
+        }
+
+        void clear(final long firstTimeMillis) {
+            this.firstTimeMillis.set(firstTimeMillis);
+            this.count.set(0);
+            this.bitLength.set(0);
+            this.words.fill(0);
+        }
+
+        long readBits(final int position, final int bitCount) {
+            final int index = position >>> 6;
+            final int free = 64 - (position & 63);
+            final long bits;
+            if (bitCount <= free) {
+                bits = this.words.get(index) >>> (free - bitCount);
+            } else {
+                bits = (this.words.get(index) << (bitCount - free))
+                        | (this.words.get(index + 1) >>> (64 - (bitCount - free)));
+            }
+            return (bitCount == 64 ? bits : bits & ((1L << bitCount) - 1));
+        }
+
+        void writeBits(final long value, final int bitCount) {
+            final int position = this.bitLength.get();
+            final int index = position >>> 6;
+            final int free = 64 - (position & 63);
+            final long bits = (bitCount == 64 ? value : value & ((1L << bitCount) - 1));
+            if (bitCount <= free) {
+                this.words.set(index, this.words.get(index) | (bits << (free - bitCount)));
+            } else {
+                this.words.set(index, this.words.get(index) | (bits >>> (bitCount - free)));
+                this.words.set(index + 1, bits << (64 - (bitCount - free)));
+            }
+            this.bitLength.set(position + bitCount);
+        }
+    }
+
+    private static final class Level {
+        private final Block[] blocks;
+        private final long[] decoded;
+        private int head;
+        private final long[] pending;
+        private long pendingInterval;
+        private int position;
+        private final long[] previous;
+        private long previousTimeDelta;
+        private final long resolutionMillis;
+
+        Level(final int blockCount, final long resolutionMillis) {
+            this.resolutionMillis = resolutionMillis;
+            this.blocks = new Block[blockCount];
+            final int blockSize = new Block().size();
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(blockCount * blockSize).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < blockCount; ++i) {
+                this.blocks[i] = new Block();
+                this.blocks[i].initByteBuffer(buffer, i * blockSize);
+            }
+            this.decoded = new long[VALUE_COUNT];
+            this.pending = new long[VALUE_COUNT];
+            this.previous = new long[VALUE_COUNT];
+            this.pendingInterval = Long.MIN_VALUE;
+        }
+
+        void add(final long endMillis, final long[] sample) {
+            final long interval = Math.floorDiv(endMillis - 1, this.resolutionMillis);
+            if (interval == this.pendingInterval) {
+                merge(this.pending, sample);
+            } else {
+                if (this.pendingInterval != Long.MIN_VALUE) {
+                    this.pending[TIME] = (this.pendingInterval + 1) * this.resolutionMillis;
+                    write(this.pending);
+                }
+                this.pendingInterval = interval;
+                System.arraycopy(sample, 0, this.pending, 0, VALUE_COUNT);
+            }
+            // The current interval ends (for now) with its latest snapshot.
+            this.pending[TIME] = endMillis;
+        }
+
+        void forEach(final long fromMillis, final long toMillis, final Consumer<long[]> consumer) {
+            for (int i = 1; i <= this.blocks.length; ++i) {
+                final Block block = this.blocks[(this.head + i) % this.blocks.length];
+                final int count = block.count.get();
+                if ((count == 0) || (block.lastTimeMillis.get() <= fromMillis)) {
+                    continue;
+                } else if (block.firstTimeMillis.get() > toMillis) {
+                    return;
+                }
+                this.position = 0;
+                Arrays.fill(this.decoded, 0);
+                this.decoded[TIME] = block.firstTimeMillis.get();
+                long timeDelta = 0;
+                for (int j = 0; j < count; ++j) {
+                    timeDelta += readValue(block);
+                    this.decoded[TIME] += timeDelta;
+                    for (int k = OBSERVATION; k < VALUE_COUNT; ++k) {
+                        this.decoded[k] += readValue(block);
+                    }
+                    if (this.decoded[TIME] > toMillis) {
+                        return;
+                    } else if (this.decoded[TIME] > fromMillis) {
+                        consumer.accept(this.decoded);
+                    }
+                }
+            }
+            if ((this.pendingInterval != Long.MIN_VALUE)
+                    && (this.pending[TIME] > fromMillis) && (this.pending[TIME] <= toMillis)) {
+                consumer.accept(this.pending);
+            }
+        }
+
+        long oldestStartMillis() {
+            for (int i = 1; i <= this.blocks.length; ++i) {
+                final Block block = this.blocks[(this.head + i) % this.blocks.length];
+                if (block.count.get() > 0) {
+                    return block.firstTimeMillis.get() - this.resolutionMillis;
+                }
+            }
+            return (this.pendingInterval == Long.MIN_VALUE ? Long.MIN_VALUE : this.pendingInterval * this.resolutionMillis);
+        }
+
+        private long readValue(final Block block) {
+            if (readBits(block, 1) == 0) {
+                return 0;
+            } else if (readBits(block, 1) == 0) {
+                return (readBits(block, 8) << 56) >> 56;
+            } else if (readBits(block, 1) == 0) {
+                return (readBits(block, 16) << 48) >> 48;
+            } else if (readBits(block, 1) == 0) {
+                return (readBits(block, 32) << 32) >> 32;
+            } else {
+                return readBits(block, 64);
+            }
+        }
+
+        private long readBits(final Block block, final int bitCount) {
+            final long bits = block.readBits(this.position, bitCount);
+            this.position += bitCount;
+            return bits;
+        }
+
+        private void write(final long[] record) {
+            Block block = this.blocks[this.head];
+            final boolean full = (block.bitLength.get() + MAX_RECORD_BITS) > (WORD_COUNT * 64);
+            if (full) {
+                this.head = (this.head + 1) % this.blocks.length;
+                block = this.blocks[this.head];
+            }
+            if (full || (block.count.get() == 0)) {
+                block.clear(record[TIME]);
+                Arrays.fill(this.previous, 0);
+                this.previous[TIME] = record[TIME];
+                this.previousTimeDelta = 0;
+            }
+            final long timeDelta = record[TIME] - this.previous[TIME];
+            writeValue(block, timeDelta - this.previousTimeDelta);
+            this.previousTimeDelta = timeDelta;
+            for (int i = OBSERVATION; i < VALUE_COUNT; ++i) {
+                writeValue(block, record[i] - this.previous[i]);
+            }
+            System.arraycopy(record, 0, this.previous, 0, VALUE_COUNT);
+            block.lastTimeMillis.set(record[TIME]);
+            block.count.set(block.count.get() + 1);
+        }
+    }
+
+}
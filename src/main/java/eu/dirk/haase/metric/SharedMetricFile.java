@@ -0,0 +1,155 @@
+package eu.dirk.haase.metric;
+
+import eu.dirk.haase.type.Struct;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Memory mapped file exposing the cumulative counters of work unit metrics
+ * to other processes, which read them without any cooperation of this JVM
+ * (no JMX or HTTP polling):
+ * {@code
+ * struct metric_file {
+ *     int64_t version;   // sequence lock of the header
+ *     int32_t magic;     // 0x4D455452 ("METR")
+ *     int32_t slot_size;
+ *     int32_t capacity;
+ *     int32_t count;     // number of initialized slots
+ *     struct metric_counters slots[capacity]; // see MetricCounters
+ * };}
+ * The counters are written by {@link #publish()} (e.g. scheduled every
+ * second) with ordered writes, the recording path is not affected.
+ */
+public class SharedMetricFile implements Closeable {
+
+    public static final int MAGIC = 0x4D455452;
+
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final FileChannel channel;
+    private final Header header;
+    private int count;
+    private MetricCounters[] counters;
+    private WorkUnitMetric[] metrics;
+
+    private SharedMetricFile(final FileChannel channel, final int capacity) throws IOException {
+        this.channel = channel;
+        this.capacity = capacity;
+        this.header = new Header();
+        final int slotSize = new MetricCounters().size();
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                this.header.size() + ((long) capacity * slotSize));
+        this.header.initByteBuffer(this.buffer, 0);
+        this.header.version.beginWrite();
+        this.header.magic.set(MAGIC);
+        this.header.slotSize.set(slotSize);
+        this.header.capacity.set(capacity);
+        this.header.count.set(0);
+        this.header.version.endWrite();
+        this.counters = new MetricCounters[0];
+        this.metrics = new WorkUnitMetric[0];
+    }
+
+    /**
+     * Creates (or truncates) the specified file with room for the specified
+     * number of metrics.
+     *
+     * @param path     the file.
+     * @param capacity the maximum number of metrics.
+     * @return the mapped file.
+     * @throws IOException if the file cannot be created or mapped.
+     */
+    public static SharedMetricFile create(final Path path, final int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity (" + capacity + ") must be positive.");
+        }
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            return new SharedMetricFile(channel, capacity);
+        } catch (final IOException | RuntimeException ex) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.buffer.force();
+        this.channel.close();
+    }
+
+    /**
+     * Publishes the cumulative counters of all metrics of this file.
+     */
+    public synchronized void publish() {
+        for (int i = 0; i < this.count; ++i) {
+            this.metrics[i].publishTo(this.counters[i]);
+        }
+    }
+
+    /**
+     * Creates a work unit metric (with one server) whose counters are
+     * published in the next free slot of this file.
+     *
+     * @param name the name of the metric (truncated if too long).
+     * @return the new metric.
+     * @throws IllegalStateException if all slots are used.
+     */
+    public WorkUnitMetric workUnitMetric(final MetricName name) {
+        return workUnitMetric(name, 1);
+    }
+
+    /**
+     * Creates a work unit metric whose counters are published in the next
+     * free slot of this file.
+     *
+     * @param name        the name of the metric (truncated if too long).
+     * @param serverCount the number of servers of the station (also
+     *                    written into the slot).
+     * @return the new metric.
+     * @throws IllegalArgumentException if the server count is not positive.
+     * @throws IllegalStateException    if all slots are used.
+     */
+    public synchronized WorkUnitMetric workUnitMetric(final MetricName name, final int serverCount) {
+        if (this.count == this.capacity) {
+            throw new IllegalStateException("All " + this.capacity + " metric slots are used");
+        }
+        final WorkUnitMetric metric = new WorkUnitMetric(serverCount);
+        final MetricCounters slot = new MetricCounters();
+        slot.initByteBuffer(this.buffer, this.header.size() + (this.count * slot.size()));
+        slot.name.set(name.toString());
+        slot.serverCount.set(serverCount);
+        metric.publishTo(slot);
+        this.counters = Arrays.copyOf(this.counters, this.count + 1);
+        this.metrics = Arrays.copyOf(this.metrics, this.count + 1);
+        this.counters[this.count] = slot;
+        this.metrics[this.count] = metric;
+        ++this.count;
+        // The slot is complete before readers see the count.
+        this.header.version.beginWrite();
+        this.header.count.set(this.count);
+        this.header.version.endWrite();
+        return metric;
+    }
+
+    static final class Header extends Struct {
+        final SeqLock version = new SeqLock();
+        final Signed32 magic = new Signed32();
+        final Signed32 slotSize = new Signed32();
+        final Signed32 capacity = new Signed32();
+        final Signed32 count = new Signed32();
+
+        Header() {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+        }
+    }
+
+}
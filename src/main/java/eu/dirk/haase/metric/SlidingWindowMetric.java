@@ -0,0 +1,186 @@
+package eu.dirk.haase.metric;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Rolling window of work unit measurements: a ring of time buckets rotated
+ * by elapsed time, independent of how often (and by how many readers) the
+ * performance is read. Windows of any number of buckets can be read at
+ * once, e.g. with 60 buckets of one second:
+ * {@code
+ * Performance lastSecond = metric.get(1, TimeUnit.SECONDS);
+ * Performance lastMinute = metric.get(60, TimeUnit.SECONDS);}
+ * <p>
+ * A window includes the current (partial) bucket, its observation time is
+ * the time actually covered. Recording never waits for other threads: the
+ * recorder crossing a bucket boundary rotates the ring only if no other
+ * thread holds the reader lock and the writers of the previous rotation
+ * have left the retired bucket, otherwise it records into the bucket just
+ * closed. A recorder does not wait for the writers of the bucket it
+ * retires, the next reader does.
+ */
+public class SlidingWindowMetric {
+
+    private final long bucketNanos;
+    private final WorkUnitMetric.WorkUnit[] buckets;
+    private final long[] epochs;
+    private final LongSupplier nanoClock;
+    private final long originNanos;
+    final WriterReaderPhaser phaser;
+    private volatile WorkUnitMetric.WorkUnit head;
+    private volatile long headEpoch;
+    private int headIndex;
+    private final int serverCount;
+
+    public SlidingWindowMetric(final int bucketCount, final long bucketDuration, final TimeUnit unit) {
+        this(bucketCount, bucketDuration, unit, 1);
+    }
+
+    /**
+     * Constructor for a station with the specified number of servers (e.g.
+     * the threads of a pool), see {@link Performance}.
+     *
+     * @param bucketCount    the number of buckets.
+     * @param bucketDuration the bucket duration.
+     * @param unit           the unit of the bucket duration.
+     * @param serverCount    the number of servers.
+     * @throws IllegalArgumentException if a count or the duration is not
+     *                                  positive.
+     */
+    public SlidingWindowMetric(final int bucketCount, final long bucketDuration, final TimeUnit unit,
+                               final int serverCount) {
+        this(bucketCount, bucketDuration, unit, serverCount, System::nanoTime);
+    }
+
+    SlidingWindowMetric(final int bucketCount, final long bucketDuration, final TimeUnit unit,
+                        final LongSupplier nanoClock) {
+        this(bucketCount, bucketDuration, unit, 1, nanoClock);
+    }
+
+    SlidingWindowMetric(final int bucketCount, final long bucketDuration, final TimeUnit unit,
+                        final int serverCount, final LongSupplier nanoClock) {
+        if ((bucketCount <= 0) || (bucketDuration <= 0)) {
+            throw new IllegalArgumentException("Bucket count (" + bucketCount + ") and duration ("
+                    + bucketDuration + ") must be positive.");
+        } else if (serverCount <= 0) {
+            throw new IllegalArgumentException("Server count (" + serverCount + ") must be positive.");
+        }
+        this.serverCount = serverCount;
+        this.bucketNanos = unit.toNanos(bucketDuration);
+        this.nanoClock = nanoClock;
+        this.phaser = new WriterReaderPhaser();
+        // One spare bucket: the bucket reused by a rotation is never in the window.
+        this.buckets = new WorkUnitMetric.WorkUnit[bucketCount + 1];
+        this.epochs = new long[bucketCount + 1];
+        for (int i = 0; i < this.buckets.length; ++i) {
+            this.buckets[i] = new WorkUnitMetric.WorkUnit();
+            this.epochs[i] = Long.MIN_VALUE;
+        }
+        this.originNanos = nanoClock.getAsLong();
+        this.epochs[0] = 0;
+        this.buckets[0].reset(this.originNanos);
+        this.head = this.buckets[0];
+    }
+
+    public int bucketCount() {
+        return this.buckets.length - 1;
+    }
+
+    private long epoch(final long nowNanos) {
+        return (nowNanos - this.originNanos) / this.bucketNanos;
+    }
+
+    public Performance get(final long window, final TimeUnit unit) {
+        return get(window, unit, new Performance());
+    }
+
+    /**
+     * Fills the specified performance with the measurements of the most
+     * recent buckets covering the specified window.
+     *
+     * @param window the window duration (rounded up to whole buckets).
+     * @param unit   the unit of the window duration.
+     * @param into   the performance to fill.
+     * @return the specified performance.
+     * @throws IllegalArgumentException if the window is not positive or
+     *                                  longer than the ring.
+     */
+    public Performance get(final long window, final TimeUnit unit, final Performance into) {
+        final long windowNanos = unit.toNanos(window);
+        final long windowBuckets = (windowNanos + this.bucketNanos - 1) / this.bucketNanos;
+        if ((windowNanos <= 0) || (windowBuckets > bucketCount())) {
+            throw new IllegalArgumentException("Window of " + window + " " + unit
+                    + " is not covered by " + bucketCount() + " buckets");
+        }
+        this.phaser.readerLock();
+        try {
+            final long nowNanos = this.nanoClock.getAsLong();
+            final long epoch = epoch(nowNanos);
+            this.phaser.awaitFlip();
+            rotate(epoch);
+            this.phaser.awaitFlip();
+            final long oldestEpoch = epoch - windowBuckets + 1;
+            long departingCount = 0;
+            long aggregateBusyTimeNanos = 0;
+            for (int i = 0; i < this.buckets.length; ++i) {
+                if ((this.epochs[i] >= oldestEpoch) && (this.epochs[i] <= epoch)) {
+                    departingCount += this.buckets[i].departingCount();
+                    aggregateBusyTimeNanos += this.buckets[i].aggregateBusyTimeNanos();
+                }
+            }
+            final long startNanos = this.originNanos + (Math.max(oldestEpoch, 0) * this.bucketNanos);
+            // Arrivals are not tracked: the window is assumed to be balanced.
+            into.init(departingCount, departingCount, aggregateBusyTimeNanos, nowNanos - startNanos,
+                    this.serverCount);
+            into.clearServiceTimes();
+            for (int i = 0; i < this.buckets.length; ++i) {
+                if ((this.epochs[i] >= oldestEpoch) && (this.epochs[i] <= epoch)) {
+                    into.addServiceTimes(this.buckets[i].serviceTimes());
+                }
+            }
+            return into;
+        } finally {
+            this.phaser.readerUnlock();
+        }
+    }
+
+    public void record(final int count, final long duration) {
+        final long epoch = epoch(this.nanoClock.getAsLong());
+        if ((epoch > this.headEpoch) && this.phaser.tryReaderLock()) {
+            try {
+                if (this.phaser.isFlipComplete()) {
+                    rotate(epoch);
+                }
+            } finally {
+                this.phaser.readerUnlock();
+            }
+        }
+        final long criticalValue = this.phaser.writerCriticalSectionEnter();
+        try {
+            this.head.record(count, duration);
+        } finally {
+            this.phaser.writerCriticalSectionExit(criticalValue);
+        }
+    }
+
+    // Reuses the oldest bucket as head (reader lock held, last flip complete). Skipped epochs have no bucket.
+    private void rotate(final long epoch) {
+        if (epoch <= this.headEpoch) {
+            return;
+        }
+        final int index = (this.headIndex + 1) % this.buckets.length;
+        this.buckets[index].reset(this.originNanos + (epoch * this.bucketNanos));
+        this.epochs[index] = epoch;
+        this.headIndex = index;
+        this.head = this.buckets[index];
+        this.headEpoch = epoch;
+        // Writers still holding the previous head are done before the next rotation.
+        this.phaser.beginFlip();
+    }
+
+    public int serverCount() {
+        return this.serverCount;
+    }
+
+}
@@ -1,78 +1,362 @@
 package eu.dirk.haase.metric;
 
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
 
 public class WorkUnitMetric {
 
-    private final AtomicReference<WorkUnit> current;
-    private final WorkUnitPerformance performance;
-    private final WorkUnit workUnitOne;
-    private final WorkUnit workUnitTwo;
+    private volatile boolean arrivalsTracked;
+    private long closedAggregateBusyTimeNanos;
+    private long closedArrivalCount;
+    private long closedDepartingCount;
+    private final WriterReaderPhaser phaser;
+    private final ThreadLocal<Scope> scopes;
+    private final int serverCount;
+    private final long startNanos;
+    private volatile WorkUnit active;
+    private WorkUnit inactive;
 
     public WorkUnitMetric() {
-        this.workUnitOne = new WorkUnit();
-        this.workUnitTwo = new WorkUnit();
-        this.performance = new WorkUnitPerformance();
-        this.workUnitOne.reset();
-        this.current = new AtomicReference<>(this.workUnitOne);
+        this(1);
     }
 
+    /**
+     * Constructor for a station with the specified number of servers (e.g.
+     * the threads of a pool), see {@link Performance}.
+     *
+     * @param serverCount the number of servers.
+     * @throws IllegalArgumentException if the server count is not positive.
+     */
+    public WorkUnitMetric(final int serverCount) {
+        if (serverCount <= 0) {
+            throw new IllegalArgumentException("Server count (" + serverCount + ") must be positive.");
+        }
+        this.serverCount = serverCount;
+        this.phaser = new WriterReaderPhaser();
+        this.scopes = ThreadLocal.withInitial(() -> new Scope(this));
+        this.active = new WorkUnit();
+        this.inactive = new WorkUnit();
+        this.startNanos = System.nanoTime();
+        this.active.reset(this.startNanos);
+    }
+
+    /**
+     * Closes the current observation period.
+     *
+     * @return a new performance of the closed period.
+     */
     public Performance get() {
-        if (this.current.get() == this.workUnitOne) {
-            return nextObservationPeriod(this.workUnitOne, this.workUnitTwo);
-        } else {
-            // if (this.current.get() == this.workUnitTwo)
-            return nextObservationPeriod(this.workUnitTwo, this.workUnitOne);
+        return get(new Performance());
+    }
+
+    /**
+     * Closes the current observation period and fills the specified
+     * performance (owned by the caller, may be reused for every period).
+     *
+     * @param into the performance to fill.
+     * @return the specified performance.
+     */
+    public Performance get(final Performance into) {
+        this.phaser.readerLock();
+        try {
+            final WorkUnit previous = nextObservationPeriod();
+            final long inSystemAtStart = this.closedArrivalCount - this.closedDepartingCount;
+            previous.copyInto(into, this.active.observationStartNanos, this.serverCount,
+                    (this.arrivalsTracked && (inSystemAtStart >= 0) ? inSystemAtStart : -1));
+            this.closedArrivalCount += previous.arrivalCount();
+            this.closedDepartingCount += previous.departingCount();
+            this.closedAggregateBusyTimeNanos += previous.aggregateBusyTimeNanos();
+            return into;
+        } finally {
+            this.phaser.readerUnlock();
+        }
+    }
+
+    /**
+     * Fills the specified performance with the counters since construction
+     * without closing the current observation period, e.g. for a
+     * controller taking differences of its own snapshots beside the owner
+     * of the periods. Service times and the time in system are not
+     * included.
+     *
+     * @param into the performance to fill.
+     * @return the specified performance.
+     */
+    public Performance getSinceStart(final Performance into) {
+        this.phaser.readerLock();
+        try {
+            final long departingCount = this.closedDepartingCount + this.active.departingCount();
+            into.init((this.arrivalsTracked ? this.closedArrivalCount + this.active.arrivalCount() : departingCount),
+                    departingCount, this.closedAggregateBusyTimeNanos + this.active.aggregateBusyTimeNanos(),
+                    System.nanoTime() - this.startNanos, this.serverCount);
+            return into;
+        } finally {
+            this.phaser.readerUnlock();
         }
     }
 
-    private Performance nextObservationPeriod(final WorkUnit currWorkUnitOne, final WorkUnit nextWorkUnit) {
-        nextWorkUnit.reset();
-        this.current.set(nextWorkUnit);
-        performance.init(currWorkUnitOne);
-        return performance;
+    public int serverCount() {
+        return this.serverCount;
+    }
+
+    // Swaps the work units; after the phase flip no writer touches the previous one.
+    private WorkUnit nextObservationPeriod() {
+        final WorkUnit previous = this.active;
+        final WorkUnit next = this.inactive;
+        next.reset(System.nanoTime());
+        this.inactive = previous;
+        this.active = next;
+        this.phaser.flipPhase();
+        return previous;
+    }
+
+    /**
+     * Writes the cumulative counters (since construction) to the specified
+     * shared counters; calls for the same counters must not overlap.
+     *
+     * @param counters the counters (e.g. of a {@link SharedMetricFile}).
+     */
+    public void publishTo(final MetricCounters counters) {
+        this.phaser.readerLock();
+        try {
+            counters.publish(this.closedDepartingCount + this.active.departingCount(),
+                    this.closedAggregateBusyTimeNanos + this.active.aggregateBusyTimeNanos());
+        } finally {
+            this.phaser.readerUnlock();
+        }
+    }
+
+    /**
+     * Counts arriving work units (e.g. when a task is submitted to a pool);
+     * enables arrival rates and the Little's law check of the
+     * {@link Performance}. Arrivals should be counted from the start.
+     *
+     * @param count the number of arriving work units.
+     */
+    public void arrive(final int count) {
+        if (!this.arrivalsTracked) {
+            this.arrivalsTracked = true;
+        }
+        final long epoch = this.phaser.writerCriticalSectionEnter();
+        try {
+            final WorkUnit unit = this.active;
+            unit.arrive(count, System.nanoTime());
+        } finally {
+            this.phaser.writerCriticalSectionExit(epoch);
+        }
     }
 
     public void record(final int count, final long duration) {
-        current.get().record(count, duration);
+        final long epoch = this.phaser.writerCriticalSectionEnter();
+        try {
+            final WorkUnit unit = this.active;
+            if (this.arrivalsTracked) {
+                unit.depart(count, System.nanoTime());
+            }
+            unit.record(count, duration);
+        } finally {
+            this.phaser.writerCriticalSectionExit(epoch);
+        }
+    }
+
+    /**
+     * Starts timing one work unit of the current thread, which is recorded
+     * when the returned scope is closed:
+     * {@code
+     * try (WorkUnitMetric.Scope scope = metric.start()) {
+     *     ...
+     * }}
+     * The scope is reused by the thread (scopes may be nested).
+     *
+     * @return the scope of the current thread.
+     */
+    public Scope start() {
+        return this.scopes.get().start();
+    }
+
+    public void time(final Runnable task) {
+        final Scope scope = start();
+        try {
+            task.run();
+        } finally {
+            scope.close();
+        }
+    }
+
+    public <T> T time(final Supplier<T> task) {
+        final Scope scope = start();
+        try {
+            return task.get();
+        } finally {
+            scope.close();
+        }
+    }
+
+    /**
+     * Starts the specified asynchronous operation and records one work unit
+     * when it completes (normally or exceptionally). The completion is
+     * recorded by a named callback, not a capturing lambda; still, unlike
+     * {@link #start()}, every call allocates the callback and the
+     * completion node of <code>whenComplete</code>.
+     *
+     * @param operation the operation starting the computation.
+     * @param <T>       the result type.
+     * @return the future returned by the operation.
+     */
+    public <T> CompletableFuture<T> timeAsync(final Supplier<? extends CompletableFuture<T>> operation) {
+        final long startNanos = System.nanoTime();
+        final CompletableFuture<T> future;
+        try {
+            future = operation.get();
+        } catch (final RuntimeException | Error ex) {
+            record(1, System.nanoTime() - startNanos);
+            throw ex;
+        }
+        future.whenComplete(new Completion(this, startNanos));
+        return future;
+    }
+
+    // Records the work unit of a completed future (one instance per call).
+    private static final class Completion implements BiConsumer<Object, Throwable> {
+
+        private final WorkUnitMetric metric;
+        private final long startNanos;
+
+        Completion(final WorkUnitMetric metric, final long startNanos) {
+            this.metric = metric;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void accept(final Object result, final Throwable failure) {
+            this.metric.record(1, System.nanoTime() - this.startNanos);
+        }
+    }
+
+    /**
+     * Timing scope of a thread; closing it records one work unit with the
+     * nanoseconds elapsed since the matching {@link #start()}.
+     */
+    public static final class Scope implements AutoCloseable {
+
+        private final WorkUnitMetric metric;
+        private int depth;
+        private long[] startNanos;
+
+        Scope(final WorkUnitMetric metric) {
+            this.metric = metric;
+            this.startNanos = new long[4];
+        }
+
+        /**
+         * @throws IllegalStateException if the scope is not open.
+         */
+        @Override
+        public void close() {
+            final long endNanos = System.nanoTime();
+            if (this.depth == 0) {
+                throw new IllegalStateException("Scope is not open");
+            }
+            this.metric.record(1, endNanos - this.startNanos[--this.depth]);
+        }
+
+        Scope start() {
+            if (this.depth == this.startNanos.length) {
+                this.startNanos = Arrays.copyOf(this.startNanos, this.depth * 2);
+            }
+            this.startNanos[this.depth++] = System.nanoTime();
+            return this;
+        }
     }
 
     static class WorkUnit {
 
-        private final LongAdder departingCount;
-        private final AtomicLong observationStartNanos;
         private final LongAdder aggregateBusyTimeNanos;
+        private final LongAdder arrivalCount;
+        private final LongAdder arrivalNanos;
+        private final LongAdder departingCount;
+        private final LongAdder departureNanos;
+        private long observationStartNanos;
+        private final LatencyHistogram serviceTimes;
 
 
         WorkUnit() {
-            this.observationStartNanos = new AtomicLong(0);
             this.aggregateBusyTimeNanos = new LongAdder();
+            this.arrivalCount = new LongAdder();
+            this.arrivalNanos = new LongAdder();
             this.departingCount = new LongAdder();
+            this.departureNanos = new LongAdder();
+            this.serviceTimes = new LatencyHistogram();
+        }
+
+        // The time stamps are summed relative to the period start (for the time in system).
+        void arrive(final int count, final long nowNanos) {
+            this.arrivalCount.add(count);
+            this.arrivalNanos.add(count * (nowNanos - this.observationStartNanos));
+        }
+
+        void depart(final int count, final long nowNanos) {
+            this.departureNanos.add(count * (nowNanos - this.observationStartNanos));
         }
 
         void record(final int count, final long duration) {
             this.aggregateBusyTimeNanos.add(duration);
             this.departingCount.add(count);
+            if (count > 0) {
+                // Each departure is counted with the mean service time of the batch.
+                this.serviceTimes.record(duration / count, count);
+            }
         }
 
-        void reset() {
-            this.observationStartNanos.set(System.nanoTime());
+        void reset(final long observationStartNanos) {
+            this.observationStartNanos = observationStartNanos;
             this.departingCount.reset();
             this.aggregateBusyTimeNanos.reset();
+            this.arrivalCount.reset();
+            this.arrivalNanos.reset();
+            this.departureNanos.reset();
+            this.serviceTimes.reset();
+        }
+
+        long aggregateBusyTimeNanos() {
+            return this.aggregateBusyTimeNanos.sum();
         }
-    }
 
-    static class WorkUnitPerformance extends Performance {
+        long arrivalCount() {
+            return this.arrivalCount.sum();
+        }
+
+        long departingCount() {
+            return this.departingCount.sum();
+        }
 
-        WorkUnitPerformance() {
+        LatencyHistogram serviceTimes() {
+            return this.serviceTimes;
         }
 
-        void init(final WorkUnit workUnit) {
-            init(workUnit.departingCount.sum(),
-                    workUnit.aggregateBusyTimeNanos.sum(),
-                    (System.nanoTime() - workUnit.observationStartNanos.get()));
+        /**
+         * @param inSystemAtStart the number of work units in the system at
+         *                        the period start, <code>-1</code> if the
+         *                        arrivals are not tracked.
+         */
+        void copyInto(final Performance performance, final long observationEndNanos, final int serverCount,
+                      final long inSystemAtStart) {
+            final long observationTimeNanos = observationEndNanos - this.observationStartNanos;
+            final long departingCount = this.departingCount.sum();
+            final long arrivalCount = (inSystemAtStart < 0 ? departingCount : this.arrivalCount.sum());
+            performance.init(arrivalCount, departingCount, this.aggregateBusyTimeNanos.sum(),
+                    observationTimeNanos, serverCount);
+            performance.clearServiceTimes();
+            performance.addServiceTimes(this.serviceTimes);
+            if (inSystemAtStart >= 0) {
+                // Integral of the number in system: N0 * T + sum(T - arrival) - sum(T - departure).
+                final long inSystemTimeNanos = ((inSystemAtStart + arrivalCount - departingCount) * observationTimeNanos)
+                        - this.arrivalNanos.sum() + this.departureNanos.sum();
+                performance.initInSystemTime(Math.max(inSystemTimeNanos, 0));
+            }
         }
     }
 
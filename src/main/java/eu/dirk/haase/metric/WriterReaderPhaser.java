@@ -0,0 +1,102 @@
+package eu.dirk.haase.metric;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writer/reader phase flip (as in HdrHistogram): writers enter and leave
+ * their critical sections wait-free, a reader flips the phase and waits
+ * until all writers of the previous phase have left. A flip may also be
+ * begun by one thread and completed by a later reader; the flip state is
+ * guarded by the reader lock.
+ * <p>
+ * The sign of the start epoch tells the phase: writers of the even phase
+ * count from <code>0</code> upwards, writers of the odd phase from
+ * <code>Long.MIN_VALUE</code> upwards.
+ */
+final class WriterReaderPhaser {
+
+    private final AtomicLong evenEndEpoch = new AtomicLong(0);
+    private boolean flipPending;
+    private final AtomicLong oddEndEpoch = new AtomicLong(Long.MIN_VALUE);
+    private AtomicLong previousEndEpoch;
+    private final ReentrantLock readerLock = new ReentrantLock();
+    private final AtomicLong startEpoch = new AtomicLong(0);
+    private long startValueAtFlip;
+
+    /**
+     * Waits until the writers of the phase before the last flip have left
+     * their critical sections (the reader lock must be held).
+     */
+    void awaitFlip() {
+        for (int spins = 0; !isFlipComplete(); ++spins) {
+            if (spins < 100) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(10_000);
+            }
+        }
+    }
+
+    /**
+     * Flips the phase without waiting for the writers of the previous phase
+     * (the reader lock must be held and the last flip must be complete).
+     */
+    void beginFlip() {
+        if (!this.readerLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Reader lock not held");
+        } else if (this.flipPending) {
+            throw new IllegalStateException("Previous flip not complete");
+        }
+        final boolean nextPhaseIsEven = (this.startEpoch.get() < 0);
+        final long initialStartValue = (nextPhaseIsEven ? 0 : Long.MIN_VALUE);
+        (nextPhaseIsEven ? this.evenEndEpoch : this.oddEndEpoch).lazySet(initialStartValue);
+        this.startValueAtFlip = this.startEpoch.getAndSet(initialStartValue);
+        this.previousEndEpoch = (nextPhaseIsEven ? this.oddEndEpoch : this.evenEndEpoch);
+        this.flipPending = true;
+    }
+
+    /**
+     * Flips the phase and waits until the writers of the previous phase
+     * have left their critical sections (the reader lock must be held).
+     */
+    void flipPhase() {
+        awaitFlip();
+        beginFlip();
+        awaitFlip();
+    }
+
+    /**
+     * Tells without waiting whether the writers of the phase before the
+     * last flip have left their critical sections (the reader lock must be
+     * held).
+     */
+    boolean isFlipComplete() {
+        if (this.flipPending && (this.previousEndEpoch.get() == this.startValueAtFlip)) {
+            this.flipPending = false;
+        }
+        return !this.flipPending;
+    }
+
+    void readerLock() {
+        this.readerLock.lock();
+    }
+
+    boolean tryReaderLock() {
+        return this.readerLock.tryLock();
+    }
+
+    void readerUnlock() {
+        this.readerLock.unlock();
+    }
+
+    long writerCriticalSectionEnter() {
+        return this.startEpoch.getAndIncrement();
+    }
+
+    void writerCriticalSectionExit(final long criticalValueAtEnter) {
+        (criticalValueAtEnter < 0 ? this.oddEndEpoch : this.evenEndEpoch).getAndIncrement();
+    }
+
+}
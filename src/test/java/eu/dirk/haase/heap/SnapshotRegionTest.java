@@ -0,0 +1,110 @@
+package eu.dirk.haase.heap;
+
+import eu.dirk.haase.type.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class SnapshotRegionTest {
+
+    private static void write(final SnapshotRegion region, final MyRecord record, final long value) {
+        final long stamp = region.beginWrite(record);
+        try {
+            record.m_1_signed64.set(value);
+            record.m_2_signed64.set(-value);
+        } finally {
+            region.endWrite(stamp);
+        }
+    }
+
+    @Test
+    public void test_snapshot_that_sees_data_as_of_its_creation() {
+        // Given
+        MyRecord record = new MyRecord();
+        ByteBuffer buffer = ByteBuffer.allocate(256).order(record.byteOrder());
+        SnapshotRegion region = new SnapshotRegion(buffer, 16);
+        record.initByteBuffer(buffer, 12); // Spans two pages.
+        write(region, record, 1L);
+        MyRecord view = new MyRecord();
+        view.initByteBuffer(ByteBuffer.allocate(view.size()).order(view.byteOrder()), 0);
+        // When
+        SnapshotRegion.Snapshot snapshot = region.snapshot();
+        write(region, record, 2L);
+        SnapshotRegion.Snapshot later = region.snapshot();
+        write(region, record, 3L);
+        // Then
+        snapshot.copyTo(12, view);
+        assertThat(view.m_1_signed64.get()).isEqualTo(1L);
+        assertThat(view.m_2_signed64.get()).isEqualTo(-1L);
+        later.copyTo(12, view);
+        assertThat(view.m_1_signed64.get()).isEqualTo(2L);
+        assertThat(record.m_1_signed64.get()).isEqualTo(3L);
+        assertThat(snapshot.copiedPages()).isEqualTo(2);
+        assertThat(later.copiedPages()).isEqualTo(2);
+        // When
+        snapshot.close();
+        later.close();
+        // Then
+        assertThat(region.openSnapshots()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_snapshot_that_is_consistent_while_writer_is_running() throws Exception {
+        // Given
+        MyRecord record = new MyRecord();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(256).order(record.byteOrder());
+        SnapshotRegion region = new SnapshotRegion(buffer, 8);
+        record.initByteBuffer(buffer, 4);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long i = 1; running.get(); ++i) {
+                write(region, record, i);
+            }
+        });
+        MyRecord view = new MyRecord();
+        view.initByteBuffer(ByteBuffer.allocate(view.size()).order(view.byteOrder()), 0);
+        // When
+        writer.start();
+        try {
+            for (int i = 0; 10_000 > i; ++i) {
+                try (SnapshotRegion.Snapshot snapshot = region.snapshot()) {
+                    snapshot.copyTo(4, view);
+                    // Then
+                    assertThat(view.m_2_signed64.get()).isEqualTo(-view.m_1_signed64.get());
+                }
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void test_allocator_that_snapshot_keeps_block_headers() {
+        // Given
+        Allocator allocator = new Allocator(1024);
+        SnapshotRegion region = allocator.enableSnapshots(64);
+        MyRecord record = new MyRecord();
+        int dataPosition = allocator.allocate(record.size());
+        // When
+        try (SnapshotRegion.Snapshot snapshot = region.snapshot()) {
+            allocator.free(dataPosition);
+            // Then
+            assertThat(snapshot.get(dataPosition - Allocator.headerSize())).isNotEqualTo((byte) 0);
+            assertThat(snapshot.copiedPages()).isEqualTo(1);
+            assertThat(region.buffer().getShort(dataPosition - Allocator.headerSize())).isEqualTo((short) 0);
+        }
+    }
+
+    static class MyRecord extends Struct {
+        final Signed64 m_1_signed64 = new Signed64();
+        final Signed64 m_2_signed64 = new Signed64();
+    }
+
+}
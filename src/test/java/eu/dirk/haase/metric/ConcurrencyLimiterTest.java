@@ -0,0 +1,130 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ConcurrencyLimiterTest {
+
+    private static Performance performance(final long busyTimeNanos, final long observationTimeNanos) {
+        Performance performance = new Performance();
+        performance.init(100, 100, busyTimeNanos, observationTimeNanos, 4);
+        return performance;
+    }
+
+    @Test
+    public void test_excess_work_is_rejected() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new WorkUnitMetric(4), 2, 10, 0.9, 1, TimeUnit.SECONDS);
+        // When
+        boolean first = limiter.tryAcquire();
+        boolean second = limiter.tryAcquire();
+        boolean third = limiter.tryAcquire();
+        limiter.release();
+        boolean fourth = limiter.tryAcquire();
+        // Then
+        assertThat(first).isTrue();
+        assertThat(second).isTrue();
+        assertThat(third).isFalse();
+        assertThat(fourth).isTrue();
+        assertThat(limiter.inFlight()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_limit_increases_additively_and_decreases_multiplicatively() {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new WorkUnitMetric(4), 2, 40, 0.9, 1, TimeUnit.SECONDS);
+        Performance healthy = performance(2_000_000, 1_000_000);
+        Performance saturated = performance(3_800_000, 1_000_000);
+        // When
+        int idle = limiter.adjust(healthy);
+        for (int i = 0; i < 30; ++i) {
+            while (limiter.tryAcquire()) {
+                // fills up to the limit
+            }
+            limiter.adjust(healthy);
+            while (limiter.inFlight() > 0) {
+                limiter.release();
+            }
+        }
+        int grown = limiter.limit();
+        int reduced = limiter.adjust(saturated);
+        // Then
+        assertThat(idle).isEqualTo(2);
+        assertThat(grown).isEqualTo(32);
+        assertThat(reduced).isEqualTo(28);
+        assertThat(limiter.adjust(performance(5_000_000, 1_000_000))).isEqualTo(25);
+    }
+
+    @Test
+    public void test_waiting_work_is_admitted_on_release() throws InterruptedException {
+        // Given
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(new WorkUnitMetric(), 1, 1, 0.9, 1, TimeUnit.SECONDS);
+        limiter.tryAcquire();
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean admitted = new AtomicBoolean();
+        Thread waiter = new Thread(() -> {
+            started.countDown();
+            try {
+                admitted.set(limiter.tryAcquire(10, TimeUnit.SECONDS));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        started.await();
+        // When
+        boolean timedOut = !limiter.tryAcquire(10, TimeUnit.MILLISECONDS);
+        limiter.release();
+        waiter.join(10_000);
+        // Then
+        assertThat(timedOut).isTrue();
+        assertThat(admitted.get()).isTrue();
+        assertThat(limiter.inFlight()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_update_uses_the_metric() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric(1);
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(metric, 1, 8, 0.9, 1, TimeUnit.NANOSECONDS);
+        limiter.tryAcquire();
+        limiter.tryAcquire();
+        metric.record(1, 1_000);
+        // When
+        int limit = limiter.update();
+        // Then
+        assertThat(limit).isEqualTo(1);
+    }
+
+    @Test
+    public void test_limit_grows_with_concurrent_work_on_several_servers() throws InterruptedException {
+        // Given: a metric of work on eight servers.
+        WorkUnitMetric metric = new WorkUnitMetric(8);
+        long startNanos = System.nanoTime();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(metric, 4, 16, 0.9, 10, TimeUnit.SECONDS);
+        int before = limiter.limit();
+        while (limiter.tryAcquire()) {
+            // fills up to the limit
+        }
+        Thread.sleep(20);
+        // When: two work units were in service during the whole period.
+        long elapsedNanos = System.nanoTime() - startNanos;
+        metric.record(1, elapsedNanos);
+        metric.record(1, elapsedNanos);
+        int after = limiter.update();
+        Performance period = metric.get();
+        // Then
+        assertThat(after).isEqualTo(before + 1);
+        assertThat(period.departingCount()).isEqualTo(2L);
+    }
+
+}
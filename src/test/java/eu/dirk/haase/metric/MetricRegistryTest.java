@@ -0,0 +1,91 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class MetricRegistryTest {
+
+    @Test
+    public void test_metric_name_ignores_tag_order() {
+        // Given
+        MetricName name = MetricName.of("orders", "region", "eu", "host", "a");
+        Map<String, String> tags = new HashMap<>();
+        tags.put("region", "eu");
+        tags.put("host", "a");
+        // When
+        MetricName same = MetricName.of("orders", "host", "a", "region", "eu");
+        MetricName fromMap = MetricName.of("orders", tags);
+        // Then
+        assertThat(same).isEqualTo(name).hasSameHashCodeAs(name);
+        assertThat(fromMap).isEqualTo(name).isNotEqualTo(MetricName.of("orders", "host", "a"));
+        assertThat(name.toString()).isEqualTo("orders{host=a,region=eu}");
+        assertThat(name.tag("region")).isEqualTo("eu");
+        assertThat(name.tag("zone")).isNull();
+        assertThat(name.tags()).containsKeys("host", "region");
+        assertThatThrownBy(() -> MetricName.of("orders", "region")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MetricName.of("orders", "region", "eu", "region", "us"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_registry_returns_the_same_metric_per_name() {
+        // Given
+        MetricRegistry registry = new MetricRegistry();
+        MetricName name = MetricName.of("orders", "region", "eu");
+        // When
+        WorkUnitMetric first = registry.workUnitMetric(name);
+        WorkUnitMetric second = registry.workUnitMetric(MetricName.of("orders", "region", "eu"));
+        WorkUnitMetric other = registry.workUnitMetric(MetricName.of("orders", "region", "us"));
+        // Then
+        assertThat(first).isSameAs(second).isNotSameAs(other);
+        assertThat(registry.size()).isEqualTo(2);
+        assertThatThrownBy(() -> registry.slidingWindowMetric(name, 10, 1, TimeUnit.SECONDS))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("WorkUnitMetric");
+        assertThat(registry.remove(name)).isSameAs(first);
+        assertThat(registry.workUnitMetric(name)).isNotSameAs(first);
+    }
+
+    @Test
+    public void test_registry_rejects_another_server_count() {
+        // Given
+        MetricRegistry registry = new MetricRegistry();
+        MetricName name = MetricName.of("pool");
+        // When
+        WorkUnitMetric metric = registry.workUnitMetric(name, 8);
+        // Then
+        assertThat(metric.serverCount()).isEqualTo(8);
+        assertThat(registry.workUnitMetric(name, 8)).isSameAs(metric);
+        assertThatThrownBy(() -> registry.workUnitMetric(name, 4))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("8 servers");
+        assertThatThrownBy(() -> registry.workUnitMetric(name))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_registry_exports_all_metrics() {
+        // Given
+        MetricRegistry registry = new MetricRegistry();
+        registry.workUnitMetric(MetricName.of("b")).record(1, 10);
+        registry.slidingWindowMetric(MetricName.of("a", "k", "v"), 10, 1, TimeUnit.SECONDS).record(2, 20);
+        List<MetricName> names = new ArrayList<>();
+        // When
+        registry.forEach((name, metric) -> names.add(name));
+        // Then
+        assertThat(names).containsExactlyInAnyOrder(MetricName.of("a", "k", "v"), MetricName.of("b"));
+        assertThat(registry.snapshot().firstKey()).isEqualTo(MetricName.of("a", "k", "v"));
+        assertThat(registry.snapshot().get(MetricName.of("b"))).isInstanceOf(WorkUnitMetric.class);
+    }
+
+}
@@ -0,0 +1,132 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class PerformanceHistoryTest {
+
+    private static Performance performance(final long departingCount, final long aggregateBusyTimeNanos) {
+        Performance performance = new Performance();
+        performance.init(departingCount, departingCount, aggregateBusyTimeNanos, 1_000_000_000L, 2);
+        return performance;
+    }
+
+    @Test
+    public void test_intervals_are_downsampled() {
+        // Given
+        PerformanceHistory history = new PerformanceHistory(16, 1, TimeUnit.SECONDS, 60);
+        for (int i = 1; i <= 120; ++i) {
+            history.append(i * 1000L, performance(10, 500_000_000L));
+        }
+        List<Long> seconds = new ArrayList<>();
+        List<Long> minutes = new ArrayList<>();
+        // When
+        history.forEach(0, 0, 120_000, (performance, endMillis) -> seconds.add(performance.departingCount()));
+        history.forEach(1, 0, 120_000, (performance, endMillis) -> minutes.add(endMillis));
+        Performance total = history.get(60_000, 120_000, new Performance());
+        // Then
+        assertThat(history.levelCount()).isEqualTo(2);
+        assertThat(history.resolutionMillis(1)).isEqualTo(60_000);
+        assertThat(seconds).hasSize(120).containsOnly(10L);
+        assertThat(minutes).containsExactly(60_000L, 120_000L);
+        assertThat(total.departingCount()).isEqualTo(600);
+        assertThat(total.observationTimeMillis()).isEqualTo(60_000.0);
+        assertThat(total.serverUtilization()).isEqualTo(0.25);
+    }
+
+    @Test
+    public void test_values_survive_compression() {
+        // Given
+        PerformanceHistory history = new PerformanceHistory(4, 1, TimeUnit.SECONDS);
+        long[] departures = {0, 5, 1_000_000, 3, 70_000, 70_000, 2};
+        long[] busyTimes = {0, Long.MAX_VALUE / 4, 1, 123_456_789_012L, 40_000, 40_000, 7};
+        for (int i = 0; i < departures.length; ++i) {
+            Performance performance = performance(departures[i], busyTimes[i]);
+            if ((i % 2) == 0) {
+                performance.initInSystemTime(i * 1_000_000L);
+            }
+            history.append((i + 1) * 1000L, performance);
+        }
+        List<Long> decodedDepartures = new ArrayList<>();
+        List<Double> decodedBusyTimes = new ArrayList<>();
+        List<Double> residenceTimes = new ArrayList<>();
+        // When
+        history.forEach(0, 0, Long.MAX_VALUE, (performance, endMillis) -> {
+            decodedDepartures.add(performance.departingCount());
+            decodedBusyTimes.add(performance.aggregateBusyTimeMillis());
+            residenceTimes.add(performance.observedResidenceTimeMillis());
+        });
+        // Then
+        assertThat(decodedDepartures).containsExactly(0L, 5L, 1_000_000L, 3L, 70_000L, 70_000L, 2L);
+        assertThat(decodedBusyTimes.get(1)).isEqualTo((Long.MAX_VALUE / 4) / 1e6);
+        assertThat(decodedBusyTimes.get(3)).isEqualTo(123_456.789012);
+        assertThat(residenceTimes.get(2)).isEqualTo(2.0 / 1_000_000);
+        assertThat(residenceTimes.get(3)).isNaN();
+    }
+
+    @Test
+    public void test_oldest_blocks_are_evicted() {
+        // Given
+        PerformanceHistory history = new PerformanceHistory(2, 1, TimeUnit.SECONDS, 60);
+        long departures = 0;
+        for (int i = 1; i <= 1000; ++i) {
+            long departingCount = 10 + (i % 7);
+            departures += departingCount;
+            history.append(i * 1000L, performance(departingCount, departingCount * 1_000_003L));
+        }
+        List<Long> seconds = new ArrayList<>();
+        // When
+        history.forEach(0, 0, Long.MAX_VALUE, (performance, endMillis) -> seconds.add(endMillis));
+        Performance total = history.get(0, 1_000_000, new Performance());
+        // Then: plain 64 bit values would fit 36 intervals into 2 blocks.
+        assertThat(seconds.size()).isBetween(100, 999);
+        assertThat(seconds.get(seconds.size() - 1)).isEqualTo(1_000_000L);
+        assertThat(seconds.get(0)).isEqualTo(1_000_000L - ((seconds.size() - 1) * 1000L));
+        assertThat(total.departingCount()).isEqualTo(departures);
+    }
+
+    @Test
+    public void test_jittered_steady_load_is_compressed() {
+        // Given
+        PerformanceHistory history = new PerformanceHistory(64, 1, TimeUnit.SECONDS);
+        Random random = new Random(42);
+        // When
+        for (int i = 1; i <= 3600; ++i) {
+            long departingCount = 1000 + random.nextInt(61) - 30;
+            Performance performance = new Performance();
+            performance.init(departingCount + random.nextInt(11) - 5, departingCount,
+                    500_000_000L + random.nextInt(2_000_001) - 1_000_000,
+                    1_000_000_000L + random.nextInt(100_001) - 50_000, 8);
+            performance.initInSystemTime(600_000_000L + random.nextInt(2_000_001) - 1_000_000);
+            history.append(i * 1000L, performance);
+        }
+        double bitsPerInterval = (double) history.storedBits(0) / history.storedIntervals(0);
+        // Then: nanosecond times of mostly 36 bits, counts of 10 bits, unchanged values of 1 bit.
+        assertThat(history.storedIntervals(0)).isEqualTo(3599);
+        assertThat(bitsPerInterval).isBetween(110.0, 130.0);
+    }
+
+    @Test
+    public void test_periods_must_be_ordered() {
+        // Given
+        PerformanceHistory history = new PerformanceHistory(1, 1, TimeUnit.SECONDS);
+        history.append(2000, performance(1, 1));
+        // When / Then
+        assertThatThrownBy(() -> history.append(1000, performance(1, 1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PerformanceHistory(1, 1, TimeUnit.SECONDS, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
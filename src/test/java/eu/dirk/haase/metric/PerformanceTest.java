@@ -6,6 +6,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.BlockJUnit4ClassRunner;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 @RunWith(BlockJUnit4ClassRunner.class)
 public class PerformanceTest {
@@ -46,6 +47,65 @@ public class PerformanceTest {
         assertThat(observationTimeMillis).isEqualTo(0.003);
     }
 
+    @Test
+    public void test_percentileServiceTimeMillis_without_histogram() {
+        // Given
+        Performance performance = new Performance();
+        performance.init(DEPARTING_COUNT, AGGREGATE_BUSY_TIME_NANOS, OBSERVATION_TIME_NANOS);
+        // When
+        double serviceTime = performance.percentileServiceTimeMillis(99);
+        // Then
+        assertThat(serviceTime).isNaN();
+    }
+
+    @Test
+    public void test_multi_server_queue() {
+        // Given
+        Performance performance = new Performance();
+        performance.init(100, 100, 1_000_000, 1_000_000, 2);
+        // When
+        double probabilityOfWaiting = performance.probabilityOfWaiting();
+        double queueLength = performance.queueLength();
+        double residenceTime = performance.averageResidenceTimeMillis();
+        // Then
+        assertThat(performance.serverUtilization()).isEqualTo(0.5);
+        assertThat(probabilityOfWaiting).isCloseTo(1d / 3d, within(1e-12));
+        assertThat(queueLength).isCloseTo(4d / 3d, within(1e-12));
+        assertThat(residenceTime).isCloseTo(0.04d / 3d, within(1e-12));
+        assertThat(queueLength).isCloseTo(performance.arrivalRatePerMilli() * residenceTime, within(1e-12));
+        assertThat(performance.requiredServerCount(0.2)).isEqualTo(3);
+        assertThat(performance.observedResidenceTimeMillis()).isNaN();
+    }
+
+    @Test
+    public void test_offered_load_from_arrivals() {
+        // Given
+        Performance performance = new Performance();
+        performance.init(120, 100, 1_000_000, 1_000_000, 2);
+        // When
+        double offeredLoad = performance.offeredLoad();
+        // Then
+        assertThat(performance.arrivalCount()).isEqualTo(120L);
+        assertThat(offeredLoad).isCloseTo(1.2, within(1e-12));
+        assertThat(performance.serverUtilization()).isCloseTo(0.6, within(1e-12));
+        assertThat(performance.utilization()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void test_unstable_queue() {
+        // Given
+        Performance performance = new Performance();
+        performance.init(DEPARTING_COUNT, 2 * OBSERVATION_TIME_NANOS, OBSERVATION_TIME_NANOS);
+        // When
+        boolean stable = performance.isStable();
+        // Then
+        assertThat(stable).isFalse();
+        assertThat(performance.queueLength()).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(performance.averageResidenceTimeMillis()).isEqualTo(Double.POSITIVE_INFINITY);
+        assertThat(performance.probabilityOfWaiting()).isEqualTo(1.0);
+        assertThat(performance.requiredServerCount(0.5)).isGreaterThanOrEqualTo(3);
+    }
+
     @Test
     public void test_queueLength() {
         // Given
@@ -0,0 +1,83 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class SharedMetricFileTest {
+
+    private static MappedByteBuffer mapForReading(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    @Test
+    public void test_counters_are_visible_through_a_second_mapping() throws IOException {
+        // Given
+        Path path = Files.createTempFile("metrics", ".dat");
+        try (SharedMetricFile file = SharedMetricFile.create(path, 4)) {
+            WorkUnitMetric orders = file.workUnitMetric(MetricName.of("orders", "region", "eu"));
+            WorkUnitMetric quotes = file.workUnitMetric(MetricName.of("quotes"), 8);
+            orders.record(2, 300);
+            orders.get();
+            orders.record(1, 100);
+            quotes.record(5, 50);
+            // When
+            file.publish();
+            MappedByteBuffer reader = mapForReading(path);
+            SharedMetricFile.Header header = new SharedMetricFile.Header();
+            header.initByteBuffer(reader, 0);
+            MetricCounters slot = new MetricCounters();
+            slot.initByteBuffer(reader, header.size());
+            long[] counters = new long[2];
+            slot.read((MetricCounters c) -> {
+                counters[0] = c.departingCount.get();
+                counters[1] = c.aggregateBusyTimeNanos.get();
+            });
+            // Then
+            assertThat(header.magic.get()).isEqualTo(SharedMetricFile.MAGIC);
+            assertThat(header.count.get()).isEqualTo(2);
+            assertThat(header.slotSize.get()).isEqualTo(slot.size()).isEqualTo(136);
+            assertThat(slot.name.get().toString()).isEqualTo("orders{region=eu}");
+            assertThat(slot.version.get() % 2).isEqualTo(0L);
+            assertThat(counters).containsExactly(3L, 400L);
+            assertThat(slot.publishTimeMillis.get()).isPositive();
+            assertThat(slot.serverCount.get()).isEqualTo(1);
+            slot.initByteBuffer(reader, header.size() + slot.size());
+            assertThat(slot.name.get().toString()).isEqualTo("quotes");
+            assertThat(slot.departingCount.get()).isEqualTo(5L);
+            assertThat(slot.serverCount.get()).isEqualTo(8);
+            assertThat(quotes.serverCount()).isEqualTo(8);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void test_slots_are_limited() throws IOException {
+        // Given
+        Path path = Files.createTempFile("metrics", ".dat");
+        try (SharedMetricFile file = SharedMetricFile.create(path, 1)) {
+            file.workUnitMetric(MetricName.of("a"));
+            // When / Then
+            assertThatThrownBy(() -> file.workUnitMetric(MetricName.of("b")))
+                    .isInstanceOf(IllegalStateException.class);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+}
@@ -0,0 +1,124 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class SlidingWindowMetricTest {
+
+    private static final long MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void test_windows_of_different_length() {
+        // Given
+        AtomicLong clock = new AtomicLong(0);
+        SlidingWindowMetric metric = new SlidingWindowMetric(3, 1, TimeUnit.SECONDS, clock::get);
+        metric.record(1, 10 * MILLI);
+        clock.set(1200 * MILLI);
+        metric.record(2, 40 * MILLI);
+        clock.set(2500 * MILLI);
+        metric.record(4, 40 * MILLI);
+        // When
+        Performance lastSecond = metric.get(1, TimeUnit.SECONDS);
+        Performance lastThreeSeconds = metric.get(3, TimeUnit.SECONDS);
+        // Then
+        assertThat(lastSecond.departingCount()).isEqualTo(4L);
+        assertThat(lastSecond.observationTimeMillis()).isEqualTo(500.0);
+        assertThat(lastThreeSeconds.departingCount()).isEqualTo(7L);
+        assertThat(lastThreeSeconds.aggregateBusyTimeMillis()).isEqualTo(90.0);
+        assertThat(lastThreeSeconds.observationTimeMillis()).isEqualTo(2500.0);
+        assertThat(lastThreeSeconds.percentileServiceTimeMillis(100)).isEqualTo(20.0, within(20.0 / 64));
+        assertThat(lastThreeSeconds.percentileServiceTimeMillis(50)).isEqualTo(10.0, within(10.0 / 64));
+    }
+
+    @Test
+    public void test_window_over_several_servers() {
+        // Given: four servers, each busy for half of the second.
+        AtomicLong clock = new AtomicLong(0);
+        SlidingWindowMetric metric = new SlidingWindowMetric(3, 1, TimeUnit.SECONDS, 4, clock::get);
+        for (int i = 0; i < 4; ++i) {
+            metric.record(10, 500 * MILLI);
+        }
+        clock.set(1000 * MILLI - 1);
+        // When
+        Performance lastSecond = metric.get(1, TimeUnit.SECONDS);
+        // Then
+        assertThat(metric.serverCount()).isEqualTo(4);
+        assertThat(lastSecond.arrivalCount()).isEqualTo(40L);
+        assertThat(lastSecond.serverUtilization()).isEqualTo(0.5, within(0.001));
+        assertThat(lastSecond.isStable()).isTrue();
+        assertThat(lastSecond.averageResidenceTimeMillis()).isBetween(50.0, 100.0);
+        assertThatThrownBy(() -> new SlidingWindowMetric(3, 1, TimeUnit.SECONDS, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_old_buckets_leave_the_window() {
+        // Given
+        AtomicLong clock = new AtomicLong(0);
+        SlidingWindowMetric metric = new SlidingWindowMetric(3, 1, TimeUnit.SECONDS, clock::get);
+        metric.record(1, MILLI);
+        clock.set(2100 * MILLI);
+        metric.record(2, MILLI);
+        // When
+        clock.set(3500 * MILLI);
+        Performance lastTwoSeconds = metric.get(2, TimeUnit.SECONDS);
+        clock.set(7000 * MILLI);
+        Performance lastThreeSeconds = metric.get(3, TimeUnit.SECONDS);
+        metric.record(8, MILLI);
+        Performance lastMilli = metric.get(1, TimeUnit.MILLISECONDS);
+        // Then
+        assertThat(lastTwoSeconds.departingCount()).isEqualTo(2L);
+        assertThat(lastTwoSeconds.observationTimeMillis()).isEqualTo(1500.0);
+        assertThat(lastThreeSeconds.departingCount()).isEqualTo(0L);
+        assertThat(lastThreeSeconds.percentileServiceTimeMillis(50)).isNaN();
+        assertThat(lastMilli.departingCount()).isEqualTo(8L);
+        assertThat(lastMilli.observationTimeMillis()).isEqualTo(0.0);
+    }
+
+    @Test
+    public void test_recording_does_not_wait_for_a_stalled_recorder()
+            throws InterruptedException, ExecutionException, TimeoutException {
+        // Given
+        AtomicLong clock = new AtomicLong(0);
+        SlidingWindowMetric metric = new SlidingWindowMetric(3, 1, TimeUnit.SECONDS, clock::get);
+        long stalled = metric.phaser.writerCriticalSectionEnter();
+        // When
+        clock.set(1100 * MILLI);
+        CompletableFuture.runAsync(() -> metric.record(1, MILLI)).get(5, TimeUnit.SECONDS);
+        clock.set(2100 * MILLI);
+        CompletableFuture.runAsync(() -> metric.record(2, MILLI)).get(5, TimeUnit.SECONDS);
+        metric.phaser.writerCriticalSectionExit(stalled);
+        Performance lastThreeSeconds = metric.get(3, TimeUnit.SECONDS);
+        Performance lastSecond = metric.get(1, TimeUnit.SECONDS);
+        // Then: the second recorder records into the bucket of the first.
+        assertThat(lastThreeSeconds.departingCount()).isEqualTo(3L);
+        assertThat(lastSecond.departingCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void test_windows_longer_than_the_ring_are_rejected() {
+        // Given
+        SlidingWindowMetric metric = new SlidingWindowMetric(10, 100, TimeUnit.MILLISECONDS);
+        // When / Then
+        assertThat(metric.bucketCount()).isEqualTo(10);
+        assertThat(metric.get(1, TimeUnit.SECONDS).departingCount()).isEqualTo(0L);
+        assertThatThrownBy(() -> metric.get(1001, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> metric.get(0, TimeUnit.MILLISECONDS))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,171 @@
+package eu.dirk.haase.metric;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class WorkUnitMetricTest {
+
+    @Test
+    public void test_interval_rollover() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        metric.record(2, 100);
+        metric.record(1, 50);
+        // When
+        Performance first = metric.get();
+        long firstCount = first.departingCount();
+        double firstBusyTimeMillis = first.aggregateBusyTimeMillis();
+        metric.record(5, 10);
+        Performance second = metric.get();
+        // Then
+        assertThat(firstCount).isEqualTo(3L);
+        assertThat(firstBusyTimeMillis).isEqualTo(0.00015);
+        assertThat(second.departingCount()).isEqualTo(5L);
+        assertThat(second.observationTimeMillis()).isPositive();
+    }
+
+    @Test
+    public void test_snapshots_are_not_shared() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        Performance reused = new Performance();
+        metric.record(3, 300);
+        Performance first = metric.get();
+        metric.record(7, 700);
+        // When
+        Performance second = metric.get(reused);
+        metric.record(1, 100);
+        Performance third = metric.get(reused);
+        // Then
+        assertThat(first).isNotSameAs(second);
+        assertThat(first.departingCount()).isEqualTo(3L);
+        assertThat(second).isSameAs(reused).isSameAs(third);
+        assertThat(reused.departingCount()).isEqualTo(1L);
+        assertThat(reused.percentileServiceTimeMillis(100)).isEqualTo(0.0001);
+    }
+
+    @Test
+    public void test_percentile_service_times() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        for (int i = 1; i <= 1000; ++i) {
+            metric.record(1, i * 1_000L);
+        }
+        metric.record(10, 50_000_000L);
+        // When
+        Performance performance = metric.get();
+        // Then
+        assertThat(performance.percentileServiceTimeMillis(0)).isEqualTo(0.001, within(0.001 / 64));
+        assertThat(performance.percentileServiceTimeMillis(50)).isEqualTo(0.505, within(0.505 / 64));
+        assertThat(performance.percentileServiceTimeMillis(99)).isEqualTo(1.0, within(1.0 / 64));
+        assertThat(performance.percentileServiceTimeMillis(99.9)).isEqualTo(5.0, within(5.0 / 64));
+        assertThat(performance.percentileServiceTimeMillis(100)).isEqualTo(5.0, within(5.0 / 64));
+        assertThat(metric.get().percentileServiceTimeMillis(50)).isNaN();
+    }
+
+    @Test
+    public void test_timing_scopes_record_on_every_path() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        // When
+        try (WorkUnitMetric.Scope outer = metric.start()) {
+            try (WorkUnitMetric.Scope inner = metric.start()) {
+                assertThat(inner).isSameAs(outer);
+            }
+        }
+        assertThatThrownBy(() -> metric.time((Runnable) () -> {
+            throw new IllegalStateException("failed");
+        })).hasMessage("failed");
+        String result = metric.time(() -> "done");
+        Performance performance = metric.get();
+        // Then
+        assertThat(result).isEqualTo("done");
+        assertThat(performance.departingCount()).isEqualTo(4L);
+        assertThat(performance.aggregateBusyTimeMillis()).isPositive();
+        WorkUnitMetric.Scope scope = metric.start();
+        scope.close();
+        assertThatThrownBy(scope::close).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    public void test_async_timing_records_on_completion() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        CompletableFuture<String> succeeding = new CompletableFuture<>();
+        CompletableFuture<String> failing = new CompletableFuture<>();
+        // When
+        CompletableFuture<String> timed = metric.timeAsync(() -> succeeding);
+        metric.timeAsync(() -> failing);
+        long beforeCompletion = metric.get().departingCount();
+        succeeding.complete("ok");
+        failing.completeExceptionally(new IllegalStateException());
+        // Then
+        assertThat(timed).isSameAs(succeeding);
+        assertThat(beforeCompletion).isEqualTo(0L);
+        assertThat(metric.get().departingCount()).isEqualTo(2L);
+    }
+
+    @Test
+    public void test_arrivals_and_time_in_system() {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric(4);
+        metric.arrive(3);
+        metric.record(1, 10);
+        // When
+        Performance first = metric.get();
+        metric.arrive(1);
+        Performance second = metric.get();
+        // Then
+        assertThat(first.arrivalCount()).isEqualTo(3L);
+        assertThat(first.departingCount()).isEqualTo(1L);
+        assertThat(first.serverCount()).isEqualTo(4);
+        assertThat(first.observedResidenceTimeMillis()).isGreaterThanOrEqualTo(0.0);
+        assertThat(second.arrivalCount()).isEqualTo(1L);
+        // two work units in the system for the whole period plus the new one
+        assertThat(second.observedResidenceTimeMillis()).isGreaterThanOrEqualTo(2 * second.observationTimeMillis());
+        assertThatThrownBy(() -> new WorkUnitMetric(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_no_sample_is_lost_under_concurrent_rollover() throws InterruptedException {
+        // Given
+        WorkUnitMetric metric = new WorkUnitMetric();
+        int threads = 4;
+        int recordsPerThread = 200_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; ++t) {
+            new Thread(() -> {
+                for (int i = 0; i < recordsPerThread; ++i) {
+                    metric.record(1, 1);
+                }
+                done.countDown();
+            }).start();
+        }
+        // When
+        long departingCount = 0;
+        long busyTimeNanos = 0;
+        while (done.getCount() > 0) {
+            Performance performance = metric.get();
+            departingCount += performance.departingCount();
+            busyTimeNanos += Math.round(performance.aggregateBusyTimeMillis() * 1_000_000d);
+        }
+        done.await();
+        Performance last = metric.get();
+        departingCount += last.departingCount();
+        busyTimeNanos += Math.round(last.aggregateBusyTimeMillis() * 1_000_000d);
+        // Then
+        assertThat(departingCount).isEqualTo((long) threads * recordsPerThread);
+        assertThat(busyTimeNanos).isEqualTo((long) threads * recordsPerThread);
+    }
+
+}
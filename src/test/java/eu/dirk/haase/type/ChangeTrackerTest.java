@@ -0,0 +1,60 @@
+package eu.dirk.haase.type;
+
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class ChangeTrackerTest {
+
+    @Test
+    public void test_members_of_inner_structs_are_tracked_once() {
+        // Given
+        MyOuter outer = new MyOuter();
+        outer.initByteBuffer(ByteBuffer.allocate(outer.size()).order(outer.byteOrder()), 0);
+        // When
+        outer.trackChanges();
+        ChangeTracker tracker = outer.m_1_signed32.memberChanges;
+        // Then: two members of the outer, two of the inner and one of the innermost struct.
+        assertThat(tracker.size()).isEqualTo(5);
+        assertThat(outer.m_2_inner.m_2_innermost.m_1_signed8.memberChanges).isSameAs(tracker);
+        for (int i = 0; tracker.size() > i; ++i) {
+            assertThat(tracker.member(i).memberChangeIndex).isEqualTo(i);
+        }
+    }
+
+    static class MyInnermost extends Struct {
+        final Signed8 m_1_signed8 = new Signed8();
+
+        MyInnermost() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyInner extends Struct {
+        final Signed16 m_1_signed16 = new Signed16();
+        final MyInnermost m_2_innermost = inner(new MyInnermost());
+        final Signed16 m_3_signed16 = new Signed16();
+
+        MyInner() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyOuter extends Struct {
+        final Signed32 m_1_signed32 = new Signed32();
+        final MyInner m_2_inner = inner(new MyInner());
+        final Signed64 m_3_signed64 = new Signed64();
+
+        MyOuter() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+}
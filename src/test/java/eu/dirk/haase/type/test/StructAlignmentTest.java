@@ -0,0 +1,130 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.Union;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructAlignmentTest {
+
+    @Test
+    public void test_struct_that_aligned_members_are_padded() {
+        // Given
+        MyAlignedStruct struct = new MyAlignedStruct();
+        // Then
+        assertThat(struct.layout()).isEqualTo(Struct.Layout.ALIGNED);
+        assertThat(struct.m_1_signed08.offset()).isEqualTo(0);
+        assertThat(struct.m_2_signed64.offset()).isEqualTo(8);
+        assertThat(struct.m_3_signed16.offset()).isEqualTo(16);
+        assertThat(struct.m_4_utfString.offset()).isEqualTo(18);
+        assertThat(struct.m_5_float32.offset()).isEqualTo(24);
+        assertThat(struct.alignment()).isEqualTo(8);
+        assertThat(struct.size()).isEqualTo(32);
+    }
+
+    @Test
+    public void test_struct_that_packed_members_are_not_padded() {
+        // Given
+        MyPackedStruct struct = new MyPackedStruct();
+        // Then
+        assertThat(struct.layout()).isEqualTo(Struct.Layout.PACKED);
+        assertThat(struct.m_1_signed08.offset()).isEqualTo(0);
+        assertThat(struct.m_2_signed64.offset()).isEqualTo(1);
+        assertThat(struct.alignment()).isEqualTo(1);
+        assertThat(struct.size()).isEqualTo(9);
+    }
+
+    @Test
+    public void test_struct_that_aligned_inner_struct_is_moved_to_its_alignment() {
+        // Given
+        MyAlignedOuterStruct struct = new MyAlignedOuterStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        // When
+        struct.initByteBuffer(byteBuffer, 64);
+        // Then
+        assertThat(struct.m_1_signed08.offset()).isEqualTo(0);
+        assertThat(struct.m_2_innerStruct.m_1_signed08.offset()).isEqualTo(4);
+        assertThat(struct.m_2_innerStruct.m_2_signed32.offset()).isEqualTo(8);
+        assertThat(struct.m_2_innerStruct.size()).isEqualTo(8);
+        assertThat(struct.m_3_signed08.offset()).isEqualTo(12);
+        assertThat(struct.size()).isEqualTo(16);
+        assertThat(struct.m_2_innerStruct.m_2_signed32.absolutePosition()).isEqualTo(64 + 8);
+        // When
+        struct.m_2_innerStruct.m_2_signed32.set(4711);
+        // Then
+        assertThat(byteBuffer.getInt(64 + 8)).isEqualTo(4711);
+    }
+
+    @Test
+    public void test_union_that_aligned_size_is_padded() {
+        // Given
+        MyAlignedUnion union = new MyAlignedUnion();
+        // Then
+        assertThat(union.m_1_signed64.offset()).isEqualTo(0);
+        assertThat(union.m_2_utfString.offset()).isEqualTo(0);
+        assertThat(union.size()).isEqualTo(16);
+    }
+
+    static class MyAlignedInnerStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final Signed32 m_2_signed32 = new Signed32();
+
+        MyAlignedInnerStruct(final AbstractMember afterMember) {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED, afterMember);
+        }
+
+    }
+
+    static class MyAlignedOuterStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final MyAlignedInnerStruct m_2_innerStruct = inner(new MyAlignedInnerStruct(m_1_signed08));
+        final Signed8 m_3_signed08 = new Signed8();
+
+        MyAlignedOuterStruct() {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+        }
+
+    }
+
+    static class MyAlignedStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final Signed64 m_2_signed64 = new Signed64();
+        final Signed16 m_3_signed16 = new Signed16();
+        final Utf8String m_4_utfString = new Utf8String(4);
+        final Float32 m_5_float32 = new Float32();
+
+        MyAlignedStruct() {
+            super(Layout.ALIGNED);
+        }
+
+    }
+
+    static class MyAlignedUnion extends Union {
+        final Signed64 m_1_signed64 = new Signed64();
+        final Utf8String m_2_utfString = new Utf8String(8);
+
+        MyAlignedUnion() {
+            super(Layout.ALIGNED);
+        }
+
+    }
+
+    static class MyPackedStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final Signed64 m_2_signed64 = new Signed64();
+
+        MyPackedStruct() {
+            super(Layout.PACKED);
+        }
+
+    }
+
+}
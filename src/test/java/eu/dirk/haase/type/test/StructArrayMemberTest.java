@@ -0,0 +1,129 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.DynamicStruct;
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructCodec;
+import eu.dirk.haase.type.StructSchema;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructArrayMemberTest {
+
+    private static MyRecord newRecord(final ByteOrder byteOrder) {
+        MyRecord record = new MyRecord(byteOrder);
+        record.initByteBuffer(ByteBuffer.allocate(record.size() * 2).order(byteOrder), 0);
+        return record;
+    }
+
+    @Test
+    public void test_array_member_that_bulk_access_is_equal_to_element_access() {
+        for (ByteOrder byteOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            // Given
+            MyRecord record = newRecord(byteOrder);
+            int[] ints = {5, -3, 17, 0};
+            long[] longs = {Long.MIN_VALUE, 1L, Long.MAX_VALUE};
+            int[] intsRead = new int[4];
+            // When
+            record.m_2_signed32s.setAll(ints);
+            record.m_3_signed64s.setAll(longs);
+            record.m_2_signed32s.getAll(intsRead);
+            // Then
+            assertThat(intsRead).containsExactly(ints);
+            assertThat(record.m_2_signed32s.get(2)).isEqualTo(17);
+            assertThat(record.m_2_signed32s.sum()).isEqualTo(19L);
+            assertThat(record.m_2_signed32s.min()).isEqualTo(-3);
+            assertThat(record.m_2_signed32s.max()).isEqualTo(17);
+            assertThat(record.m_3_signed64s.get(0)).isEqualTo(Long.MIN_VALUE);
+            assertThat(record.m_3_signed64s.max()).isEqualTo(Long.MAX_VALUE);
+            assertThat(record.m_1_signed8.get()).isEqualTo((byte) 0);
+            assertThat(record.m_5_signed8.get()).isEqualTo((byte) 0);
+        }
+    }
+
+    @Test
+    public void test_array_member_that_views_follow_struct_position() {
+        // Given
+        MyRecord record = newRecord(ByteOrder.BIG_ENDIAN);
+        record.setStructAbsolutePosition(record.size());
+        // When
+        record.m_2_signed32s.fill(7);
+        IntBuffer view = record.m_2_signed32s.asIntBuffer();
+        view.put(1, 42);
+        // Then
+        assertThat(view.capacity()).isEqualTo(4);
+        assertThat(record.m_2_signed32s.get(1)).isEqualTo(42);
+        assertThat(record.getByteBuffer().getInt(record.size() + 1 + 4)).isEqualTo(42);
+        assertThat(record.m_2_signed32s.sum()).isEqualTo(7L + 42L + 7L + 7L);
+        assertThatThrownBy(() -> record.m_2_signed32s.get(4)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void test_array_member_that_unsigned_and_floating_elements_are_widened() {
+        // Given
+        MyRecord record = newRecord(ByteOrder.LITTLE_ENDIAN);
+        long[] unsignedRead = new long[2];
+        // When
+        record.m_4_float64s.setAll(new double[]{1.5d, -2.5d, 4.0d});
+        record.m_6_unsigned32s.set(0, 0xFFFF_FFFFL);
+        record.m_6_unsigned32s.set(1, 1L);
+        record.m_6_unsigned32s.getAll(unsignedRead);
+        record.m_7_unsigned8s.fill((short) 200);
+        // Then
+        assertThat(record.m_4_float64s.sum()).isEqualTo(3.0d);
+        assertThat(record.m_4_float64s.min()).isEqualTo(-2.5d);
+        assertThat(unsignedRead).containsExactly(0xFFFF_FFFFL, 1L);
+        assertThat(record.m_6_unsigned32s.sum()).isEqualTo(0x1_0000_0000L);
+        assertThat(record.m_7_unsigned8s.sum()).isEqualTo(600L);
+        assertThat(record.m_7_unsigned8s.max()).isEqualTo((short) 200);
+    }
+
+    @Test
+    public void test_array_member_that_schema_and_codec_see_plain_arrays() throws IOException {
+        // Given
+        MyRecord source = newRecord(ByteOrder.BIG_ENDIAN);
+        source.m_2_signed32s.setAll(new int[]{1, 2, 3, 4});
+        source.m_4_float64s.fill(0.5d);
+        StringBuilder json = new StringBuilder();
+        // When
+        new StructCodec(source).writeJson(json);
+        MyRecord target = newRecord(ByteOrder.BIG_ENDIAN);
+        new StructCodec(target).readJson(new StringReader(json.toString()));
+        StructSchema schema = StructSchema.of(source);
+        DynamicStruct dynamic = new DynamicStruct(schema);
+        // Then
+        assertThat(json.toString()).contains("\"m_2_signed32s\":[1,2,3,4]");
+        assertThat(target.m_2_signed32s.sum()).isEqualTo(10L);
+        assertThat(target.m_4_float64s.get(2)).isEqualTo(0.5d);
+        assertThat(schema.member("m_2_signed32s").type()).isEqualTo(StructSchema.MemberType.SIGNED32);
+        assertThat(schema.member("m_2_signed32s").dims()).containsExactly(4);
+        assertThat(schema.member("m_2_signed32s").length()).isEqualTo(4);
+        assertThat(dynamic.size()).isEqualTo(source.size());
+        assertThat(new StructCodec(source).columns()).contains("m_2_signed32s[3]");
+    }
+
+    static class MyRecord extends Struct {
+        final Signed8 m_1_signed8 = new Signed8();
+        final Signed32Array m_2_signed32s = new Signed32Array(4);
+        final Signed64Array m_3_signed64s = new Signed64Array(3);
+        final Float64Array m_4_float64s = new Float64Array(3);
+        final Signed8 m_5_signed8 = new Signed8();
+        final Unsigned32Array m_6_unsigned32s = new Unsigned32Array(2);
+        final Unsigned8Array m_7_unsigned8s = new Unsigned8Array(3);
+
+        MyRecord(final ByteOrder byteOrder) {
+            super(byteOrder);
+        }
+    }
+
+}
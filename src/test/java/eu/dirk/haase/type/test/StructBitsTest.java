@@ -0,0 +1,193 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.DynamicStruct;
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructCodec;
+import eu.dirk.haase.type.StructSchema;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructBitsTest {
+
+    @Test
+    public void test_struct_that_bit_members_share_storage_units() {
+        // Given
+        MyFlags flags = new MyFlags(ByteOrder.BIG_ENDIAN);
+        // When / Then
+        assertThat(flags.size()).isEqualTo(2 + 4 + 8);
+        assertThat(flags.m_1_bit.offset()).isEqualTo(0);
+        assertThat(flags.m_1_bit.length()).isEqualTo(2);
+        assertThat(flags.m_3_state.offset()).isEqualTo(0);
+        assertThat(flags.m_3_state.bitOffset()).isEqualTo(2);
+        assertThat(flags.m_4_counter.offset()).isEqualTo(0);
+        assertThat(flags.m_4_counter.bitOffset()).isEqualTo(5);
+        assertThat(flags.m_5_signed32.offset()).isEqualTo(2);
+        assertThat(flags.m_6_unsigned34.offset()).isEqualTo(6);
+        assertThat(flags.m_6_unsigned34.length()).isEqualTo(8);
+        assertThat(flags.m_7_unsigned30.offset()).isEqualTo(6);
+        assertThat(flags.m_7_unsigned30.bitOffset()).isEqualTo(34);
+    }
+
+    @Test
+    public void test_struct_that_bit_members_keep_their_neighbours() {
+        for (ByteOrder byteOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            // Given
+            MyFlags flags = new MyFlags(byteOrder);
+            flags.initByteBuffer(ByteBuffer.allocate(flags.size()).order(byteOrder), 0);
+            // When
+            flags.m_1_bit.set(true);
+            flags.m_3_state.set(State.DONE);
+            flags.m_4_counter.set(2047);
+            flags.m_5_signed32.set(-1);
+            flags.m_6_unsigned34.set(0x3_CDEF_0123L);
+            flags.m_7_unsigned30.set(0x3FFF_FFFFL);
+            flags.m_2_bit.negate();
+            flags.m_4_counter.increment();
+            flags.m_1_bit.set(false);
+            // Then
+            assertThat(flags.m_1_bit.get()).isFalse();
+            assertThat(flags.m_2_bit.get()).isTrue();
+            assertThat(flags.m_3_state.get()).isEqualTo(State.DONE);
+            assertThat(flags.m_4_counter.get()).isEqualTo(0L);
+            assertThat(flags.m_5_signed32.get()).isEqualTo(-1);
+            assertThat(flags.m_6_unsigned34.get()).isEqualTo(0x3_CDEF_0123L);
+            assertThat(flags.m_7_unsigned30.get()).isEqualTo(0x3FFF_FFFFL);
+        }
+    }
+
+    @Test
+    public void test_struct_that_big_endian_bits_are_allocated_from_the_left() {
+        // Given
+        MyFlags flags = new MyFlags(ByteOrder.BIG_ENDIAN);
+        ByteBuffer buffer = ByteBuffer.allocate(flags.size()).order(ByteOrder.BIG_ENDIAN);
+        flags.initByteBuffer(buffer, 0);
+        // When
+        flags.m_1_bit.set(true);
+        flags.m_3_state.set(State.RUNNING);
+        // Then
+        assertThat(buffer.getShort(0)).isEqualTo((short) 0b1001_0000_0000_0000);
+        assertThat(flags.m_3_state.code()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_struct_that_bit_members_are_formatted_and_parsed() throws IOException {
+        // Given
+        MyFlags source = new MyFlags(ByteOrder.LITTLE_ENDIAN);
+        source.initByteBuffer(ByteBuffer.allocate(source.size()).order(source.byteOrder()), 0);
+        source.m_2_bit.set(true);
+        source.m_3_state.setCode(7);
+        source.m_4_counter.set(12);
+        StringBuilder json = new StringBuilder();
+        // When
+        new StructCodec(source).writeJson(json);
+        MyFlags target = new MyFlags(ByteOrder.LITTLE_ENDIAN);
+        target.initByteBuffer(ByteBuffer.allocate(target.size()).order(target.byteOrder()), 0);
+        new StructCodec(target).readJson(new StringReader(json.toString()));
+        // Then
+        assertThat(json.toString()).contains("\"m_2_bit\":true").contains("\"m_3_state\":7")
+                .contains("\"m_4_counter\":12");
+        assertThat(target.m_2_bit.get()).isTrue();
+        assertThat(target.m_3_state.isKnown()).isFalse();
+        assertThat(target.m_4_counter.get()).isEqualTo(12L);
+    }
+
+    @Test
+    public void test_struct_that_schema_describes_bit_members() {
+        for (ByteOrder byteOrder : new ByteOrder[]{ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            // Given
+            MyFlags flags = new MyFlags(byteOrder);
+            ByteBuffer buffer = ByteBuffer.allocate(flags.size()).order(byteOrder);
+            flags.initByteBuffer(buffer, 0);
+            flags.m_2_bit.set(true);
+            flags.m_3_state.set(State.FAILED);
+            flags.m_4_counter.set(1234);
+            flags.m_7_unsigned30.set(0x2345_6789L);
+            // When
+            StructSchema schema = StructSchema.parse(StructSchema.of(flags).toString());
+            DynamicStruct view = new DynamicStruct(schema);
+            view.initByteBuffer(buffer, 0);
+            view.<Struct.Bit>member("m_1_bit").set(true);
+            // Then
+            assertThat(schema.members()).extracting(StructSchema.Member::name).containsExactly("m_1_bit",
+                    "m_2_bit", "m_3_state", "m_4_counter", "m_5_signed32", "m_6_unsigned34", "m_7_unsigned30");
+            assertThat(schema.member("m_4_counter").bitOffset()).isEqualTo(5);
+            assertThat(schema.member("m_4_counter").bitLength()).isEqualTo(11);
+            assertThat(schema.members()).isNotEqualTo(StructSchema.of(new MyOtherFlags(byteOrder)).members());
+            assertThat(view.size()).isEqualTo(flags.size());
+            assertThat(view.<Struct.Bit>member("m_2_bit").get()).isTrue();
+            assertThat(view.<Struct.UnsignedBits>member("m_3_state").get()).isEqualTo(State.FAILED.ordinal());
+            assertThat(view.<Struct.UnsignedBits>member("m_4_counter").get()).isEqualTo(1234L);
+            assertThat(view.<Struct.UnsignedBits>member("m_7_unsigned30").get()).isEqualTo(0x2345_6789L);
+            assertThat(flags.m_1_bit.get()).isTrue();
+            assertThat(flags.m_4_counter.get()).isEqualTo(1234L);
+        }
+    }
+
+    @Test
+    public void test_struct_that_arrays_of_bit_members_have_no_schema() {
+        // When / Then
+        assertThatThrownBy(() -> StructSchema.of(new MyBitArray())).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("m_1_bits");
+    }
+
+    @Test
+    public void test_struct_that_invalid_bit_lengths_are_rejected() {
+        // When / Then
+        assertThatThrownBy(MyTooWide::new).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(MyTooNarrow::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("2 bits");
+    }
+
+    enum State {IDLE, STARTING, RUNNING, DONE, FAILED}
+
+    static class MyFlags extends Struct {
+        final Bit m_1_bit = new Bit();
+        final Bit m_2_bit = new Bit();
+        final EnumBits<State> m_3_state = new EnumBits<>(3, State.class);
+        final UnsignedBits m_4_counter = new UnsignedBits(11);
+        final Signed32 m_5_signed32 = new Signed32();
+        final UnsignedBits m_6_unsigned34 = new UnsignedBits(34);
+        final UnsignedBits m_7_unsigned30 = new UnsignedBits(30);
+
+        MyFlags(final ByteOrder byteOrder) {
+            super(byteOrder);
+        }
+    }
+
+    static class MyBitArray extends Struct {
+        final Bit[] m_1_bits = {new Bit(), new Bit()};
+    }
+
+    static class MyOtherFlags extends Struct {
+        final Bit m_1_bit = new Bit();
+        final Bit m_2_bit = new Bit();
+        final EnumBits<State> m_3_state = new EnumBits<>(4, State.class);
+        final UnsignedBits m_4_counter = new UnsignedBits(10);
+        final Signed32 m_5_signed32 = new Signed32();
+        final UnsignedBits m_6_unsigned34 = new UnsignedBits(34);
+        final UnsignedBits m_7_unsigned30 = new UnsignedBits(30);
+
+        MyOtherFlags(final ByteOrder byteOrder) {
+            super(byteOrder);
+        }
+    }
+
+    static class MyTooNarrow extends Struct {
+        final EnumBits<State> m_1_state = new EnumBits<>(2, State.values());
+    }
+
+    static class MyTooWide extends Struct {
+        final UnsignedBits m_1_unsigned = new UnsignedBits(64);
+    }
+
+}
@@ -0,0 +1,83 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructByteOrderTest {
+
+    @Test
+    public void test_struct_that_buffers_of_the_other_order_are_read_in_place() {
+        // Given
+        ByteBuffer network = ByteBuffer.allocate(16).order(ByteOrder.BIG_ENDIAN);
+        network.putShort(0, (short) 0x1234).putInt(2, 0x01020304);
+        MyHeader header = new MyHeader(ByteOrder.LITTLE_ENDIAN);
+        // When
+        header.initByteBuffer(network, 0);
+        // Then
+        assertThat(header.m_1_unsigned16.get()).isEqualTo(0x3412);
+        assertThat(header.m_2_signed32.get()).isEqualTo(0x04030201);
+        assertThat(header.getByteBuffer().order()).isEqualTo(ByteOrder.LITTLE_ENDIAN);
+        assertThat(network.order()).isEqualTo(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Test
+    public void test_struct_that_writes_through_a_view_reach_the_buffer() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16).order(ByteOrder.nativeOrder());
+        MyHeader header = new MyHeader(ByteOrder.BIG_ENDIAN);
+        header.initByteBuffer(buffer, 4);
+        // When
+        header.m_2_signed32.set(0x0A0B0C0D);
+        // Then
+        assertThat(buffer.order(ByteOrder.BIG_ENDIAN).getInt(4 + 2)).isEqualTo(0x0A0B0C0D);
+    }
+
+    @Test
+    public void test_struct_that_inner_structs_may_have_their_own_order() {
+        // Given
+        ByteBuffer buffer = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        MyFrame frame = new MyFrame();
+        frame.initByteBuffer(buffer, 0);
+        // When
+        frame.m_1_length.set(6);
+        frame.m_2_header.m_1_unsigned16.set(0x1234);
+        frame.m_2_header.m_2_signed32.set(-2);
+        // Then
+        assertThat(buffer.getShort(0)).isEqualTo((short) 6);
+        assertThat(buffer.get(2)).isEqualTo((byte) 0x12);
+        assertThat(buffer.get(3)).isEqualTo((byte) 0x34);
+        assertThat(buffer.order(ByteOrder.BIG_ENDIAN).getInt(4)).isEqualTo(-2);
+        assertThat(frame.m_2_header.m_1_unsigned16.get()).isEqualTo(0x1234);
+    }
+
+    static class MyFrame extends Struct {
+        final Unsigned16 m_1_length = new Unsigned16();
+        final MyHeader m_2_header = inner(new MyHeader(ByteOrder.BIG_ENDIAN, m_1_length));
+
+        MyFrame() {
+            super(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    static class MyHeader extends Struct {
+        final Unsigned16 m_1_unsigned16 = new Unsigned16();
+        final Signed32 m_2_signed32 = new Signed32();
+
+        MyHeader(final ByteOrder byteOrder) {
+            super(byteOrder);
+        }
+
+        MyHeader(final ByteOrder byteOrder, final AbstractMember afterMember) {
+            super(byteOrder, afterMember);
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructChangeTrackingTest {
+
+    private static MyStruct newStruct(final int capacity) {
+        MyStruct struct = new MyStruct();
+        struct.initByteBuffer(ByteBuffer.allocate(capacity).order(struct.byteOrder()), 0);
+        return struct;
+    }
+
+    @Test
+    public void test_struct_that_setters_mark_members_as_changed() {
+        // Given
+        MyStruct struct = newStruct(256);
+        struct.trackChanges();
+        // When
+        struct.m_1_signed32.set(4711);
+        struct.m_3_float64.add(1.5d);
+        struct.m_4_inner.m_2_utf8String.set("abc");
+        // Then
+        assertThat(struct.isChanged()).isTrue();
+        assertThat(struct.m_1_signed32.isChanged()).isTrue();
+        assertThat(struct.m_2_signed64.isChanged()).isFalse();
+        assertThat(struct.m_3_float64.isChanged()).isTrue();
+        assertThat(struct.m_4_inner.m_1_signed16.isChanged()).isFalse();
+        assertThat(struct.m_4_inner.m_2_utf8String.isChanged()).isTrue();
+        // When
+        struct.clearChanges();
+        // Then
+        assertThat(struct.isChanged()).isFalse();
+        assertThat(struct.m_1_signed32.isChanged()).isFalse();
+    }
+
+    @Test
+    public void test_struct_that_changes_are_applied_to_replica() {
+        // Given
+        MyStruct source = newStruct(256);
+        source.m_2_signed64.set(-1L);
+        MyStruct replica = newStruct(256);
+        replica.m_2_signed64.set(-1L);
+        source.trackChanges();
+        replica.trackChanges();
+        ByteBuffer changes = ByteBuffer.allocate(256);
+        // When
+        source.m_1_signed32.set(4711);
+        source.m_3_float64.set(2.5d);
+        source.m_4_inner.m_2_utf8String.set("abc");
+        int byteCount = source.writeChanges(changes);
+        changes.flip();
+        replica.applyChanges(changes);
+        // Then
+        assertThat(byteCount).isEqualTo(4 + (3 * 8) + 4 + 8 + 9);
+        assertThat(changes.hasRemaining()).isFalse();
+        assertThat(replica.m_1_signed32.get()).isEqualTo(4711);
+        assertThat(replica.m_2_signed64.get()).isEqualTo(-1L);
+        assertThat(replica.m_3_float64.get()).isEqualTo(2.5d);
+        assertThat(replica.m_4_inner.m_2_utf8String.get().toString()).isEqualTo("abc");
+        assertThat(replica.m_1_signed32.isChanged()).isTrue();
+        assertThat(replica.m_2_signed64.isChanged()).isFalse();
+    }
+
+    @Test
+    public void test_struct_that_changes_include_variable_payload() {
+        // Given
+        MyStruct source = newStruct(256);
+        MyStruct replica = newStruct(256);
+        source.trackChanges();
+        ByteBuffer changes = ByteBuffer.allocate(256);
+        // When
+        source.m_5_varString.set("variable");
+        source.m_6_varGroup.setCount(2);
+        source.clearChanges();
+        source.m_6_varGroup.get(1).m_1_signed16.set((short) 11);
+        source.writeChanges(changes);
+        changes.flip();
+        // Then
+        assertThat(source.m_5_varString.isChanged()).isFalse();
+        assertThat(source.m_6_varGroup.isChanged()).isTrue();
+        // When
+        source.m_5_varString.set("changed!");
+        changes.clear();
+        source.writeChanges(changes);
+        changes.flip();
+        replica.applyChanges(changes);
+        // Then
+        assertThat(replica.m_5_varString.get().toString()).isEqualTo("changed!");
+        assertThat(replica.m_6_varGroup.count()).isEqualTo(2);
+        assertThat(replica.m_6_varGroup.get(1).m_1_signed16.get()).isEqualTo((short) 11);
+    }
+
+    @Test
+    public void test_struct_that_untracked_changes_are_not_recorded() {
+        // Given
+        MyStruct struct = newStruct(256);
+        // When
+        struct.m_1_signed32.set(1);
+        // Then
+        assertThat(struct.isChanged()).isFalse();
+        assertThat(struct.m_1_signed32.isChanged()).isFalse();
+        assertThatThrownBy(() -> struct.writeChanges(ByteBuffer.allocate(64))).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> struct.m_4_inner.trackChanges()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    static class MyElement extends Struct {
+        final Signed16 m_1_signed16 = new Signed16();
+
+        MyElement() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyInner extends Struct {
+        final Signed16 m_1_signed16 = new Signed16();
+        final Utf8String m_2_utf8String = new Utf8String(8);
+
+        MyInner(final AbstractMember afterMember) {
+            super(ByteOrder.BIG_ENDIAN, afterMember);
+        }
+    }
+
+    static class MyStruct extends Struct {
+        final Signed32 m_1_signed32 = new Signed32();
+        final Signed64 m_2_signed64 = new Signed64();
+        final Float64 m_3_float64 = new Float64();
+        final MyInner m_4_inner = inner(new MyInner(m_3_float64));
+        final VarUtf8String m_5_varString = new VarUtf8String();
+        final VarGroup<MyElement> m_6_varGroup = new VarGroup<>(new MyElement());
+
+        MyStruct() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+}
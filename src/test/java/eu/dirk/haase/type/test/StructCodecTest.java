@@ -0,0 +1,199 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructCodec;
+import eu.dirk.haase.type.StructFormatter;
+import eu.dirk.haase.type.UTF8StreamReader;
+import eu.dirk.haase.type.UTF8StreamWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructCodecTest {
+
+    private static void fill(final MyRecord record, final int i) {
+        record.gender.set(i % 2 == 0 ? Gender.MALE : Gender.FEMALE);
+        record.name.set("Na,me \"" + i + "\" \u00e4\u20ac");
+        record.active.set(i % 3 == 0);
+        record.birth.year.set(1990 + i);
+        record.birth.day.set((short) (i + 1));
+        record.grades[0].set(1.25f * i);
+        record.grades[1].set(-0.1f);
+        record.id.set(Long.MAX_VALUE - i);
+        record.ratio.set(1.0d / (i + 3));
+    }
+
+    @Test
+    public void test_codec_that_csv_roundtrip_is_equal() throws IOException {
+        // Given
+        MyRecord source = new MyRecord();
+        ByteBuffer sourceBuffer = ByteBuffer.allocate(source.size() * 3);
+        source.initByteBuffer(sourceBuffer.order(source.byteOrder()), 0);
+        StructCodec encoder = new StructCodec(source);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UTF8StreamWriter writer = new UTF8StreamWriter(bytes);
+        // When
+        encoder.writeCsvHeader(writer);
+        for (int i = 0; 3 > i; ++i) {
+            source.setStructAbsolutePosition(i * source.size());
+            fill(source, i);
+            encoder.writeCsv(writer);
+        }
+        writer.flush();
+        MyRecord target = new MyRecord();
+        ByteBuffer targetBuffer = ByteBuffer.allocate(target.size() * 3);
+        target.initByteBuffer(targetBuffer.order(target.byteOrder()), 0);
+        StructCodec decoder = new StructCodec(target);
+        UTF8StreamReader reader = new UTF8StreamReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertThat(decoder.readCsvHeader(reader)).isTrue();
+        int count = 0;
+        while (true) {
+            target.setStructAbsolutePosition(count * target.size());
+            if (!decoder.readCsv(reader)) {
+                break;
+            }
+            ++count;
+        }
+        // Then
+        assertThat(encoder.columns()).containsExactly("gender", "name", "active", "birth.year", "birth.day",
+                "grades[0]", "grades[1]", "id", "ratio");
+        assertThat(count).isEqualTo(3);
+        assertThat(targetBuffer.array()).isEqualTo(sourceBuffer.array());
+    }
+
+    @Test
+    public void test_codec_that_json_roundtrip_is_equal() throws IOException {
+        // Given
+        MyRecord source = new MyRecord();
+        source.initByteBuffer(ByteBuffer.allocate(source.size()).order(source.byteOrder()), 0);
+        fill(source, 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UTF8StreamWriter writer = new UTF8StreamWriter(bytes);
+        // When
+        new StructCodec(source).writeJson(writer);
+        writer.flush();
+        MyRecord target = new MyRecord();
+        target.initByteBuffer(ByteBuffer.allocate(target.size()).order(target.byteOrder()), 0);
+        StructCodec decoder = new StructCodec(target);
+        UTF8StreamReader reader = new UTF8StreamReader(new ByteArrayInputStream(bytes.toByteArray()));
+        // Then
+        assertThat(decoder.readJson(reader)).isTrue();
+        assertThat(decoder.readJson(reader)).isFalse();
+        StructFormatter formatter = new StructFormatter(StructFormatter.Format.JSON);
+        assertThat(formatter.format(target)).isEqualTo(formatter.format(source));
+        assertThat(new String(bytes.toByteArray(), StandardCharsets.UTF_8)).contains("\"Na,me \\\"7\\\" \u00e4\u20ac\"");
+    }
+
+    @Test
+    public void test_codec_that_json_reads_variable_group_and_skips_unknown_names() throws IOException {
+        // Given
+        MyGroupRecord target = new MyGroupRecord();
+        target.initByteBuffer(ByteBuffer.allocate(256).order(target.byteOrder()), 0);
+        StructCodec decoder = new StructCodec(target);
+        String json = "{ \"unknown\": {\"a\": [1, \"]\"]}, \"id\": 42,"
+                + " \"items\": [{\"value\": 1.5e2}, {\"value\": -2, \"label\": \"x\\ny\"}] }\n";
+        // When
+        boolean read = decoder.readJson(new StringReader(json));
+        // Then
+        assertThat(read).isTrue();
+        assertThat(target.id.get()).isEqualTo(42);
+        assertThat(target.items.count()).isEqualTo(2);
+        assertThat(target.items.get(0).value.get()).isEqualTo(150.0d);
+        assertThat(target.items.get(1).value.get()).isEqualTo(-2.0d);
+        assertThat(target.items.get(1).label.get().toString()).isEqualTo("x\ny");
+    }
+
+    @Test
+    public void test_codec_that_json_reads_large_variable_group_into_tight_buffer() throws IOException {
+        // Given: room for exactly 21 items.
+        MyGroupRecord target = new MyGroupRecord();
+        target.initByteBuffer(ByteBuffer.allocate(target.size() + (21 * 16)).order(target.byteOrder()), 0);
+        StringBuilder json = new StringBuilder("{\"items\": [");
+        for (int i = 0; i < 21; ++i) {
+            json.append(i == 0 ? "" : ", ").append("{\"value\": ").append(i).append('}');
+        }
+        json.append("]}\n");
+        // When
+        boolean read = new StructCodec(target).readJson(new StringReader(json.toString()));
+        // Then
+        assertThat(read).isTrue();
+        assertThat(target.items.count()).isEqualTo(21);
+        assertThat(target.items.byteLength()).isEqualTo(21 * 16);
+        assertThat(target.items.get(20).value.get()).isEqualTo(20.0d);
+    }
+
+    @Test
+    public void test_codec_that_malformed_records_are_rejected() {
+        // Given
+        MyRecord target = new MyRecord();
+        target.initByteBuffer(ByteBuffer.allocate(target.size()).order(target.byteOrder()), 0);
+        StructCodec decoder = new StructCodec(target);
+        // When / Then
+        assertThatThrownBy(() -> decoder.readJson(new StringReader("{\"id\": 12x}")))
+                .isInstanceOf(IOException.class).hasMessageContaining("12x");
+        assertThatThrownBy(() -> decoder.readJson(new StringReader("{\"gender\": \"OTHER\"}")))
+                .isInstanceOf(IOException.class).hasMessageContaining("OTHER");
+        assertThatThrownBy(() -> decoder.readCsv(new StringReader("MALE,abc\n")))
+                .isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> decoder.readJson(new StringReader("{\"ratio\": 1\u0662}")))
+                .isInstanceOf(IOException.class).hasMessageContaining("Invalid number");
+        assertThatThrownBy(() -> decoder.readJson(new StringReader("{\"ratio\": \uFF13.5}")))
+                .isInstanceOf(IOException.class);
+    }
+
+    enum Gender {MALE, FEMALE}
+
+    static class MyDate extends Struct {
+        final Unsigned16 year = new Unsigned16();
+        final Unsigned8 day = new Unsigned8();
+
+        MyDate(final AbstractMember afterMember) {
+            super(ByteOrder.BIG_ENDIAN, afterMember);
+        }
+    }
+
+    static class MyGroupRecord extends Struct {
+        final Signed32 id = new Signed32();
+        final VarGroup<MyItem> items = new VarGroup<>(new MyItem());
+
+        MyGroupRecord() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyItem extends Struct {
+        final Float64 value = new Float64();
+        final Utf8String label = new Utf8String(7);
+
+        MyItem() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyRecord extends Struct {
+        final Enum8<Gender> gender = new Enum8<>(Gender.values());
+        final Utf8String name = new Utf8String(24);
+        final Bool8 active = new Bool8();
+        final MyDate birth = inner(new MyDate(active));
+        final Float32[] grades = array(new Float32[2]);
+        final Signed64 id = new Signed64();
+        final Float64 ratio = new Float64();
+
+        MyRecord() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+}
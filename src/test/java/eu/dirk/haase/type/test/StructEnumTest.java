@@ -0,0 +1,180 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructCodec;
+import eu.dirk.haase.type.StructFormatter;
+import eu.dirk.haase.type.WireCode;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructEnumTest {
+
+    private static MyRecord newRecord() {
+        MyRecord record = new MyRecord();
+        record.initByteBuffer(ByteBuffer.allocate(record.size()).order(record.byteOrder()), 0);
+        return record;
+    }
+
+    @Test
+    public void test_enum_that_wire_codes_are_stored() {
+        // Given
+        MyRecord record = newRecord();
+        // When
+        record.side.set(Side.SELL);
+        record.status.set(Status.REJECTED);
+        record.color.set(Color.BLUE);
+        // Then
+        assertThat(record.side.code()).isEqualTo('S');
+        assertThat(record.status.code()).isEqualTo(1_000_000);
+        assertThat(record.color.code()).isEqualTo(2L);
+        assertThat(record.side.get()).isEqualTo(Side.SELL);
+        assertThat(record.status.get()).isEqualTo(Status.REJECTED);
+        assertThat(record.color.get()).isEqualTo(Color.BLUE);
+        // When
+        record.status.setCode(-7);
+        // Then
+        assertThat(record.status.get()).isEqualTo(Status.NEW);
+    }
+
+    @Test
+    public void test_enum_that_unknown_codes_are_tolerated() {
+        // Given
+        MyRecord record = newRecord();
+        // When
+        record.side.setCode(0xFF);
+        record.status.setCode(4711);
+        record.color.setCode(Long.MAX_VALUE);
+        // Then
+        assertThat(record.side.code()).isEqualTo(0xFF);
+        assertThat(record.side.isKnown()).isFalse();
+        assertThat(record.side.get()).isNull();
+        assertThat(record.status.isKnown()).isFalse();
+        assertThat(record.status.get()).isEqualTo(Status.UNKNOWN);
+        assertThat(record.color.get()).isNull();
+    }
+
+    @Test
+    public void test_enum_that_codec_keeps_unknown_codes() throws IOException {
+        // Given
+        MyRecord source = newRecord();
+        source.side.setCode(0xFF);
+        source.status.set(Status.FILLED);
+        source.color.set(Color.RED);
+        StringBuilder json = new StringBuilder();
+        // When
+        new StructCodec(source).writeJson(json);
+        MyRecord target = newRecord();
+        new StructCodec(target).readJson(new StringReader(json.toString()));
+        // Then
+        assertThat(json.toString()).contains("255").contains("\"FILLED\"");
+        assertThat(target.side.code()).isEqualTo(0xFF);
+        assertThat(target.status.get()).isEqualTo(Status.FILLED);
+        assertThat(target.color.get()).isEqualTo(Color.RED);
+        assertThat(new StructFormatter(StructFormatter.Format.JSON).format(target)).isEqualTo(json.toString().trim());
+    }
+
+    @Test
+    public void test_enum_that_duplicate_wire_codes_are_rejected() {
+        // When / Then
+        assertThatThrownBy(MyDuplicateRecord::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Duplicate wire code 1");
+    }
+
+    @Test
+    public void test_enum_that_codes_out_of_range_are_rejected() {
+        // When / Then
+        assertThatThrownBy(MyWideRecord::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("8 bits");
+        assertThatThrownBy(MyNegativeRecord::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("16 bits");
+    }
+
+    enum Color {RED, GREEN, BLUE}
+
+    enum Duplicate implements WireCode {
+        ONE, UNO;
+
+        @Override
+        public int wireCode() {
+            return 1;
+        }
+    }
+
+    enum Side implements WireCode {
+        BUY('B'), SELL('S');
+
+        private final int code;
+
+        Side(final int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int wireCode() {
+            return this.code;
+        }
+    }
+
+    enum Status implements WireCode {
+        UNKNOWN(0), NEW(-7), FILLED(65_536), REJECTED(1_000_000);
+
+        private final int code;
+
+        Status(final int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int wireCode() {
+            return this.code;
+        }
+    }
+
+    enum Wide implements WireCode {
+        SMALL(1), LARGE(300);
+
+        private final int code;
+
+        Wide(final int code) {
+            this.code = code;
+        }
+
+        @Override
+        public int wireCode() {
+            return this.code;
+        }
+    }
+
+    static class MyDuplicateRecord extends Struct {
+        final Enum8<Duplicate> duplicate = new Enum8<>(Duplicate.class);
+    }
+
+    static class MyNegativeRecord extends Struct {
+        final Enum16<Status> status = new Enum16<>(Status.class);
+    }
+
+    static class MyWideRecord extends Struct {
+        final Enum8<Wide> wide = new Enum8<>(Wide.values());
+    }
+
+    static class MyRecord extends Struct {
+        final Enum8<Side> side = new Enum8<>(Side.values());
+        final Enum32<Status> status = new Enum32<>(Status.class, Status.UNKNOWN);
+        final Enum64<Color> color = new Enum64<>(Color.class);
+
+        MyRecord() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+}
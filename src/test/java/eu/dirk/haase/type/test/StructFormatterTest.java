@@ -0,0 +1,131 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.DynamicStruct;
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructFormatter;
+import eu.dirk.haase.type.UTF8ByteBufferWriter;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructFormatterTest {
+
+    private static MyStudent newStudent(final ByteBuffer byteBuffer) {
+        MyStudent student = new MyStudent();
+        byteBuffer.order(student.byteOrder());
+        student.initByteBuffer(byteBuffer, 0);
+        student.gender.set(Gender.FEMALE);
+        student.name.set("J\"ane");
+        student.birth.year.set(1999);
+        student.birth.day.set((short) 31);
+        student.grades[0].set(1.0f);
+        student.grades[1].set(2.5f);
+        student.grades[2].set(-3.0f);
+        student.matrix[1][2].set((short) -12);
+        student.id.set(Long.MIN_VALUE);
+        student.tags.set(new byte[]{1, (byte) 0xab});
+        return student;
+    }
+
+    @Test
+    public void test_formatter_that_json_contains_all_members() {
+        // Given
+        MyStudent student = newStudent(ByteBuffer.allocate(256));
+        StructFormatter formatter = new StructFormatter(StructFormatter.Format.JSON);
+        // When
+        String json = formatter.format(student);
+        // Then
+        assertThat(json).isEqualTo("{\"gender\":\"FEMALE\",\"name\":\"J\\\"ane\","
+                + "\"birth\":{\"year\":1999,\"month\":0,\"day\":31},"
+                + "\"grades\":[1.0,2.5,-3.0],\"matrix\":[[0,0,0],[0,0,-12]],"
+                + "\"id\":-9223372036854775808,\"tags\":\"01ab\"}");
+    }
+
+    @Test
+    public void test_formatter_that_text_contains_all_members() {
+        // Given
+        MyStudent student = newStudent(ByteBuffer.allocate(256));
+        StructFormatter formatter = new StructFormatter(StructFormatter.Format.TEXT);
+        // When
+        String text = formatter.format(student);
+        // Then
+        assertThat(text).isEqualTo("MyStudent {\n"
+                + "   gender=FEMALE\n"
+                + "   name=J\"ane\n"
+                + "   birth=MyDate {\n"
+                + "      year=1999\n"
+                + "      month=0\n"
+                + "      day=31\n"
+                + "   }\n"
+                + "   grades=[1.0, 2.5, -3.0]\n"
+                + "   matrix=[[0, 0, 0], [0, 0, -12]]\n"
+                + "   id=-9223372036854775808\n"
+                + "   tags=01ab\n"
+                + "}");
+    }
+
+    @Test
+    public void test_formatter_that_layout_contains_all_positions() {
+        // Given
+        MyStudent student = new MyStudent();
+        student.initByteBuffer(ByteBuffer.allocate(256).order(student.byteOrder()), 10);
+        StructFormatter formatter = new StructFormatter(StructFormatter.Format.LAYOUT);
+        // When
+        String layout = formatter.format(student);
+        // Then
+        assertThat(layout).contains("   grades: [24, 28, 32]\n");
+        assertThat(layout).contains("   matrix: [[36, 38, 40], [42, 44, 46]]\n");
+        assertThat(layout).contains("   birth: MyDate { 20\n      year: 20\n");
+    }
+
+    @Test
+    public void test_formatter_that_writes_dynamic_struct_into_utf8_buffer() throws Exception {
+        // Given
+        ByteBuffer byteBuffer = ByteBuffer.allocate(256);
+        MyStudent student = newStudent(byteBuffer);
+        DynamicStruct view = new DynamicStruct(student.schema());
+        view.initByteBuffer(byteBuffer, 0);
+        ByteBuffer out = ByteBuffer.allocate(512);
+        StructFormatter formatter = new StructFormatter(StructFormatter.Format.JSON);
+        // When
+        formatter.format(view, new UTF8ByteBufferWriter(out));
+        // Then
+        String json = new String(out.array(), 0, out.position(), StandardCharsets.UTF_8);
+        assertThat(json).startsWith("{\"gender\":1,\"name\":\"J\\\"ane\",\"birth\":{\"year\":1999,");
+        assertThat(json).endsWith("\"tags\":\"01ab\"}");
+    }
+
+    enum Gender {MALE, FEMALE}
+
+    public static class MyDate extends Struct {
+        final Unsigned16 year = new Unsigned16();
+        final Unsigned8 month = new Unsigned8();
+        final Unsigned8 day = new Unsigned8();
+
+        MyDate(final AbstractMember afterMember) {
+            super(ByteOrder.BIG_ENDIAN, afterMember);
+        }
+    }
+
+    static class MyStudent extends Struct {
+        final Enum8<Gender> gender = new Enum8<>(Gender.values());
+        final Utf8String name = new Utf8String(8);
+        final MyDate birth = inner(new MyDate(name));
+        final Float32[] grades = array(new Float32[3]);
+        final Signed16[][] matrix = array(new Signed16[2][3]);
+        final Signed64 id = new Signed64();
+        final VarBytes tags = new VarBytes();
+
+        MyStudent() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+}
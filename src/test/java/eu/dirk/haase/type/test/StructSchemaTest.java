@@ -0,0 +1,159 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.DynamicStruct;
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.StructSchema;
+import eu.dirk.haase.type.Union;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructSchemaTest {
+
+    @Test
+    public void test_schema_that_describes_struct_layout() {
+        // Given
+        MyStudent student = new MyStudent();
+        // When
+        StructSchema schema = student.schema();
+        // Then
+        assertThat(schema.name()).isEqualTo(MyStudent.class.getName());
+        assertThat(schema.size()).isEqualTo(student.size());
+        assertThat(schema.byteOrder()).isEqualTo(ByteOrder.BIG_ENDIAN);
+        assertThat(schema.layout()).isEqualTo(Struct.Layout.ALIGNED);
+        assertThat(schema.members()).extracting(StructSchema.Member::name)
+                .containsExactly("gender", "name", "birth", "grades", "matrix", "id");
+        assertThat(schema.member("gender").type()).isEqualTo(StructSchema.MemberType.ENUM8);
+        assertThat(schema.member("name").length()).isEqualTo(9);
+        assertThat(schema.member("birth").type()).isEqualTo(StructSchema.MemberType.STRUCT);
+        assertThat(schema.member("birth").offset()).isEqualTo(student.birth.year.offset());
+        assertThat(schema.member("birth").inner().member("day").offset()).isEqualTo(3);
+        assertThat(schema.member("grades").dims()).containsExactly(3);
+        assertThat(schema.member("grades").offset()).isEqualTo(student.grades[0].offset());
+        assertThat(schema.member("matrix").dims()).containsExactly(2, 3);
+        assertThat(schema.member("id").offset()).isEqualTo(student.id.offset());
+    }
+
+    @Test
+    public void test_schema_that_text_form_roundtrip_is_equal() {
+        // Given
+        StructSchema schema = new MyStudent().schema();
+        // When
+        StructSchema parsed = StructSchema.parse(schema.toString());
+        // Then
+        assertThat(parsed).isEqualTo(schema);
+        assertThat(parsed.toString()).isEqualTo(schema.toString());
+    }
+
+    @Test
+    public void test_schema_that_java_serialization_roundtrip_is_equal() throws Exception {
+        // Given
+        StructSchema schema = new MyNumber().schema();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        // When
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(schema);
+        }
+        StructSchema read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (StructSchema) in.readObject();
+        }
+        // Then
+        assertThat(read).isEqualTo(schema);
+        assertThat(read.isUnion()).isTrue();
+    }
+
+    @Test
+    public void test_dynamic_struct_that_reads_data_written_by_compiled_struct() {
+        // Given
+        MyStudent student = new MyStudent();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(student.byteOrder());
+        student.initByteBuffer(byteBuffer, 16);
+        student.gender.set(Gender.FEMALE);
+        student.name.set("Jane");
+        student.birth.year.set(1999);
+        student.birth.day.set((short) 31);
+        student.grades[2].set(1.5f);
+        student.matrix[1][2].set((short) 12);
+        student.id.set(4711L);
+        // When
+        DynamicStruct view = new DynamicStruct(StructSchema.parse(student.schema().toString()));
+        view.initByteBuffer(byteBuffer, 16);
+        // Then
+        assertThat(view.size()).isEqualTo(student.size());
+        assertThat(view.<Struct.Signed8>member("gender").get()).isEqualTo((byte) 1);
+        assertThat(view.<Struct.Utf8String>member("name").get().toString()).isEqualTo("Jane");
+        DynamicStruct birth = view.member("birth");
+        assertThat(birth.<Struct.Unsigned16>member("year").get()).isEqualTo(1999);
+        assertThat(birth.<Struct.Unsigned8>member("day").get()).isEqualTo((short) 31);
+        Struct.Float32[] grades = view.member("grades");
+        assertThat(grades[2].get()).isEqualTo(1.5f);
+        Struct.Signed16[][] matrix = view.member("matrix");
+        assertThat(matrix[1][2].get()).isEqualTo((short) 12);
+        assertThat(view.<Struct.Signed64>member("id").get()).isEqualTo(4711L);
+        // When
+        view.<Struct.Signed64>member("id").set(42L);
+        // Then
+        assertThat(student.id.get()).isEqualTo(42L);
+    }
+
+    @Test
+    public void test_dynamic_struct_that_union_members_overlap() {
+        // Given
+        MyNumber number = new MyNumber();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(64);
+        byteBuffer.order(number.byteOrder());
+        number.initByteBuffer(byteBuffer, 0);
+        number.asInt.set(0x41424344);
+        // When
+        DynamicStruct view = new DynamicStruct(number.schema());
+        view.initByteBuffer(byteBuffer, 0);
+        // Then
+        assertThat(view.size()).isEqualTo(number.size());
+        assertThat(view.<Struct.Signed32>member("asInt").get()).isEqualTo(0x41424344);
+        assertThat(view.<Struct.Float32>member("asFloat").get()).isEqualTo(number.asFloat.get());
+    }
+
+    enum Gender {MALE, FEMALE}
+
+    public static class MyDate extends Struct {
+        final Unsigned16 year = new Unsigned16();
+        final Unsigned8 month = new Unsigned8();
+        final Unsigned8 day = new Unsigned8();
+
+        MyDate(final AbstractMember afterMember) {
+            super(ByteOrder.BIG_ENDIAN, Layout.ALIGNED, afterMember);
+        }
+    }
+
+    static class MyNumber extends Union {
+        final Signed32 asInt = new Signed32();
+        final Float32 asFloat = new Float32();
+        final Utf8String asString = new Utf8String(12);
+    }
+
+    static class MyStudent extends Struct {
+        final Enum8<Gender> gender = new Enum8<>(Gender.values());
+        final Utf8String name = new Utf8String(8);
+        final MyDate birth = inner(new MyDate(name));
+        final Float32[] grades = array(new Float32[3]);
+        final Signed16[][] matrix = array(new Signed16[2][3]);
+        final Signed64 id = new Signed64();
+
+        MyStudent() {
+            super(ByteOrder.BIG_ENDIAN, Layout.ALIGNED);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructSeqLockTest {
+
+    @Test
+    public void test_struct_that_write_increments_version_by_two() {
+        // Given
+        MyQuote quote = new MyQuote();
+        quote.initByteBuffer(ByteBuffer.allocate(quote.size()).order(quote.byteOrder()), 0);
+        long[] read = new long[2];
+        // When
+        quote.write((MyQuote q) -> {
+            q.m_2_bid.set(10L);
+            q.m_3_ask.set(11L);
+        });
+        quote.read((MyQuote q) -> {
+            read[0] = q.m_2_bid.get();
+            read[1] = q.m_3_ask.get();
+        });
+        // Then
+        assertThat(quote.m_1_lock.get()).isEqualTo(2L);
+        assertThat(read).containsExactly(10L, 11L);
+    }
+
+    @Test
+    public void test_struct_that_reads_are_consistent_while_writer_is_running() throws Exception {
+        // Given
+        MyQuote writerQuote = new MyQuote();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(writerQuote.size()).order(writerQuote.byteOrder());
+        writerQuote.initByteBuffer(buffer, 0);
+        MyQuote readerQuote = new MyQuote();
+        readerQuote.initByteBuffer(buffer.duplicate().order(readerQuote.byteOrder()), 0);
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            for (long i = 1; running.get(); ++i) {
+                final long value = i;
+                writerQuote.write((MyQuote q) -> {
+                    q.m_2_bid.set(value);
+                    q.m_3_ask.set(-value);
+                });
+            }
+        });
+        long[] read = new long[2];
+        // When
+        writer.start();
+        try {
+            for (int i = 0; 100_000 > i; ++i) {
+                long version;
+                do {
+                    version = readerQuote.m_1_lock.beginRead();
+                    read[0] = readerQuote.m_2_bid.get();
+                    read[1] = readerQuote.m_3_ask.get();
+                } while (!readerQuote.m_1_lock.validate(version));
+                // Then
+                assertThat(version & 1L).isEqualTo(0L);
+                assertThat(read[1]).isEqualTo(-read[0]);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void test_struct_that_failed_writer_releases_lock() {
+        // Given
+        MyQuote quote = new MyQuote();
+        quote.initByteBuffer(ByteBuffer.allocate(quote.size()).order(quote.byteOrder()), 0);
+        // When
+        assertThatThrownBy(() -> quote.write((MyQuote q) -> {
+            throw new IllegalArgumentException("failed");
+        })).isInstanceOf(IllegalArgumentException.class);
+        // Then
+        assertThat(quote.m_1_lock.get()).isEqualTo(2L);
+        assertThat(quote.m_1_lock.validate(quote.m_1_lock.beginRead())).isTrue();
+    }
+
+    @Test
+    public void test_struct_that_requires_exactly_one_seq_lock() {
+        // Given
+        MyPlain plain = new MyPlain();
+        plain.initByteBuffer(ByteBuffer.allocate(plain.size()).order(plain.byteOrder()), 0);
+        // When / Then
+        assertThatThrownBy(() -> plain.read((MyPlain p) -> p.m_1_signed64.get()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(MyTwoLocks::new).isInstanceOf(IllegalStateException.class);
+    }
+
+    static class MyPlain extends Struct {
+        final Signed64 m_1_signed64 = new Signed64();
+    }
+
+    static class MyQuote extends Struct {
+        final SeqLock m_1_lock = new SeqLock();
+        final Signed64 m_2_bid = new Signed64();
+        final Signed64 m_3_ask = new Signed64();
+
+        MyQuote() {
+            super(ByteOrder.nativeOrder());
+        }
+    }
+
+    static class MyTwoLocks extends Struct {
+        final SeqLock m_1_lock = new SeqLock();
+        final SeqLock m_2_lock = new SeqLock();
+    }
+
+}
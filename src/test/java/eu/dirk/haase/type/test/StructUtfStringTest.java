@@ -1,6 +1,7 @@
 package eu.dirk.haase.type.test;
 
 import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.UTF8CharSequence;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,6 +9,7 @@ import org.junit.runners.BlockJUnit4ClassRunner;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -257,6 +259,117 @@ public class StructUtfStringTest {
         assertThat(byteBuffer.getLong()).isEqualTo(signed64);
     }
 
+    @Test
+    public void test_struct_that_utf_string_multibyte_chars_are_correct_with_roundtrip() {
+        // Given
+        final String UTF_STRING = "Gr\u00FC\u00DFe \u20AC \uD83D\uDE00";
+        MyAbstractUtfStringStruct scalarStruct = new MyUtfStringStructLE(UTF_STRING.length());
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(scalarStruct.byteOrder());
+        scalarStruct.initByteBuffer(byteBuffer, 17);
+        // When
+        scalarStruct.m_2_utfString.set(UTF_STRING);
+        // Then
+        assertThat(scalarStruct.m_2_utfString.byteLength()).isEqualTo(UTF_STRING.getBytes(StandardCharsets.UTF_8).length);
+        assertThat(scalarStruct.m_2_utfString.get().toString()).isEqualTo(UTF_STRING);
+        assertThat(scalarStruct.m_2_utfString.get(new StringBuilder("garbage")).toString()).isEqualTo(UTF_STRING);
+    }
+
+    @Test
+    public void test_struct_that_utf_string_is_truncated_on_char_boundary() {
+        // Given
+        final String UTF_STRING = "abcdefghijklmnopqrstuvwxyz\u20AC";
+        MyAbstractUtfStringStruct scalarStruct = new MyUtfStringStructBE(UTF_STRING.length());
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(scalarStruct.byteOrder());
+        scalarStruct.initByteBuffer(byteBuffer, 0);
+        scalarStruct.m_3_signed64.set(4711L);
+        // When
+        scalarStruct.m_2_utfString.set(UTF_STRING);
+        // Then
+        assertThat(scalarStruct.m_2_utfString.get().toString()).isEqualTo("abcdefghijklmnopqrstuvwxyz");
+        assertThat(scalarStruct.m_3_signed64.get()).isEqualTo(4711L);
+    }
+
+    @Test
+    public void test_struct_that_utf_string_decodes_into_char_array() throws Exception {
+        // Given
+        final String UTF_STRING = "x\uD83D\uDE00y";
+        MyAbstractUtfStringStruct scalarStruct = new MyUtfStringStructLE(UTF_STRING.length());
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(scalarStruct.byteOrder());
+        scalarStruct.initByteBuffer(byteBuffer, 0);
+        scalarStruct.m_2_utfString.set(UTF_STRING);
+        // When
+        char[] chars = new char[10];
+        int count = scalarStruct.m_2_utfString.get(chars, 1);
+        char[] tooSmall = new char[2];
+        int countTooSmall = scalarStruct.m_2_utfString.get(tooSmall, 0);
+        // Then
+        assertThat(new String(chars, 1, count)).isEqualTo(UTF_STRING);
+        assertThat(countTooSmall).isEqualTo(1);
+        assertThat(tooSmall[0]).isEqualTo('x');
+    }
+
+    @Test
+    public void test_struct_that_utf_string_compares_without_decoding() {
+        // Given
+        MyAbstractUtfStringStruct scalarStruct1 = new MyUtfStringStructLE(0);
+        MyAbstractUtfStringStruct scalarStruct2 = new MyUtfStringStructLE(0);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(scalarStruct1.byteOrder());
+        scalarStruct1.initByteBuffer(byteBuffer, 0);
+        scalarStruct2.initByteBuffer(byteBuffer, scalarStruct1.size());
+        // When
+        scalarStruct1.m_2_utfString.set("Stra\u00DFe");
+        scalarStruct2.m_2_utfString.set("Strasse");
+        // Then
+        assertThat(scalarStruct1.m_2_utfString.contentEquals("Stra\u00DFe")).isTrue();
+        assertThat(scalarStruct1.m_2_utfString.contentEquals("Strass")).isFalse();
+        assertThat(scalarStruct1.m_2_utfString.contentEquals(scalarStruct2.m_2_utfString)).isFalse();
+        assertThat(scalarStruct1.m_2_utfString.hash()).isEqualTo("Stra\u00DFe".hashCode());
+        assertThat(Integer.signum(scalarStruct1.m_2_utfString.compareTo("Strasse")))
+                .isEqualTo(Integer.signum("Stra\u00DFe".compareTo("Strasse")));
+        assertThat(Integer.signum(scalarStruct1.m_2_utfString.compareTo("Stra\u00DFe!")))
+                .isEqualTo(Integer.signum("Stra\u00DFe".compareTo("Stra\u00DFe!")));
+        assertThat(scalarStruct1.m_2_utfString.compareTo(scalarStruct2.m_2_utfString)).isPositive();
+        assertThat(scalarStruct2.m_2_utfString.compareTo(scalarStruct1.m_2_utfString)).isNegative();
+        // When
+        scalarStruct2.m_2_utfString.set("Stra\u00DFe");
+        // Then
+        assertThat(scalarStruct1.m_2_utfString.contentEquals(scalarStruct2.m_2_utfString)).isTrue();
+        assertThat(scalarStruct1.m_2_utfString.compareTo(scalarStruct2.m_2_utfString)).isZero();
+    }
+
+    @Test
+    public void test_struct_that_malformed_utf_string_is_decoded_leniently_everywhere() throws Exception {
+        // Given: a stray continuation byte, a truncated 3 byte sequence and an invalid lead byte.
+        final String LENIENT = "a\u0080b\u00E2\u0082c\u00FF";
+        MyAbstractUtfStringStruct scalarStruct = new MyUtfStringStructLE(0);
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(scalarStruct.byteOrder());
+        scalarStruct.initByteBuffer(byteBuffer, 0);
+        byte[] malformed = {'a', (byte) 0x80, 'b', (byte) 0xE2, (byte) 0x82, 'c', (byte) 0xFF};
+        for (int i = 0; i < malformed.length; ++i) {
+            byteBuffer.put(scalarStruct.m_2_utfString.absolutePosition() + i, malformed[i]);
+        }
+        // When
+        Struct.Utf8String utfString = scalarStruct.m_2_utfString;
+        UTF8CharSequence view = new UTF8CharSequence().wrap(utfString);
+        char[] chars = new char[10];
+        int count = utfString.get(chars, 0);
+        // Then
+        assertThat(utfString.toString()).isEqualTo(LENIENT);
+        assertThat(utfString.get(new StringBuilder()).toString()).isEqualTo(LENIENT);
+        assertThat(new String(chars, 0, count)).isEqualTo(LENIENT);
+        assertThat(utfString.hash()).isEqualTo(LENIENT.hashCode());
+        assertThat(utfString.contentEquals(LENIENT)).isTrue();
+        assertThat(utfString.compareTo(LENIENT)).isZero();
+        assertThat(view.toString()).isEqualTo(LENIENT);
+        assertThat(view.hashCode()).isEqualTo(LENIENT.hashCode());
+        assertThat(view.charAt(1)).isEqualTo('\u0080');
+    }
+
     static class MyAbstractUtfStringStruct extends Struct {
 
         final Signed8 m_1_signed08 = new Signed8();
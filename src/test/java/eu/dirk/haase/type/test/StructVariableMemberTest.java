@@ -0,0 +1,179 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class StructVariableMemberTest {
+
+    @Test
+    public void test_struct_that_variable_members_use_fixed_slots() {
+        // Given
+        MyVariableStruct struct = new MyVariableStruct();
+        // Then
+        assertThat(struct.m_1_signed32.offset()).isEqualTo(0);
+        assertThat(struct.m_2_varString.offset()).isEqualTo(4);
+        assertThat(struct.m_3_varBytes.offset()).isEqualTo(4 + 8);
+        assertThat(struct.m_4_varGroup.offset()).isEqualTo(4 + 8 + 8);
+        assertThat(struct.m_5_signed64.offset()).isEqualTo(4 + 8 + 8 + 8);
+        assertThat(struct.size()).isEqualTo(4 + 8 + 8 + 8 + 8);
+    }
+
+    @Test
+    public void test_struct_that_variable_members_are_correct_with_roundtrip() {
+        // Given
+        MyVariableStruct struct = new MyVariableStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 123);
+        // When
+        struct.m_1_signed32.set(4711);
+        struct.m_2_varString.set("abc");
+        struct.m_3_varBytes.set(new byte[]{1, 2, 3, 4, 5});
+        struct.m_4_varGroup.setCount(2);
+        struct.m_4_varGroup.get(0).m_1_signed16.set((short) 10);
+        struct.m_4_varGroup.get(1).m_1_signed16.set((short) 11);
+        struct.m_4_varGroup.get(1).m_2_float64.set(1.5d);
+        struct.m_5_signed64.set(-1L);
+        // Then
+        assertThat(struct.m_1_signed32.get()).isEqualTo(4711);
+        assertThat(struct.m_2_varString.get().toString()).isEqualTo("abc");
+        assertThat(struct.m_3_varBytes.get()).containsExactly(1, 2, 3, 4, 5);
+        assertThat(struct.m_4_varGroup.count()).isEqualTo(2);
+        assertThat(struct.m_4_varGroup.get(0).m_1_signed16.get()).isEqualTo((short) 10);
+        assertThat(struct.m_4_varGroup.get(1).m_1_signed16.get()).isEqualTo((short) 11);
+        assertThat(struct.m_4_varGroup.get(1).m_2_float64.get()).isEqualTo(1.5d);
+        assertThat(struct.m_5_signed64.get()).isEqualTo(-1L);
+        assertThat(struct.variableSize()).isEqualTo(3 + 5 + (2 * 10));
+        assertThat(struct.totalSize()).isEqualTo(struct.size() + struct.variableSize());
+        assertThat(struct.m_2_varString.payloadPosition()).isEqualTo(123 + struct.size());
+    }
+
+    @Test
+    public void test_struct_that_variable_members_reuse_or_append_payload() {
+        // Given
+        MyVariableStruct struct = new MyVariableStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 0);
+        struct.m_2_varString.set("abcdef");
+        struct.m_3_varBytes.set(new byte[]{1, 2});
+        // When shorter
+        struct.m_2_varString.set("xyz");
+        // Then in place
+        assertThat(struct.m_2_varString.payloadPosition()).isEqualTo(struct.size());
+        assertThat(struct.variableSize()).isEqualTo(6 + 2);
+        // When longer
+        struct.m_2_varString.set("0123456789");
+        // Then appended
+        assertThat(struct.m_2_varString.payloadPosition()).isEqualTo(struct.size() + 6 + 2);
+        assertThat(struct.m_2_varString.get().toString()).isEqualTo("0123456789");
+        assertThat(struct.m_3_varBytes.get()).containsExactly(1, 2);
+        // When last payload grows
+        struct.m_2_varString.set("0123456789abc");
+        // Then extended in place
+        assertThat(struct.m_2_varString.payloadPosition()).isEqualTo(struct.size() + 6 + 2);
+        assertThat(struct.variableSize()).isEqualTo(6 + 2 + 13);
+        // When cleared
+        struct.clearVariableMembers();
+        // Then
+        assertThat(struct.variableSize()).isEqualTo(0);
+        assertThat(struct.m_2_varString.get().toString()).isEmpty();
+    }
+
+    @Test
+    public void test_struct_that_variable_group_preserves_elements_on_resize() {
+        // Given
+        MyVariableStruct struct = new MyVariableStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 0);
+        struct.m_4_varGroup.setCount(1);
+        struct.m_4_varGroup.get(0).m_1_signed16.set((short) 7);
+        struct.m_3_varBytes.set(new byte[]{9});
+        // When
+        struct.m_4_varGroup.setCount(3);
+        // Then
+        assertThat(struct.m_4_varGroup.get(0).m_1_signed16.get()).isEqualTo((short) 7);
+        assertThat(struct.m_4_varGroup.get(2).m_1_signed16.get()).isEqualTo((short) 0);
+        assertThat(struct.m_3_varBytes.get()).containsExactly(9);
+        assertThatThrownBy(() -> struct.m_4_varGroup.get(3)).isInstanceOf(IndexOutOfBoundsException.class);
+    }
+
+    @Test
+    public void test_struct_that_variable_members_of_inner_struct_share_heap() {
+        // Given
+        MyOuterStruct struct = new MyOuterStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 10);
+        // When
+        struct.m_2_innerStruct.m_2_varString.set("inner");
+        struct.m_3_varString.set("outer");
+        // Then
+        assertThat(struct.m_2_innerStruct.m_2_varString.payloadPosition()).isEqualTo(10 + struct.size());
+        assertThat(struct.m_3_varString.payloadPosition()).isEqualTo(10 + struct.size() + 5);
+        assertThat(struct.m_2_innerStruct.m_2_varString.get().toString()).isEqualTo("inner");
+        assertThat(struct.m_3_varString.get().toString()).isEqualTo("outer");
+        assertThat(struct.variableSize()).isEqualTo(10);
+    }
+
+    @Test
+    public void test_struct_that_variable_member_overflow_is_detected() {
+        // Given
+        MyVariableStruct struct = new MyVariableStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(struct.size() + 4);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 0);
+        // When / Then
+        assertThatThrownBy(() -> struct.m_3_varBytes.set(new byte[5])).isInstanceOf(BufferOverflowException.class);
+    }
+
+    static class MyElementStruct extends Struct {
+        final Signed16 m_1_signed16 = new Signed16();
+        final Float64 m_2_float64 = new Float64();
+
+        public MyElementStruct() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+
+    }
+
+    static class MyOuterStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final MyVariableStruct m_2_innerStruct = inner(new MyVariableStruct(m_1_signed08));
+        final VarUtf8String m_3_varString = new VarUtf8String();
+
+        MyOuterStruct() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+
+    }
+
+    static class MyVariableStruct extends Struct {
+        final Signed32 m_1_signed32 = new Signed32();
+        final VarUtf8String m_2_varString = new VarUtf8String();
+        final VarBytes m_3_varBytes = new VarBytes();
+        final VarGroup<MyElementStruct> m_4_varGroup = new VarGroup<>(new MyElementStruct());
+        final Signed64 m_5_signed64 = new Signed64();
+
+        MyVariableStruct() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+
+        MyVariableStruct(final AbstractMember afterMember) {
+            super(ByteOrder.BIG_ENDIAN, afterMember);
+        }
+
+    }
+
+}
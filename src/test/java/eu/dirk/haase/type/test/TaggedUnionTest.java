@@ -0,0 +1,165 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.TaggedUnion;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class TaggedUnionTest {
+
+    private static MyShape newShape() {
+        MyShape shape = new MyShape();
+        shape.initByteBuffer(ByteBuffer.allocate(shape.size() * 2).order(shape.byteOrder()), 0);
+        return shape;
+    }
+
+    @Test
+    public void test_tagged_union_that_alternatives_overlay_after_the_header() {
+        // Given
+        MyShape shape = new MyShape();
+        // When / Then
+        assertThat(shape.size()).isEqualTo(1 + 2 + 8);
+        assertThat(shape.circle.radius.offset()).isEqualTo(3);
+        assertThat(shape.rect.width.offset()).isEqualTo(3);
+        assertThat(shape.rect.height.offset()).isEqualTo(7);
+    }
+
+    @Test
+    public void test_tagged_union_that_select_makes_the_alternative_live() {
+        // Given
+        MyShape shape = newShape();
+        // When
+        shape.select(shape.rect).width.set(2.0f);
+        shape.rect.height.set(3.0f);
+        // Then
+        assertThat(shape.tag()).isEqualTo(2);
+        assertThat(shape.kind.get()).isEqualTo((short) 2);
+        assertThat(shape.is(shape.rect)).isTrue();
+        assertThat(shape.is(shape.circle)).isFalse();
+        assertThat(shape.variant()).isSameAs(shape.rect);
+        assertThatThrownBy(() -> shape.select(new MyCircle())).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void test_tagged_union_that_cases_dispatch_to_the_flyweight_of_the_position() {
+        // Given
+        MyShape shape = newShape();
+        TaggedUnion.Cases<Double> area = shape.<Double>cases()
+                .on(shape.circle, c -> 3.0d * c.radius.get() * c.radius.get())
+                .on(shape.rect, r -> (double) r.width.get() * r.height.get());
+        shape.select(shape.circle).radius.set(2.0f);
+        shape.setStructAbsolutePosition(shape.size());
+        shape.select(shape.rect).width.set(4.0f);
+        shape.rect.height.set(5.0f);
+        // When
+        double second = shape.accept(area);
+        shape.setStructAbsolutePosition(0);
+        double first = shape.accept(area);
+        // Then
+        assertThat(first).isEqualTo(12.0d);
+        assertThat(second).isEqualTo(20.0d);
+    }
+
+    @Test
+    public void test_tagged_union_that_unknown_tags_are_handled() {
+        // Given
+        MyShape shape = newShape();
+        shape.kind.set((short) 9);
+        TaggedUnion.Cases<String> names = shape.<String>cases().on(shape.circle, c -> "circle");
+        // When / Then
+        assertThat(shape.variant()).isNull();
+        assertThatThrownBy(() -> shape.accept(names)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("9");
+        assertThat(shape.accept(names.otherwise(tag -> "tag " + tag))).isEqualTo("tag 9");
+        assertThatThrownBy(MyDuplicateShape::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Duplicate tag 1");
+    }
+
+    @Test
+    public void test_tagged_union_that_aligned_alternatives_share_the_largest_alignment() {
+        // Given
+        MyAlignedMessage message = new MyAlignedMessage();
+        // When / Then: as the C union, both alternatives start at offset 8.
+        assertThat(message.size()).isEqualTo(16);
+        assertThat(message.alignment()).isEqualTo(8);
+        assertThat(message.small.first.offset()).isEqualTo(8);
+        assertThat(message.small.second.offset()).isEqualTo(9);
+        assertThat(message.large.value.offset()).isEqualTo(8);
+        assertThatThrownBy(MyWideBitsTag::new).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("32 bits");
+    }
+
+    static class MyAlignedMessage extends TaggedUnion {
+        final Unsigned8 kind = tag(new Unsigned8());
+        final MySmall small = variant(1, new MySmall());
+        final MyLarge large = variant(2, new MyLarge());
+
+        MyAlignedMessage() {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+        }
+    }
+
+    static class MyCircle extends Struct {
+        final Float32 radius = new Float32();
+
+        MyCircle() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyDuplicateShape extends TaggedUnion {
+        final Signed32 kind = tag(new Signed32());
+        final MyCircle circle = variant(1, new MyCircle());
+        final MyRect rect = variant(1, new MyRect());
+    }
+
+    static class MyLarge extends Struct {
+        final Signed64 value = new Signed64();
+
+        MyLarge() {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+        }
+    }
+
+    static class MyRect extends Struct {
+        final Float32 width = new Float32();
+        final Float32 height = new Float32();
+
+        MyRect() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MyShape extends TaggedUnion {
+        final Unsigned8 kind = tag(new Unsigned8());
+        final Unsigned16 color = new Unsigned16();
+        final MyCircle circle = variant(1, new MyCircle());
+        final MyRect rect = variant(2, new MyRect());
+
+        MyShape() {
+            super(ByteOrder.BIG_ENDIAN);
+        }
+    }
+
+    static class MySmall extends Struct {
+        final Unsigned8 first = new Unsigned8();
+        final Unsigned8 second = new Unsigned8();
+
+        MySmall() {
+            super(ByteOrder.LITTLE_ENDIAN, Layout.ALIGNED);
+        }
+    }
+
+    static class MyWideBitsTag extends TaggedUnion {
+        final UnsignedBits kind = tag(new UnsignedBits(32));
+    }
+
+}
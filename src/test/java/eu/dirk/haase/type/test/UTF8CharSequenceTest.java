@@ -0,0 +1,119 @@
+package eu.dirk.haase.type.test;
+
+import eu.dirk.haase.type.Struct;
+import eu.dirk.haase.type.UTF8CharSequence;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.BlockJUnit4ClassRunner;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(BlockJUnit4ClassRunner.class)
+public class UTF8CharSequenceTest {
+
+    @Test
+    public void test_that_ascii_view_is_read_directly_from_byte_buffer() {
+        // Given
+        MyStringStruct struct = new MyStringStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 3);
+        struct.m_2_utfString.set("Hallo Welt");
+        // When
+        UTF8CharSequence view = new UTF8CharSequence().wrap(struct.m_2_utfString);
+        // Then
+        assertThat(view.isAscii()).isTrue();
+        assertThat(view.length()).isEqualTo(10);
+        assertThat(view.charAt(4)).isEqualTo('o');
+        assertThat(view.subSequence(6, 10).toString()).isEqualTo("Welt");
+        assertThat(view.toString()).isEqualTo("Hallo Welt");
+        assertThat(view.hashCode()).isEqualTo("Hallo Welt".hashCode());
+    }
+
+    @Test
+    public void test_that_multibyte_view_is_decoded_lazily() {
+        // Given
+        final String UTF_STRING = "Gr\u00FC\u00DFe \uD83D\uDE00";
+        MyStringStruct struct = new MyStringStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 0);
+        struct.m_2_utfString.set(UTF_STRING);
+        // When
+        UTF8CharSequence view = new UTF8CharSequence().wrap(struct.m_2_utfString);
+        // Then
+        assertThat(view.isAscii()).isFalse();
+        assertThat(view.length()).isEqualTo(UTF_STRING.length());
+        assertThat(view.charAt(2)).isEqualTo('\u00FC');
+        assertThat(view.subSequence(0, 5).toString()).isEqualTo("Gr\u00FC\u00DFe");
+        assertThat(view.toString()).isEqualTo(UTF_STRING);
+        assertThat(view.hashCode()).isEqualTo(UTF_STRING.hashCode());
+        assertThat(view.compareTo(UTF_STRING)).isZero();
+    }
+
+    @Test
+    public void test_that_view_can_look_up_map_with_view_keys() {
+        // Given
+        Map<UTF8CharSequence, Integer> map = new HashMap<>();
+        map.put(keyOf("alpha"), 1);
+        map.put(keyOf("\u00E4lpha"), 2);
+        MyStringStruct struct = new MyStringStruct();
+        ByteBuffer byteBuffer = ByteBuffer.allocate(1024);
+        byteBuffer.order(struct.byteOrder());
+        struct.initByteBuffer(byteBuffer, 0);
+        UTF8CharSequence view = new UTF8CharSequence();
+        // When
+        struct.m_2_utfString.set("alpha");
+        Integer value1 = map.get(view.wrap(struct.m_2_utfString));
+        struct.m_2_utfString.set("\u00E4lpha");
+        Integer value2 = map.get(view.wrap(struct.m_2_utfString));
+        struct.m_2_utfString.set("beta");
+        Integer value3 = map.get(view.wrap(struct.m_2_utfString));
+        // Then
+        assertThat(value1).isEqualTo(1);
+        assertThat(value2).isEqualTo(2);
+        assertThat(value3).isNull();
+    }
+
+    @Test
+    public void test_that_equals_is_symmetric_and_content_equals_accepts_strings() {
+        // Given
+        UTF8CharSequence ascii = keyOf("alpha");
+        UTF8CharSequence utf = keyOf("\u00E4lpha");
+        // When
+        boolean viewEqualsString = ascii.equals("alpha");
+        boolean stringEqualsView = "alpha".equals(ascii);
+        // Then
+        assertThat(viewEqualsString).isEqualTo(stringEqualsView).isFalse();
+        assertThat(ascii.equals(keyOf("alpha"))).isTrue();
+        assertThat(keyOf("alpha").equals(ascii)).isTrue();
+        assertThat(utf.equals(keyOf("\u00E4lpha"))).isTrue();
+        assertThat(utf.equals(ascii)).isFalse();
+        assertThat(ascii.contentEquals("alpha")).isTrue();
+        assertThat(ascii.contentEquals(new StringBuilder("alpha"))).isTrue();
+        assertThat(utf.contentEquals("\u00E4lpha")).isTrue();
+        assertThat(utf.contentEquals("alpha")).isFalse();
+        assertThat(ascii.contentEquals(null)).isFalse();
+    }
+
+    private static UTF8CharSequence keyOf(final String string) {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        return new UTF8CharSequence().wrap(ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    static class MyStringStruct extends Struct {
+        final Signed8 m_1_signed08 = new Signed8();
+        final Utf8String m_2_utfString = new Utf8String(32);
+
+        MyStringStruct() {
+            super();
+        }
+
+    }
+
+}